@@ -146,6 +146,8 @@ public final class GuiProtosHelper {
     builder.setDensityRadius(3);
     builder.setDepthOfField(250);
     builder.setDepthOfFocus(450);
+    builder.setStreamFramesPerFile(1000);
+    builder.setPsfStampZStep(25);
     defaultCreateDataSettings = builder.build();
   }
 
@@ -85,6 +85,9 @@ public class FitJob {
   /** The status. */
   Status status = Status.PENDING;
 
+  /** The pool used to recycle the data when the job is finished. */
+  private FrameBufferPool bufferPool;
+
   /**
    * Constructor with data. Exceptions are thrown if invalid bounds or data are passed.
    *
@@ -205,9 +208,26 @@ public class FitJob {
 
   /**
    * Called to indicate that processing of the job has finished.
+   *
+   * <p>If a buffer pool has been set then the data is released to the pool and the data of this
+   * job is set to null.
    */
   public void finished() {
     status = Status.FINISHED;
+    if (bufferPool != null) {
+      bufferPool.release(data);
+      data = null;
+    }
+  }
+
+  /**
+   * Sets the buffer pool. The data will be released to the pool when the job is finished. The data
+   * must not be used by the caller after the job has been submitted for processing.
+   *
+   * @param bufferPool the new buffer pool
+   */
+  public void setBufferPool(FrameBufferPool bufferPool) {
+    this.bufferPool = bufferPool;
   }
 
   /**
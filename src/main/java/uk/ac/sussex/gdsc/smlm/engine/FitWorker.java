@@ -48,7 +48,7 @@ import uk.ac.sussex.gdsc.smlm.engine.FitParameters.FitTask;
 import uk.ac.sussex.gdsc.smlm.filters.BlockAverageDataProcessor;
 import uk.ac.sussex.gdsc.smlm.filters.MaximaSpotFilter;
 import uk.ac.sussex.gdsc.smlm.filters.Spot;
-import uk.ac.sussex.gdsc.smlm.filters.SpotScoreComparator;
+import uk.ac.sussex.gdsc.smlm.filters.SpotCandidates;
 import uk.ac.sussex.gdsc.smlm.fitting.FastGaussian2DFitter;
 import uk.ac.sussex.gdsc.smlm.fitting.FitResult;
 import uk.ac.sussex.gdsc.smlm.fitting.FitStatus;
@@ -765,7 +765,7 @@ public class FitWorker implements Runnable, IMultiPathFitResults, SelectedResult
   }
 
   private CandidateList indentifySpots(FitJob job, int width, int height, FitParameters params) {
-    Spot[] spots = null;
+    SpotCandidates spots = null;
     int maxCandidate = 0;
     int[] maxIndices = null;
 
@@ -775,20 +775,12 @@ public class FitWorker implements Runnable, IMultiPathFitResults, SelectedResult
     if (params != null) {
       maxCandidate = params.maxCandidate;
       if (params.spots != null) {
-        spots = params.spots;
-        if (maxCandidate <= 0 || maxCandidate > spots.length) {
-          maxCandidate = spots.length;
+        spots = SpotCandidates.create(params.spots, width);
+        if (maxCandidate <= 0 || maxCandidate > spots.getSize()) {
+          maxCandidate = spots.getSize();
         }
         // Get the indices for all candidates, even above the max candidate
-        // maxIndices = new int[maxCandidate];
-        // for (int n = 0; n < maxCandidate; n++)
-        // {
-        // maxIndices[n] = spots[n].y * width + spots[n].x;
-        // }
-        maxIndices = new int[spots.length];
-        for (int n = 0; n < maxIndices.length; n++) {
-          maxIndices[n] = spots[n].y * width + spots[n].x;
-        }
+        maxIndices = spots.getIndices();
       } else if (params.maxIndices != null) {
         // Extract the desired spots
         maxIndices = params.maxIndices;
@@ -798,29 +790,19 @@ public class FitWorker implements Runnable, IMultiPathFitResults, SelectedResult
           maxIndices = Arrays.copyOf(maxIndices, maxCandidate);
         }
         final float[] data2 = initialiseSpotFilter().preprocessData(data, width, height);
-        spots = new Spot[maxIndices.length];
-        for (int n = 0; n < maxIndices.length; n++) {
-          final int y = maxIndices[n] / width;
-          final int x = maxIndices[n] % width;
-          final float intensity = data2[maxIndices[n]];
-          spots[n] = new Spot(x, y, intensity);
-        }
-        // Sort the maxima
-        Arrays.sort(spots, SpotScoreComparator.getInstance());
+        // Sort the maxima. This does not reorder the indices.
+        spots = SpotCandidates.create(maxIndices, data2, width).rank();
       }
     }
 
     if (spots == null) {
       // Run the filter to get the spot
-      spots = initialiseSpotFilter().rank(data, width, height);
-      maxCandidate = spots.length;
+      spots = initialiseSpotFilter().rankCandidates(data, width, height);
+      maxCandidate = spots.getSize();
       // filteredData = spotFilter.getPreprocessedData();
       // Extract the indices
       if (requireIndices) {
-        maxIndices = new int[spots.length];
-        for (int n = 0; n < maxIndices.length; n++) {
-          maxIndices[n] = spots[n].y * width + spots[n].x;
-        }
+        maxIndices = spots.getIndices();
       }
     }
 
@@ -835,9 +817,10 @@ public class FitWorker implements Runnable, IMultiPathFitResults, SelectedResult
       job.setIndices(maxIndices);
     }
 
-    final Candidate[] list = new Candidate[spots.length];
-    for (int i = 0; i < spots.length; i++) {
-      list[i] = new Candidate(spots[i], i);
+    final Candidate[] list = new Candidate[spots.getSize()];
+    for (int i = 0; i < list.length; i++) {
+      list[i] = new Candidate(spots.getX(i), spots.getY(i), spots.getIntensity(i),
+          spots.getScore(i), i);
     }
     return new CandidateList(maxCandidate, list);
   }
@@ -4123,17 +4106,9 @@ public class FitWorker implements Runnable, IMultiPathFitResults, SelectedResult
           final Rectangle bounds = new Rectangle(regionBounds);
           bounds.x += cc.dataBounds.x;
           bounds.y += cc.dataBounds.y;
-          final float[] v = (isFitCameraCounts) ? cameraModel.getVariance(bounds)
-              : cameraModel.getNormalisedVariance(bounds);
-          // Convert to double
-          if (ArrayUtils.getLength(varG2) != v.length) {
-            varG2 = SimpleArrayUtils.toDouble(v);
-          } else {
-            // Re-use space
-            for (int i = 0; i < v.length; i++) {
-              varG2[i] = v[i];
-            }
-          }
+          // Re-use space
+          varG2 = (isFitCameraCounts) ? cameraModel.getVariance(bounds, varG2)
+              : cameraModel.getNormalisedVariance(bounds, varG2);
         } else {
           // Create a single valued weight array.
           final float v = (isFitCameraCounts) ? cameraModel.getVariance(0, 0)
@@ -0,0 +1,68 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+
+package uk.ac.sussex.gdsc.smlm.engine;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A pool of frame buffers. Allows the data buffer of a {@link FitJob} to be recycled when the job
+ * has finished.
+ *
+ * <p>This class is thread safe.
+ */
+public class FrameBufferPool {
+  /** The available buffers. */
+  private final Queue<float[]> buffers = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Acquire a buffer from the pool. If no buffer is available then null is returned; the caller
+   * should then allocate a new buffer. The buffer may be larger than the size required.
+   *
+   * @return the buffer (or null)
+   */
+  public float[] acquire() {
+    return buffers.poll();
+  }
+
+  /**
+   * Release the buffer to the pool for reuse.
+   *
+   * @param buffer the buffer (ignored if null)
+   */
+  public void release(float[] buffer) {
+    if (buffer != null) {
+      buffers.add(buffer);
+    }
+  }
+
+  /**
+   * Clear the pool.
+   */
+  public void clear() {
+    buffers.clear();
+  }
+}
@@ -24,7 +24,6 @@
 
 package uk.ac.sussex.gdsc.smlm.filters;
 
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -107,7 +106,7 @@ public final class JurySpotFilter extends MaximaSpotFilter {
   }
 
   @Override
-  protected Spot[] find(float[] data, int width, int height) {
+  protected SpotCandidates findCandidates(float[] data, int width, int height) {
     // Run all the processors and store the total maxima intensity at each index
     final float[] intensity = new float[width * height];
     final float[] sum = new float[intensity.length];
@@ -138,15 +137,14 @@ public final class JurySpotFilter extends MaximaSpotFilter {
     final float divisor = (float) (1.0 / processors.length);
 
     int count = 0;
-    final Spot[] spots = new Spot[maxIndices.length];
+    final float[] spotIntensity = new float[maxIndices.length];
     for (int n = 0; n < maxIndices.length; n++) {
       if (intensity[maxIndices[n]] > 0) {
-        final int y = maxIndices[n] / width;
-        final int x = maxIndices[n] % width;
-        spots[count++] = new Spot(x, y, sum[maxIndices[n]] * divisor);
+        maxIndices[count] = maxIndices[n];
+        spotIntensity[count++] = sum[maxIndices[n]] * divisor;
       }
     }
-    return Arrays.copyOf(spots, count);
+    return SpotCandidates.create(count, maxIndices, spotIntensity, width);
   }
 
   @Override
@@ -74,6 +74,20 @@ public abstract class MaximaSpotFilter extends SpotFilter {
 
   @Override
   protected Spot[] find(final float[] data, final int width, final int height) {
+    final SpotCandidates candidates = findCandidates(data, width, height);
+    return (candidates == null) ? null : candidates.toSpots();
+  }
+
+  /**
+   * Find the candidate spots in the data.
+   *
+   * @param data The data
+   * @param width The width of the data
+   * @param height The height of the data
+   * @return The candidate spots (or null if there are no candidates)
+   */
+  protected SpotCandidates findCandidates(final float[] data, final int width,
+      final int height) {
     data2 = preprocessData(data, width, height);
 
     final int[] maxIndices = getMaxima(data2, width, height);
@@ -81,14 +95,29 @@ public abstract class MaximaSpotFilter extends SpotFilter {
       return null;
     }
 
-    final Spot[] spots = new Spot[maxIndices.length];
-    for (int n = 0; n < maxIndices.length; n++) {
-      final int y = maxIndices[n] / width;
-      final int x = maxIndices[n] % width;
-      final float intensity = data2[maxIndices[n]];
-      spots[n] = new Spot(x, y, intensity);
-    }
-    return spots;
+    return SpotCandidates.create(maxIndices, data2, width);
+  }
+
+  /**
+   * List and then rank the candidate spots in the data. This is equivalent to
+   * {@link #rank(float[], int, int)} but does not create a {@link Spot} for each candidate.
+   *
+   * <p>The candidates will be in the order defined by sorting using the score in descending
+   * order.
+   *
+   * @param data The data
+   * @param width The width of the data
+   * @param height The height of the data
+   * @return The candidate spots (may be empty but will not be null)
+   */
+  public SpotCandidates rankCandidates(float[] data, int width, int height) {
+    final SpotCandidates candidates = findCandidates(data, width, height);
+    return (candidates == null) ? SpotCandidates.empty() : candidates.rank();
+  }
+
+  @Override
+  public Spot[] rank(float[] data, int width, int height) {
+    return rankCandidates(data, width, height).toSpots();
   }
 
   @Override
@@ -0,0 +1,292 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.filters;
+
+import java.util.Arrays;
+
+/**
+ * Store candidate spots (local maxima) using primitive arrays.
+ *
+ * <p>This is an alternative to an array of {@link Spot} objects that avoids creating an object per
+ * candidate. Each candidate has the index of the maxima in the data, the x and y coordinates, the
+ * intensity and the score used for ranking.
+ */
+public final class SpotCandidates {
+  /** An empty int array. */
+  private static final int[] EMPTY_INT = new int[0];
+  /** An empty float array. */
+  private static final float[] EMPTY_FLOAT = new float[0];
+
+  private final int size;
+  private int[] index;
+  private int[] x;
+  private int[] y;
+  private float[] intensity;
+  private float[] score;
+
+  /**
+   * Create an instance.
+   *
+   * @param size the size
+   * @param index the index
+   * @param x the x
+   * @param y the y
+   * @param intensity the intensity
+   * @param score the score
+   */
+  private SpotCandidates(int size, int[] index, int[] x, int[] y, float[] intensity,
+      float[] score) {
+    this.size = size;
+    this.index = index;
+    this.x = x;
+    this.y = y;
+    this.intensity = intensity;
+    this.score = score;
+  }
+
+  /**
+   * Create an empty instance.
+   *
+   * @return the spot candidates
+   */
+  public static SpotCandidates empty() {
+    return new SpotCandidates(0, EMPTY_INT, EMPTY_INT, EMPTY_INT, EMPTY_FLOAT, EMPTY_FLOAT);
+  }
+
+  /**
+   * Create the candidates from the indices of maxima in the data. The intensity and score are
+   * set using the data value at each index.
+   *
+   * <p>Data must be arranged in yx block order, i.e. height rows of width.
+   *
+   * @param maxIndices the indices of the maxima
+   * @param data the data
+   * @param width the width of the data
+   * @return the spot candidates
+   */
+  public static SpotCandidates create(int[] maxIndices, float[] data, int width) {
+    final int size = maxIndices.length;
+    final int[] x = new int[size];
+    final int[] y = new int[size];
+    final float[] intensity = new float[size];
+    for (int n = 0; n < size; n++) {
+      final int index = maxIndices[n];
+      y[n] = index / width;
+      x[n] = index % width;
+      intensity[n] = data[index];
+    }
+    return new SpotCandidates(size, maxIndices, x, y, intensity, intensity.clone());
+  }
+
+  /**
+   * Create the candidates from the indices of maxima and the intensity of each maxima. The score
+   * is set using the intensity.
+   *
+   * @param size the number of candidates
+   * @param maxIndices the indices of the maxima
+   * @param intensity the intensity of each maxima
+   * @param width the width of the data
+   * @return the spot candidates
+   */
+  public static SpotCandidates create(int size, int[] maxIndices, float[] intensity, int width) {
+    final int[] x = new int[size];
+    final int[] y = new int[size];
+    for (int n = 0; n < size; n++) {
+      final int index = maxIndices[n];
+      y[n] = index / width;
+      x[n] = index % width;
+    }
+    return new SpotCandidates(size, maxIndices, x, y, intensity, Arrays.copyOf(intensity, size));
+  }
+
+  /**
+   * Create the candidates from the spots. The index of each candidate is computed using the width.
+   *
+   * @param spots the spots
+   * @param width the width of the data
+   * @return the spot candidates
+   */
+  public static SpotCandidates create(Spot[] spots, int width) {
+    final int size = spots.length;
+    final int[] index = new int[size];
+    final int[] x = new int[size];
+    final int[] y = new int[size];
+    final float[] intensity = new float[size];
+    final float[] score = new float[size];
+    for (int n = 0; n < size; n++) {
+      final Spot spot = spots[n];
+      x[n] = spot.x;
+      y[n] = spot.y;
+      index[n] = spot.y * width + spot.x;
+      intensity[n] = spot.intensity;
+      score[n] = spot.getScore();
+    }
+    return new SpotCandidates(size, index, x, y, intensity, score);
+  }
+
+  /**
+   * Gets the number of candidates.
+   *
+   * @return the size
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Gets the index of the candidate in the data.
+   *
+   * @param candidate the candidate
+   * @return the index
+   */
+  public int getIndex(int candidate) {
+    return index[candidate];
+  }
+
+  /**
+   * Gets the x coordinate of the candidate.
+   *
+   * @param candidate the candidate
+   * @return the x
+   */
+  public int getX(int candidate) {
+    return x[candidate];
+  }
+
+  /**
+   * Gets the y coordinate of the candidate.
+   *
+   * @param candidate the candidate
+   * @return the y
+   */
+  public int getY(int candidate) {
+    return y[candidate];
+  }
+
+  /**
+   * Gets the intensity of the candidate.
+   *
+   * @param candidate the candidate
+   * @return the intensity
+   */
+  public float getIntensity(int candidate) {
+    return intensity[candidate];
+  }
+
+  /**
+   * Gets the score of the candidate.
+   *
+   * @param candidate the candidate
+   * @return the score
+   */
+  public float getScore(int candidate) {
+    return score[candidate];
+  }
+
+  /**
+   * Gets a copy of the indices of the candidates in the data.
+   *
+   * @return the indices
+   */
+  public int[] getIndices() {
+    return Arrays.copyOf(index, size);
+  }
+
+  /**
+   * Gets a copy of the x coordinates of the candidates.
+   *
+   * @return the x coordinates
+   */
+  public int[] getX() {
+    return Arrays.copyOf(x, size);
+  }
+
+  /**
+   * Gets a copy of the y coordinates of the candidates.
+   *
+   * @return the y coordinates
+   */
+  public int[] getY() {
+    return Arrays.copyOf(y, size);
+  }
+
+  /**
+   * Rank the candidates using the score in descending order. Candidates with the same score
+   * maintain their current relative order.
+   *
+   * <p>This is the same order as sorting an array of {@link Spot} using the
+   * {@link SpotScoreComparator}.
+   *
+   * @return this instance
+   */
+  public SpotCandidates rank() {
+    if (size < 2) {
+      return this;
+    }
+    // Sort a key composed of the score (upper 32-bits) and the current position (lower 32-bits).
+    // The score is mapped to an integer with the same order as the float value and inverted for
+    // descending order.
+    final long[] keys = new long[size];
+    for (int i = 0; i < size; i++) {
+      final int bits = Float.floatToIntBits(score[i]);
+      final int sortable = bits ^ ((bits >> 31) & 0x7fffffff);
+      keys[i] = ((long) ~sortable << 32) | i;
+    }
+    Arrays.sort(keys);
+
+    final int[] index2 = new int[size];
+    final int[] x2 = new int[size];
+    final int[] y2 = new int[size];
+    final float[] intensity2 = new float[size];
+    final float[] score2 = new float[size];
+    for (int i = 0; i < size; i++) {
+      final int j = (int) keys[i];
+      index2[i] = index[j];
+      x2[i] = x[j];
+      y2[i] = y[j];
+      intensity2[i] = intensity[j];
+      score2[i] = score[j];
+    }
+    index = index2;
+    x = x2;
+    y = y2;
+    intensity = intensity2;
+    score = score2;
+    return this;
+  }
+
+  /**
+   * Convert the candidates to spots.
+   *
+   * @return the spots
+   */
+  public Spot[] toSpots() {
+    final Spot[] spots = new Spot[size];
+    for (int i = 0; i < size; i++) {
+      spots[i] = new Spot(x[i], y[i], intensity[i], score[i]);
+    }
+    return spots;
+  }
+}
@@ -30,13 +30,14 @@ import java.util.Arrays;
  * Helper for the spot filter.
  */
 public class SpotFilterHelper {
-  private IntBlockSumFilter sumFilter;
-  private int[] data;
+  /** The summed-area table of the spot positions. */
+  private int[] table;
 
   /**
    * Count neighbours within a 2n+1 region around each spot.
    *
-   * <p>This is performed using a block sum filter which may sub-optimal for small lists of spots.
+   * <p>This is performed using a summed-area table of the spot positions which may sub-optimal for
+   * small lists of spots.
    *
    * <p>The dimensions of the data will be extracted from the spot x/y coordinates.
    *
@@ -50,32 +51,20 @@ public class SpotFilterHelper {
       return new int[spots.length];
     }
 
-    // Get the range for the sum filter using the limits.
-    // This prevents filtering too large an image.
-    int minx = spots[0].x;
-    int maxx = minx;
-    int miny = spots[0].y;
-    int maxy = miny;
-    for (int i = 1; i < spots.length; i++) {
-      if (maxx < spots[i].x) {
-        maxx = spots[i].x;
-      } else if (minx > spots[i].x) {
-        minx = spots[i].x;
-      }
-      if (maxy < spots[i].y) {
-        maxy = spots[i].y;
-      } else if (miny > spots[i].y) {
-        miny = spots[i].y;
-      }
+    final int[] x = new int[spots.length];
+    final int[] y = new int[spots.length];
+    for (int i = 0; i < spots.length; i++) {
+      x[i] = spots[i].x;
+      y[i] = spots[i].y;
     }
-
-    return countNeighbours(spots, minx, miny, maxx, maxy, n);
+    return countNeighbours(x, y, spots.length, n);
   }
 
   /**
    * Count neighbours within a 2n+1 region around each spot.
    *
-   * <p>This is performed using a block sum filter which may sub-optimal for small lists of spots.
+   * <p>This is performed using a summed-area table of the spot positions which may sub-optimal for
+   * small lists of spots.
    *
    * @param spots the spots
    * @param width The width of the data
@@ -89,52 +78,145 @@ public class SpotFilterHelper {
       return new int[spots.length];
     }
 
-    return countNeighbours(spots, 0, 0, width - 1, height - 1, n);
+    final int[] x = new int[spots.length];
+    final int[] y = new int[spots.length];
+    for (int i = 0; i < spots.length; i++) {
+      x[i] = spots[i].x;
+      y[i] = spots[i].y;
+    }
+    return countNeighbours(x, y, spots.length, 0, 0, width - 1, height - 1, n);
   }
 
   /**
-   * Count neighbours within a 2n+1 region around each spot.
+   * Count neighbours within a 2n+1 region around each candidate.
    *
-   * <p>This is performed using a block sum filter which may sub-optimal for small lists of spots.
+   * <p>This is performed using a summed-area table of the candidate positions which may
+   * sub-optimal for small lists of candidates.
    *
-   * @param spots the spots
+   * <p>The dimensions of the data will be extracted from the candidate x/y coordinates.
+   *
+   * @param candidates the candidates
+   * @param n The block size
+   * @return the neighbour count for each candidate
+   */
+  public int[] countNeighbours(SpotCandidates candidates, int n) {
+    return countNeighbours(candidates.getX(), candidates.getY(), candidates.getSize(), n);
+  }
+
+  /**
+   * Count neighbours within a 2n+1 region around each candidate.
+   *
+   * <p>This is performed using a summed-area table of the candidate positions which may
+   * sub-optimal for small lists of candidates.
+   *
+   * @param candidates the candidates
+   * @param width The width of the data
+   * @param height The height of the data
+   * @param n The block size
+   * @return the neighbour count for each candidate
+   */
+  public int[] countNeighbours(SpotCandidates candidates, int width, int height, int n) {
+    return countNeighbours(candidates.getX(), candidates.getY(), candidates.getSize(), 0, 0,
+        width - 1, height - 1, n);
+  }
+
+  /**
+   * Count neighbours within a 2n+1 region around each position.
+   *
+   * @param x the x coordinates
+   * @param y the y coordinates
+   * @param size the number of positions
+   * @param n The block size
+   * @return the neighbour count for each position
+   */
+  private int[] countNeighbours(int[] x, int[] y, int size, int n) {
+    if (size <= 1 || n <= 0) {
+      // No neighbours are possible
+      return new int[size];
+    }
+
+    // Get the range for the table using the limits.
+    // This prevents building too large a table.
+    int minx = x[0];
+    int maxx = minx;
+    int miny = y[0];
+    int maxy = miny;
+    for (int i = 1; i < size; i++) {
+      if (maxx < x[i]) {
+        maxx = x[i];
+      } else if (minx > x[i]) {
+        minx = x[i];
+      }
+      if (maxy < y[i]) {
+        maxy = y[i];
+      } else if (miny > y[i]) {
+        miny = y[i];
+      }
+    }
+
+    return countNeighbours(x, y, size, minx, miny, maxx, maxy, n);
+  }
+
+  /**
+   * Count neighbours within a 2n+1 region around each position.
+   *
+   * <p>A summed-area table is built over the range. Each entry (i,j) is the count of positions in
+   * the rectangle up to but excluding (i,j). The count in any block is then computed with four
+   * table look-ups.
+   *
+   * @param x the x coordinates
+   * @param y the y coordinates
+   * @param size the number of positions
    * @param minx the minx
    * @param miny the miny
    * @param maxx the maxx
    * @param maxy the maxy
    * @param n The block size
-   * @return the neighbour count for each spot
+   * @return the neighbour count for each position
    */
-  private int[] countNeighbours(Spot[] spots, int minx, int miny, int maxx, int maxy, int n) {
-    if (spots.length <= 1 || n <= 0) {
+  private int[] countNeighbours(int[] x, int[] y, int size, int minx, int miny, int maxx,
+      int maxy, int n) {
+    final int[] count = new int[size];
+    if (size <= 1 || n <= 0) {
       // No neighbours are possible
-      return new int[spots.length];
+      return count;
     }
 
-    // Initialise
-    if (sumFilter == null) {
-      sumFilter = new IntBlockSumFilter();
-    }
+    // Initialise. The table has an extra row and column of zeros.
     final int width = maxx - minx + 1;
     final int height = maxy - miny + 1;
-    final int size = width * height;
-    if (data == null || data.length < size) {
-      data = new int[size];
+    final int tableWidth = width + 1;
+    final int tableSize = tableWidth * (height + 1);
+    if (table == null || table.length < tableSize) {
+      table = new int[tableSize];
     } else {
-      Arrays.fill(data, 0, size, 0);
+      Arrays.fill(table, 0, tableSize, 0);
     }
 
-    // Add the spots
-    for (int i = 0; i < spots.length; i++) {
-      data[(spots[i].x - minx) + (spots[i].y - miny) * width] = 1;
+    // Mark the positions. Duplicates are only counted once.
+    for (int i = 0; i < size; i++) {
+      table[(x[i] - minx + 1) + (y[i] - miny + 1) * tableWidth] = 1;
     }
 
-    sumFilter.rollingBlockFilter(data, width, height, n);
+    // Build the table
+    for (int j = 1, index = tableWidth + 1; j <= height; j++, index++) {
+      int rowSum = 0;
+      for (int i = 1; i <= width; i++, index++) {
+        rowSum += table[index];
+        table[index] = rowSum + table[index - tableWidth];
+      }
+    }
 
-    final int[] count = new int[spots.length];
-    for (int i = 0; i < spots.length; i++) {
-      // Subtract the actual spot from the count
-      count[i] = data[(spots[i].x - minx) + (spots[i].y - miny) * width] - 1;
+    for (int i = 0; i < size; i++) {
+      // Block limits clipped to the range. The upper limit is exclusive.
+      final int x1 = Math.max(0, x[i] - minx - n);
+      final int y1 = Math.max(0, y[i] - miny - n);
+      final int x2 = Math.min(width, x[i] - minx + n + 1);
+      final int y2 = Math.min(height, y[i] - miny + n + 1);
+      final int sum = table[x2 + y2 * tableWidth] - table[x1 + y2 * tableWidth]
+          - table[x2 + y1 * tableWidth] + table[x1 + y1 * tableWidth];
+      // Subtract the actual position from the count
+      count[i] = sum - 1;
     }
 
     return count;
@@ -143,7 +225,8 @@ public class SpotFilterHelper {
   /**
    * Count neighbours within a 2n+1 region around each spot.
    *
-   * <p>This is performed using a block sum filter which may sub-optimal for small lists of spots.
+   * <p>This is performed using a summed-area table of the spot positions which may sub-optimal for
+   * small lists of spots.
    *
    * <p>The dimensions of the data will be extracted from the spot x/y coordinates.
    *
@@ -158,7 +241,8 @@ public class SpotFilterHelper {
   /**
    * Count neighbours within a 2n+1 region around each spot.
    *
-   * <p>This is performed using a block sum filter which may sub-optimal for small lists of spots.
+   * <p>This is performed using a summed-area table of the spot positions which may sub-optimal for
+   * small lists of spots.
    *
    * @param spots the spots
    * @param width The width of the data
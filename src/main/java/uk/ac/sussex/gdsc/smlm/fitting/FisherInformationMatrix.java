@@ -26,7 +26,9 @@ package uk.ac.sussex.gdsc.smlm.fitting;
 
 import uk.ac.sussex.gdsc.core.annotation.NotNull;
 import uk.ac.sussex.gdsc.core.annotation.Nullable;
+import uk.ac.sussex.gdsc.smlm.fitting.linear.CholeskyLdlTSolver;
 import uk.ac.sussex.gdsc.smlm.fitting.linear.EjmlLinearSolver;
+import uk.ac.sussex.gdsc.smlm.fitting.linear.UnrolledInverseFromMinorExt;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.ejml.data.DenseMatrix64F;
@@ -50,6 +52,8 @@ public class FisherInformationMatrix {
   private double[] crlb;
   private byte inverted = UNKNOWN;
   private double inversionTolerance;
+  /** The solver for large matrices. This is created on demand and reused for each inversion. */
+  private CholeskyLdlTSolver solver;
 
   /**
    * Instantiates a new fisher information matrix.
@@ -154,9 +158,23 @@ public class FisherInformationMatrix {
 
     inverted = NO;
 
-    // Matrix inversion
-    final EjmlLinearSolver solver = EjmlLinearSolver.createForInversion(inversionTolerance);
-    final double[] result = solver.invertDiagonal(matrix); // Does not modify the matrix
+    // Matrix inversion.
+    // Small matrices are handled by the unrolled inversion in the EJML solver. Larger matrices
+    // use a fast LDL^T decomposition if positive definite and the inversion is within the
+    // tolerance. Otherwise use the EJML solver which will compute a pseudo-inverse for singular
+    // matrices.
+    double[] result = null;
+    if (matrix.numCols > UnrolledInverseFromMinorExt.MAX
+        && CholeskyLdlTSolver.isSupported(matrix.numCols)) {
+      if (solver == null) {
+        solver = new CholeskyLdlTSolver();
+      }
+      result = solver.invertDiagonal(matrix.data, matrix.numCols, inversionTolerance);
+    }
+    if (result == null) {
+      final EjmlLinearSolver solver = EjmlLinearSolver.createForInversion(inversionTolerance);
+      result = solver.invertDiagonal(matrix); // Does not modify the matrix
+    }
     if (result == null) {
       return;
     }
@@ -388,10 +406,16 @@ public class FisherInformationMatrix {
    * identity matrix: A * A^-1 = I. Elements must be within the tolerance or else the inversion is
    * rejected. Set to zero to disable.
    *
+   * <p>Changing the tolerance resets any previous inversion.
+   *
    * @param inversionTolerance the new inversion tolerance
    */
   public void setInversionTolerance(double inversionTolerance) {
-    this.inversionTolerance = inversionTolerance;
+    if (this.inversionTolerance != inversionTolerance) {
+      this.inversionTolerance = inversionTolerance;
+      inverted = UNKNOWN;
+      crlb = null;
+    }
   }
 
   /**
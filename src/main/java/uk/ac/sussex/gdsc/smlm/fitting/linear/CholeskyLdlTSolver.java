@@ -0,0 +1,333 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.fitting.linear;
+
+import uk.ac.sussex.gdsc.core.utils.DoubleEquality;
+
+/**
+ * Solves symmetric positive definite linear equations, A x = b, using an LDL<sup>T</sup>
+ * decomposition on a packed row-major {@code double[]} matrix.
+ *
+ * <p>This is intended for the small matrices of the Levenberg-Marquardt fitting routines. All
+ * working storage is allocated once for the largest size that has been used and reused for
+ * subsequent calls. The input matrix is not modified and the vector b is only modified if the
+ * solve is successful. This allows the caller to fall back to the more robust
+ * {@link EjmlLinearSolver} when the matrix is not positive definite.
+ *
+ * <p>The decomposition fails if a pivot is not above a small fraction of the corresponding
+ * diagonal element of the input matrix. This identifies singular or near-singular matrices.
+ */
+public class CholeskyLdlTSolver {
+  /** The maximum supported matrix size. */
+  public static final int MAX = 40;
+
+  /** The relative tolerance for each pivot of the decomposition. */
+  private static final double PIVOT_TOLERANCE = 1e-10;
+
+  /** The decomposition. L is stored below the diagonal and D on the diagonal. */
+  private double[] ld = new double[0];
+  /** Working space for a vector. */
+  private double[] work = new double[0];
+  /** Working space for the solution. */
+  private double[] x = new double[0];
+  /** Working space for the inverse of L. */
+  private double[] linv = new double[0];
+  /** Working space for the inverse of A. */
+  private double[] inv = new double[0];
+
+  /** Used to validate the solution. */
+  private DoubleEquality equal;
+
+  /**
+   * Instantiates a new solver.
+   */
+  public CholeskyLdlTSolver() {}
+
+  /**
+   * Instantiates a new solver.
+   *
+   * @param equal the equality class to compare that the solution x in A x = b is valid
+   */
+  public CholeskyLdlTSolver(DoubleEquality equal) {
+    this.equal = equal;
+  }
+
+  /**
+   * Sets the equality class to compare that the solution x in A x = b is valid.
+   *
+   * <p>Set to null to disable the validation.
+   *
+   * @param equal the new equality
+   */
+  public void setEqual(DoubleEquality equal) {
+    this.equal = equal;
+  }
+
+  /**
+   * Gets the equality class to compare that the solution x in A x = b is valid.
+   *
+   * @return the equality
+   */
+  public DoubleEquality getEqual() {
+    return equal;
+  }
+
+  /**
+   * Checks if the size is supported.
+   *
+   * @param n the size
+   * @return true if supported
+   */
+  public static boolean isSupported(int n) {
+    return n > 0 && n <= MAX;
+  }
+
+  /**
+   * Solves (one) linear equation, A x = b.
+   *
+   * <p>On output b is replaced by x if successful. The matrix a is not modified.
+   *
+   * @param a the matrix a (packed row-major, size n*n where n is the length of b)
+   * @param b the vector b
+   * @return False if the equation is singular (no solution) or the size is not supported
+   */
+  public boolean solve(double[] a, double[] b) {
+    final int n = b.length;
+    if (!isSupported(n) || !decompose(a, n)) {
+      return false;
+    }
+
+    final double[] m = ld;
+    final double[] z = x;
+    // Forward substitution: L z = b
+    for (int i = 0; i < n; i++) {
+      double sum = b[i];
+      for (int k = 0, index = i * n; k < i; k++, index++) {
+        sum -= m[index] * z[k];
+      }
+      z[i] = sum;
+    }
+    // Scale: D y = z
+    for (int i = 0; i < n; i++) {
+      z[i] /= m[i * n + i];
+    }
+    // Back substitution: L^T x = y
+    for (int i = n; i-- > 0;) {
+      double sum = z[i];
+      for (int k = i + 1; k < n; k++) {
+        sum -= m[k * n + i] * z[k];
+      }
+      z[i] = sum;
+    }
+
+    if (equal != null && !validate(a, z, b, n)) {
+      return false;
+    }
+    for (int i = 0; i < n; i++) {
+      if (!Double.isFinite(z[i])) {
+        return false;
+      }
+    }
+    System.arraycopy(z, 0, b, 0, n);
+    return true;
+  }
+
+  /**
+   * Computes the inverse of the symmetric positive definite matrix and returns only the diagonal.
+   * The matrix is not modified.
+   *
+   * @param a the matrix a (packed row-major, size n*n)
+   * @param n the size
+   * @return The diagonal of the inverted matrix (or null)
+   */
+  public double[] invertDiagonal(double[] a, int n) {
+    if (!isSupported(n) || !decompose(a, n)) {
+      return null;
+    }
+
+    // A^-1 = L^-T D^-1 L^-1 so the diagonal element i is the sum over k of (L^-1)[k][i]^2 / D[k].
+    // Column i of L^-1 is the solution of L y = e_i which has y[k] = 0 for k < i.
+    final double[] m = ld;
+    final double[] y = x;
+    final double[] d = new double[n];
+    for (int i = 0; i < n; i++) {
+      y[i] = 1;
+      double sum = 1 / m[i * n + i];
+      for (int k = i + 1; k < n; k++) {
+        double yk = 0;
+        for (int j = i, index = k * n + i; j < k; j++, index++) {
+          yk -= m[index] * y[j];
+        }
+        y[k] = yk;
+        sum += yk * yk / m[k * n + k];
+      }
+      if (!Double.isFinite(sum)) {
+        return null;
+      }
+      d[i] = sum;
+    }
+    return d;
+  }
+
+  /**
+   * Computes the inverse of the symmetric positive definite matrix and returns only the diagonal.
+   * The matrix is not modified.
+   *
+   * <p>If the inversion tolerance is positive the full inverse is computed and the inversion is
+   * rejected if any element of A A<sup>-1</sup> differs from the identity matrix by more than the
+   * tolerance. This is the same check applied by the {@link EjmlLinearSolver} created using
+   * {@link EjmlLinearSolver#createForInversion(double)}.
+   *
+   * @param a the matrix a (packed row-major, size n*n)
+   * @param n the size
+   * @param inversionTolerance the inversion tolerance (ignored if not positive)
+   * @return The diagonal of the inverted matrix (or null)
+   */
+  public double[] invertDiagonal(double[] a, int n, double inversionTolerance) {
+    if (!(inversionTolerance > 0)) {
+      return invertDiagonal(a, n);
+    }
+    if (!isSupported(n) || !decompose(a, n)) {
+      return null;
+    }
+    if (linv.length < n * n) {
+      linv = new double[n * n];
+      inv = new double[n * n];
+    }
+
+    // Column i of L^-1 is the solution of L y = e_i which has y[k] = 0 for k < i.
+    // Store (L^-1)[k][i] at index k * n + i.
+    final double[] m = ld;
+    final double[] li = linv;
+    for (int i = 0; i < n; i++) {
+      li[i * n + i] = 1;
+      for (int k = i + 1; k < n; k++) {
+        double yk = 0;
+        for (int j = i, index = k * n + i; j < k; j++, index++) {
+          yk -= m[index] * li[j * n + i];
+        }
+        li[k * n + i] = yk;
+      }
+    }
+
+    // A^-1 = L^-T D^-1 L^-1 so element [r][c] is the sum over k >= max(r, c) of
+    // (L^-1)[k][r] * (L^-1)[k][c] / D[k].
+    final double[] ai = inv;
+    for (int r = 0; r < n; r++) {
+      for (int c = r; c < n; c++) {
+        double sum = 0;
+        for (int k = c; k < n; k++) {
+          sum += li[k * n + r] * li[k * n + c] / m[k * n + k];
+        }
+        if (!Double.isFinite(sum)) {
+          return null;
+        }
+        ai[r * n + c] = ai[c * n + r] = sum;
+      }
+    }
+
+    // Check A A^-1 = I
+    for (int r = 0; r < n; r++) {
+      final int rowr = r * n;
+      for (int c = 0; c < n; c++) {
+        double sum = 0;
+        for (int j = 0; j < n; j++) {
+          sum += a[rowr + j] * ai[j * n + c];
+        }
+        if (Math.abs(sum - ((r == c) ? 1 : 0)) > inversionTolerance) {
+          return null;
+        }
+      }
+    }
+
+    final double[] d = new double[n];
+    for (int i = 0; i < n; i++) {
+      d[i] = ai[i * n + i];
+    }
+    return d;
+  }
+
+  /**
+   * Compute the LDL<sup>T</sup> decomposition of the matrix.
+   *
+   * @param a the matrix a
+   * @param n the size
+   * @return true if successful
+   */
+  private boolean decompose(double[] a, int n) {
+    if (ld.length < n * n) {
+      ld = new double[n * n];
+      work = new double[n];
+      x = new double[n];
+    }
+    final double[] m = ld;
+    final double[] v = work;
+    for (int j = 0; j < n; j++) {
+      final int rowj = j * n;
+      // v[k] = L[j][k] * D[k]
+      double dj = a[rowj + j];
+      for (int k = 0; k < j; k++) {
+        v[k] = m[rowj + k] * m[k * n + k];
+        dj -= m[rowj + k] * v[k];
+      }
+      // Also rejects NaN
+      if (!(dj > PIVOT_TOLERANCE * Math.abs(a[rowj + j]))) {
+        return false;
+      }
+      m[rowj + j] = dj;
+      for (int i = j + 1; i < n; i++) {
+        final int rowi = i * n;
+        double sum = a[rowi + j];
+        for (int k = 0; k < j; k++) {
+          sum -= m[rowi + k] * v[k];
+        }
+        m[rowi + j] = sum / dj;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check that the solution for x satisfies A x = b within the error tolerance.
+   *
+   * @param a the matrix a
+   * @param x the x
+   * @param b the b
+   * @param n the size
+   * @return true, if successful
+   */
+  private boolean validate(double[] a, double[] x, double[] b, int n) {
+    for (int i = 0, index = 0; i < n; i++) {
+      double bi = 0;
+      for (int j = 0; j < n; j++) {
+        bi += a[index++] * x[j];
+      }
+      if (!equal.almostEqualRelativeOrAbsolute(b[i], bi)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
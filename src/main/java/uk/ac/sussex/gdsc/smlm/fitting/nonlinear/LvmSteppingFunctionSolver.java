@@ -27,6 +27,7 @@ package uk.ac.sussex.gdsc.smlm.fitting.nonlinear;
 import uk.ac.sussex.gdsc.core.utils.DoubleEquality;
 import uk.ac.sussex.gdsc.smlm.fitting.FitStatus;
 import uk.ac.sussex.gdsc.smlm.fitting.FunctionSolverType;
+import uk.ac.sussex.gdsc.smlm.fitting.linear.CholeskyLdlTSolver;
 import uk.ac.sussex.gdsc.smlm.fitting.linear.EjmlLinearSolver;
 import uk.ac.sussex.gdsc.smlm.fitting.nonlinear.gradient.LvmGradientProcedure;
 import uk.ac.sussex.gdsc.smlm.function.Gradient1Function;
@@ -42,6 +43,12 @@ public abstract class LvmSteppingFunctionSolver extends SteppingFunctionSolver {
    */
   protected EjmlLinearSolver solver = new EjmlLinearSolver();
 
+  /**
+   * The allocation-free solver used for solving A x = b for small matrices. The {@link #solver} is
+   * used if this fails.
+   */
+  protected CholeskyLdlTSolver smallSolver = new CholeskyLdlTSolver();
+
   /** The gradient procedure. */
   protected LvmGradientProcedure gradientProcedure;
 
@@ -99,6 +106,7 @@ public abstract class LvmSteppingFunctionSolver extends SteppingFunctionSolver {
       double maxRelativeError, double maxAbsoluteError) {
     super(type, function);
     solver.setEqual(new DoubleEquality(maxRelativeError, maxAbsoluteError));
+    smallSolver.setEqual(solver.getEqual());
   }
 
   /**
@@ -133,6 +141,7 @@ public abstract class LvmSteppingFunctionSolver extends SteppingFunctionSolver {
       double maxAbsoluteError) {
     super(type, function, tc, bounds);
     solver.setEqual(new DoubleEquality(maxRelativeError, maxAbsoluteError));
+    smallSolver.setEqual(solver.getEqual());
   }
 
   @Override
@@ -210,6 +219,10 @@ public abstract class LvmSteppingFunctionSolver extends SteppingFunctionSolver {
       // Scale the diagonal of the Hessian to favour direct descent
       walpha[j] *= scale;
     }
+    // Try the fast solver. This does not modify walpha and only updates the step if successful.
+    if (smallSolver.solve(walpha, step)) {
+      return;
+    }
     if (!solver.solve(walpha, step)) {
       throw new FunctionSolverException(FitStatus.SINGULAR_NON_LINEAR_MODEL);
     }
@@ -25,9 +25,17 @@
 package uk.ac.sussex.gdsc.smlm.ga;
 
 import uk.ac.sussex.gdsc.core.logging.TrackProgress;
+import uk.ac.sussex.gdsc.core.utils.concurrent.ConcurrencyUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Contains a population of individuals that may crossover and mutate to evolve.
@@ -47,6 +55,147 @@ public class Population<T extends Comparable<T>> {
   private int iteration;
   // This introduces a dependency on another uk.ac.sussex.gdsc.smlm package
   private TrackProgress tracker;
+  private ExecutorService executorService;
+  private int fitnessCacheSize;
+  private Map<SequenceKey, T> fitnessCache;
+  private final List<GenerationStatistics> statistics = new ArrayList<>();
+  private GenerationStatistics current;
+
+  /**
+   * Wrap a chromosome sequence for use as a key in a map.
+   */
+  private static final class SequenceKey {
+    private final double[] sequence;
+    private final int hash;
+
+    SequenceKey(double[] sequence) {
+      this.sequence = sequence.clone();
+      hash = Arrays.hashCode(sequence);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof SequenceKey)) {
+        return false;
+      }
+      return Arrays.equals(sequence, ((SequenceKey) obj).sequence);
+    }
+  }
+
+  /**
+   * A bounded cache of the fitness using the least recently used entry for eviction.
+   *
+   * @param <T> the generic type
+   */
+  private static final class FitnessCache<T> extends LinkedHashMap<SequenceKey, T> {
+    private static final long serialVersionUID = 1L;
+
+    private final int maxSize;
+
+    FitnessCache(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<SequenceKey, T> eldest) {
+      return size() > maxSize;
+    }
+  }
+
+  /**
+   * Contains the statistics for a single generation of the [grow, evaluate, select] cycle.
+   */
+  public static final class GenerationStatistics {
+    private final int iteration;
+    private long growTime;
+    private long evaluationTime;
+    private long selectionTime;
+    private int size;
+    private int evaluated;
+    private int cacheHits;
+
+    /**
+     * Create a new instance.
+     *
+     * @param iteration the iteration
+     */
+    GenerationStatistics(int iteration) {
+      this.iteration = iteration;
+    }
+
+    /**
+     * Gets the iteration.
+     *
+     * @return the iteration
+     */
+    public int getIteration() {
+      return iteration;
+    }
+
+    /**
+     * Gets the time to grow the population (in nanoseconds).
+     *
+     * @return the grow time
+     */
+    public long getGrowTime() {
+      return growTime;
+    }
+
+    /**
+     * Gets the time to evaluate the fitness of the population (in nanoseconds).
+     *
+     * @return the evaluation time
+     */
+    public long getEvaluationTime() {
+      return evaluationTime;
+    }
+
+    /**
+     * Gets the time to select the subset of the population for the next generation (in
+     * nanoseconds). This is zero for the final generation.
+     *
+     * @return the selection time
+     */
+    public long getSelectionTime() {
+      return selectionTime;
+    }
+
+    /**
+     * Gets the size of the population that was evaluated.
+     *
+     * @return the size
+     */
+    public int getSize() {
+      return size;
+    }
+
+    /**
+     * Gets the number of individuals that were scored using the fitness function.
+     *
+     * @return the number evaluated
+     */
+    public int getEvaluated() {
+      return evaluated;
+    }
+
+    /**
+     * Gets the number of individuals that were scored using the fitness cache.
+     *
+     * @return the cache hits
+     */
+    public int getCacheHits() {
+      return cacheHits;
+    }
+  }
 
   /**
    * Create a population of individuals.
@@ -106,6 +255,8 @@ public class Population<T extends Comparable<T>> {
     for (final Chromosome<T> c : individuals) {
       c.setFitness(null);
     }
+    fitnessCache = (fitnessCacheSize > 0) ? new FitnessCache<>(fitnessCacheSize) : null;
+    statistics.clear();
 
     // Find the best individual
     grow(selectionStrategy, mutator, recombiner);
@@ -134,6 +285,18 @@ public class Population<T extends Comparable<T>> {
   private void grow(SelectionStrategy<T> selectionStrategy, Mutator<T> mutator,
       Recombiner<T> recombiner) {
     iteration++;
+    current = new GenerationStatistics(iteration);
+    statistics.add(current);
+    final long startTime = System.nanoTime();
+    try {
+      growPopulation(selectionStrategy, mutator, recombiner);
+    } finally {
+      current.growTime = System.nanoTime() - startTime;
+    }
+  }
+
+  private void growPopulation(SelectionStrategy<T> selectionStrategy, Mutator<T> mutator,
+      Recombiner<T> recombiner) {
     start("Grow");
 
     if (individuals.size() >= populationSize) {
@@ -266,37 +429,67 @@ public class Population<T extends Comparable<T>> {
   /**
    * Calculate the fitness of the population.
    *
+   * <p>Individuals with an existing fitness are unchanged. The remaining individuals are scored
+   * using the fitness cache if enabled, otherwise by the fitness function. If an executor service
+   * has been set then the fitness function is evaluated in parallel.
+   *
    * @param fitnessFunction the fitness function
    * @return The fittest individual
    */
   private Chromosome<T> evaluateFitness(FitnessFunction<T> fitnessFunction) {
     start("Score");
+    final long startTime = System.nanoTime();
 
     Chromosome<T> best = null;
     T max = null;
 
     // Subset only those with no fitness score (the others must be unchanged)
     final ArrayList<Chromosome<T>> subset = new ArrayList<>(individuals.size());
+    // Individuals with the same sequence as an individual in the subset
+    final Map<SequenceKey, Chromosome<T>> pending =
+        (fitnessCache == null) ? null : new HashMap<>();
+    final ArrayList<ChromosomePair<T>> duplicates = new ArrayList<>();
     long count = 0;
+    int cacheHits = 0;
     for (final Chromosome<T> c : individuals) {
-      final T f = c.getFitness();
+      T f = c.getFitness();
       if (f == null) {
-        subset.add(c);
-      } else {
-        if (tracker != null) {
-          tracker.progress(++count, individuals.size());
+        if (pending == null) {
+          subset.add(c);
+          continue;
         }
-        if (f.compareTo(max) < 0) {
-          max = f;
-          best = c;
+        final SequenceKey key = new SequenceKey(c.sequence());
+        if (!fitnessCache.containsKey(key)) {
+          final Chromosome<T> original = pending.putIfAbsent(key, c);
+          if (original == null) {
+            subset.add(c);
+          } else {
+            duplicates.add(new ChromosomePair<>(original, c));
+          }
+          continue;
         }
+        f = fitnessCache.get(key);
+        c.setFitness(f);
+        cacheHits++;
+      }
+      if (tracker != null) {
+        tracker.progress(++count, individuals.size());
+      }
+      if (f != null && f.compareTo(max) < 0) {
+        max = f;
+        best = c;
       }
     }
 
     fitnessFunction.initialise(subset);
-    for (final Chromosome<T> c : subset) {
-      final T f = fitnessFunction.fitness(c);
+    final List<T> fitness = computeFitness(fitnessFunction, subset);
+    for (int i = 0; i < subset.size(); i++) {
+      final Chromosome<T> c = subset.get(i);
+      final T f = fitness.get(i);
       c.setFitness(f);
+      if (fitnessCache != null) {
+        fitnessCache.put(new SequenceKey(c.sequence()), f);
+      }
       if (f != null && f.compareTo(max) < 0) {
         max = f;
         best = c;
@@ -305,13 +498,54 @@ public class Population<T extends Comparable<T>> {
         tracker.progress(++count, individuals.size());
       }
     }
+    for (final ChromosomePair<T> pair : duplicates) {
+      pair.c2.setFitness(pair.c1.getFitness());
+      cacheHits++;
+      if (tracker != null) {
+        tracker.progress(++count, individuals.size());
+      }
+    }
     fitnessFunction.shutdown();
 
+    current.size = individuals.size();
+    current.evaluated = subset.size();
+    current.cacheHits = cacheHits;
+    current.evaluationTime = System.nanoTime() - startTime;
+
     end();
 
     return best;
   }
 
+  /**
+   * Compute the fitness of each individual. This is performed in parallel if an executor service is
+   * available.
+   *
+   * @param fitnessFunction the fitness function
+   * @param subset the individuals
+   * @return the fitness
+   */
+  private List<T> computeFitness(FitnessFunction<T> fitnessFunction,
+      List<Chromosome<T>> subset) {
+    final int size = subset.size();
+    @SuppressWarnings("unchecked")
+    final T[] fitness = (T[]) new Comparable[size];
+    if (executorService == null || size < 2) {
+      for (int i = 0; i < size; i++) {
+        fitness[i] = fitnessFunction.fitness(subset.get(i));
+      }
+    } else {
+      final List<Future<?>> futures = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        final int index = i;
+        futures.add(executorService
+            .submit(() -> fitness[index] = fitnessFunction.fitness(subset.get(index))));
+      }
+      ConcurrencyUtils.waitForCompletionUnchecked(futures);
+    }
+    return Arrays.asList(fitness);
+  }
+
   /**
    * Select a subset of the population.
    *
@@ -320,7 +554,9 @@ public class Population<T extends Comparable<T>> {
    */
   private boolean select(SelectionStrategy<T> selection) {
     start("Select");
+    final long startTime = System.nanoTime();
     individuals = selection.select(individuals);
+    current.selectionTime = System.nanoTime() - startTime;
     end();
     return !individuals.isEmpty();
   }
@@ -382,6 +618,62 @@ public class Population<T extends Comparable<T>> {
     this.tracker = tracker;
   }
 
+  /**
+   * Gets the executor service used to evaluate the fitness function in parallel.
+   *
+   * @return the executor service (can be null)
+   */
+  public ExecutorService getExecutorService() {
+    return executorService;
+  }
+
+  /**
+   * Set the executor service used to evaluate the fitness function in parallel.
+   *
+   * <p>If set then the {@link FitnessFunction#fitness(Chromosome)} method will be called
+   * concurrently for the individuals passed to {@link FitnessFunction#initialise(List)} and must be
+   * thread safe. The fitness is assigned to each individual in the order of the population so the
+   * evolution is the same as the serial evaluation. The executor service is not shutdown by the
+   * population.
+   *
+   * @param executorService the executor service (set to null for serial evaluation)
+   */
+  public void setExecutorService(ExecutorService executorService) {
+    this.executorService = executorService;
+  }
+
+  /**
+   * Gets the fitness cache size.
+   *
+   * @return the fitness cache size
+   */
+  public int getFitnessCacheSize() {
+    return fitnessCacheSize;
+  }
+
+  /**
+   * Set the size of the cache used to store the fitness of evaluated chromosome sequences.
+   *
+   * <p>When an individual in the population has the same sequence as a previously evaluated
+   * individual the cached fitness is used and the fitness function is not called. This assumes the
+   * fitness function is deterministic. The cache is bounded and discards the least recently used
+   * sequence. The cache is created at the start of each call to evolve.
+   *
+   * @param fitnessCacheSize the fitness cache size (set to zero to disable)
+   */
+  public void setFitnessCacheSize(int fitnessCacheSize) {
+    this.fitnessCacheSize = Math.max(0, fitnessCacheSize);
+  }
+
+  /**
+   * Gets the statistics for each generation of the last evolution.
+   *
+   * @return the generation statistics
+   */
+  public List<GenerationStatistics> getGenerationStatistics() {
+    return Collections.unmodifiableList(statistics);
+  }
+
   /**
    * Get the iteration. The iteration is increased each time the population grows as part of the
    * [grow, evaluate, select] cycle.
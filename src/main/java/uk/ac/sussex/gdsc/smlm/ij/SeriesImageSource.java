@@ -52,13 +52,30 @@ import org.apache.commons.lang3.concurrent.ConcurrentRuntimeException;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 import java.awt.Rectangle;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Represent a series of TIFF image files as a results source. Supports all greyscale images. Only
@@ -75,6 +92,27 @@ public class SeriesImageSource extends ImageSource {
   /** The buffer limit for sequential reading of TIFF images. Default = 50MB */
   private long sequentialReadBufferLimit = 52428800L;
 
+  /** The maximum size of a memory mapped region of a TIFF image. Default = 1GB */
+  private static final long MAX_MAPPED_SIZE = 1L << 30;
+
+  /**
+   * Flag indicating that uncompressed TIFF images read from file should use memory mapping to read
+   * the pixels.
+   */
+  private boolean memoryMapped = true;
+
+  /**
+   * Flag indicating that a frame index file is used to open uncompressed TIFF images without
+   * reading the TIFF info for each frame.
+   */
+  private boolean useFrameIndex;
+
+  /** The size of the cache of frames read using random access. Default = 50MB */
+  private long frameCacheSize = 52428800L;
+
+  /** The number of frames to read in the background after a frame is read using random access. */
+  private int prefetchSize = 4;
+
   /** The list of image filenames. */
   private ArrayList<String> images;
   /**
@@ -101,6 +139,18 @@ public class SeriesImageSource extends ImageSource {
   private Image lastImage;
   @XStreamOmitField
   private int lastImageId;
+  @XStreamOmitField
+  private int lastFrame;
+
+  /** The cache of frames read using random access. */
+  @XStreamOmitField
+  private FrameCache frameCache;
+  /** Used to read frames in the background after a frame is read using random access. */
+  @XStreamOmitField
+  private ExecutorService prefetchExecutor;
+  /** Incremented to stop any background reading of frames. */
+  @XStreamOmitField
+  private volatile int prefetchId;
 
   private int numberOfThreads = 1;
   private int numberOfImages = 1;
@@ -258,6 +308,14 @@ public class SeriesImageSource extends ImageSource {
     int frameCount;
     /** Flag indicating that the Tiff info is complete. Relevant when opened using an index map */
     boolean complete;
+    /** Flag indicating that the pixel type and compression support memory mapping. */
+    boolean canMap;
+    /** The memory mapped region of the file, or null. */
+    ByteBuffer mapped;
+    /** The file position of the start of the memory mapped region. */
+    long mappedStart;
+    /** The offset of the pixels for each frame when opened using a frame index, otherwise null. */
+    long[] frameOffsets;
 
     TiffImage(ExtendedFileInfo[] info, SeekableStream ss) {
       super(info[0].width, info[0].height, 0);
@@ -295,6 +353,7 @@ public class SeriesImageSource extends ImageSource {
         if (size != 0) {
           bytesPerFrame = getBytesPerFrame(fi.fileType);
           reader = new FastImageReader(fi);
+          canMap = MappedFrame.isSupported(fi);
         } else {
           canRead = false;
           bytesPerFrame = 0;
@@ -305,6 +364,18 @@ public class SeriesImageSource extends ImageSource {
       }
     }
 
+    TiffImage(ExtendedFileInfo fi, long[] frameOffsets) {
+      super(fi.width, fi.height, frameOffsets.length);
+      indexMap = null;
+      info = new ExtendedFileInfo[size];
+      info[0] = fi;
+      this.fi = fi;
+      this.frameOffsets = frameOffsets;
+      bytesPerFrame = getBytesPerFrame(fi.fileType);
+      reader = new FastImageReader(fi);
+      canMap = MappedFrame.isSupported(fi);
+    }
+
     TiffImage() {
       super(0, 0, 0);
       indexMap = null;
@@ -351,6 +422,7 @@ public class SeriesImageSource extends ImageSource {
         if (size != 0) {
           bytesPerFrame = getBytesPerFrame(fi.fileType);
           reader = new FastImageReader(fi);
+          canMap = MappedFrame.isSupported(fi);
         } else {
           canRead = false;
           bytesPerFrame = 0;
@@ -469,6 +541,20 @@ public class SeriesImageSource extends ImageSource {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     Object nextFrame() throws IOException {
+      if (isMappable()) {
+        final MappedFrame frame = mapFrame(frameCount);
+        if (frame != null) {
+          frameCount++;
+          return frame;
+        }
+        if (frameCount != 0) {
+          // The stream is not at the end of the previous frame so use an absolute position
+          ss.seek(getOffset(frameCount));
+          frameCount++;
+          return readPixels();
+        }
+      }
+
       // Skip ahead
       long skip;
 
@@ -481,6 +567,18 @@ public class SeriesImageSource extends ImageSource {
           // If sequential reading just skip the gap between frames
           skip = fi.gapBetweenImages;
         }
+      } else if (frameOffsets != null) {
+        // Each image offset is described by the frame index
+        skip = frameOffsets[frameCount];
+
+        if (frameCount != 0) {
+          // We must subtract the current file location.
+          skip -= (frameOffsets[frameCount - 1] + bytesPerFrame);
+          if (skip < 0L) {
+            canRead = false;
+            throw new IllegalStateException("Bad TIFF offset " + skip);
+          }
+        }
       } else {
         // Adapted from ij.io.Opener.openTiffStack(...)
 
@@ -521,29 +619,16 @@ public class SeriesImageSource extends ImageSource {
         throw new IllegalStateException("Cannot read the TIFF image");
       }
 
-      // Skip ahead
-      long offset;
-
-      if (contiguous) {
-        // Read using the first ExtendedFileInfo object
-
-        // The first frame we know the exact offset
-        offset = fi.getOffset();
-
-        if (index != 0) {
-          // Skip ahead
-          offset += (bytesPerFrame + fi.gapBetweenImages) * index;
+      if (isMappable()) {
+        final MappedFrame frame = mapFrame(index);
+        if (frame != null) {
+          frameCount = index + 1;
+          return frame;
         }
-      } else {
-        // Adapted from ij.io.Opener.openTiffStack(...)
-
-        // Each image offset is described by a separate ExtendedFileInfo object
-        // We may have to read it first.
-        offset = getInfo(index).getOffset();
-        fi.stripOffsets = info[index].stripOffsets;
-        fi.stripLengths = info[index].stripLengths;
       }
 
+      final long offset = getOffset(index);
+
       // Store the number of frames that have been read
       frameCount = index + 1;
 
@@ -562,6 +647,112 @@ public class SeriesImageSource extends ImageSource {
       }
     }
 
+    /**
+     * Gets the offset of the pixels for the specified index. If the image is not contiguous the
+     * strip offsets and lengths for the image are set in the file info used by the reader.
+     *
+     * @param index the index
+     * @return the offset
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private long getOffset(int index) throws IOException {
+      if (frameOffsets != null) {
+        // The frame index is only created for pixels in a single block
+        return frameOffsets[index];
+      }
+      if (contiguous) {
+        // Read using the first ExtendedFileInfo object.
+        // The first frame we know the exact offset.
+        return fi.getOffset() + (bytesPerFrame + fi.gapBetweenImages) * index;
+      }
+      // Adapted from ij.io.Opener.openTiffStack(...)
+
+      // Each image offset is described by a separate ExtendedFileInfo object
+      // We may have to read it first.
+      final long offset = getInfo(index).getOffset();
+      fi.stripOffsets = info[index].stripOffsets;
+      fi.stripLengths = info[index].stripLengths;
+      return offset;
+    }
+
+    /**
+     * Create the offset of the pixels for each frame. This is only supported for uncompressed
+     * images where the pixels for each frame are a single block. The TIFF info for each frame is
+     * read if required.
+     *
+     * @return the frame offsets (or null)
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    synchronized long[] createFrameOffsets() throws IOException {
+      if (!canMap || size == 0) {
+        return null;
+      }
+      if (frameOffsets != null) {
+        return frameOffsets;
+      }
+      final long[] offsets = new long[size];
+      for (int i = 0; i < size; i++) {
+        if (contiguous) {
+          offsets[i] = getOffset(i);
+        } else {
+          final ExtendedFileInfo fileInfo = getInfo(i);
+          if (!MappedFrame.isContiguous(fileInfo)) {
+            return null;
+          }
+          offsets[i] = fileInfo.getOffset();
+        }
+      }
+      return offsets;
+    }
+
+    /**
+     * Checks if the pixels can be read from a memory mapped file.
+     *
+     * @return true if mappable
+     */
+    private boolean isMappable() {
+      return memoryMapped && canMap && canRead && !inMemory;
+    }
+
+    /**
+     * Get the frame from a memory mapped region of the file. The region is created or moved as
+     * required. Returns null if the frame pixels are not a single contiguous block in the file or
+     * the file is too short.
+     *
+     * @param index the index
+     * @return the frame (or null)
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private MappedFrame mapFrame(int index) throws IOException {
+      final long offset = getOffset(index);
+      if (!contiguous && !MappedFrame.isContiguous(fi)) {
+        return null;
+      }
+      final long end = offset + bytesPerFrame;
+      if (mapped == null || offset < mappedStart || end > mappedStart + mapped.capacity()) {
+        mapped = null;
+        try (FileChannel channel = FileChannel.open(getFile().toPath(), StandardOpenOption.READ)) {
+          final long length = Math.min(channel.size() - offset, MAX_MAPPED_SIZE);
+          if (length < bytesPerFrame) {
+            // Truncated file
+            return null;
+          }
+          mapped = channel.map(MapMode.READ_ONLY, offset, length);
+          mappedStart = offset;
+        } catch (final IOException | UnsupportedOperationException ex) {
+          // Revert to reading using the stream
+          canMap = false;
+          return null;
+        }
+      }
+      final ByteBuffer data = mapped.duplicate();
+      final int position = (int) (offset - mappedStart);
+      data.limit(position + (int) bytesPerFrame).position(position);
+      return new MappedFrame(
+          data.slice().order(fi.intelByteOrder ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN),
+          fi.fileType, width, height);
+    }
+
     /**
      * Gets the info of the specified index. Uses the cached FileInfo using the IndexMap.
      *
@@ -698,6 +889,9 @@ public class SeriesImageSource extends ImageSource {
     public synchronized void close(boolean freeResources) {
       frameCount = 0;
 
+      // Frames that have been read hold their own reference to the mapped region
+      mapped = null;
+
       // This is done when sequentially reading so we clear the memory
       inMemory = false;
 
@@ -715,6 +909,187 @@ public class SeriesImageSource extends ImageSource {
     }
   }
 
+  /**
+   * A frame of uncompressed pixels from a memory mapped file. The pixels can be converted directly
+   * to float data without an intermediate pixel array.
+   */
+  private static final class MappedFrame {
+    /** The pixel data. This must have the correct byte order. */
+    final ByteBuffer data;
+    final int fileType;
+    final int width;
+    final int height;
+    /** Used to store the result of loading the pixels so the read cannot be eliminated. */
+    int loaded;
+
+    MappedFrame(ByteBuffer data, int fileType, int width, int height) {
+      this.data = data;
+      this.fileType = fileType;
+      this.width = width;
+      this.height = height;
+    }
+
+    /**
+     * Checks if the file type and compression are supported.
+     *
+     * @param fi the file info
+     * @return true if supported
+     */
+    static boolean isSupported(ExtendedFileInfo fi) {
+      if (fi.compression != FileInfo.COMPRESSION_NONE) {
+        return false;
+      }
+      switch (fi.fileType) {
+        case FileInfo.GRAY8:
+        case FileInfo.GRAY16_SIGNED:
+        case FileInfo.GRAY16_UNSIGNED:
+        case FileInfo.GRAY32_FLOAT:
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    /**
+     * Checks if the image strips are contiguous in the file.
+     *
+     * @param fi the file info
+     * @return true if contiguous
+     */
+    static boolean isContiguous(ExtendedFileInfo fi) {
+      final int[] offsets = fi.stripOffsets;
+      final int[] lengths = fi.stripLengths;
+      if (offsets == null || offsets.length < 2) {
+        return true;
+      }
+      if (lengths == null || lengths.length < offsets.length) {
+        return false;
+      }
+      for (int i = 1; i < offsets.length; i++) {
+        if (offsets[i] - offsets[i - 1] != lengths[i - 1]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Load the pixels into physical memory by reading from each page of the mapped region.
+     */
+    void load() {
+      int sum = 0;
+      for (int i = 0; i < data.limit(); i += 4096) {
+        sum += data.get(i);
+      }
+      loaded = sum;
+    }
+
+    /**
+     * Convert to the pixel array that would be read using the {@link FastImageReader}.
+     *
+     * @return the pixels
+     */
+    Object toPixels() {
+      final int size = width * height;
+      switch (fileType) {
+        case FileInfo.GRAY16_SIGNED: {
+          final short[] pixels = new short[size];
+          final ShortBuffer sb = data.asShortBuffer();
+          for (int i = 0; i < size; i++) {
+            pixels[i] = (short) (sb.get(i) + 32768);
+          }
+          return pixels;
+        }
+        case FileInfo.GRAY16_UNSIGNED: {
+          final short[] pixels = new short[size];
+          data.asShortBuffer().get(pixels);
+          return pixels;
+        }
+        case FileInfo.GRAY32_FLOAT: {
+          final float[] pixels = new float[size];
+          data.asFloatBuffer().get(pixels);
+          return pixels;
+        }
+        default: {
+          final byte[] pixels = new byte[size];
+          data.duplicate().get(pixels);
+          return pixels;
+        }
+      }
+    }
+
+    /**
+     * Get the data from the image pixels as a float array (include cropping to the bounds).
+     *
+     * <p>Allows reuse of an existing buffer if provided. This will not be truncated if it is larger
+     * than the bounds. If smaller then a new buffer will be created.
+     *
+     * @param bounds the bounds (can be null)
+     * @param buffer the buffer (can be null)
+     * @return the float array data
+     */
+    float[] getData(Rectangle bounds, float[] buffer) {
+      final int x0;
+      final int y0;
+      final int w;
+      final int h;
+      if (bounds == null) {
+        x0 = y0 = 0;
+        w = width;
+        h = height;
+      } else {
+        x0 = bounds.x;
+        y0 = bounds.y;
+        w = bounds.width;
+        h = bounds.height;
+      }
+      final float[] pixels = (buffer == null || buffer.length < w * h) ? new float[w * h] : buffer;
+      switch (fileType) {
+        case FileInfo.GRAY16_SIGNED: {
+          final ShortBuffer sb = data.asShortBuffer();
+          for (int y = 0, i = 0; y < h; y++) {
+            for (int x = 0, j = (y + y0) * width + x0; x < w; x++) {
+              pixels[i++] = sb.get(j++) + 32768;
+            }
+          }
+          break;
+        }
+        case FileInfo.GRAY16_UNSIGNED: {
+          final ShortBuffer sb = data.asShortBuffer();
+          for (int y = 0, i = 0; y < h; y++) {
+            for (int x = 0, j = (y + y0) * width + x0; x < w; x++) {
+              pixels[i++] = sb.get(j++) & 0xffff;
+            }
+          }
+          break;
+        }
+        case FileInfo.GRAY32_FLOAT: {
+          final FloatBuffer fb = data.asFloatBuffer();
+          if (w == width) {
+            // Bulk copy of entire rows
+            fb.position(y0 * width);
+            fb.get(pixels, 0, w * h);
+          } else {
+            for (int y = 0, i = 0; y < h; y++) {
+              for (int x = 0, j = (y + y0) * width + x0; x < w; x++) {
+                pixels[i++] = fb.get(j++);
+              }
+            }
+          }
+          break;
+        }
+        default:
+          for (int y = 0, i = 0; y < h; y++) {
+            for (int x = 0, j = (y + y0) * width + x0; x < w; x++) {
+              pixels[i++] = data.get(j++) & 0xff;
+            }
+          }
+          break;
+      }
+      return pixels;
+    }
+  }
+
   /**
    * Close the stream quietly.
    *
@@ -1085,12 +1460,166 @@ public class SeriesImageSource extends ImageSource {
   private static class ImageData {
     long fileSize;
     TiffImage tiffImage;
+    FrameIndex frameIndex;
 
     public ImageData(long size) {
       fileSize = size;
     }
   }
 
+  /**
+   * Store the offset of the pixels for each frame in an uncompressed TIFF image. This allows the
+   * image to be opened without reading the TIFF IFDs.
+   *
+   * <p>The index is saved to a file alongside the image. It is only valid if the image file length
+   * and modification time are unchanged.
+   */
+  private static class FrameIndex {
+    /** The magic number for the index file. */
+    private static final int MAGIC = 0x46494458;
+    /** The version of the index file. */
+    private static final int VERSION = 1;
+    /** The suffix for the index file. */
+    private static final String SUFFIX = ".frameindex";
+
+    final int fileType;
+    final int width;
+    final int height;
+    final boolean intelByteOrder;
+    final long[] offsets;
+
+    FrameIndex(int fileType, int width, int height, boolean intelByteOrder, long[] offsets) {
+      this.fileType = fileType;
+      this.width = width;
+      this.height = height;
+      this.intelByteOrder = intelByteOrder;
+      this.offsets = offsets;
+    }
+
+    /**
+     * Gets the index file for the image.
+     *
+     * @param file the image file
+     * @return the index file
+     */
+    static File getIndexFile(File file) {
+      return new File(file.getPath() + SUFFIX);
+    }
+
+    /**
+     * Load the index for the image. Returns null if the index does not exist or does not match the
+     * image file.
+     *
+     * @param file the image file
+     * @return the frame index (or null)
+     */
+    static FrameIndex load(File file) {
+      final File indexFile = getIndexFile(file);
+      if (!indexFile.isFile()) {
+        return null;
+      }
+      try (DataInputStream in =
+          new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != file.length()
+            || in.readLong() != file.lastModified()) {
+          return null;
+        }
+        final int fileType = in.readInt();
+        final int width = in.readInt();
+        final int height = in.readInt();
+        final boolean intelByteOrder = in.readBoolean();
+        final long[] offsets = new long[in.readInt()];
+        for (int i = 0; i < offsets.length; i++) {
+          offsets[i] = in.readLong();
+        }
+        return new FrameIndex(fileType, width, height, intelByteOrder, offsets);
+      } catch (final IOException ex) {
+        // Ignore and the index will be rebuilt
+        return null;
+      }
+    }
+
+    /**
+     * Save the index for the image.
+     *
+     * @param file the image file
+     * @return true if saved
+     */
+    boolean save(File file) {
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(getIndexFile(file))))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(file.length());
+        out.writeLong(file.lastModified());
+        out.writeInt(fileType);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeBoolean(intelByteOrder);
+        out.writeInt(offsets.length);
+        for (final long offset : offsets) {
+          out.writeLong(offset);
+        }
+        return true;
+      } catch (final IOException ex) {
+        // The directory may be read-only
+        return false;
+      }
+    }
+
+    /**
+     * Create the file info for the first frame of the image.
+     *
+     * @param file the image file
+     * @return the file info
+     */
+    ExtendedFileInfo createFileInfo(File file) {
+      final ExtendedFileInfo fi = new ExtendedFileInfo();
+      fi.fileFormat = FileInfo.TIFF;
+      fi.fileName = file.getName();
+      fi.directory = (file.getParent() == null) ? "" : file.getParent() + File.separator;
+      fi.fileType = fileType;
+      fi.width = width;
+      fi.height = height;
+      fi.intelByteOrder = intelByteOrder;
+      fi.compression = FileInfo.COMPRESSION_NONE;
+      fi.nImages = 1;
+      fi.longOffset = offsets[0];
+      return fi;
+    }
+  }
+
+  /**
+   * Cache of the most recently used frames.
+   */
+  private static class FrameCache {
+    private final LinkedHashMap<Integer, Object> map;
+
+    FrameCache(final int capacity) {
+      map = new LinkedHashMap<Integer, Object>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object> eldest) {
+          return size() > capacity;
+        }
+      };
+    }
+
+    synchronized Object get(int frame) {
+      return map.get(frame);
+    }
+
+    synchronized boolean contains(int frame) {
+      // This does not change the access order
+      return map.containsKey(frame);
+    }
+
+    synchronized void put(int frame, Object pixels) {
+      map.put(frame, pixels);
+    }
+  }
+
   /**
    * Creates the seekable stream.
    *
@@ -1409,6 +1938,21 @@ public class SeriesImageSource extends ImageSource {
         // sequential reading if all images fit into memory.
         final long size = getSize(file);
 
+        // Use the frame index to avoid reading the TIFF
+        final FrameIndex frameIndex = (isUseFrameIndex()) ? FrameIndex.load(file) : null;
+        if (frameIndex != null) {
+          trackProgress.log("%s : images=%d (%d bytes) (frame index)", path,
+              frameIndex.offsets.length, size);
+          frames += frameIndex.offsets.length;
+          imageSize[ok] = frames;
+          imageData[ok] = new ImageData(size);
+          imageData[ok].frameIndex = frameIndex;
+          names[ok] = path;
+          ok++;
+          ticker.tick();
+          continue;
+        }
+
         try (SeekableStream ss = createSeekableStream(path)) {
           final FastTiffDecoder td = FastTiffDecoder.create(ss, path);
 
@@ -1517,11 +2061,20 @@ public class SeriesImageSource extends ImageSource {
   protected synchronized void closeSource() {
     closeQueue();
 
+    // Stop reading frames in the background
+    prefetchId++;
+    if (prefetchExecutor != null) {
+      prefetchExecutor.shutdown();
+      prefetchExecutor = null;
+    }
+    frameCache = null;
+
     if (lastImage != null) {
       lastImage.close(true);
       lastImage = null;
     }
     lastImageId = 0;
+    lastFrame = 0;
   }
 
   /**
@@ -1653,6 +2206,88 @@ public class SeriesImageSource extends ImageSource {
     return true;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Overridden to convert frames read from a memory mapped file directly to float data.
+   */
+  @Override
+  public float[] next(Rectangle bounds, float[] buffer) {
+    if (!checkBounds(bounds)) {
+      bounds = null;
+    }
+    return getData(super.nextRaw(), bounds, buffer);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Overridden to convert frames read from a memory mapped file directly to float data.
+   */
+  @Override
+  public float[] get(int frame, Rectangle bounds, float[] buffer) {
+    if (!checkBounds(bounds)) {
+      bounds = null;
+    }
+    return getData(super.getRaw(frame), bounds, buffer);
+  }
+
+  @Override
+  public Object nextRaw() {
+    return toPixels(super.nextRaw());
+  }
+
+  @Override
+  public Object getRaw(int frame) {
+    final Object pixels = super.getRaw(frame);
+    if (pixels instanceof MappedFrame) {
+      return ((MappedFrame) pixels).toPixels();
+    }
+    // The caller may modify the pixels so return a copy of a cached frame
+    return (pixels != null && frameCache != null) ? copyPixels(pixels) : pixels;
+  }
+
+  /**
+   * Copy the pixel array.
+   *
+   * @param pixels the pixels
+   * @return the copy
+   */
+  private static Object copyPixels(Object pixels) {
+    final int length = Array.getLength(pixels);
+    final Object copy = Array.newInstance(pixels.getClass().getComponentType(), length);
+    System.arraycopy(pixels, 0, copy, 0, length);
+    return copy;
+  }
+
+  /**
+   * Get the data from the image pixels as a float array (include cropping to the bounds).
+   *
+   * @param pixels the pixels (can be null)
+   * @param bounds the bounds (can be null)
+   * @param buffer the buffer (can be null)
+   * @return the float array data (or null)
+   */
+  private float[] getData(Object pixels, Rectangle bounds, float[] buffer) {
+    if (pixels instanceof MappedFrame) {
+      return ((MappedFrame) pixels).getData(bounds, buffer);
+    }
+    if (pixels != null) {
+      return getImageConverter().getData(pixels, getWidth(), getHeight(), bounds, buffer);
+    }
+    return null;
+  }
+
+  /**
+   * Convert frames read from a memory mapped file to a pixel array.
+   *
+   * @param pixels the pixels (can be null)
+   * @return the pixels
+   */
+  private static Object toPixels(Object pixels) {
+    return (pixels instanceof MappedFrame) ? ((MappedFrame) pixels).toPixels() : pixels;
+  }
+
   private void setError(DataException ex) {
     if (error != null) {
       System.err.println("Encountered a second error during sequential read!");
@@ -1693,13 +2328,127 @@ public class SeriesImageSource extends ImageSource {
       return null;
     }
 
-    // Calculate the required image and slice
-    int id = Arrays.binarySearch(imageSize, frame);
-    if (id < 0) {
-      id = -(id + 1);
+    // Stop reading frames in the background
+    prefetchId++;
+
+    final FrameCache cache = getFrameCache();
+    Object pixels = (cache == null) ? null : cache.get(frame);
+    if (pixels == null) {
+      pixels = readFrame(frame);
+      if (pixels != null && cache != null) {
+        cache.put(frame, pixels);
+      }
+    }
+    if (pixels != null && cache != null) {
+      prefetch(cache, frame);
+    }
+    lastFrame = frame;
+    return pixels;
+  }
+
+  /**
+   * Gets the cache of frames read using random access.
+   *
+   * @return the frame cache (or null)
+   */
+  private FrameCache getFrameCache() {
+    if (frameCache == null && frameCacheSize > 0) {
+      long bytesPerFrame = 2L * getWidth() * getHeight();
+      if (imageData[0].tiffImage != null && imageData[0].tiffImage.bytesPerFrame > 0) {
+        bytesPerFrame = imageData[0].tiffImage.bytesPerFrame;
+      }
+      frameCache = new FrameCache(
+          (int) Math.max(1, Math.min(Integer.MAX_VALUE, frameCacheSize / bytesPerFrame)));
     }
+    return frameCache;
+  }
+
+  /**
+   * Gets the image containing the frame.
+   *
+   * @param frame the frame (1-based index)
+   * @return the image index
+   */
+  private int getImageId(int frame) {
+    final int id = Arrays.binarySearch(imageSize, frame);
+    return (id < 0) ? -(id + 1) : id;
+  }
+
+  /**
+   * Gets the first frame in the image.
+   *
+   * @param id the image index
+   * @return the first frame (1-based index)
+   */
+  private int getFirstFrame(int id) {
+    return (id == 0) ? 1 : imageSize[id - 1] + 1;
+  }
+
+  /**
+   * Read the frames following the frame from the same image in the background and store them in
+   * the cache. The frames are read in the same direction as the change from the last frame. This
+   * is stopped when another frame is requested.
+   *
+   * @param cache the cache
+   * @param frame the frame
+   */
+  private void prefetch(FrameCache cache, int frame) {
+    final int id = getImageId(frame);
+    if (prefetchSize <= 0 || id != lastImageId || lastImage == null) {
+      return;
+    }
+    final Image image = lastImage;
+    final int first = getFirstFrame(id);
+    final int step = (frame < lastFrame) ? -1 : 1;
+    final int size = prefetchSize;
+    final int currentId = prefetchId;
+    if (prefetchExecutor == null) {
+      prefetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "SeriesImageSource prefetch");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    prefetchExecutor.execute(() -> {
+      for (int i = 1, next = frame + step; i <= size; i++, next += step) {
+        final int slice = next - first;
+        if (slice < 0 || slice >= image.size) {
+          break;
+        }
+        if (cache.contains(next)) {
+          continue;
+        }
+        Object pixels;
+        // Synchronize with closing the image when another image is read
+        synchronized (image) {
+          if (currentId != prefetchId) {
+            return;
+          }
+          try {
+            pixels = image.getFrame(slice);
+          } catch (final Exception ex) {
+            return;
+          }
+        }
+        if (pixels instanceof MappedFrame) {
+          ((MappedFrame) pixels).load();
+        }
+        cache.put(next, pixels);
+      }
+    });
+  }
+
+  /**
+   * Read the frame from the image.
+   *
+   * @param frame the frame
+   * @return the pixels (or null)
+   */
+  private Object readFrame(int frame) {
+    // Calculate the required image and slice
+    final int id = getImageId(frame);
     // Note that frame is 1-based index and the slice is 0-based.
-    final int slice = (id == 0) ? frame - 1 : frame - imageSize[id - 1] - 1;
+    final int slice = frame - getFirstFrame(id);
 
     // This is not concurrent safe
 
@@ -1738,6 +2487,15 @@ public class SeriesImageSource extends ImageSource {
   }
 
   private TiffImage openImage(int id, String path) {
+    // The first image is always read to obtain the image metadata
+    final FrameIndex frameIndex = imageData[id].frameIndex;
+    if (frameIndex != null && id != 0) {
+      final TiffImage tiffImage =
+          new TiffImage(frameIndex.createFileInfo(new File(path)), frameIndex.offsets);
+      storeTiffImage(id, tiffImage);
+      return tiffImage;
+    }
+
     TiffImage tiffImage = null;
 
     // We only need the meta data for the first image. We then assume check
@@ -1784,11 +2542,38 @@ public class SeriesImageSource extends ImageSource {
       imageData[id].tiffImage = new TiffImage();
     } else {
       storeTiffImage(id, tiffImage);
+      if (frameIndex == null && isUseFrameIndex()) {
+        saveFrameIndex(id, path, tiffImage);
+      }
     }
 
     return tiffImage;
   }
 
+  /**
+   * Create the frame index for the image and save it to file.
+   *
+   * @param id the image index
+   * @param path the path
+   * @param tiffImage the tiff image
+   */
+  private void saveFrameIndex(int id, String path, TiffImage tiffImage) {
+    try {
+      final long[] offsets = tiffImage.createFrameOffsets();
+      if (offsets != null) {
+        final ExtendedFileInfo fi = tiffImage.fi;
+        final FrameIndex frameIndex =
+            new FrameIndex(fi.fileType, fi.width, fi.height, fi.intelByteOrder, offsets);
+        imageData[id].frameIndex = frameIndex;
+        if (!frameIndex.save(new File(path))) {
+          trackProgress.log("Failed to save frame index: %s", path);
+        }
+      }
+    } catch (final IOException ex) {
+      trackProgress.log("Failed to create frame index: %s : %s", path, ex.getMessage());
+    }
+  }
+
   @Override
   public boolean isValid(int frame) {
     return frame > 0 && frame <= frames;
@@ -1863,6 +2648,93 @@ public class SeriesImageSource extends ImageSource {
     this.sequentialReadBufferLimit = sequentialReadBufferLimit;
   }
 
+  /**
+   * Checks if uncompressed TIFF images read from file use memory mapping to read the pixels.
+   *
+   * @return true if using memory mapping
+   */
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+  /**
+   * Sets if uncompressed TIFF images read from file use memory mapping to read the pixels. This
+   * avoids copying the pixels into intermediate arrays.
+   *
+   * <p>Only supported for 8-bit, 16-bit and 32-bit float images where the pixels for each frame
+   * are contiguous in the file. Other images are read using a stream.
+   *
+   * @param memoryMapped true to use memory mapping
+   */
+  public void setMemoryMapped(boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
+  }
+
+  /**
+   * Checks if a frame index file is used to open uncompressed TIFF images. The default is false.
+   *
+   * @return true if using a frame index
+   */
+  public boolean isUseFrameIndex() {
+    return useFrameIndex;
+  }
+
+  /**
+   * Sets if a frame index file is used to open uncompressed TIFF images. The index stores the
+   * offset of the pixels for each frame and is saved alongside each image when it is first opened
+   * for random access. If the image is unchanged then the index is used to count the frames and
+   * read the pixels without reading the TIFF info for each frame.
+   *
+   * <p>Only supported for images where the pixels for each frame are contiguous in the file. The
+   * index file is written to the image directory so this should only be enabled when the directory
+   * is writable.
+   *
+   * @param useFrameIndex true to use a frame index
+   */
+  public void setUseFrameIndex(boolean useFrameIndex) {
+    this.useFrameIndex = useFrameIndex;
+  }
+
+  /**
+   * Gets the size of the cache of frames read using random access.
+   *
+   * @return the frame cache size (in bytes)
+   */
+  public long getFrameCacheSize() {
+    return frameCacheSize;
+  }
+
+  /**
+   * Sets the size of the cache of frames read using random access. Set to zero to disable the
+   * cache. The cache is required to read frames in the background.
+   *
+   * @param frameCacheSize the new frame cache size (in bytes)
+   */
+  public void setFrameCacheSize(long frameCacheSize) {
+    this.frameCacheSize = Math.max(0, frameCacheSize);
+  }
+
+  /**
+   * Gets the number of frames to read in the background after a frame is read using random
+   * access.
+   *
+   * @return the prefetch size
+   */
+  public int getPrefetchSize() {
+    return prefetchSize;
+  }
+
+  /**
+   * Sets the number of frames to read in the background after a frame is read using random
+   * access. Frames are read from the same image in the direction of the change from the previous
+   * frame and stored in the frame cache.
+   *
+   * @param prefetchSize the new prefetch size
+   */
+  public void setPrefetchSize(int prefetchSize) {
+    this.prefetchSize = Math.max(0, prefetchSize);
+  }
+
   /**
    * Gets the number of images to buffer into memory.
    *
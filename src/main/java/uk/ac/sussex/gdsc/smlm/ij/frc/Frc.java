@@ -108,6 +108,134 @@ public class Frc {
    */
   private TrackProgress progress;
 
+  /**
+   * The workspace used to compute the FRC curve. This is reused for repeat calls with images of the
+   * same padded size.
+   */
+  private Workspace workspace;
+
+  /**
+   * Contains the pre-computed Fourier transform plans and padded work buffers for a given Fourier
+   * image size.
+   *
+   * <p>The FFT objects perform pre-computation of the trigonometric tables. Re-using them (and the
+   * work buffers) allows repeat FRC computations with the same image size to avoid the allocation
+   * and initialisation cost. This is not thread safe.
+   */
+  private static final class Workspace {
+    /** The size of the square Fourier image. */
+    final int size;
+
+    /** The JTransforms FFT. */
+    private FloatFFT_2D fft;
+    /** The interleaved complex data for the first image (JTransforms). */
+    private float[] data1;
+    /** The interleaved complex data for the second image (JTransforms). */
+    private float[] data2;
+
+    /** The FHT used as the source of the pre-computed tables. */
+    private Fht fhtTables;
+    /** The pixels for the first FHT image. */
+    private float[] pixels1;
+    /** The pixels for the second FHT image. */
+    private float[] pixels2;
+
+    /**
+     * Create a new instance.
+     *
+     * @param size the size
+     */
+    Workspace(int size) {
+      this.size = size;
+    }
+
+    /**
+     * Gets the JTransforms FFT.
+     *
+     * @return the fft
+     */
+    FloatFFT_2D getFft() {
+      FloatFFT_2D result = fft;
+      if (result == null) {
+        fft = result = new FloatFFT_2D(size, size);
+      }
+      return result;
+    }
+
+    /**
+     * Gets the interleaved complex data buffer for the first image. This is zero filled.
+     *
+     * @return the data
+     */
+    float[] getData1() {
+      data1 = getBuffer(data1, 2 * size * size);
+      return data1;
+    }
+
+    /**
+     * Gets the interleaved complex data buffer for the second image. This is zero filled.
+     *
+     * @return the data
+     */
+    float[] getData2() {
+      data2 = getBuffer(data2, 2 * size * size);
+      return data2;
+    }
+
+    /**
+     * Gets the pixels buffer for the first FHT image. This is zero filled.
+     *
+     * @return the pixels
+     */
+    float[] getPixels1() {
+      pixels1 = getBuffer(pixels1, size * size);
+      return pixels1;
+    }
+
+    /**
+     * Gets the pixels buffer for the second FHT image. This is zero filled.
+     *
+     * @return the pixels
+     */
+    float[] getPixels2() {
+      pixels2 = getBuffer(pixels2, size * size);
+      return pixels2;
+    }
+
+    /**
+     * Create a FHT for the pixels. The pre-computed tables are shared between all FHT objects
+     * created by this workspace.
+     *
+     * @param pixels the pixels
+     * @return the fht
+     */
+    Fht createFht(float[] pixels) {
+      final Fht fht = new Fht(pixels, size, false);
+      if (fhtTables == null) {
+        // The tables are computed when the transform is first performed
+        fhtTables = fht;
+      } else {
+        fht.copyTables(fhtTables);
+      }
+      return fht;
+    }
+
+    /**
+     * Gets a zero filled buffer of the given length, reusing the existing buffer if possible.
+     *
+     * @param buffer the buffer
+     * @param length the length
+     * @return the buffer
+     */
+    private static float[] getBuffer(float[] buffer, int length) {
+      if (buffer == null) {
+        return new float[length];
+      }
+      Arrays.fill(buffer, 0f);
+      return buffer;
+    }
+  }
+
   /**
    * Lazy load the availability of the JTransforms library.
    */
@@ -635,179 +763,347 @@ public class Frc {
     ip1 = pad(ip1, maxWidth, maxHeight);
     ip2 = pad(ip2, maxWidth, maxHeight);
 
+    // The tapered images are padded to a power of 2
+    final int size = MathUtils.nextPow2(fieldOfView);
+    final Workspace ws = getWorkspace(size);
+
     // The mean of each image after applying the taper
     double mean1;
     double mean2;
 
+    // The radial sums (only computed when using the radial sum sampling method)
+    double[][] sum = null;
+
     // Real and imaginary components
     float[] re1 = null;
-    float[] im1;
-    float[] re2;
-    float[] im2;
-
-    // Do the first image
-    ip1 = getSquareTaperedImage(ip1);
-    mean1 = taperedImageMean;
-    final int size = ip1.getWidth();
+    float[] im1 = null;
+    float[] re2 = null;
+    float[] im2 = null;
 
     if (fourierMethod == FourierMethod.JTRANSFORMS && JTransformsLoader.JTRANSFORMS_AVAILABLE) {
-      // Speed up by reusing the FFT object which performs pre-computation
-      final float[] data = new float[size * size * 2];
-      final FloatFFT_2D fft = new FloatFFT_2D(size, size);
-
-      float[] pixels = (float[]) ip1.getPixels();
-      System.arraycopy(pixels, 0, data, 0, pixels.length);
-      fft.realForwardFull(data);
-
-      // Get the data
-      re1 = pixels;
-      im1 = new float[pixels.length];
-      for (int i = 0, j = 0; i < data.length; j++) {
-        re1[j] = data[i++];
-        im1[j] = data[i++];
-      }
-      Fht.swapQuadrants(new FloatProcessor(size, size, re1));
-      Fht.swapQuadrants(new FloatProcessor(size, size, im1));
+      // Speed up by reusing the FFT object which performs pre-computation.
+      // The tapered image is written directly into the complex data buffer.
+      final FloatFFT_2D fft = ws.getFft();
+
+      final float[] data1 = ws.getData1();
+      mean1 = applyTaper(ip1, data1, size);
+      fft.realForwardFull(data1);
       progess.incrementProgress(THIRD);
 
-      ip2 = getSquareTaperedImage(ip2);
-      mean2 = taperedImageMean;
+      final float[] data2 = ws.getData2();
+      mean2 = applyTaper(ip2, data2, size);
+      fft.realForwardFull(data2);
+      progess.incrementProgress(THIRD);
 
-      pixels = (float[]) ip2.getPixels();
-      System.arraycopy(pixels, 0, data, 0, pixels.length);
-      for (int i = pixels.length; i < data.length; i++) {
-        data[i] = 0;
-      }
-      fft.realForwardFull(data);
-
-      // Get the data
-      re2 = pixels;
-      im2 = new float[pixels.length];
-      for (int i = 0, j = 0; i < data.length; j++) {
-        re2[j] = data[i++];
-        im2[j] = data[i++];
+      if (samplingMethod == SamplingMethod.RADIAL_SUM) {
+        // Fused computation direct from the un-shifted complex data
+        sum = computeRadialSumInterleaved(size, data1, data2);
+      } else {
+        // Get the data
+        final int length = size * size;
+        re1 = new float[length];
+        im1 = new float[length];
+        re2 = new float[length];
+        im2 = new float[length];
+        for (int i = 0, j = 0; i < data1.length; j++) {
+          re1[j] = data1[i];
+          re2[j] = data2[i++];
+          im1[j] = data1[i];
+          im2[j] = data2[i++];
+        }
+        Fht.swapQuadrants(new FloatProcessor(size, size, re1));
+        Fht.swapQuadrants(new FloatProcessor(size, size, im1));
+        Fht.swapQuadrants(new FloatProcessor(size, size, re2));
+        Fht.swapQuadrants(new FloatProcessor(size, size, im2));
       }
-      Fht.swapQuadrants(new FloatProcessor(size, size, re2));
-      Fht.swapQuadrants(new FloatProcessor(size, size, im2));
-      progess.incrementProgress(THIRD);
     } else {
-      // Simple implementation. This is left for testing.
-      // FloatProcessor[] fft = getComplexFFT(ip1);
-      // mean1 = taperedImageMean;
-      // re1 = (float[]) fft[0].getPixels();
-      // im1 = (float[]) fft[1].getPixels();
-      // progess.incrementProgress(THIRD);
-      //
-      // fft = getComplexFFT(ip2);
-      // mean2 = taperedImageMean;
-      // re2 = (float[]) fft[0].getPixels();
-      // im2 = (float[]) fft[1].getPixels();
-      // progess.incrementProgress(THIRD);
-
-      // Speed up by reusing the FHT object which performs pre-computation
+      // Speed up by reusing the FHT tables which performs pre-computation
 
-      final float[] f1 = (float[]) ip1.getPixels();
-      final Fht fht1 = new Fht(f1, ip1.getWidth(), false);
+      final float[] f1 = ws.getPixels1();
+      mean1 = applyTaper(ip1, f1, size);
+      final Fht fht1 = ws.createFht(f1);
       fht1.transform();
       FloatProcessor[] fft = fht1.getComplexTransformProcessors();
       re1 = (float[]) fft[0].getPixels();
       im1 = (float[]) fft[1].getPixels();
       progess.incrementProgress(THIRD);
 
-      ip2 = getSquareTaperedImage(ip2);
-      mean2 = taperedImageMean;
-
-      final float[] f2 = (float[]) ip2.getPixels();
-      final Fht fht2 = new Fht(f2, ip2.getWidth(), false);
-      fht2.copyTables(fht1);
+      final float[] f2 = ws.getPixels2();
+      mean2 = applyTaper(ip2, f2, size);
+      final Fht fht2 = ws.createFht(f2);
+      fht2.transform();
       fft = fht2.getComplexTransformProcessors();
       re2 = (float[]) fft[0].getPixels();
       im2 = (float[]) fft[1].getPixels();
       progess.incrementProgress(THIRD);
+
+      if (samplingMethod == SamplingMethod.RADIAL_SUM) {
+        // Fused computation from the centred complex data
+        sum = computeRadialSumCentred(size, re1, im1, re2, im2);
+      }
     }
 
-    progess.status("Preparing FRC curve calculation...");
+    progess.status("Calculating FRC curve...");
 
     final int centre = size / 2;
-
-    // In-line for speed
-    final float[] conjMult = new float[re1.length];
-    final float[] absFft1 = new float[re1.length];
-    final float[] absFft2 = new float[re1.length];
+    final int max = centre - 1;
+    final FrcCurveResult[] results = new FrcCurveResult[max];
 
     // Normalise the FFT to the field of view, i.e. normalise by 1/sqrt(N) for each dimension
     final double norm = 1.0 / fieldOfView;
-    for (int i = 0; i < re1.length; i++) {
-      re1[i] *= norm;
-      im1[i] *= norm;
-      re2[i] *= norm;
-      im2[i] *= norm;
-    }
 
-    final boolean basic = false;
-    if (basic) {
-      compute(conjMult, absFft1, absFft2, re1, im1, re2, im2);
+    if (sum != null) {
+      // The radial sums are computed using the product of two FFT values so the
+      // normalisation is squared.
+      final double norm2 = norm * norm;
+      for (int radius = 0; radius < max; radius++) {
+        results[radius] = new FrcCurveResult(radius, (int) sum[3][radius],
+            sum[0][radius] * norm2, sum[1][radius] * norm2, sum[2][radius] * norm2);
+      }
     } else {
+      progess.status("Preparing FRC curve calculation...");
+
+      // In-line for speed
+      final float[] conjMult = new float[re1.length];
+      final float[] absFft1 = new float[re1.length];
+      final float[] absFft2 = new float[re1.length];
+
+      for (int i = 0; i < re1.length; i++) {
+        re1[i] *= norm;
+        im1[i] *= norm;
+        re2[i] *= norm;
+        im2[i] *= norm;
+      }
+
       computeMirroredFast(size, conjMult, absFft1, absFft2, re1, im1, re2, im2);
+
+      if (samplingMethod == SamplingMethod.INTERPOLATED_CIRCLE) {
+        // Set the results for the centre pixel
+        final int cx = size * centre + centre;
+        results[0] = new FrcCurveResult(0, 1, conjMult[cx], absFft1[cx], absFft2[cx]);
+
+        final float[][] images = new float[][] {conjMult, absFft1, absFft2};
+        for (int radius = 1; radius < max; radius++) {
+          // Inline the calculation for speed
+          double sum0 = 0;
+          double sum1 = 0;
+          double sum2 = 0;
+
+          // Note: The image has 2-fold radial symmetry. So we only need to sample
+          // angles from 0-pi. To sample the perimeter at pixel intervals we need
+          // pi*r samples. So the angle step is max_angle / samples == pi / (pi*r) == 1 / r.
+          // The number of samples is increased using the sampling factor.
+
+          final double angleStep = 1 / (perimeterSamplingFactor * radius);
+
+          double angle = 0;
+          int numSum = 0;
+
+          while (angle < Math.PI) {
+            final double cosA = FastMath.cos(angle);
+            final double x = centre + radius * cosA;
+            final double sinA = getSine(angle, cosA);
+            final double y = centre + radius * sinA;
+            final double[] values = getInterpolatedValues(x, y, images, size);
+            sum0 += values[0];
+            sum1 += values[1];
+            sum2 += values[2];
+
+            numSum++;
+            angle += angleStep;
+          }
+
+          results[radius] = new FrcCurveResult(radius, numSum, sum0, sum1, sum2);
+        }
+      } else {
+        // Compute the radial sum as per the DIP image Matlab toolbox
+        final double[][] radialSum =
+            RadialStatisticsUtils.radialSumAndCount(size, conjMult, absFft1, absFft2);
+        for (int radius = 0; radius < max; radius++) {
+          results[radius] = new FrcCurveResult(radius, (int) radialSum[3][radius],
+              radialSum[0][radius], radialSum[1][radius], radialSum[2][radius]);
+        }
+      }
     }
 
-    progess.status("Calculating FRC curve...");
+    progess.incrementProgress(LAST_THIRD);
+    progess.status("Finished calculating FRC curve...");
 
-    final int max = centre - 1;
-    final FrcCurveResult[] results = new FrcCurveResult[max];
+    return new FrcCurve(nmPerPixel, fieldOfView, mean1, mean2, results);
+  }
+
+  /**
+   * Gets the workspace for the given Fourier image size. The current workspace is reused if the
+   * size matches.
+   *
+   * @param size the size
+   * @return the workspace
+   */
+  private Workspace getWorkspace(int size) {
+    Workspace ws = workspace;
+    if (ws == null || ws.size != size) {
+      workspace = ws = new Workspace(size);
+    }
+    return ws;
+  }
 
-    if (samplingMethod == SamplingMethod.INTERPOLATED_CIRCLE) {
-      // Set the results for the centre pixel
-      final int cx = size * centre + centre;
-      results[0] = new FrcCurveResult(0, 1, conjMult[cx], absFft1[cx], absFft2[cx]);
-
-      final float[][] images = new float[][] {conjMult, absFft1, absFft2};
-      for (int radius = 1; radius < max; radius++) {
-        // Inline the calculation for speed
-        double sum0 = 0;
-        double sum1 = 0;
-        double sum2 = 0;
-
-        // Note: The image has 2-fold radial symmetry. So we only need to sample
-        // angles from 0-pi. To sample the perimeter at pixel intervals we need
-        // pi*r samples. So the angle step is max_angle / samples == pi / (pi*r) == 1 / r.
-        // The number of samples is increased using the sampling factor.
-
-        final double angleStep = 1 / (perimeterSamplingFactor * radius);
-
-        double angle = 0;
-        int numSum = 0;
-
-        while (angle < Math.PI) {
-          final double cosA = FastMath.cos(angle);
-          final double x = centre + radius * cosA;
-          final double sinA = getSine(angle, cosA);
-          final double y = centre + radius * sinA;
-          final double[] values = getInterpolatedValues(x, y, images, size);
-          sum0 += values[0];
-          sum1 += values[1];
-          sum2 += values[2];
-
-          numSum++;
-          angle += angleStep;
+  /**
+   * Compute the radial sum of the conjugate multiple of two FFT images, and the absolute magnitude
+   * of each FFT image. Pixels from radius n (inclusive) to n+1 (exclusive) are assigned to ring n.
+   * Rings are computed from 0 up to {@code size/2 - 1} (exclusive).
+   *
+   * <p>The input data is the complex interleaved output from JTransforms with the zero frequency at
+   * the origin, i.e. the quadrants have not been swapped. The products are computed and summed in a
+   * single pass. The Fourier image of real input data has 2-fold radial symmetry so only half of
+   * the image is processed.
+   *
+   * <p>The returned data contains the sum of the conjugate multiple, the sum of the absolute FFT 1,
+   * the sum of the absolute FFT 2 and the count of pixels for each ring.
+   *
+   * @param size the size of the FFT image
+   * @param data1 the complex data of FFT 1
+   * @param data2 the complex data of FFT 2
+   * @return the radial sums and counts
+   */
+  @VisibleForTesting
+  static double[][] computeRadialSumInterleaved(int size, float[] data1, float[] data2) {
+    final int max = size / 2 - 1;
+    final double[][] sum = new double[4][max];
+
+    // The zero frequency row is mirrored with itself. Positive frequencies are doubled.
+    addRing(sum, data1, data2, 0, 0, 1);
+    for (int u = 1; u < max; u++) {
+      addRing(sum, data1, data2, 2 * u, u, 2);
+    }
+
+    // Remaining rows with positive frequency. These are mirrored by the rows with negative
+    // frequency.
+    for (int v = 1; v < max; v++) {
+      final int v2 = v * v;
+      final int offset = 2 * v * size;
+      // Positive and zero column frequencies
+      for (int u = 0; u < max; u++) {
+        final int ring = (int) Math.sqrt(u * u + v2);
+        if (ring >= max) {
+          break;
+        }
+        addRing(sum, data1, data2, offset + 2 * u, ring, 2);
+      }
+      // Negative column frequencies are stored at the end of the row
+      final int end = offset + 2 * size;
+      for (int u = 1; u < max; u++) {
+        final int ring = (int) Math.sqrt(u * u + v2);
+        if (ring >= max) {
+          break;
         }
+        addRing(sum, data1, data2, end - 2 * u, ring, 2);
+      }
+    }
+
+    return sum;
+  }
+
+  /**
+   * Add the values from the complex interleaved data at the given index to the ring.
+   *
+   * @param sum the sums
+   * @param data1 the complex data of FFT 1
+   * @param data2 the complex data of FFT 2
+   * @param index the index
+   * @param ring the ring
+   * @param weight the weight
+   */
+  private static void addRing(double[][] sum, float[] data1, float[] data2, int index, int ring,
+      double weight) {
+    final double re1i = data1[index];
+    final double im1i = data1[index + 1];
+    final double re2i = data2[index];
+    final double im2i = data2[index + 1];
+    sum[0][ring] += weight * (re1i * re2i + im1i * im2i);
+    sum[1][ring] += weight * (re1i * re1i + im1i * im1i);
+    sum[2][ring] += weight * (re2i * re2i + im2i * im2i);
+    sum[3][ring] += weight;
+  }
 
-        results[radius] = new FrcCurveResult(radius, numSum, sum0, sum1, sum2);
+  /**
+   * Compute the radial sum of the conjugate multiple of two FFT images, and the absolute magnitude
+   * of each FFT image. Pixels from radius n (inclusive) to n+1 (exclusive) are assigned to ring n.
+   * Rings are computed from 0 up to {@code size/2 - 1} (exclusive).
+   *
+   * <p>The input data has the zero frequency at the centre, i.e. the quadrants have been swapped.
+   * The products are computed and summed in a single pass. The Fourier image of real input data has
+   * 2-fold radial symmetry so only half of the image is processed.
+   *
+   * <p>The returned data contains the sum of the conjugate multiple, the sum of the absolute FFT 1,
+   * the sum of the absolute FFT 2 and the count of pixels for each ring.
+   *
+   * @param size the size of the FFT image
+   * @param re1 the real part of FFT 1
+   * @param im1 the imaginary part of FFT 1
+   * @param re2 the real part of FFT 2
+   * @param im2 the imaginary part of FFT 2
+   * @return the radial sums and counts
+   */
+  @VisibleForTesting
+  static double[][] computeRadialSumCentred(int size, float[] re1, float[] im1, float[] re2,
+      float[] im2) {
+    final int centre = size / 2;
+    final int max = centre - 1;
+    final double[][] sum = new double[4][max];
+
+    // The centre row is mirrored with itself. Positive frequencies are doubled.
+    final int cx = centre * size + centre;
+    addRing(sum, re1, im1, re2, im2, cx, 0, 1);
+    for (int u = 1; u < max; u++) {
+      addRing(sum, re1, im1, re2, im2, cx + u, u, 2);
+    }
+
+    // Remaining rows with positive frequency. These are mirrored by the rows with negative
+    // frequency.
+    for (int v = 1; v < max; v++) {
+      final int v2 = v * v;
+      final int index = cx + v * size;
+      for (int u = 0; u < max; u++) {
+        final int ring = (int) Math.sqrt(u * u + v2);
+        if (ring >= max) {
+          break;
+        }
+        addRing(sum, re1, im1, re2, im2, index + u, ring, 2);
       }
-    } else {
-      // Compute the radial sum as per the DIP image Matlab toolbox
-      final double[][] sum =
-          RadialStatisticsUtils.radialSumAndCount(size, conjMult, absFft1, absFft2);
-      for (int radius = 0; radius < max; radius++) {
-        results[radius] = new FrcCurveResult(radius, (int) sum[3][radius], sum[0][radius],
-            sum[1][radius], sum[2][radius]);
+      for (int u = 1; u < max; u++) {
+        final int ring = (int) Math.sqrt(u * u + v2);
+        if (ring >= max) {
+          break;
+        }
+        addRing(sum, re1, im1, re2, im2, index - u, ring, 2);
       }
     }
 
-    progess.incrementProgress(LAST_THIRD);
-    progess.status("Finished calculating FRC curve...");
+    return sum;
+  }
 
-    return new FrcCurve(nmPerPixel, fieldOfView, mean1, mean2, results);
+  /**
+   * Add the values from the complex data at the given index to the ring.
+   *
+   * @param sum the sums
+   * @param re1 the real part of FFT 1
+   * @param im1 the imaginary part of FFT 1
+   * @param re2 the real part of FFT 2
+   * @param im2 the imaginary part of FFT 2
+   * @param index the index
+   * @param ring the ring
+   * @param weight the weight
+   */
+  private static void addRing(double[][] sum, float[] re1, float[] im1, float[] re2, float[] im2,
+      int index, int ring, double weight) {
+    final double re1i = re1[index];
+    final double im1i = im1[index];
+    final double re2i = re2[index];
+    final double im2i = im2[index];
+    sum[0][ring] += weight * (re1i * re2i + im1i * im2i);
+    sum[1][ring] += weight * (re1i * re1i + im1i * im1i);
+    sum[2][ring] += weight * (re2i * re2i + im2i * im2i);
+    sum[3][ring] += weight;
   }
 
   /**
@@ -1023,16 +1319,32 @@ public class Frc {
       return null; // Too large so error
     }
 
+    // Pad to a power of 2
+    final int newSize = MathUtils.nextPow2(size);
+
+    final float[] pixels = new float[newSize * newSize];
+    taperedImageMean = applyTaper(dataImage, pixels, newSize);
+
+    return new FloatProcessor(newSize, newSize, pixels, null);
+  }
+
+  /**
+   * Applies a Tukey window function to the image and writes it to the square output pixels. The
+   * output must be zero filled.
+   *
+   * @param dataImage the data image
+   * @param pixels the output pixels (must be at least newSize * newSize)
+   * @param newSize the size of the square output
+   * @return the mean of the tapered image (over the non-padded image size)
+   */
+  private static double applyTaper(ImageProcessor dataImage, float[] pixels, int newSize) {
     // Use a Tukey window function
     final float[] wx = getWindowFunctionX(dataImage.getWidth());
     final float[] wy = getWindowFunctionY(dataImage.getHeight());
 
-    // Pad to a power of 2
-    final int newSize = MathUtils.nextPow2(size);
-
     dataImage = dataImage.toFloat(0, null);
     final float[] data = (float[]) dataImage.getPixels();
-    final float[] pixels = new float[newSize * newSize];
+    double sum = 0;
     // Note that the limits at 0 and size-1 the taper is zero so this can be ignored
     final int maxy1 = dataImage.getHeight() - 1;
     final int maxx1 = dataImage.getWidth() - 1;
@@ -1041,14 +1353,12 @@ public class Frc {
       final float ytmp = wy[y];
       for (int x = 1, i = y * oldWidth + 1, ii = y * newSize + 1; x < maxx1; x++, i++, ii++) {
         final float v = data[i] * wx[x] * ytmp;
-        taperedImageMean += v;
+        sum += v;
         pixels[ii] = v;
       }
     }
     // Take the mean over the non-padded image size
-    taperedImageMean /= (dataImage.getPixelCount());
-
-    return new FloatProcessor(newSize, newSize, pixels, null);
+    return sum / dataImage.getPixelCount();
   }
 
   /**
@@ -0,0 +1,432 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.ij.ij3d;
+
+import org.scijava.vecmath.Point3d;
+import org.scijava.vecmath.Point3f;
+import org.scijava.vecmath.Vector3d;
+
+import java.util.List;
+
+/**
+ * An octree spatial index over a list of points used for view-dependent ordering and level of
+ * detail.
+ *
+ * <p>Depth sorting orders the child cells of each node by the distance of the cell centre and
+ * sorts the points within each leaf. The order of each leaf is retained and used as the starting
+ * point for the next sort. Small changes to the view only require a few changes to the order of
+ * each leaf so the sort is incremental. The order is approximate as the points of a cell are not
+ * interleaved with the points of other cells.
+ *
+ * <p>The level of detail traversal visits distant cells as a single aggregate of the points.
+ *
+ * <p>The index stores the index of each point in the list. If the list is reordered then the index
+ * must be updated using {@link #remap(int[])}.
+ */
+public class PointOctree {
+  /** The default maximum number of points in a leaf. */
+  public static final int DEFAULT_LEAF_SIZE = 64;
+
+  /** The maximum depth of the tree. */
+  private static final int MAX_DEPTH = 21;
+
+  private final List<Point3f> points;
+  private final Node root;
+
+  /**
+   * Compute the distance used to order points.
+   */
+  private interface DistanceFunction {
+    /**
+     * Compute the distance.
+     *
+     * @param x the x
+     * @param y the y
+     * @param z the z
+     * @return the distance
+     */
+    double distance(double x, double y, double z);
+  }
+
+  /**
+   * Procedure for visiting the level of detail of the points.
+   */
+  public interface LevelOfDetailProcedure {
+    /**
+     * Visit a point that should be rendered in full.
+     *
+     * @param index the index of the point
+     */
+    void point(int index);
+
+    /**
+     * Visit a cell of points that should be rendered as an aggregate.
+     *
+     * @param centroid the centroid of the points
+     * @param size the size of the cell (the longest edge of the bounds of the points)
+     * @param indices the indices of the points
+     */
+    void cell(Point3f centroid, float size, int[] indices);
+  }
+
+  /**
+   * A node of the tree.
+   */
+  private static final class Node {
+    /** The bounds of the points: min x,y,z; max x,y,z. */
+    final float[] bounds;
+    final Point3f centroid;
+    final int count;
+    /** The children (null for a leaf). */
+    Node[] children;
+    /** The indices of the points (for a leaf). */
+    int[] indices;
+
+    Node(float[] bounds, Point3f centroid, int count) {
+      this.bounds = bounds;
+      this.centroid = centroid;
+      this.count = count;
+    }
+
+    boolean isLeaf() {
+      return children == null;
+    }
+
+    float getSize() {
+      return Math.max(bounds[3] - bounds[0],
+          Math.max(bounds[4] - bounds[1], bounds[5] - bounds[2]));
+    }
+
+    double getCentre(int dimension) {
+      return 0.5 * ((double) bounds[dimension] + bounds[dimension + 3]);
+    }
+
+    /**
+     * Gets all the indices of the points in the node.
+     *
+     * @param result the result
+     * @param position the position to start in the result
+     * @return the position after the last index
+     */
+    int getIndices(int[] result, int position) {
+      if (isLeaf()) {
+        System.arraycopy(indices, 0, result, position, indices.length);
+        return position + indices.length;
+      }
+      for (final Node child : children) {
+        position = child.getIndices(result, position);
+      }
+      return position;
+    }
+  }
+
+  /**
+   * Create a new instance using the default leaf size.
+   *
+   * @param points the points
+   */
+  public PointOctree(List<Point3f> points) {
+    this(points, DEFAULT_LEAF_SIZE);
+  }
+
+  /**
+   * Create a new instance.
+   *
+   * @param points the points
+   * @param leafSize the maximum number of points in a leaf (the leaf may be larger if the points
+   *        cannot be divided)
+   */
+  public PointOctree(List<Point3f> points, int leafSize) {
+    this.points = points;
+    final int[] indices = new int[points.size()];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = i;
+    }
+    root = build(indices, Math.max(1, leafSize), 0);
+  }
+
+  /**
+   * Builds the node for the points.
+   *
+   * @param indices the indices
+   * @param leafSize the leaf size
+   * @param depth the depth
+   * @return the node
+   */
+  private Node build(int[] indices, int leafSize, int depth) {
+    final float[] bounds = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+        Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY,
+        Float.NEGATIVE_INFINITY};
+    double sx = 0;
+    double sy = 0;
+    double sz = 0;
+    for (final int i : indices) {
+      final Point3f p = points.get(i);
+      bounds[0] = Math.min(bounds[0], p.x);
+      bounds[1] = Math.min(bounds[1], p.y);
+      bounds[2] = Math.min(bounds[2], p.z);
+      bounds[3] = Math.max(bounds[3], p.x);
+      bounds[4] = Math.max(bounds[4], p.y);
+      bounds[5] = Math.max(bounds[5], p.z);
+      sx += p.x;
+      sy += p.y;
+      sz += p.z;
+    }
+    final int count = indices.length;
+    final Point3f centroid = (count == 0) ? new Point3f()
+        : new Point3f((float) (sx / count), (float) (sy / count), (float) (sz / count));
+    final Node node = new Node(bounds, centroid, count);
+    if (count <= leafSize || depth == MAX_DEPTH || node.getSize() == 0) {
+      node.indices = indices;
+      return node;
+    }
+
+    // Divide into octants around the centre of the bounds
+    final double cx = node.getCentre(0);
+    final double cy = node.getCentre(1);
+    final double cz = node.getCentre(2);
+    final int[] octant = new int[count];
+    final int[] sizes = new int[8];
+    for (int j = 0; j < count; j++) {
+      final Point3f p = points.get(indices[j]);
+      final int o = ((p.x > cx) ? 1 : 0) | ((p.y > cy) ? 2 : 0) | ((p.z > cz) ? 4 : 0);
+      octant[j] = o;
+      sizes[o]++;
+    }
+    final int[][] split = new int[8][];
+    for (int o = 0; o < 8; o++) {
+      split[o] = new int[sizes[o]];
+      sizes[o] = 0;
+    }
+    for (int j = 0; j < count; j++) {
+      final int o = octant[j];
+      split[o][sizes[o]++] = indices[j];
+    }
+    int nonEmpty = 0;
+    for (int o = 0; o < 8; o++) {
+      if (sizes[o] != 0) {
+        nonEmpty++;
+      }
+    }
+    final Node[] children = new Node[nonEmpty];
+    for (int o = 0, k = 0; o < 8; o++) {
+      if (sizes[o] != 0) {
+        children[k++] = build(split[o], leafSize, depth + 1);
+      }
+    }
+    node.children = children;
+    return node;
+  }
+
+  /**
+   * Gets the number of points.
+   *
+   * @return the size
+   */
+  public int size() {
+    return root.count;
+  }
+
+  /**
+   * Update the index after the points have been reordered. The point at position {@code i} in the
+   * new order was at position {@code indices[i]} in the previous order.
+   *
+   * @param indices the indices of the new order
+   * @throws IllegalArgumentException if the indices are not the same size as the tree
+   */
+  public void remap(int[] indices) {
+    if (indices.length != root.count) {
+      throw new IllegalArgumentException("indices of size " + root.count + " expected");
+    }
+    final int[] map = new int[indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      map[indices[i]] = i;
+    }
+    remap(root, map);
+  }
+
+  private static void remap(Node node, int[] map) {
+    if (node.isLeaf()) {
+      final int[] leaf = node.indices;
+      for (int i = 0; i < leaf.length; i++) {
+        leaf[i] = map[leaf[i]];
+      }
+    } else {
+      for (final Node child : node.children) {
+        remap(child, map);
+      }
+    }
+  }
+
+  /**
+   * Sort the points for a perspective view in descending order of the distance from the eye.
+   * Points behind the eye have a negative distance. This is the order for rendering transparent
+   * objects back to front.
+   *
+   * @param eye the eye
+   * @param direction the view direction
+   * @return the indices of the points in sorted order
+   */
+  public int[] sortPerspective(Point3d eye, Vector3d direction) {
+    final double ex = eye.x;
+    final double ey = eye.y;
+    final double ez = eye.z;
+    final double a = direction.x;
+    final double b = direction.y;
+    final double c = direction.z;
+    return sort((x, y, z) -> {
+      final double dx = x - ex;
+      final double dy = y - ey;
+      final double dz = z - ez;
+      final double d = Math.sqrt(dx * dx + dy * dy + dz * dz);
+      // Points behind the eye (an obtuse angle to the direction) are ranked later
+      return (a * dx + b * dy + c * dz < 0) ? -d : d;
+    });
+  }
+
+  /**
+   * Sort the points for an orthographic view in descending order of the signed distance from the
+   * plane with the given normal through the origin.
+   *
+   * @param direction the view direction
+   * @return the indices of the points in sorted order
+   */
+  public int[] sortOrthographic(Vector3d direction) {
+    final double a = direction.x;
+    final double b = direction.y;
+    final double c = direction.z;
+    return sort((x, y, z) -> a * x + b * y + c * z);
+  }
+
+  private int[] sort(DistanceFunction function) {
+    final int[] result = new int[root.count];
+    sort(root, function, result, 0);
+    return result;
+  }
+
+  /**
+   * Sort the node in descending distance.
+   *
+   * @param node the node
+   * @param function the distance function
+   * @param result the result
+   * @param position the position to start in the result
+   * @return the position after the last index
+   */
+  private int sort(Node node, DistanceFunction function, int[] result, int position) {
+    if (node.isLeaf()) {
+      sortLeaf(node.indices, function);
+      System.arraycopy(node.indices, 0, result, position, node.indices.length);
+      return position + node.indices.length;
+    }
+    final Node[] children = node.children;
+    final double[] d = new double[children.length];
+    for (int i = 0; i < children.length; i++) {
+      final Node child = children[i];
+      d[i] = function.distance(child.getCentre(0), child.getCentre(1), child.getCentre(2));
+    }
+    // Insertion sort the children in descending order. The order is retained for the next sort.
+    for (int i = 1; i < children.length; i++) {
+      final Node child = children[i];
+      final double key = d[i];
+      int j = i - 1;
+      while (j >= 0 && d[j] < key) {
+        children[j + 1] = children[j];
+        d[j + 1] = d[j];
+        j--;
+      }
+      children[j + 1] = child;
+      d[j + 1] = key;
+    }
+    for (final Node child : children) {
+      position = sort(child, function, result, position);
+    }
+    return position;
+  }
+
+  /**
+   * Sort the leaf indices in descending distance. This uses an insertion sort starting from the
+   * current order which is efficient when the order has changed little since the last sort.
+   *
+   * @param indices the indices
+   * @param function the distance function
+   */
+  private void sortLeaf(int[] indices, DistanceFunction function) {
+    final double[] d = new double[indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      final Point3f p = points.get(indices[i]);
+      d[i] = function.distance(p.x, p.y, p.z);
+    }
+    for (int i = 1; i < indices.length; i++) {
+      final int index = indices[i];
+      final double key = d[i];
+      int j = i - 1;
+      while (j >= 0 && d[j] < key) {
+        indices[j + 1] = indices[j];
+        d[j + 1] = d[j];
+        j--;
+      }
+      indices[j + 1] = index;
+      d[j + 1] = key;
+    }
+  }
+
+  /**
+   * Visit the points at a level of detail dependent on the distance from the eye.
+   *
+   * <p>A cell is aggregated if the size of the cell divided by the distance of the cell centroid
+   * from the eye is below the threshold, i.e. the cell has a small angular size in the view.
+   * Otherwise the children of the cell are visited. The points of a leaf that is not aggregated
+   * are visited individually.
+   *
+   * @param eye the eye
+   * @param threshold the threshold for the angular size of a cell
+   * @param procedure the procedure
+   */
+  public void visitLevelOfDetail(Point3d eye, double threshold,
+      LevelOfDetailProcedure procedure) {
+    if (root.count != 0) {
+      visitLevelOfDetail(root, eye, threshold, procedure);
+    }
+  }
+
+  private static void visitLevelOfDetail(Node node, Point3d eye, double threshold,
+      LevelOfDetailProcedure procedure) {
+    final double distance = eye.distance(new Point3d(node.centroid));
+    if (node.count > 1 && node.getSize() < threshold * distance) {
+      final int[] indices = new int[node.count];
+      node.getIndices(indices, 0);
+      procedure.cell(node.centroid, node.getSize(), indices);
+    } else if (node.isLeaf()) {
+      for (final int index : node.indices) {
+        procedure.point(index);
+      }
+    } else {
+      for (final Node child : node.children) {
+        visitLevelOfDetail(child, eye, threshold, procedure);
+      }
+    }
+  }
+}
@@ -47,8 +47,6 @@ import uk.ac.sussex.gdsc.core.utils.TurboList;
 import uk.ac.sussex.gdsc.core.utils.concurrent.ConcurrencyUtils;
 import uk.ac.sussex.gdsc.core.utils.rng.RandomUtils;
 import uk.ac.sussex.gdsc.smlm.data.config.CalibrationReader;
-import uk.ac.sussex.gdsc.smlm.data.config.ResultsProtos.ResultsImageMode;
-import uk.ac.sussex.gdsc.smlm.data.config.ResultsProtos.ResultsImageType;
 import uk.ac.sussex.gdsc.smlm.data.config.UnitHelper;
 import uk.ac.sussex.gdsc.smlm.data.config.UnitProtos.DistanceUnit;
 import uk.ac.sussex.gdsc.smlm.function.Erf;
@@ -61,7 +59,6 @@ import uk.ac.sussex.gdsc.smlm.ij.frc.Frc.SamplingMethod;
 import uk.ac.sussex.gdsc.smlm.ij.frc.Frc.ThresholdMethod;
 import uk.ac.sussex.gdsc.smlm.ij.plugins.ResultsManager.InputSource;
 import uk.ac.sussex.gdsc.smlm.ij.results.ImageJImagePeakResults;
-import uk.ac.sussex.gdsc.smlm.ij.results.ImagePeakResultsFactory;
 import uk.ac.sussex.gdsc.smlm.ij.settings.SettingsManager;
 import uk.ac.sussex.gdsc.smlm.results.MemoryPeakResults;
 import uk.ac.sussex.gdsc.smlm.results.PeakResult;
@@ -85,6 +82,7 @@ import ij.gui.Plot;
 import ij.gui.PlotWindow;
 import ij.plugin.PlugIn;
 import ij.plugin.frame.Recorder;
+import ij.process.FloatProcessor;
 import ij.process.ImageProcessor;
 import ij.process.LUT;
 
@@ -129,6 +127,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -197,6 +196,15 @@ public class Fire implements PlugIn {
 
   private PrecisionResultProcedure pp;
 
+  /**
+   * The idle FRC calculators. This allows repeat analysis to reuse the Fourier transform plans and
+   * work buffers. The pool is cleared when the analysis is complete.
+   */
+  private final ConcurrentLinkedQueue<Frc> frcPool = new ConcurrentLinkedQueue<>();
+
+  /** The localisations divided into blocks for the random split. Cached for repeat analysis. */
+  private LocalisationBlocks localisationBlocks;
+
   /**
    * Contains the settings that are the re-usable state of the plugin.
    */
@@ -258,6 +266,7 @@ public class Fire implements PlugIn {
     boolean showFrcCurve;
     boolean showFrcCurveRepeats;
     boolean showFrcTimeEvolution;
+    int timeEvolutionSteps;
     int precisionMethodIndex;
     boolean sampleDecay;
     boolean loessSmoothing;
@@ -281,6 +290,7 @@ public class Fire implements PlugIn {
       samplingMethodIndex = SamplingMethod.RADIAL_SUM.ordinal();
       thresholdMethodIndex = ThresholdMethod.FIXED_1_OVER_7.ordinal();
       showFrcCurve = true;
+      timeEvolutionSteps = 10;
       precisionMethodIndex = PrecisionMethod.CALCULATE.ordinal();
       minQ = 0.2;
       maxQ = 0.45;
@@ -308,6 +318,7 @@ public class Fire implements PlugIn {
       showFrcCurve = source.showFrcCurve;
       showFrcCurveRepeats = source.showFrcCurveRepeats;
       showFrcTimeEvolution = source.showFrcTimeEvolution;
+      timeEvolutionSteps = source.timeEvolutionSteps;
       precisionMethodIndex = source.precisionMethodIndex;
       sampleDecay = source.sampleDecay;
       loessSmoothing = source.loessSmoothing;
@@ -682,10 +693,21 @@ public class Fire implements PlugIn {
       }
     }
 
+    // Release the Fourier transform work buffers
+    releaseWorkspaces();
+
     IJ.showStatus(pluginTitle + " complete : "
         + TextUtils.millisToString(System.currentTimeMillis() - start));
   }
 
+  /**
+   * Release the FRC work buffers retained for repeat analysis. Should be called when no further
+   * calls to compute the FIRE number are expected.
+   */
+  public void releaseWorkspaces() {
+    frcPool.clear();
+  }
+
   private void logResult(String name, FireResult result) {
     IJ.log(String.format("%s : FIRE number = %s %s (Fourier scale = %s)", name,
         MathUtils.rounded(result.fireNumber, 4), units,
@@ -837,6 +859,7 @@ public class Fire implements PlugIn {
       gd.addNumericField("Repeats", settings.repeats, 0);
       gd.addCheckbox("Show_FRC_curve_repeats", settings.showFrcCurveRepeats);
       gd.addCheckbox("Show_FRC_time_evolution", settings.showFrcTimeEvolution);
+      gd.addNumericField("Time_evolution_steps", settings.timeEvolutionSteps, 0);
       gd.addCheckbox("Spurious correlation correction", settings.spuriousCorrelationCorrection);
       gd.addNumericField("Q-value", settings.qvalue, 3);
       gd.addNumericField("Precision_Mean", settings.mean, 2, 6, "nm");
@@ -875,6 +898,7 @@ public class Fire implements PlugIn {
       settings.repeats = Math.max(1, (int) gd.getNextNumber());
       settings.showFrcCurveRepeats = gd.getNextBoolean();
       settings.showFrcTimeEvolution = gd.getNextBoolean();
+      settings.timeEvolutionSteps = Math.max(1, (int) gd.getNextNumber());
       settings.spuriousCorrelationCorrection = gd.getNextBoolean();
       settings.qvalue = Math.abs(gd.getNextNumber());
       settings.mean = Math.abs(gd.getNextNumber());
@@ -912,6 +936,7 @@ public class Fire implements PlugIn {
   public void initialise(MemoryPeakResults results, MemoryPeakResults results2) {
     this.results = verify(results);
     this.results2 = verify(results2);
+    localisationBlocks = null;
 
     if (this.results == null) {
       return;
@@ -991,26 +1016,6 @@ public class Fire implements PlugIn {
     }
   }
 
-  /**
-   * Shallow copy this instance so skipping initialisation. Only variables required for the FIRE
-   * calculation are copied.
-   *
-   * @return the new FIRE instance
-   */
-  private Fire copy() {
-    final Fire f = new Fire();
-    f.results = results;
-    f.results2 = results2;
-    f.nmPerUnit = nmPerUnit;
-    f.units = units;
-    f.dataBounds = dataBounds;
-    f.correctionQValue = correctionQValue;
-    f.correctionMean = correctionMean;
-    f.correctionSigma = correctionSigma;
-    f.settings = settings;
-    return f;
-  }
-
   /**
    * Verify the results can be used for FIRE. Results are sorted in time order if the block size is
    * above 1.
@@ -1078,124 +1083,247 @@ public class Fire implements PlugIn {
         (useSignal && (results.hasIntensity())) ? new PeakSignalProvider()
             : new FixedSignalProvider();
 
-    // Draw images using the existing IJ routines.
-    final Rectangle bounds = new Rectangle(0, 0, (int) Math.ceil(dataBounds.getWidth()),
-        (int) Math.ceil(dataBounds.getHeight()));
+    // Draw images directly into pixel arrays using bilinear weighting.
+    final Rectangle bounds = getImageBounds();
+    final double imageScale = getImageScale(bounds, fourierImageScale, imageSize);
 
-    final boolean weighted = true;
-    final boolean equalised = false;
-    double imageScale;
-    if (fourierImageScale <= 0) {
-      double size = FastMath.max(bounds.width, bounds.height);
-      if (size <= 0) {
-        size = 1;
-      }
-      imageScale = imageSize / size;
-    } else {
-      imageScale = fourierImageScale;
-    }
-
-    ImageJImagePeakResults image1 =
-        ImagePeakResultsFactory.createPeakResultsImage(ResultsImageType.DRAW_NONE, weighted,
-            equalised, "IP1", bounds, 1, 1, imageScale, 0, ResultsImageMode.IMAGE_ADD);
-    image1.setDisplayImage(false);
-    image1.setUncalibrated(true);
-    image1.begin();
-
-    ImageJImagePeakResults image2 =
-        ImagePeakResultsFactory.createPeakResultsImage(ResultsImageType.DRAW_NONE, weighted,
-            equalised, "IP2", bounds, 1, 1, imageScale, 0, ResultsImageMode.IMAGE_ADD);
-    image2.setDisplayImage(false);
-    image2.setUncalibrated(true);
-    image2.begin();
+    final SplitImageRenderer renderer = new SplitImageRenderer(bounds, imageScale);
+    final float[] pixels1 = renderer.createPixels();
+    final float[] pixels2 = renderer.createPixels();
 
     final float minx = (float) dataBounds.getX();
     final float miny = (float) dataBounds.getY();
 
     if (this.results2 != null) {
       // Two image comparison
-      final ImageJImagePeakResults i1 = image1;
       results.forEach((PeakResultProcedure) result -> {
         final float x = result.getXPosition() - minx;
         final float y = result.getYPosition() - miny;
-        i1.add(x, y, signalProvider.getSignal(result));
+        renderer.add(pixels1, x, y, signalProvider.getSignal(result));
       });
-      final ImageJImagePeakResults i2 = image2;
       results2.forEach((PeakResultProcedure) result -> {
         final float x = result.getXPosition() - minx;
         final float y = result.getYPosition() - miny;
-        i2.add(x, y, signalProvider.getSignal(result));
+        renderer.add(pixels2, x, y, signalProvider.getSignal(result));
       });
     } else {
       // Block sampling.
-      // Ensure we have at least 2 even sized blocks.
-      int blockSize = Math.min(results.size() / 2, Math.max(1, settings.blockSize));
-      int nblocks = (int) Math.ceil((double) results.size() / blockSize);
-      while (nblocks <= 1 && blockSize > 1) {
-        blockSize /= 2;
-        nblocks = (int) Math.ceil((double) results.size() / blockSize);
-      }
-      if (nblocks <= 1) {
+      final LocalisationBlocks blocks = getLocalisationBlocks(signalProvider, minx, miny);
+      if (blocks == null) {
         // This should not happen since the results should contain at least 2 localisations
         return null;
       }
-      if (blockSize != settings.blockSize) {
-        IJ.log(pluginTitle + " Warning: Changed block size to " + blockSize);
-      }
 
-      final Counter i = new Counter();
-      final Counter block = new Counter();
-      final int finalBlockSize = blockSize;
-      final PeakResult[][] blocks = new PeakResult[nblocks][blockSize];
-      results.forEach((PeakResultProcedure) result -> {
-        if (i.getCount() == finalBlockSize) {
-          block.increment();
-          i.reset();
-        }
-        blocks[block.getCount()][i.getAndIncrement()] = result;
-      });
-      // Truncate last block
-      blocks[block.getCount()] = Arrays.copyOf(blocks[block.getCount()], i.getCount());
-
-      final int[] indices = SimpleArrayUtils.natural(block.getCount() + 1);
+      final int[] indices = SimpleArrayUtils.natural(blocks.getNumberOfBlocks());
       if (settings.randomSplit) {
         MathArrays.shuffle(indices);
       }
 
+      float[] image1 = pixels1;
+      float[] image2 = pixels2;
       for (final int index : indices) {
         // Split alternating so just rotate
-        final ImageJImagePeakResults image = image1;
+        final float[] image = image1;
         image1 = image2;
         image2 = image;
-        for (final PeakResult p : blocks[index]) {
-          final float x = p.getXPosition() - minx;
-          final float y = p.getYPosition() - miny;
-          image.add(x, y, signalProvider.getSignal(p));
+        for (int i = blocks.start[index], end = blocks.start[index + 1]; i < end; i++) {
+          renderer.add(image, blocks.x[i], blocks.y[i], blocks.signal[i]);
         }
       }
     }
 
-    image1.end();
-    final ImageProcessor ip1 = image1.getImagePlus().getProcessor();
-
-    image2.end();
-    final ImageProcessor ip2 = image2.getImagePlus().getProcessor();
-
     if (settings.maxPerBin > 0 && signalProvider instanceof FixedSignalProvider) {
       // We can eliminate over-sampled pixels
-      for (int i = ip1.getPixelCount(); i-- > 0;) {
-        if (ip1.getf(i) > settings.maxPerBin) {
-          ip1.setf(i, settings.maxPerBin);
+      final float maxPerBin = settings.maxPerBin;
+      for (int i = pixels1.length; i-- > 0;) {
+        if (pixels1[i] > maxPerBin) {
+          pixels1[i] = maxPerBin;
         }
-        if (ip2.getf(i) > settings.maxPerBin) {
-          ip2.setf(i, settings.maxPerBin);
+        if (pixels2[i] > maxPerBin) {
+          pixels2[i] = maxPerBin;
         }
       }
     }
 
+    final ImageProcessor ip1 = renderer.createProcessor(pixels1);
+    final ImageProcessor ip2 = renderer.createProcessor(pixels2);
+
     return new FireImages(ip1, ip2, nmPerUnit / imageScale);
   }
 
+  /**
+   * Gets the bounds of the data for rendering images. The origin is zero.
+   *
+   * @return the image bounds
+   */
+  private Rectangle getImageBounds() {
+    return new Rectangle(0, 0, (int) Math.ceil(dataBounds.getWidth()),
+        (int) Math.ceil(dataBounds.getHeight()));
+  }
+
+  /**
+   * Gets the image scale.
+   *
+   * @param bounds the bounds of the data
+   * @param fourierImageScale the fourier image scale (set to zero to auto compute)
+   * @param imageSize the image size
+   * @return the image scale
+   */
+  private static double getImageScale(Rectangle bounds, double fourierImageScale,
+      int imageSize) {
+    if (fourierImageScale <= 0) {
+      double size = FastMath.max(bounds.width, bounds.height);
+      if (size <= 0) {
+        size = 1;
+      }
+      return imageSize / size;
+    }
+    return fourierImageScale;
+  }
+
+  /**
+   * Gets the localisations divided into blocks for the random split. The blocks are cached for
+   * repeat analysis with the same settings.
+   *
+   * @param signalProvider the signal provider
+   * @param minx the min x of the data
+   * @param miny the min y of the data
+   * @return the localisation blocks (or null if the results cannot be split)
+   */
+  private synchronized LocalisationBlocks getLocalisationBlocks(SignalProvider signalProvider,
+      float minx, float miny) {
+    final boolean fixedSignal = signalProvider instanceof FixedSignalProvider;
+    LocalisationBlocks blocks = localisationBlocks;
+    if (blocks != null && blocks.settingsBlockSize == settings.blockSize
+        && blocks.fixedSignal == fixedSignal) {
+      return blocks;
+    }
+
+    // Ensure we have at least 2 even sized blocks.
+    int blockSize = Math.min(results.size() / 2, Math.max(1, settings.blockSize));
+    int nblocks = (int) Math.ceil((double) results.size() / blockSize);
+    while (nblocks <= 1 && blockSize > 1) {
+      blockSize /= 2;
+      nblocks = (int) Math.ceil((double) results.size() / blockSize);
+    }
+    if (nblocks <= 1) {
+      return null;
+    }
+    if (blockSize != settings.blockSize) {
+      IJ.log(pluginTitle + " Warning: Changed block size to " + blockSize);
+    }
+
+    blocks = new LocalisationBlocks(settings.blockSize, fixedSignal, results.size(), nblocks);
+    final LocalisationBlocks b = blocks;
+    final Counter i = new Counter();
+    results.forEach((PeakResultProcedure) result -> {
+      final int index = i.getAndIncrement();
+      b.x[index] = result.getXPosition() - minx;
+      b.y[index] = result.getYPosition() - miny;
+      b.signal[index] = signalProvider.getSignal(result);
+      b.frame[index] = result.getFrame();
+    });
+    // Block boundaries. The last block may be truncated.
+    for (int block = 1; block < nblocks; block++) {
+      blocks.start[block] = block * blockSize;
+    }
+    blocks.start[nblocks] = results.size();
+
+    localisationBlocks = blocks;
+    return blocks;
+  }
+
+  /**
+   * Contain the localisations divided into consecutive blocks. The data is stored in primitive
+   * arrays for fast rendering.
+   */
+  private static class LocalisationBlocks {
+    /** The block size in the settings used to create the blocks. */
+    final int settingsBlockSize;
+    /** Set to true if the signal is fixed at 1. */
+    final boolean fixedSignal;
+    /** The x coordinates relative to the data bounds origin. */
+    final float[] x;
+    /** The y coordinates relative to the data bounds origin. */
+    final float[] y;
+    /** The signal. */
+    final float[] signal;
+    /** The frame. */
+    final int[] frame;
+    /** The start index of each block. The final entry is the total number of localisations. */
+    final int[] start;
+
+    LocalisationBlocks(int settingsBlockSize, boolean fixedSignal, int size, int nblocks) {
+      this.settingsBlockSize = settingsBlockSize;
+      this.fixedSignal = fixedSignal;
+      x = new float[size];
+      y = new float[size];
+      signal = new float[size];
+      frame = new int[size];
+      start = new int[nblocks + 1];
+    }
+
+    int getNumberOfBlocks() {
+      return start.length - 1;
+    }
+  }
+
+  /**
+   * Render localisations directly to a pixel array. The value is interpolated over the 4 closest
+   * pixels using bilinear weighting. This matches the rendering of the
+   * {@link ImageJImagePeakResults} with the {@link ImageJImagePeakResults#DISPLAY_WEIGHTED}
+   * option.
+   *
+   * <p>This class is not thread-safe.
+   */
+  private static class SplitImageRenderer {
+    final float scale;
+    final int imageWidth;
+    final int imageHeight;
+    final int width;
+    final int height;
+    final int[] indices = new int[4];
+    final float[] values = new float[4];
+
+    SplitImageRenderer(Rectangle bounds, double imageScale) {
+      scale = (float) imageScale;
+      imageWidth = (int) Math.ceil(bounds.width * scale);
+      imageHeight = (int) Math.ceil(bounds.height * scale);
+      // Handle invalid bounds with an empty single pixel image
+      if (imageWidth > 0 && imageHeight > 0
+          && (double) imageWidth * (double) imageHeight < Integer.MAX_VALUE) {
+        width = imageWidth;
+        height = imageHeight;
+      } else {
+        width = height = 1;
+      }
+    }
+
+    float[] createPixels() {
+      return new float[width * height];
+    }
+
+    ImageProcessor createProcessor(float[] pixels) {
+      return new FloatProcessor(width, height, pixels);
+    }
+
+    void add(float[] pixels, float x, float y, float value) {
+      x *= scale;
+      y *= scale;
+
+      // Check bounds
+      if (x < 0 || x >= imageWidth || y < 0 || y >= imageHeight) {
+        return;
+      }
+
+      ImageJImagePeakResults.getWeightedValues(value, x, y, imageWidth, imageHeight, indices,
+          values);
+      for (int i = 0; i < 4; i++) {
+        pixels[indices[i]] += values[i];
+      }
+    }
+  }
+
   /**
    * Encapsulate plotting the FRC curve to allow multiple curves to be plotted together.
    */
@@ -1312,15 +1440,26 @@ public class Fire implements PlugIn {
       double fourierImageScale, int imageSize) {
     IJ.showStatus("Calculating FRC time evolution curve...");
 
-    // Sort by time
+    // Sort by time. Any cached blocks may not be in time order.
     results.sort();
+    localisationBlocks = null;
+
+    final SignalProvider signalProvider =
+        (myUseSignal && (results.hasIntensity())) ? new PeakSignalProvider()
+            : new FixedSignalProvider();
+    final float minx = (float) dataBounds.getX();
+    final float miny = (float) dataBounds.getY();
+    final LocalisationBlocks blocks = getLocalisationBlocks(signalProvider, minx, miny);
+    if (blocks == null) {
+      return;
+    }
 
-    final int nSteps = 10;
+    final int nSteps = settings.timeEvolutionSteps;
     int maxT = results.getLastFrame();
     if (maxT == 0) {
       maxT = results.size();
     }
-    final int step = maxT / nSteps;
+    final int step = Math.max(1, maxT / nSteps);
 
     final TDoubleArrayList x = new TDoubleArrayList();
     final TDoubleArrayList y = new TDoubleArrayList();
@@ -1328,27 +1467,53 @@ public class Fire implements PlugIn {
     double yMin = fireNumber;
     double yMax = fireNumber;
 
-    final MemoryPeakResults newResults = new MemoryPeakResults();
-    newResults.copySettings(results);
-    int index = 0;
+    // Assign each block to a half image. This is fixed for all time points.
+    final int nblocks = blocks.getNumberOfBlocks();
+    final int[] indices = SimpleArrayUtils.natural(nblocks);
+    if (settings.randomSplit) {
+      MathArrays.shuffle(indices);
+    }
+    final int[] half = new int[nblocks];
+    for (int i = 0; i < nblocks; i++) {
+      half[indices[i]] = i & 1;
+    }
+
+    // Incrementally render the split images. At each time point only the localisations from the
+    // new time block are added to the running half images. Note: The Fourier transform is linear
+    // but accumulating the Fourier images would require a transform of the increment which costs
+    // the same as the transform of the accumulated images. The expensive rendering of all
+    // localisations up to the time point is avoided.
+    final Rectangle bounds = getImageBounds();
+    final double imageScale = getImageScale(bounds, fourierImageScale, imageSize);
+    final SplitImageRenderer renderer = new SplitImageRenderer(bounds, imageScale);
+    final float[][] pixels = {renderer.createPixels(), renderer.createPixels()};
+    final boolean clip = settings.maxPerBin > 0 && signalProvider instanceof FixedSignalProvider;
+    final float[][] clipped = (clip)
+        ? new float[][] {renderer.createPixels(), renderer.createPixels()} : pixels;
+    final double nmPerPixel = nmPerUnit / imageScale;
 
-    final PeakResult[] list = results.toArray();
+    int index = 0;
+    int block = 0;
+    final int size = blocks.x.length;
     for (int t = step; t <= maxT - step; t += step) {
-      while (index < list.length) {
-        final PeakResult r = list[index];
-        if (r.getFrame() <= t) {
-          newResults.add(r);
-          index++;
-        } else {
-          break;
+      while (index < size && blocks.frame[index] <= t) {
+        while (index >= blocks.start[block + 1]) {
+          block++;
         }
+        renderer.add(pixels[half[block]], blocks.x[index], blocks.y[index], blocks.signal[index]);
+        index++;
       }
 
       x.add(t);
 
-      final Fire f = this.copy();
-      final FireResult result = f.calculateFireNumber(fourierMethod, samplingMethod,
-          thresholdMethod, fourierImageScale, imageSize);
+      if (clip) {
+        clip(pixels[0], clipped[0], settings.maxPerBin);
+        clip(pixels[1], clipped[1], settings.maxPerBin);
+      }
+      final FireImages images = new FireImages(renderer.createProcessor(clipped[0]),
+          renderer.createProcessor(clipped[1]), nmPerPixel);
+      final FireResult result =
+          calculateFireNumber(fourierMethod, samplingMethod, thresholdMethod, images);
       final double fire = (result == null) ? 0 : result.fireNumber;
       y.add(fire);
 
@@ -1380,6 +1545,19 @@ public class Fire implements PlugIn {
     ImageJUtils.display(title, plot);
   }
 
+  /**
+   * Copy the pixels to the destination clipping to the maximum value.
+   *
+   * @param source the source
+   * @param dest the destination
+   * @param max the maximum
+   */
+  private static void clip(float[] source, float[] dest, float max) {
+    for (int i = source.length; i-- > 0;) {
+      dest[i] = FastMath.min(source[i], max);
+    }
+  }
+
   /**
    * Calculate the Fourier Image REsolution (FIRE) number using the chosen threshold method. Should
    * be called after {@link #initialise(MemoryPeakResults, MemoryPeakResults)}.
@@ -1415,7 +1593,30 @@ public class Fire implements PlugIn {
       return null;
     }
 
-    final Frc frc = new Frc();
+    // Reuse an idle FRC instance
+    Frc frc = frcPool.poll();
+    if (frc == null) {
+      frc = new Frc();
+    }
+    try {
+      return calculateFireNumber(frc, fourierMethod, samplingMethod, thresholdMethod, images);
+    } finally {
+      frcPool.offer(frc);
+    }
+  }
+
+  /**
+   * Calculate the Fourier Image REsolution (FIRE) number using the chosen threshold method.
+   *
+   * @param frc the FRC calculator
+   * @param fourierMethod the fourier method
+   * @param samplingMethod the sampling method
+   * @param thresholdMethod the threshold method
+   * @param images the images
+   * @return The FIRE number
+   */
+  private FireResult calculateFireNumber(Frc frc, FourierMethod fourierMethod,
+      SamplingMethod samplingMethod, ThresholdMethod thresholdMethod, FireImages images) {
     // Allow a progress tracker to be input.
     // This should be setup for the total number of repeats.
     // If parallelised then do not output the text status messages as they conflict.
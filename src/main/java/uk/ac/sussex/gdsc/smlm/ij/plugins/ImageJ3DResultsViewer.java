@@ -67,6 +67,7 @@ import uk.ac.sussex.gdsc.smlm.ij.ij3d.ItemPointMesh;
 import uk.ac.sussex.gdsc.smlm.ij.ij3d.ItemShape;
 import uk.ac.sussex.gdsc.smlm.ij.ij3d.ItemTriangleMesh;
 import uk.ac.sussex.gdsc.smlm.ij.ij3d.OrderedItemGeometryGroup;
+import uk.ac.sussex.gdsc.smlm.ij.ij3d.PointOctree;
 import uk.ac.sussex.gdsc.smlm.ij.ij3d.ReferenceItemMesh;
 import uk.ac.sussex.gdsc.smlm.ij.ij3d.Shape3DHelper;
 import uk.ac.sussex.gdsc.smlm.ij.ij3d.Shape3DHelper.Rendering;
@@ -85,6 +86,7 @@ import uk.ac.sussex.gdsc.smlm.results.procedures.RawResultProcedure;
 import uk.ac.sussex.gdsc.smlm.results.procedures.StandardResultProcedure;
 import uk.ac.sussex.gdsc.smlm.results.procedures.XyResultProcedure;
 import uk.ac.sussex.gdsc.smlm.results.procedures.XyzResultProcedure;
+import uk.ac.sussex.gdsc.smlm.utils.PermutationUtils;
 
 import customnode.CustomLineMesh;
 import customnode.CustomMesh;
@@ -205,6 +207,14 @@ public class ImageJ3DResultsViewer implements PlugIn {
   /** The identity transform. */
   private static final Transform3D IDENTITY = new Transform3D();
 
+  /**
+   * The minimum number of points to sort using a spatial index when the approximate sort is
+   * enabled. The sort orders cells of the index by depth and incrementally updates the order within
+   * each cell. This is an approximate depth sort as points in overlapping cells are not
+   * interleaved.
+   */
+  private static final int OCTREE_SORT_SIZE = 100000;
+
   // No need to store this in settings as when the plugin is first run there are no windows
   private static AtomicReference<String> lastWindow = new AtomicReference<>("");
 
@@ -411,6 +421,9 @@ public class ImageJ3DResultsViewer implements PlugIn {
     /** Used to test if this is the same results set. */
     PeakResultsDigest digest;
 
+    /** The spatial index of the points. */
+    PointOctree octree;
+
     CustomContentInstant contentInstance;
     CustomMesh outline;
     TurboList<PeakResult> selected = new TurboList<>();
@@ -432,6 +445,20 @@ public class ImageJ3DResultsViewer implements PlugIn {
       highlightColourUpdated();
     }
 
+    /**
+     * Gets the spatial index of the points. This is created if required.
+     *
+     * @return the octree
+     */
+    PointOctree getOctree() {
+      PointOctree tree = octree;
+      if (tree == null) {
+        tree = new PointOctree(points);
+        octree = tree;
+      }
+      return tree;
+    }
+
     void createClickSelectionNode(CustomContentInstant contentInstance) {
       // Note: Allow multiple items to be picked.
       // Maintain a list of the results that are picked (the table model).
@@ -1125,6 +1152,13 @@ public class ImageJ3DResultsViewer implements PlugIn {
           egd.addNumericField("Eye_y", settings.getSortEyeY(), 3, 10, "nm");
           egd.addNumericField("Eye_z", settings.getSortEyeZ(), 3, 10, "nm");
         }
+        final boolean approximate = mode == SortMode.PERSPECTIVE || mode == SortMode.OTHOGRAPHIC;
+        if (approximate) {
+          egd.addMessage(TextUtils.wrap("The approximate sort uses a spatial index to sort cells "
+              + "of points by depth. It is faster for large datasets (" + OCTREE_SORT_SIZE
+              + " or more points) but points in overlapping cells may be out of order.", 80));
+          egd.addCheckbox("Approximate_sort", settings.getApproximateSort());
+        }
         egd.setSilent(silent);
         egd.showDialog(true, gd);
         if (egd.wasCanceled()) {
@@ -1138,6 +1172,9 @@ public class ImageJ3DResultsViewer implements PlugIn {
           settings.setSortEyeY(egd.getNextNumber());
           settings.setSortEyeZ(egd.getNextNumber());
         }
+        if (approximate) {
+          settings.setApproximateSort(egd.getNextBoolean());
+        }
         return true;
       }
     });
@@ -1709,12 +1746,38 @@ public class ImageJ3DResultsViewer implements PlugIn {
     final Point3d eye =
         new Point3d(settings.getSortEyeX(), settings.getSortEyeY(), settings.getSortEyeZ());
 
+    reorder(sortPerspective(data, direction, eye), data);
+  }
+
+  /**
+   * Sort the points for a perspective view. Large datasets can use an approximate sort with a
+   * spatial index.
+   *
+   * @param data the data
+   * @param direction the view direction
+   * @param eye the eye
+   * @return the indices of the points in sorted order
+   */
+  private static int[] sortPerspective(ResultsMetaData data, Vector3d direction, Point3d eye) {
+    if (isApproximateSort(data)) {
+      return data.getOctree().sortPerspective(eye, direction);
+    }
     final double[] d = getDistance(data.points, direction, eye);
 
     final int[] indices = SimpleArrayUtils.natural(d.length);
     SortUtils.sortIndices(indices, d, true);
+    return indices;
+  }
 
-    reorder(indices, data);
+  /**
+   * Checks if the approximate sort using a spatial index is enabled and the dataset is large
+   * enough to use it.
+   *
+   * @param data the data
+   * @return true if using the approximate sort
+   */
+  private static boolean isApproximateSort(ResultsMetaData data) {
+    return data.settings.getApproximateSort() && data.points.size() >= OCTREE_SORT_SIZE;
   }
 
   private static double[] getDistance(TurboList<Point3f> points, Vector3d direction, Point3d eye) {
@@ -1750,36 +1813,25 @@ public class ImageJ3DResultsViewer implements PlugIn {
   }
 
   private static void reorder(int[] indices, ResultsMetaData data) {
-    final MemoryPeakResults results = data.results;
     final TurboList<Point3f> points = data.points;
+    final Point3f[] sizes = (data.sizes.length == indices.length) ? data.sizes : null;
 
-    final PeakResult[] originalPeakResults = results.toArray();
-    final Point3f[] originalPoints = points.toArray(new Point3f[points.size()]);
-
-    // We need another array to store the output
-    final PeakResult[] peakResults = new PeakResult[originalPeakResults.length];
-
-    // Rewrite order
-    for (int i = 0; i < indices.length; i++) {
-      final int index = indices[i];
-      points.setf(i, originalPoints[index]);
-      peakResults[i] = originalPeakResults[index];
-    }
-
-    // Bulk update the results
-    results.setSortAfterEnd(false);
-    results.begin();
-    results.addAll(peakResults);
-    results.end();
-
-    final Point3f[] sizes = data.sizes;
-    if (sizes.length == indices.length) {
-      final Point3f[] originalSizes = sizes.clone();
-      // Rewrite order
-      for (int i = 0; i < indices.length; i++) {
-        final int index = indices[i];
-        sizes[i] = originalSizes[index];
+    // Reorder in place to avoid copying all the data for each sort.
+    // The results validate the indices before any data is moved.
+    data.results.reorder(indices);
+    PermutationUtils.reorder(indices, points.size(), (i, j) -> {
+      final Point3f p = points.getf(i);
+      points.setf(i, points.getf(j));
+      points.setf(j, p);
+      if (sizes != null) {
+        final Point3f size = sizes[i];
+        sizes[i] = sizes[j];
+        sizes[j] = size;
       }
+    });
+
+    if (data.octree != null) {
+      data.octree.remap(indices);
     }
   }
 
@@ -1790,12 +1842,16 @@ public class ImageJ3DResultsViewer implements PlugIn {
       direction = new Vector3d(0, 0, -1);
     }
     direction.normalize();
+    final TurboList<Point3f> points = data.points;
+    if (isApproximateSort(data)) {
+      reorder(data.getOctree().sortOrthographic(direction), data);
+      return;
+    }
+
     final double a = direction.x;
     final double b = direction.y;
     final double c = direction.z;
 
-    final TurboList<Point3f> points = data.points;
-
     final double[] d = new double[points.size()];
     for (int i = 0; i < d.length; i++) {
       final Point3f p = points.getf(i);
@@ -2872,10 +2928,7 @@ public class ImageJ3DResultsViewer implements PlugIn {
         direction.negate();
       }
 
-      final double[] d = getDistance(data.points, direction, eye);
-
-      final int[] indices = SimpleArrayUtils.natural(d.length);
-      SortUtils.sortIndices(indices, d, true);
+      final int[] indices = sortPerspective(data, direction, eye);
 
       if (updateable != null) {
         // Switch to fast mode when not debugging
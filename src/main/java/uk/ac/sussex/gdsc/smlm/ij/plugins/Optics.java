@@ -122,8 +122,10 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.TreeSet;
+import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -144,6 +146,12 @@ public class Optics implements PlugIn {
 
   private static AtomicInteger logged = new AtomicInteger();
 
+  /**
+   * The spatial structures for the last dataset. This is weakly keyed by the results so the
+   * structures are released when the results are no longer in use.
+   */
+  private static final Map<MemoryPeakResults, DatasetIndex> datasetIndex = new WeakHashMap<>();
+
   private static final LUT clusterLut;
   private static final LUT valueLut;
   private static final LUT clusterDepthLut;
@@ -925,13 +933,68 @@ public class Optics implements PlugIn {
       final StandardResultProcedure p = new StandardResultProcedure(results, DistanceUnit.PIXEL);
       p.getXy();
       final Rectangle bounds = results.getBounds(true);
-      final OpticsManager opticsManager = new OpticsManager(p.x, p.y, bounds);
+      // Reuse the spatial structures if the dataset has not changed
+      final DatasetIndex index = DatasetIndex.getInstance(results, p.x, p.y, bounds);
+      final OpticsManager opticsManager = index.opticsManager;
       opticsManager.setTracker(SimpleImageJTrackProgress.getInstance());
-      opticsManager.addOptions(Option.CACHE);
       return Pair.of(settings, new SettingsList(results, opticsManager));
     }
   }
 
+  /**
+   * Hold the spatial structures built for a dataset. These are expensive to construct for large
+   * datasets and are kept between runs of the plugin on the same coordinates.
+   */
+  private static class DatasetIndex {
+    final float[] x;
+    final float[] y;
+    final Rectangle bounds;
+    final OpticsManager opticsManager;
+
+    DatasetIndex(float[] x, float[] y, Rectangle bounds) {
+      this.x = x;
+      this.y = y;
+      this.bounds = bounds;
+      opticsManager = new OpticsManager(x, y, bounds);
+      opticsManager.addOptions(Option.CACHE);
+    }
+
+    /**
+     * Gets the index for the results. A new index is created if the results or the coordinates have
+     * changed. Only the index for the last dataset is retained.
+     *
+     * @param results the results
+     * @param x the x
+     * @param y the y
+     * @param bounds the bounds
+     * @return the index
+     */
+    static DatasetIndex getInstance(MemoryPeakResults results, float[] x, float[] y,
+        Rectangle bounds) {
+      synchronized (datasetIndex) {
+        DatasetIndex index = datasetIndex.get(results);
+        if (index == null || !index.matches(x, y, bounds)) {
+          index = new DatasetIndex(x, y, bounds);
+          datasetIndex.clear();
+          datasetIndex.put(results, index);
+        }
+        return index;
+      }
+    }
+
+    /**
+     * Check if the index was built using the same coordinates.
+     *
+     * @param x the x
+     * @param y the y
+     * @param bounds the bounds
+     * @return true if a match
+     */
+    boolean matches(float[] x, float[] y, Rectangle bounds) {
+      return this.bounds.equals(bounds) && Arrays.equals(this.x, x) && Arrays.equals(this.y, y);
+    }
+  }
+
   /**
    * Encapsulate the clustering result and provide cached access to all the desired properties via
    * synchronised blocks around the clustering result.
@@ -72,6 +72,7 @@ import uk.ac.sussex.gdsc.smlm.engine.FitParameters;
 import uk.ac.sussex.gdsc.smlm.engine.FitParameters.FitTask;
 import uk.ac.sussex.gdsc.smlm.engine.FitQueue;
 import uk.ac.sussex.gdsc.smlm.engine.FitWorker;
+import uk.ac.sussex.gdsc.smlm.engine.FrameBufferPool;
 import uk.ac.sussex.gdsc.smlm.engine.ParameterisedFitJob;
 import uk.ac.sussex.gdsc.smlm.filters.SpotFilter;
 import uk.ac.sussex.gdsc.smlm.fitting.nonlinear.FastMleSteppingFunctionSolver;
@@ -97,6 +98,7 @@ import uk.ac.sussex.gdsc.smlm.results.count.Counter;
 import uk.ac.sussex.gdsc.smlm.results.count.FrameCounter;
 import uk.ac.sussex.gdsc.smlm.results.filter.DirectFilter;
 import uk.ac.sussex.gdsc.smlm.results.filter.Filter;
+import uk.ac.sussex.gdsc.smlm.results.procedures.PeakResultProcedure;
 import uk.ac.sussex.gdsc.smlm.results.procedures.PeakResultProcedureX;
 import uk.ac.sussex.gdsc.smlm.results.procedures.XyResultProcedure;
 
@@ -136,7 +138,6 @@ import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Vector;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -145,7 +146,6 @@ import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 /**
@@ -3483,13 +3483,26 @@ public class PeakFit implements PlugInFilter {
       cameraModel = fitConfig.getCameraModel();
     }
 
+    // Recycle the frame data when each job is finished. This is not possible if the frames
+    // are retained for display.
+    final FrameBufferPool bufferPool = (stack == null) ? new FrameBufferPool() : null;
+    // Buffers for the entire frame used for noise estimation
+    float[] frameBuffer = null;
+    float[] noiseBuffer = null;
+
     runTime = System.nanoTime();
     boolean shutdown = false;
     int slice = 0;
     final String format = String.format("Slice: %%d / %d (Results=%%d)", totalFrames);
     while (!shutdown) {
       // Noise can optionally be estimated from the entire frame
-      float[] data = (ignoreBoundsForNoise) ? source.next() : source.next(cropBounds);
+      float[] data;
+      if (ignoreBoundsForNoise) {
+        data = source.next(frameBuffer);
+        frameBuffer = data;
+      } else {
+        data = source.next(cropBounds, acquire(bufferPool));
+      }
       if (data == null) {
         break;
       }
@@ -3504,19 +3517,22 @@ public class PeakFit implements PlugInFilter {
       float noise = Float.NaN;
       if (ignoreBoundsForNoise) {
         // We must pre-process the data before noise estimation
-        final float[] data2 = data.clone();
+        if (noiseBuffer == null || noiseBuffer.length != data.length) {
+          noiseBuffer = new float[data.length];
+        }
+        System.arraycopy(data, 0, noiseBuffer, 0, data.length);
         if (isFitCameraCounts) {
-          cameraModel.removeBias(data2);
+          cameraModel.removeBias(noiseBuffer);
         } else {
-          cameraModel.removeBiasAndGain(data2);
+          cameraModel.removeBiasAndGain(noiseBuffer);
         }
 
-        noise = FitWorker.estimateNoise(data2, source.getWidth(), source.getHeight(),
+        noise = FitWorker.estimateNoise(noiseBuffer, source.getWidth(), source.getHeight(),
             config.getNoiseMethod());
 
         // Crop the data to the region
-        data =
-            ImageJImageConverter.getData(data, source.getWidth(), source.getHeight(), bounds, null);
+        data = ImageJImageConverter.getData(data, source.getWidth(), source.getHeight(), bounds,
+            acquire(bufferPool));
       }
 
       if (stack != null) {
@@ -3525,8 +3541,10 @@ public class PeakFit implements PlugInFilter {
       }
 
       // Get the frame number from the source to allow for interlaced and aggregated data
-      engine.run(
-          createJob(source.getStartFrameNumber(), source.getEndFrameNumber(), data, bounds, noise));
+      final FitJob job =
+          createJob(source.getStartFrameNumber(), source.getEndFrameNumber(), data, bounds, noise);
+      job.setBufferPool(bufferPool);
+      engine.run(job);
 
       shutdown = escapePressed();
     }
@@ -3629,6 +3647,16 @@ public class PeakFit implements PlugInFilter {
     return frameInBlock >= extraSettings.dataBlock;
   }
 
+  /**
+   * Acquire a buffer from the pool.
+   *
+   * @param bufferPool the buffer pool (can be null)
+   * @return the buffer (or null)
+   */
+  private static float[] acquire(FrameBufferPool bufferPool) {
+    return (bufferPool == null) ? null : bufferPool.acquire();
+  }
+
   private FitJob createJob(int startFrame, int endFrame, float[] data, Rectangle bounds,
       float noise) {
     FitParameters fitParams = null;
@@ -3836,18 +3864,27 @@ public class PeakFit implements PlugInFilter {
       frames = () -> IntStream.rangeClosed(1, totalFrames);
     } else {
 
-      // Build a map between the time-frame and the results in that frame.
-      final Map<Integer, List<PeakResult>> map = Arrays.stream(memoryResults.toArray()).parallel()
-          // Ensure only single frame results are used to pick candidates
+      // Find the frames that contain results.
+      // Ensure only single frame results are used to pick candidates.
+      final int[] candidateFrames = Arrays.stream(memoryResults.toArray())
           .filter(peakResult -> peakResult.getFrame() == peakResult.getEndFrame())
-          .collect(Collectors.groupingBy(PeakResult::getFrame));
+          .mapToInt(PeakResult::getFrame).distinct().sorted().toArray();
 
-      totalFrames = map.size();
+      totalFrames = candidateFrames.length;
 
-      // Build a function that can convert a frame into a set of candidate indices
-      frameToMaxIndices = frame -> getMaxIndices(map.get(frame));
+      // Build a function that can convert a frame into a set of candidate indices.
+      // This uses the frame index of the results.
+      frameToMaxIndices = frame -> {
+        final List<PeakResult> list = new ArrayList<>();
+        memoryResults.forEachInFrame(frame, (PeakResultProcedure) peakResult -> {
+          if (peakResult.getFrame() == peakResult.getEndFrame()) {
+            list.add(peakResult);
+          }
+        });
+        return getMaxIndices(list);
+      };
 
-      frames = () -> map.keySet().stream().mapToInt(Integer::intValue).sorted();
+      frames = () -> Arrays.stream(candidateFrames);
     }
 
     final ImageStack stack =
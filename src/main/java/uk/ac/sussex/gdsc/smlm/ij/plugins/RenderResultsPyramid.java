@@ -0,0 +1,296 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.ij.plugins;
+
+import uk.ac.sussex.gdsc.core.ij.ImageJUtils;
+import uk.ac.sussex.gdsc.core.ij.gui.ExtendedGenericDialog;
+import uk.ac.sussex.gdsc.core.utils.TextUtils;
+import uk.ac.sussex.gdsc.smlm.data.config.UnitProtos.DistanceUnit;
+import uk.ac.sussex.gdsc.smlm.data.config.UnitProtos.IntensityUnit;
+import uk.ac.sussex.gdsc.smlm.ij.plugins.ResultsManager.InputSource;
+import uk.ac.sussex.gdsc.smlm.ij.results.ResultsImagePyramid;
+import uk.ac.sussex.gdsc.smlm.results.MemoryPeakResults;
+
+import ij.IJ;
+import ij.ImagePlus;
+import ij.WindowManager;
+import ij.gui.Roi;
+import ij.measure.Calibration;
+import ij.plugin.PlugIn;
+import ij.process.FloatProcessor;
+
+import java.awt.Rectangle;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Render an image of localisations using a multi-resolution pyramid.
+ *
+ * <p>The localisations are binned once into the pyramid at the base scale. Images of the full
+ * bounds or a region at any scale up to the base scale are then rendered from the pyramid without
+ * processing the localisations again. This allows zooming into a region of a large dataset. The
+ * pyramid tiles can be saved to a directory.
+ */
+public class RenderResultsPyramid implements PlugIn {
+  private static final String TITLE = "Render Results Pyramid";
+
+  /** The image property used to store the name of the rendered results. */
+  private static final String PROPERTY_RESULTS = "Pyramid results";
+
+  /** The last pyramid. This is reused if the results and base scale are unchanged. */
+  private static final AtomicReference<PyramidCache> lastPyramid = new AtomicReference<>();
+
+  /** The plugin settings. */
+  private Settings settings;
+
+  /**
+   * Contains the settings that are the re-usable state of the plugin.
+   */
+  private static class Settings {
+    /** The last settings used by the plugin. This should be updated after plugin execution. */
+    private static final AtomicReference<Settings> lastSettings =
+        new AtomicReference<>(new Settings());
+
+    String inputOption;
+    int scale;
+    double imageScale;
+    boolean intensity;
+    boolean zoomToRoi;
+    boolean saveTiles;
+    String directory;
+
+    Settings() {
+      inputOption = "";
+      scale = 8;
+      imageScale = 1;
+      directory = "";
+    }
+
+    Settings(Settings source) {
+      inputOption = source.inputOption;
+      scale = source.scale;
+      imageScale = source.imageScale;
+      intensity = source.intensity;
+      zoomToRoi = source.zoomToRoi;
+      saveTiles = source.saveTiles;
+      directory = source.directory;
+    }
+
+    Settings copy() {
+      return new Settings(this);
+    }
+
+    /**
+     * Load a copy of the settings.
+     *
+     * @return the settings
+     */
+    static Settings load() {
+      return lastSettings.get().copy();
+    }
+
+    /**
+     * Save the settings.
+     */
+    void save() {
+      lastSettings.set(this);
+    }
+  }
+
+  /**
+   * Hold the pyramid created for a set of results.
+   */
+  private static class PyramidCache {
+    final MemoryPeakResults results;
+    final int size;
+    final int scale;
+    final ResultsImagePyramid pyramid;
+
+    PyramidCache(MemoryPeakResults results, int scale, ResultsImagePyramid pyramid) {
+      this.results = results;
+      this.size = results.size();
+      this.scale = scale;
+      this.pyramid = pyramid;
+    }
+
+    boolean isSame(MemoryPeakResults results, int scale) {
+      return this.results == results && size == results.size() && this.scale == scale;
+    }
+  }
+
+  @Override
+  public void run(String arg) {
+    SmlmUsageTracker.recordPlugin(this.getClass(), arg);
+
+    if (MemoryPeakResults.isMemoryEmpty()) {
+      IJ.error(TITLE, "There are no fitting results in memory");
+      return;
+    }
+
+    if (!showDialog()) {
+      return;
+    }
+
+    final MemoryPeakResults results = ResultsManager.loadInputResults(settings.inputOption, true,
+        DistanceUnit.PIXEL, IntensityUnit.PHOTON);
+    if (MemoryPeakResults.isEmpty(results)) {
+      IJ.error(TITLE, "No results could be loaded");
+      return;
+    }
+
+    final ResultsImagePyramid pyramid = getPyramid(results);
+
+    Rectangle region = pyramid.getBounds();
+    if (settings.zoomToRoi) {
+      region = getRoiRegion(results, region);
+      if (region == null) {
+        return;
+      }
+    }
+
+    IJ.showStatus("Rendering image ...");
+    final FloatProcessor fp = pyramid.render(region, settings.imageScale, settings.intensity);
+    final String title =
+        results.getName() + " " + ((settings.intensity) ? "Intensity" : "Count") + " Pyramid";
+    final ImagePlus imp = ImageJUtils.display(title, fp);
+    final Calibration cal = new Calibration();
+    cal.setUnit("px");
+    cal.pixelWidth = cal.pixelHeight = 1.0 / settings.imageScale;
+    cal.xOrigin = -region.x * settings.imageScale;
+    cal.yOrigin = -region.y * settings.imageScale;
+    imp.setCalibration(cal);
+    imp.setProperty(PROPERTY_RESULTS, results.getName());
+    imp.resetDisplayRange();
+    imp.updateAndDraw();
+
+    if (settings.saveTiles) {
+      IJ.showStatus("Saving pyramid ...");
+      if (!pyramid.save(settings.directory)) {
+        IJ.error(TITLE, "Failed to save the pyramid to " + settings.directory);
+      }
+    }
+    IJ.showStatus("");
+  }
+
+  private boolean showDialog() {
+    final ExtendedGenericDialog gd = new ExtendedGenericDialog(TITLE);
+    gd.addHelp(About.HELP_URL);
+
+    settings = Settings.load();
+
+    gd.addMessage(TextUtils.wrap("Render localisations from a multi-resolution pyramid. The "
+        + "pyramid is created once for the results and base scale. The image scale must not be "
+        + "above the base scale. Zoom to ROI renders the region of a rectangle ROI on a "
+        + "previous rendering of the same results.", 80));
+    ResultsManager.addInput(gd, settings.inputOption, InputSource.MEMORY);
+    gd.addNumericField("Base_scale", settings.scale, 0);
+    gd.addNumericField("Image_scale", settings.imageScale, 2);
+    gd.addCheckbox("Intensity", settings.intensity);
+    gd.addCheckbox("Zoom_to_ROI", settings.zoomToRoi);
+    gd.addCheckbox("Save_tiles", settings.saveTiles);
+
+    gd.showDialog();
+    if (gd.wasCanceled()) {
+      return false;
+    }
+
+    settings.inputOption = ResultsManager.getInputSource(gd);
+    settings.scale = (int) gd.getNextNumber();
+    settings.imageScale = gd.getNextNumber();
+    settings.intensity = gd.getNextBoolean();
+    settings.zoomToRoi = gd.getNextBoolean();
+    settings.saveTiles = gd.getNextBoolean();
+    settings.save();
+
+    if (settings.scale < 1) {
+      IJ.error(TITLE, "Base scale must be positive");
+      return false;
+    }
+    if (!(settings.imageScale > 0 && settings.imageScale <= settings.scale)) {
+      IJ.error(TITLE, "Image scale must be in the range (0, " + settings.scale + "]");
+      return false;
+    }
+
+    if (settings.saveTiles) {
+      final String dir = ImageJUtils.getDirectory("Pyramid_directory", settings.directory);
+      if (dir == null) {
+        return false;
+      }
+      settings.directory = dir;
+    }
+
+    return true;
+  }
+
+  /**
+   * Gets the pyramid for the results. The last pyramid is reused if it was created from the same
+   * results at the same base scale.
+   *
+   * @param results the results
+   * @return the pyramid
+   */
+  private ResultsImagePyramid getPyramid(MemoryPeakResults results) {
+    final PyramidCache cache = lastPyramid.get();
+    if (cache != null && cache.isSame(results, settings.scale)) {
+      return cache.pyramid;
+    }
+    IJ.showStatus("Creating pyramid ...");
+    final ResultsImagePyramid pyramid = ResultsImagePyramid.create(results, settings.scale);
+    lastPyramid.set(new PyramidCache(results, settings.scale, pyramid));
+    return pyramid;
+  }
+
+  /**
+   * Gets the region of a rectangle ROI on the current image. The image must be a previous
+   * rendering of the same results.
+   *
+   * @param results the results
+   * @param bounds the bounds of the pyramid
+   * @return the region (or null if there is no valid ROI)
+   */
+  private static Rectangle getRoiRegion(MemoryPeakResults results, Rectangle bounds) {
+    final ImagePlus imp = WindowManager.getCurrentImage();
+    if (imp == null || !results.getName().equals(imp.getProperty(PROPERTY_RESULTS))) {
+      IJ.error(TITLE, "Zoom to ROI requires a rendered image of the results");
+      return null;
+    }
+    final Roi roi = imp.getRoi();
+    if (roi == null || !roi.isArea()) {
+      IJ.error(TITLE, "Zoom to ROI requires an area ROI");
+      return null;
+    }
+    final Rectangle r = roi.getBounds();
+    final Calibration cal = imp.getCalibration();
+    final int x = (int) Math.floor(cal.getX(r.x));
+    final int y = (int) Math.floor(cal.getY(r.y));
+    final int x2 = (int) Math.ceil(cal.getX((double) r.x + r.width));
+    final int y2 = (int) Math.ceil(cal.getY((double) r.y + r.height));
+    final Rectangle region = new Rectangle(x, y, x2 - x, y2 - y).intersection(bounds);
+    if (region.isEmpty()) {
+      IJ.error(TITLE, "ROI is outside the results bounds");
+      return null;
+    }
+    return region;
+  }
+}
@@ -59,6 +59,7 @@ import uk.ac.sussex.gdsc.smlm.function.gaussian.Gaussian2DFunction;
 import uk.ac.sussex.gdsc.smlm.ga.Chromosome;
 import uk.ac.sussex.gdsc.smlm.ga.FitnessFunction;
 import uk.ac.sussex.gdsc.smlm.ga.Population;
+import uk.ac.sussex.gdsc.smlm.ga.Population.GenerationStatistics;
 import uk.ac.sussex.gdsc.smlm.ga.RampedSelectionStrategy;
 import uk.ac.sussex.gdsc.smlm.ga.Recombiner;
 import uk.ac.sussex.gdsc.smlm.ga.SelectionStrategy;
@@ -103,6 +104,7 @@ import uk.ac.sussex.gdsc.smlm.results.filter.MultiPathFitResults;
 import uk.ac.sussex.gdsc.smlm.results.filter.ParameterType;
 import uk.ac.sussex.gdsc.smlm.results.filter.PeakFractionalAssignment;
 import uk.ac.sussex.gdsc.smlm.results.filter.PreprocessedPeakResult;
+import uk.ac.sussex.gdsc.smlm.results.filter.PreprocessedPeakResultColumns;
 import uk.ac.sussex.gdsc.smlm.results.filter.ResultAssignment;
 import uk.ac.sussex.gdsc.smlm.results.filter.ResultAssignmentDistanceComparator;
 import uk.ac.sussex.gdsc.smlm.results.procedures.PeakResultProcedure;
@@ -319,6 +321,9 @@ public class BenchmarkFilterAnalysis
   // Used for the scoring of filter sets
   private MultiPathFitResults[] gaResultsList;
   private MultiPathFitResults[] gaResultsListToScore;
+  /** The columns of the last results list used for scoring. */
+  private final AtomicReference<Pair<MultiPathFitResults[], PreprocessedPeakResultColumns>>
+      columnsRef = new AtomicReference<>();
   private boolean gaSubset;
   private int gaIteration;
   private DirectFilter searchScoreFilter;
@@ -1683,6 +1688,7 @@ public class BenchmarkFilterAnalysis
 
       final MultiPathFilter multiPathFilter =
           new MultiPathFilter(searchScoreFilter, defaultMinimalFilter, localResidualsThreshold);
+      multiPathFilter.setColumns(getColumns(gaResultsListToScore));
       final FractionClassificationResult r = multiPathFilter.fractionScoreSubset(
           gaResultsListToScore, ConsecutiveFailCounter.create(failCount), fitResultData.countActual,
           null, null, createCoordinateStore(duplicateDistance));
@@ -1752,6 +1758,7 @@ public class BenchmarkFilterAnalysis
       final double duplicateDistance = parameters[2];
       final MultiPathFilter multiPathFilter =
           new MultiPathFilter(searchScoreFilter, defaultMinimalFilter, residualsThreshold);
+      multiPathFilter.setColumns(getColumns(gaResultsListToScore));
       final FractionClassificationResult r = multiPathFilter.fractionScoreSubset(
           gaResultsListToScore, ConsecutiveFailCounter.create(failCount), fitResultData.countActual,
           null, null, createCoordinateStore(duplicateDistance));
@@ -4344,6 +4351,9 @@ public class BenchmarkFilterAnalysis
         gaPopulation = new Population<>(filters);
         gaPopulation.setPopulationSize(settings.populationSize);
         gaPopulation.setFailureLimit(settings.failureLimit);
+        // Filters are deterministic so avoid re-scoring a filter that has been removed by
+        // selection and then recreated. The scoring is multi-threaded in the initialise method.
+        gaPopulation.setFitnessCacheSize(settings.populationSize * 10);
         selectionStrategy.setTracker(this);
 
         // Evolve
@@ -4356,6 +4366,7 @@ public class BenchmarkFilterAnalysis
         resumeFilterTimer();
 
         best = gaPopulation.evolve(mutator, recombiner, this, selectionStrategy, gaChecker);
+        logGenerationStatistics(gaPopulation.getGenerationStatistics());
 
         if (best != null) {
           // In case optimisation was stopped
@@ -4509,6 +4520,8 @@ public class BenchmarkFilterAnalysis
 
           final SearchSpace ss = new SearchSpace();
           ss.setTracker(this);
+          // Filter scores are deterministic so do not re-score points revisited by the search
+          ss.setMemoisation(true);
           if (settings.seedSize > 0) {
             double[][] sample;
             // Add current optimum to seed
@@ -4636,6 +4649,7 @@ public class BenchmarkFilterAnalysis
 
         final SearchSpace ss = new SearchSpace();
         ss.setTracker(this);
+        ss.setMemoisation(true);
         // Add current optimum to seed
         if (nonInteractive && currentOptimum != null) {
           final double[][] sample = new double[1][];
@@ -4971,6 +4985,7 @@ public class BenchmarkFilterAnalysis
 
       final SearchSpace ss = new SearchSpace();
       ss.setTracker(this);
+      ss.setMemoisation(true);
       final SearchResult<FilterScore> optimum = ss.findOptimum(dimensions2, this);
 
       if (optimum != null) {
@@ -5147,6 +5162,7 @@ public class BenchmarkFilterAnalysis
 
           final SearchSpace ss = new SearchSpace();
           ss.setTracker(this);
+          ss.setMemoisation(true);
           if (settings.paSeedSize > 0) {
             // Add current optimum to seed
             // Note: If we have an optimum and we are not seeding this should not matter as the
@@ -5218,6 +5234,7 @@ public class BenchmarkFilterAnalysis
 
         final SearchSpace ss = new SearchSpace();
         ss.setTracker(this);
+        ss.setMemoisation(true);
         // Add current optimum to seed
         final double[][] seed = new double[1][];
         seed[0] = point;
@@ -5288,6 +5305,7 @@ public class BenchmarkFilterAnalysis
         final SearchSpace ss = new SearchSpace();
 
         ss.setTracker(this);
+        ss.setMemoisation(true);
         createGaWindow();
         resumeParameterTimer();
 
@@ -5622,6 +5640,7 @@ public class BenchmarkFilterAnalysis
       MultiPathFitResults[] resultsList, List<FractionalAssignment[]> allAssignments,
       CoordinateStore coordinateStore) {
     final MultiPathFilter multiPathFilter = createMpf(filter, minFilter);
+    multiPathFilter.setColumns(getColumns(resultsList));
     // Note: We always use the subset method since fail counts have been accumulated when we read in
     // the results.
     return multiPathFilter.fractionScoreSubset(resultsList,
@@ -5658,6 +5677,7 @@ public class BenchmarkFilterAnalysis
       CoordinateStore coordinateStore, boolean createTextResult) {
     final MultiPathFilter multiPathFilter =
         new MultiPathFilter(filter, minFilter, residualsThreshold);
+    multiPathFilter.setColumns(getColumns(gaResultsListToScore));
 
     final FractionClassificationResult r = multiPathFilter.fractionScoreSubset(gaResultsListToScore,
         ConsecutiveFailCounter.create(failCount), fitResultData.countActual, null, null,
@@ -5678,6 +5698,24 @@ public class BenchmarkFilterAnalysis
     return new MultiPathFilter(filter, minFilter, residualsThreshold);
   }
 
+  /**
+   * Gets the columns of the results list. The columns allow the filter to validate all the results
+   * in a single pass. The columns for the most recent list are cached as the same list is scored
+   * repeatedly.
+   *
+   * @param resultsList the results list
+   * @return the columns
+   */
+  private PreprocessedPeakResultColumns getColumns(MultiPathFitResults[] resultsList) {
+    final Pair<MultiPathFitResults[], PreprocessedPeakResultColumns> pair = columnsRef.get();
+    if (pair != null && pair.getKey() == resultsList) {
+      return pair.getValue();
+    }
+    final PreprocessedPeakResultColumns columns = PreprocessedPeakResultColumns.create(resultsList);
+    columnsRef.set(Pair.of(resultsList, columns));
+    return columns;
+  }
+
   /**
    * Score the filter using the results list and the configured fail count.
    *
@@ -6977,6 +7015,19 @@ public class BenchmarkFilterAnalysis
         scoreFilters(setStrength(new FilterSet(populationToFilters(individuals))), false);
   }
 
+  private void logGenerationStatistics(List<GenerationStatistics> statistics) {
+    long evaluationTime = 0;
+    int evaluated = 0;
+    int cacheHits = 0;
+    for (final GenerationStatistics s : statistics) {
+      evaluationTime += s.getEvaluationTime();
+      evaluated += s.getEvaluated();
+      cacheHits += s.getCacheHits();
+    }
+    ImageJUtils.log("%s%d generations: Scored %d filters (%d cached) in %s", gaStatusPrefix,
+        statistics.size(), evaluated, cacheHits, TextUtils.nanosToString(evaluationTime));
+  }
+
   private static ArrayList<Filter>
       populationToFilters(List<? extends Chromosome<FilterScore>> individuals) {
     final ArrayList<Filter> filters = new ArrayList<>(individuals.size());
@@ -74,11 +74,14 @@ import uk.ac.sussex.gdsc.smlm.ij.plugins.SmlmUsageTracker;
 import uk.ac.sussex.gdsc.smlm.ij.plugins.benchmark.BenchmarkSpotFilter.BenchmarkSpotFilterResult;
 import uk.ac.sussex.gdsc.smlm.ij.plugins.benchmark.BenchmarkSpotFilter.FilterResult;
 import uk.ac.sussex.gdsc.smlm.ij.plugins.benchmark.BenchmarkSpotFilter.ScoredSpot;
+import uk.ac.sussex.gdsc.smlm.ij.plugins.benchmark.BenchmarkSpotFitCache.CachedFrame;
 import uk.ac.sussex.gdsc.smlm.ij.settings.SettingsManager;
 import uk.ac.sussex.gdsc.smlm.ij.utils.ImageJImageConverter;
 import uk.ac.sussex.gdsc.smlm.results.MemoryPeakResults;
+import uk.ac.sussex.gdsc.smlm.results.PeakResult;
 import uk.ac.sussex.gdsc.smlm.results.PeakResultPoint;
 import uk.ac.sussex.gdsc.smlm.results.PeakResults;
+import uk.ac.sussex.gdsc.smlm.results.PeakResultsDigest;
 import uk.ac.sussex.gdsc.smlm.results.SynchronizedPeakResults;
 import uk.ac.sussex.gdsc.smlm.results.count.NullFailCounter;
 import uk.ac.sussex.gdsc.smlm.results.filter.BasePreprocessedPeakResult;
@@ -171,6 +174,10 @@ public class BenchmarkSpotFit implements PlugIn, ItemListener {
       Pair<Integer, TIntObjectHashMap<ArrayList<Coordinate>>>> coordinateCache =
           new AtomicReference<>(Pair.of(-1, null));
 
+  /** The digest of the simulated image for a simulation Id. */
+  private static AtomicReference<Pair<Integer, String>> imageDigestCache =
+      new AtomicReference<>(Pair.of(-1, null));
+
   private static AtomicReference<TextWindow> summaryTableRef = new AtomicReference<>();
 
   /**
@@ -810,20 +817,27 @@ public class BenchmarkSpotFit implements PlugIn, ItemListener {
     final TIntObjectHashMap<ArrayList<Coordinate>> actualCoordinates;
     final TIntObjectHashMap<FilterCandidates> filterCandidates;
     final TIntObjectHashMap<FilterCandidates> results;
+    final TIntObjectHashMap<CachedFrame> cachedFrames;
+    final TIntObjectHashMap<CachedFrame> frames;
+    final PeakResults peakResults;
+    final MemoryPeakResults frameResults;
     final Rectangle bounds;
     final MultiPathFilter multiFilter;
     final Ticker ticker;
+    int reused;
 
     float[] data;
     List<PointPair> matches = new ArrayList<>();
 
     public Worker(BlockingQueue<Integer> jobs, ImageStack stack,
         TIntObjectHashMap<ArrayList<Coordinate>> actualCoordinates,
-        TIntObjectHashMap<FilterCandidates> filterCandidates, PeakResults peakResults,
-        Ticker ticker) {
+        TIntObjectHashMap<FilterCandidates> filterCandidates,
+        TIntObjectHashMap<CachedFrame> cachedFrames, PeakResults peakResults, Ticker ticker) {
       this.jobs = jobs;
       this.stack = stack;
-      this.fitWorker = new FitWorker(config.createCopy(), peakResults, null);
+      // Collect the results for each frame so they can be cached
+      this.frameResults = new MemoryPeakResults();
+      this.fitWorker = new FitWorker(config.createCopy(), frameResults, null);
 
       final int fitting = config.getFittingWidth();
       fitWorker.setSearchParameters((MaximaSpotFilter) spotFilter.copy(), fitting);
@@ -831,6 +845,9 @@ public class BenchmarkSpotFit implements PlugIn, ItemListener {
       this.actualCoordinates = actualCoordinates;
       this.filterCandidates = filterCandidates;
       this.results = new TIntObjectHashMap<>();
+      this.cachedFrames = cachedFrames;
+      this.frames = new TIntObjectHashMap<>();
+      this.peakResults = peakResults;
       bounds = new Rectangle(0, 0, stack.getWidth(), stack.getHeight());
       // Instance copy
       multiFilter = BenchmarkSpotFit.this.multiFilter.copy();
@@ -864,35 +881,53 @@ public class BenchmarkSpotFit implements PlugIn, ItemListener {
         return;
       }
 
-      // Extract the data
-      data = ImageJImageConverter.getData(stack.getPixels(frame), stack.getWidth(),
-          stack.getHeight(), null, data);
-
       FilterCandidates candidates = filterCandidates.get(frame);
       final int totalCandidates = candidates.spots.length;
-      final MultiPathFitResult[] fitResult = new MultiPathFitResult[totalCandidates];
+      final MultiPathFitResult[] fitResult;
+      final float noise;
+      final PeakResult[] fittedResults;
 
-      // Fit the candidates and store the results
-      final FitParameters parameters = new FitParameters();
       final Spot[] spots = new Spot[candidates.spots.length];
       for (int i = 0; i < spots.length; i++) {
         spots[i] = candidates.spots[i].spot;
       }
-      // Debug candidates...
-      // if (frame == 5)
-      // System.out.printf("Fit %d [%d,%d = %.1f]\n", i, spots[i].x, spots[i].y,
-      // spots[i].intensity);
-      parameters.spots = spots;
-      parameters.maxCandidate = candidates.maxCandidate;
-      parameters.fitTask = FitTask.BENCHMARKING;
-      parameters.benchmarkFilter = multiFilter;
-
-      final ParameterisedFitJob job = new ParameterisedFitJob(parameters, frame, data, bounds);
-      fitWorker.run(job); // Results will be stored in the fit job
-
-      for (int i = 0; i < totalCandidates; i++) {
-        fitResult[i] = job.getMultiPathFitResult(i);
+
+      // Reuse the cached fit results if the same candidates were fit
+      final CachedFrame cachedFrame = (cachedFrames == null) ? null : cachedFrames.get(frame);
+      if (cachedFrame != null && cachedFrame.matches(candidates)) {
+        fitResult = cachedFrame.fitResult;
+        noise = cachedFrame.noise;
+        fittedResults = cachedFrame.peakResults;
+        reused++;
+      } else {
+        // Extract the data
+        data = ImageJImageConverter.getData(stack.getPixels(frame), stack.getWidth(),
+            stack.getHeight(), null, data);
+
+        fitResult = new MultiPathFitResult[totalCandidates];
+
+        // Fit the candidates and store the results
+        final FitParameters parameters = new FitParameters();
+        // Debug candidates...
+        // if (frame == 5)
+        // System.out.printf("Fit %d [%d,%d = %.1f]\n", i, spots[i].x, spots[i].y,
+        // spots[i].intensity);
+        parameters.spots = spots;
+        parameters.maxCandidate = candidates.maxCandidate;
+        parameters.fitTask = FitTask.BENCHMARKING;
+        parameters.benchmarkFilter = multiFilter;
+
+        final ParameterisedFitJob job = new ParameterisedFitJob(parameters, frame, data, bounds);
+        fitWorker.run(job); // Results will be stored in the fit job
+
+        for (int i = 0; i < totalCandidates; i++) {
+          fitResult[i] = job.getMultiPathFitResult(i);
+        }
+        noise = fitWorker.getNoise();
+        fittedResults = frameResults.toArray();
+        frameResults.begin();
       }
+      peakResults.addAll(fittedResults);
 
       // Compute the matches of the fitted spots to the simulated positions.
       // We will match all fitting results so providing the upper limit for the match score after
@@ -1085,8 +1120,9 @@ public class BenchmarkSpotFit implements PlugIn, ItemListener {
       candidates.fitResult = fitResult;
       candidates.match = match;
       candidates.zPosition = zPosition;
-      candidates.noise = fitWorker.getNoise();
+      candidates.noise = noise;
       results.put(frame, candidates);
+      frames.put(frame, new CachedFrame(candidates, fittedResults));
     }
 
     private void add(ArrayList<MultiPathPoint> predicted,
@@ -1414,6 +1450,22 @@ public class BenchmarkSpotFit implements PlugIn, ItemListener {
         (extraOptions) ? PeakFit.FLAG_EXTRA_OPTIONS : 0);
   }
 
+  /**
+   * Gets the digest of the simulated image. This is cached for the current simulation.
+   *
+   * @param stack the image stack
+   * @return the digest
+   */
+  private String getImageDigest(ImageStack stack) {
+    final Pair<Integer, String> imageDigest = imageDigestCache.get();
+    if (imageDigest.getKey() == simulationParameters.id) {
+      return imageDigest.getValue();
+    }
+    final String digest = BenchmarkSpotFitCache.createImageDigest(stack);
+    imageDigestCache.set(Pair.of(simulationParameters.id, digest));
+    return digest;
+  }
+
   private BenchmarkSpotFitResult runFitting() {
     // Extract all the results in memory into a list per frame. This can be cached
     boolean refresh = false;
@@ -1454,6 +1506,13 @@ public class BenchmarkSpotFit implements PlugIn, ItemListener {
     peakResults.setCalibration(fitConfig.getCalibration());
     MemoryPeakResults.addResults(peakResults);
 
+    // Reuse any fit results stored on disk for the same simulation and fitting configuration.
+    // Frames are only fit if the candidates are different from those in the cache.
+    final String cacheKey = BenchmarkSpotFitCache.createKey(
+        new PeakResultsDigest(results.toArray()).getDigest(), getImageDigest(stack), config,
+        multiFilter, spotFilter.getDescription());
+    final TIntObjectHashMap<CachedFrame> cachedFrames = BenchmarkSpotFitCache.load(cacheKey);
+
     // Create a pool of workers
     final int nThreads = Prefs.getThreads();
     final BlockingQueue<Integer> jobs = new ArrayBlockingQueue<>(nThreads * 2);
@@ -1463,7 +1522,7 @@ public class BenchmarkSpotFit implements PlugIn, ItemListener {
     final PeakResults syncResults = SynchronizedPeakResults.create(peakResults, nThreads);
     for (int i = 0; i < nThreads; i++) {
       final Worker worker = new Worker(jobs, stack, actualCoordinates,
-          candidateData.filterCandidates, syncResults, ticker);
+          candidateData.filterCandidates, cachedFrames, syncResults, ticker);
       final Thread t = new Thread(worker);
       workers.add(worker);
       threads.add(t);
@@ -1511,8 +1570,20 @@ public class BenchmarkSpotFit implements PlugIn, ItemListener {
     }
 
     final TIntObjectHashMap<FilterCandidates> fitResults = new TIntObjectHashMap<>();
+    final TIntObjectHashMap<CachedFrame> frames = new TIntObjectHashMap<>();
+    int reused = 0;
     for (final Worker w : workers) {
       fitResults.putAll(w.results);
+      frames.putAll(w.frames);
+      reused += w.reused;
+    }
+    if (reused != 0) {
+      IJ.log(String.format("Spot fit reused cached results for %d / %d frames", reused,
+          frames.size()));
+    }
+    if (reused != frames.size()) {
+      IJ.showStatus("Saving fit results cache ...");
+      BenchmarkSpotFitCache.save(cacheKey, frames);
     }
 
     // Assign a unique ID to each result
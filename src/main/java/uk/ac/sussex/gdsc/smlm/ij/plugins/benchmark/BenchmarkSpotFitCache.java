@@ -0,0 +1,674 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.ij.plugins.benchmark;
+
+import uk.ac.sussex.gdsc.core.utils.DigestUtils;
+import uk.ac.sussex.gdsc.smlm.engine.FitConfiguration;
+import uk.ac.sussex.gdsc.smlm.engine.FitEngineConfiguration;
+import uk.ac.sussex.gdsc.smlm.filters.Spot;
+import uk.ac.sussex.gdsc.smlm.fitting.FitResult;
+import uk.ac.sussex.gdsc.smlm.fitting.FitStatus;
+import uk.ac.sussex.gdsc.smlm.ij.plugins.benchmark.BenchmarkSpotFilter.ScoredSpot;
+import uk.ac.sussex.gdsc.smlm.ij.plugins.benchmark.BenchmarkSpotFit.FilterCandidates;
+import uk.ac.sussex.gdsc.smlm.ij.settings.SettingsManager;
+import uk.ac.sussex.gdsc.smlm.results.AttributePeakResult;
+import uk.ac.sussex.gdsc.smlm.results.PeakResult;
+import uk.ac.sussex.gdsc.smlm.results.filter.BasePreprocessedPeakResult;
+import uk.ac.sussex.gdsc.smlm.results.filter.MultiPathFilter;
+import uk.ac.sussex.gdsc.smlm.results.filter.MultiPathFitResult;
+import uk.ac.sussex.gdsc.smlm.results.filter.PreprocessedPeakResult;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+import ij.ImageStack;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Store the results of fitting the benchmark spot candidates on disk.
+ *
+ * <p>The cache is keyed by a digest of the simulation results, the simulated image and the
+ * configuration used for fitting. Each frame stores the candidates that were fit so that fitting
+ * can be reused for any frame where the candidates are unchanged, e.g. when only the settings used
+ * to select the candidates or to match the results to the simulation have changed.
+ */
+final class BenchmarkSpotFitCache {
+  /** The magic number at the start of the file. */
+  private static final int MAGIC = 0x53504654;
+  /** The file format version. */
+  private static final int VERSION = 2;
+  /** The cache file suffix. */
+  private static final String SUFFIX = ".bin.gz";
+  /** The maximum number of cache files to keep. */
+  private static final int MAX_FILES = 10;
+  /** The type of fit status data: none. */
+  private static final int DATA_NONE = 0;
+  /** The type of fit status data: a number. */
+  private static final int DATA_NUMBER = 1;
+  /** The type of fit status data: an array of numbers. */
+  private static final int DATA_ARRAY = 2;
+
+  /**
+   * The fit results for a frame.
+   */
+  static class CachedFrame {
+    /** The candidate spots. */
+    final Spot[] spots;
+    /** The max candidate. */
+    final int maxCandidate;
+    /** The fit result for each candidate. */
+    final MultiPathFitResult[] fitResult;
+    /** The noise. */
+    final float noise;
+    /** The peak results selected by the fitting. */
+    final PeakResult[] peakResults;
+
+    /**
+     * Create a new instance.
+     *
+     * @param spots the candidate spots
+     * @param maxCandidate the max candidate
+     * @param fitResult the fit result for each candidate
+     * @param noise the noise
+     * @param peakResults the peak results selected by the fitting
+     */
+    CachedFrame(Spot[] spots, int maxCandidate, MultiPathFitResult[] fitResult, float noise,
+        PeakResult[] peakResults) {
+      this.spots = spots;
+      this.maxCandidate = maxCandidate;
+      this.fitResult = fitResult;
+      this.noise = noise;
+      this.peakResults = peakResults;
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param candidates the candidates
+     * @param peakResults the peak results selected by the fitting
+     */
+    CachedFrame(FilterCandidates candidates, PeakResult[] peakResults) {
+      this(getSpots(candidates), candidates.maxCandidate, candidates.fitResult, candidates.noise,
+          peakResults);
+    }
+
+    /**
+     * Check if the cached fit results were computed using the same candidates.
+     *
+     * @param candidates the candidates
+     * @return true if the candidates match
+     */
+    boolean matches(FilterCandidates candidates) {
+      if (candidates.maxCandidate != maxCandidate || candidates.spots.length != spots.length) {
+        return false;
+      }
+      for (int i = 0; i < spots.length; i++) {
+        final Spot s1 = spots[i];
+        final Spot s2 = candidates.spots[i].spot;
+        if (s1.x != s2.x || s1.y != s2.y
+            || Float.floatToIntBits(s1.intensity) != Float.floatToIntBits(s2.intensity)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static Spot[] getSpots(FilterCandidates candidates) {
+      final ScoredSpot[] scoredSpots = candidates.spots;
+      final Spot[] spots = new Spot[scoredSpots.length];
+      for (int i = 0; i < spots.length; i++) {
+        spots[i] = scoredSpots[i].spot;
+      }
+      return spots;
+    }
+  }
+
+  /**
+   * Allow the fit results to be restored using the protected setters.
+   */
+  private static class CachedMultiPathFitResult extends MultiPathFitResult {
+    /**
+     * Read the result from the input.
+     *
+     * @param in the input
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    CachedMultiPathFitResult(DataInput in) throws IOException {
+      setFrame(in.readInt());
+      setWidth(in.readInt());
+      setHeight(in.readInt());
+      setCandidateId(in.readInt());
+      setMultiQaScore(in.readDouble());
+      setSingleQaScore(in.readDouble());
+      setMultiFitResult(readFitResult(in));
+      setMultiDoubletFitResult(readFitResult(in));
+      setSingleFitResult(readFitResult(in));
+      setDoubletFitResult(readFitResult(in));
+    }
+  }
+
+  /** No public constructor. */
+  private BenchmarkSpotFitCache() {}
+
+  /**
+   * Gets the cache directory.
+   *
+   * @return the cache directory
+   */
+  static File getCacheDirectory() {
+    return new File(SettingsManager.getSettingsDirectory(), "benchmarkSpotFit");
+  }
+
+  /**
+   * Creates a digest of the image. This identifies the simulated image including the noise and the
+   * camera model that are not part of the simulation results.
+   *
+   * @param stack the image stack
+   * @return the digest
+   */
+  static String createImageDigest(ImageStack stack) {
+    final MessageDigest digest = DigestUtils.getDigest(DigestUtils.MD5);
+    final int width = stack.getWidth();
+    final int height = stack.getHeight();
+    final int size = stack.getSize();
+    final ByteBuffer buffer = ByteBuffer.allocate(Math.max(12, width * height * 4));
+    buffer.putInt(width).putInt(height).putInt(size);
+    digest.update(buffer.array(), 0, 12);
+    for (int slice = 1; slice <= size; slice++) {
+      final Object pixels = stack.getPixels(slice);
+      buffer.clear();
+      if (pixels instanceof float[]) {
+        final float[] data = (float[]) pixels;
+        buffer.asFloatBuffer().put(data);
+        digest.update(buffer.array(), 0, data.length * 4);
+      } else if (pixels instanceof short[]) {
+        final short[] data = (short[]) pixels;
+        buffer.asShortBuffer().put(data);
+        digest.update(buffer.array(), 0, data.length * 2);
+      } else if (pixels instanceof int[]) {
+        final int[] data = (int[]) pixels;
+        buffer.asIntBuffer().put(data);
+        digest.update(buffer.array(), 0, data.length * 4);
+      } else {
+        digest.update((byte[]) pixels);
+      }
+    }
+    return DigestUtils.toHex(digest.digest());
+  }
+
+  /**
+   * Creates the key for the cache. This is a digest of all the settings that affect fitting of the
+   * spot candidates.
+   *
+   * @param simulationDigest the digest of the simulation results
+   * @param imageDigest the digest of the simulated image
+   * @param config the fit engine configuration
+   * @param multiFilter the multi-path filter used to select results during fitting
+   * @param spotFilterDescription the description of the spot filter
+   * @return the key
+   */
+  static String createKey(String simulationDigest, String imageDigest,
+      FitEngineConfiguration config, MultiPathFilter multiFilter, String spotFilterDescription) {
+    final MessageDigest digest = DigestUtils.getDigest(DigestUtils.MD5);
+    digest.update(simulationDigest.getBytes(StandardCharsets.UTF_8));
+    digest.update(imageDigest.getBytes(StandardCharsets.UTF_8));
+    digest.update(config.getFitEngineSettings().toByteArray());
+    final FitConfiguration fitConfig = config.getFitConfiguration();
+    digest.update(fitConfig.getCalibration().toByteArray());
+    digest.update(fitConfig.getPsf().toByteArray());
+    digest.update(multiFilter.toXml().getBytes(StandardCharsets.UTF_8));
+    digest.update(spotFilterDescription.getBytes(StandardCharsets.UTF_8));
+    return DigestUtils.toHex(digest.digest());
+  }
+
+  /**
+   * Load the cached fit results. Any error reading the cache is logged and no results are
+   * returned.
+   *
+   * @param key the key
+   * @return the fit results for each frame (or null)
+   */
+  static TIntObjectHashMap<CachedFrame> load(String key) {
+    final File file = getCacheFile(key);
+    if (!file.isFile()) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        new GZIPInputStream(Files.newInputStream(file.toPath()))))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(in.readUTF())) {
+        return null;
+      }
+      final int size = in.readInt();
+      final TIntObjectHashMap<CachedFrame> frames = new TIntObjectHashMap<>(size);
+      for (int i = 0; i < size; i++) {
+        final int frame = in.readInt();
+        frames.put(frame, readFrame(in));
+      }
+      return frames;
+    } catch (final IOException | RuntimeException ex) {
+      Logger.getLogger(BenchmarkSpotFitCache.class.getName()).log(Level.WARNING,
+          "Failed to read the fit results cache: " + file, ex);
+    }
+    return null;
+  }
+
+  /**
+   * Save the fit results to the cache. Any error writing the cache is logged.
+   *
+   * <p>The results are written to a temporary file that replaces the existing cache file when
+   * complete. Old cache files are removed so that only a limited number of configurations are
+   * stored. Frames containing results that cannot be written are not stored.
+   *
+   * @param key the key
+   * @param frames the fit results for each frame
+   */
+  static void save(String key, TIntObjectHashMap<CachedFrame> frames) {
+    final File dir = getCacheDirectory();
+    final File file = getCacheFile(key);
+    File tmp = null;
+    try {
+      Files.createDirectories(dir.toPath());
+      tmp = File.createTempFile(key, ".tmp", dir);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+          new GZIPOutputStream(Files.newOutputStream(tmp.toPath()))))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(key);
+        final int[] keys = getSupportedFrames(frames);
+        out.writeInt(keys.length);
+        for (final int frame : keys) {
+          out.writeInt(frame);
+          writeFrame(out, frames.get(frame));
+        }
+      }
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      tmp = null;
+      prune(dir);
+    } catch (final IOException ex) {
+      Logger.getLogger(BenchmarkSpotFitCache.class.getName()).log(Level.WARNING,
+          "Failed to write the fit results cache: " + file, ex);
+    } finally {
+      if (tmp != null) {
+        try {
+          Files.deleteIfExists(tmp.toPath());
+        } catch (final IOException ignored) {
+          // Ignore
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the frames that can be written to the cache in ascending order. Any frame with results
+   * that cannot be written is logged and ignored.
+   *
+   * @param frames the fit results for each frame
+   * @return the frames
+   */
+  private static int[] getSupportedFrames(TIntObjectHashMap<CachedFrame> frames) {
+    final int[] keys = frames.keys();
+    Arrays.sort(keys);
+    int size = 0;
+    for (final int frame : keys) {
+      if (isSupported(frames.get(frame))) {
+        keys[size++] = frame;
+      }
+    }
+    if (size != keys.length) {
+      final int ignored = keys.length - size;
+      Logger.getLogger(BenchmarkSpotFitCache.class.getName()).warning(
+          () -> String.format("Fit results cache ignored %d / %d frames with unsupported results",
+              ignored, keys.length));
+    }
+    return Arrays.copyOf(keys, size);
+  }
+
+  /**
+   * Checks if all the fitted results in the frame can be written.
+   *
+   * @param frame the frame
+   * @return true if supported
+   */
+  private static boolean isSupported(CachedFrame frame) {
+    for (final MultiPathFitResult result : frame.fitResult) {
+      if (!isSupported(result.getMultiFitResult())
+          || !isSupported(result.getMultiDoubletFitResult())
+          || !isSupported(result.getSingleFitResult())
+          || !isSupported(result.getDoubletFitResult())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isSupported(MultiPathFitResult.FitResult fitResult) {
+    if (fitResult != null && fitResult.getResults() != null) {
+      for (final PreprocessedPeakResult result : fitResult.getResults()) {
+        if (!(result instanceof BasePreprocessedPeakResult)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static File getCacheFile(String key) {
+    return new File(getCacheDirectory(), key + SUFFIX);
+  }
+
+  /**
+   * Remove the oldest cache files.
+   *
+   * @param dir the cache directory
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static void prune(File dir) throws IOException {
+    final File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+    if (files == null || files.length <= MAX_FILES) {
+      return;
+    }
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+    for (int i = MAX_FILES; i < files.length; i++) {
+      Files.deleteIfExists(files[i].toPath());
+    }
+  }
+
+  private static void writeFrame(DataOutput out, CachedFrame frame) throws IOException {
+    out.writeInt(frame.maxCandidate);
+    out.writeFloat(frame.noise);
+    out.writeInt(frame.spots.length);
+    for (final Spot spot : frame.spots) {
+      out.writeInt(spot.x);
+      out.writeInt(spot.y);
+      out.writeFloat(spot.intensity);
+      out.writeFloat(spot.getScore());
+    }
+    out.writeInt(frame.fitResult.length);
+    for (final MultiPathFitResult result : frame.fitResult) {
+      writeMultiPathFitResult(out, result);
+    }
+    out.writeInt(frame.peakResults.length);
+    for (final PeakResult result : frame.peakResults) {
+      writePeakResult(out, result);
+    }
+  }
+
+  private static CachedFrame readFrame(DataInput in) throws IOException {
+    final int maxCandidate = in.readInt();
+    final float noise = in.readFloat();
+    final Spot[] spots = new Spot[in.readInt()];
+    for (int i = 0; i < spots.length; i++) {
+      spots[i] = new Spot(in.readInt(), in.readInt(), in.readFloat(), in.readFloat());
+    }
+    final MultiPathFitResult[] fitResult = new MultiPathFitResult[in.readInt()];
+    for (int i = 0; i < fitResult.length; i++) {
+      fitResult[i] = new CachedMultiPathFitResult(in);
+    }
+    final PeakResult[] peakResults = new PeakResult[in.readInt()];
+    for (int i = 0; i < peakResults.length; i++) {
+      peakResults[i] = readPeakResult(in);
+    }
+    return new CachedFrame(spots, maxCandidate, fitResult, noise, peakResults);
+  }
+
+  private static void writeMultiPathFitResult(DataOutput out, MultiPathFitResult result)
+      throws IOException {
+    out.writeInt(result.getFrame());
+    out.writeInt(result.getWidth());
+    out.writeInt(result.getHeight());
+    out.writeInt(result.getCandidateId());
+    out.writeDouble(result.getMultiQaScore());
+    out.writeDouble(result.getSingleQaScore());
+    writeFitResult(out, result.getMultiFitResult());
+    writeFitResult(out, result.getMultiDoubletFitResult());
+    writeFitResult(out, result.getSingleFitResult());
+    writeFitResult(out, result.getDoubletFitResult());
+  }
+
+  private static void writeFitResult(DataOutput out, MultiPathFitResult.FitResult fitResult)
+      throws IOException {
+    out.writeBoolean(fitResult != null);
+    if (fitResult == null) {
+      return;
+    }
+    out.writeInt(fitResult.getStatus());
+    // The data is the fitting result used for iteration and evaluation statistics
+    final Object data = fitResult.getData();
+    out.writeBoolean(data instanceof FitResult);
+    if (data instanceof FitResult) {
+      final FitResult result = (FitResult) data;
+      out.writeInt(result.getStatus().ordinal());
+      out.writeInt(result.getDegreesOfFreedom());
+      out.writeDouble(result.getError());
+      writeDoubleArray(out, result.getInitialParameters());
+      writeDoubleArray(out, result.getParameters());
+      writeDoubleArray(out, result.getParameterDeviations());
+      out.writeInt(result.getNumberOfPeaks());
+      out.writeInt(result.getNumberOfFittedParameters());
+      writeStatusData(out, result.getStatusData());
+      out.writeInt(result.getIterations());
+      out.writeInt(result.getEvaluations());
+    }
+    final PreprocessedPeakResult[] results = fitResult.getResults();
+    if (results == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(results.length);
+      for (final PreprocessedPeakResult result : results) {
+        if (!(result instanceof BasePreprocessedPeakResult)) {
+          throw new IOException("Unsupported result type: " + result.getClass().getName());
+        }
+        ((BasePreprocessedPeakResult) result).write(out);
+      }
+    }
+  }
+
+  private static MultiPathFitResult.FitResult readFitResult(DataInput in) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    final int status = in.readInt();
+    FitResult data = null;
+    if (in.readBoolean()) {
+      final FitStatus fitStatus = FitStatus.values()[in.readInt()];
+      final int degreesOfFreedom = in.readInt();
+      final double error = in.readDouble();
+      final double[] initialParameters = readDoubleArray(in);
+      final double[] parameters = readDoubleArray(in);
+      final double[] parameterDevs = readDoubleArray(in);
+      final int numberOfPeaks = in.readInt();
+      final int numberOfFittedParameters = in.readInt();
+      final Object statusData = readStatusData(in);
+      final int iterations = in.readInt();
+      final int evaluations = in.readInt();
+      data = new FitResult(fitStatus, degreesOfFreedom, error, initialParameters, parameters,
+          parameterDevs, numberOfPeaks, numberOfFittedParameters, statusData, iterations,
+          evaluations);
+    }
+    final MultiPathFitResult.FitResult fitResult = new MultiPathFitResult.FitResult(status, data);
+    final int size = in.readInt();
+    if (size >= 0) {
+      final PreprocessedPeakResult[] results = new PreprocessedPeakResult[size];
+      for (int i = 0; i < size; i++) {
+        results[i] = BasePreprocessedPeakResult.read(in);
+      }
+      fitResult.setResults(results);
+    }
+    return fitResult;
+  }
+
+  /**
+   * Write the data associated with the fit status. This is the value that failed validation as a
+   * number or an array of numbers. Any other type is not stored.
+   *
+   * @param out the output
+   * @param data the data
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static void writeStatusData(DataOutput out, Object data) throws IOException {
+    if (data instanceof Number) {
+      out.writeByte(DATA_NUMBER);
+      out.writeDouble(((Number) data).doubleValue());
+    } else if (data instanceof double[]) {
+      out.writeByte(DATA_ARRAY);
+      writeDoubleArray(out, (double[]) data);
+    } else {
+      out.writeByte(DATA_NONE);
+    }
+  }
+
+  private static Object readStatusData(DataInput in) throws IOException {
+    final int type = in.readByte();
+    if (type == DATA_NUMBER) {
+      return in.readDouble();
+    }
+    if (type == DATA_ARRAY) {
+      return readDoubleArray(in);
+    }
+    return null;
+  }
+
+  private static void writePeakResult(DataOutput out, PeakResult result) throws IOException {
+    out.writeInt(result.getFrame());
+    out.writeInt(result.getOrigX());
+    out.writeInt(result.getOrigY());
+    out.writeFloat(result.getOrigValue());
+    out.writeDouble(result.getError());
+    out.writeFloat(result.getNoise());
+    out.writeFloat(result.getMeanIntensity());
+    writeFloatArray(out, result.getParameters());
+    writeFloatArray(out, result.getParameterDeviations());
+    out.writeBoolean(result.hasId());
+    if (result.hasId()) {
+      out.writeInt(result.getId());
+    }
+    out.writeBoolean(result.hasEndFrame());
+    if (result.hasEndFrame()) {
+      out.writeInt(result.getEndFrame());
+    }
+    out.writeBoolean(result.hasPrecision());
+    if (result.hasPrecision()) {
+      out.writeDouble(result.getPrecision());
+    }
+  }
+
+  private static PeakResult readPeakResult(DataInput in) throws IOException {
+    final int frame = in.readInt();
+    final int origX = in.readInt();
+    final int origY = in.readInt();
+    final float origValue = in.readFloat();
+    final double error = in.readDouble();
+    final float noise = in.readFloat();
+    final float meanIntensity = in.readFloat();
+    final float[] params = readFloatArray(in);
+    final float[] paramsStdDev = readFloatArray(in);
+    final boolean hasId = in.readBoolean();
+    final int id = (hasId) ? in.readInt() : 0;
+    final boolean hasEndFrame = in.readBoolean();
+    final int endFrame = (hasEndFrame) ? in.readInt() : 0;
+    final boolean hasPrecision = in.readBoolean();
+    final double precision = (hasPrecision) ? in.readDouble() : 0;
+    if (!(hasId || hasEndFrame || hasPrecision)) {
+      return new PeakResult(frame, origX, origY, origValue, error, noise, meanIntensity, params,
+          paramsStdDev);
+    }
+    final AttributePeakResult result = new AttributePeakResult(frame, origX, origY, origValue,
+        error, noise, meanIntensity, params, paramsStdDev);
+    if (hasId) {
+      result.setId(id);
+    }
+    if (hasEndFrame) {
+      result.setEndFrame(endFrame);
+    }
+    if (hasPrecision) {
+      result.setPrecision(precision);
+    }
+    return result;
+  }
+
+  private static void writeDoubleArray(DataOutput out, double[] data) throws IOException {
+    if (data == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(data.length);
+    for (final double value : data) {
+      out.writeDouble(value);
+    }
+  }
+
+  private static double[] readDoubleArray(DataInput in) throws IOException {
+    final int size = in.readInt();
+    if (size < 0) {
+      return null;
+    }
+    final double[] data = new double[size];
+    for (int i = 0; i < size; i++) {
+      data[i] = in.readDouble();
+    }
+    return data;
+  }
+
+  private static void writeFloatArray(DataOutput out, float[] data) throws IOException {
+    if (data == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(data.length);
+    for (final float value : data) {
+      out.writeFloat(value);
+    }
+  }
+
+  private static float[] readFloatArray(DataInput in) throws IOException {
+    final int size = in.readInt();
+    if (size < 0) {
+      return null;
+    }
+    final float[] data = new float[size];
+    for (int i = 0; i < size; i++) {
+      data[i] = in.readFloat();
+    }
+    return data;
+  }
+}
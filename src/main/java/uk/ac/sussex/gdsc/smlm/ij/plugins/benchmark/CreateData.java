@@ -85,6 +85,7 @@ import uk.ac.sussex.gdsc.smlm.function.gaussian.AstigmatismZModel;
 import uk.ac.sussex.gdsc.smlm.function.gaussian.Gaussian2DFunction;
 import uk.ac.sussex.gdsc.smlm.function.gaussian.HoltzerAstigmatismZModel;
 import uk.ac.sussex.gdsc.smlm.ij.IJImageSource;
+import uk.ac.sussex.gdsc.smlm.ij.SeriesImageSource;
 import uk.ac.sussex.gdsc.smlm.ij.plugins.AstigmatismModelManager;
 import uk.ac.sussex.gdsc.smlm.ij.plugins.CameraModelFisherInformationAnalysis;
 import uk.ac.sussex.gdsc.smlm.ij.plugins.CameraModelManager;
@@ -96,6 +97,7 @@ import uk.ac.sussex.gdsc.smlm.ij.plugins.PsfCalculator;
 import uk.ac.sussex.gdsc.smlm.ij.plugins.PsfCombiner;
 import uk.ac.sussex.gdsc.smlm.ij.plugins.ResultsManager;
 import uk.ac.sussex.gdsc.smlm.ij.plugins.SmlmUsageTracker;
+import uk.ac.sussex.gdsc.smlm.ij.plugins.TiffSeriesViewer.TiffSeriesVirtualStack;
 import uk.ac.sussex.gdsc.smlm.ij.settings.ImagePsfHelper;
 import uk.ac.sussex.gdsc.smlm.ij.settings.SettingsManager;
 import uk.ac.sussex.gdsc.smlm.model.ActivationEnergyImageModel;
@@ -120,19 +122,23 @@ import uk.ac.sussex.gdsc.smlm.model.RadialFalloffIllumination;
 import uk.ac.sussex.gdsc.smlm.model.SpatialDistribution;
 import uk.ac.sussex.gdsc.smlm.model.SpatialIllumination;
 import uk.ac.sussex.gdsc.smlm.model.SphericalDistribution;
+import uk.ac.sussex.gdsc.smlm.model.StampPsfModel;
 import uk.ac.sussex.gdsc.smlm.model.UniformDistribution;
 import uk.ac.sussex.gdsc.smlm.model.UniformIllumination;
 import uk.ac.sussex.gdsc.smlm.model.camera.CameraModel;
 import uk.ac.sussex.gdsc.smlm.model.camera.CcdCameraModel;
 import uk.ac.sussex.gdsc.smlm.model.camera.EmCcdCameraModel;
 import uk.ac.sussex.gdsc.smlm.results.ExtendedPeakResult;
+import uk.ac.sussex.gdsc.smlm.results.FilePeakResults;
 import uk.ac.sussex.gdsc.smlm.results.Gaussian2DPeakResultHelper;
 import uk.ac.sussex.gdsc.smlm.results.IdPeakResult;
+import uk.ac.sussex.gdsc.smlm.results.ImageSource;
 import uk.ac.sussex.gdsc.smlm.results.ImageSource.ReadHint;
 import uk.ac.sussex.gdsc.smlm.results.ImmutableMemoryPeakResults;
 import uk.ac.sussex.gdsc.smlm.results.MemoryPeakResults;
 import uk.ac.sussex.gdsc.smlm.results.PeakResult;
 import uk.ac.sussex.gdsc.smlm.results.PeakResults;
+import uk.ac.sussex.gdsc.smlm.results.PeakResultsList;
 import uk.ac.sussex.gdsc.smlm.results.PeakResultsReader;
 import uk.ac.sussex.gdsc.smlm.results.SynchronizedPeakResults;
 import uk.ac.sussex.gdsc.smlm.results.TextFilePeakResults;
@@ -149,6 +155,7 @@ import com.google.protobuf.TextFormat;
 import gnu.trove.list.array.TFloatArrayList;
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.set.hash.TIntHashSet;
 
 import ij.IJ;
@@ -219,6 +226,13 @@ public class CreateData implements PlugIn {
   /** The title. */
   static final String TITLE = "Create Data";
   private static final String CREATE_DATA_IMAGE_TITLE = "Localisation Data";
+  /**
+   * Describe the output of the streamed image. The streamed frames are saved as 32-bit as the
+   * 16-bit conversion of the in-memory image requires the limits of all the frames.
+   */
+  private static final String STREAM_IMAGE_HELP =
+      "Stream image: frames are saved as a 32-bit TIFF series in the image directory.\n"
+          + "The localisations are saved beside the directory (.xls).";
 
   private static final String[] ILLUMINATION = {"Uniform", "Radial"};
   private static final int RADIAL = 1;
@@ -2190,18 +2204,43 @@ public class CreateData implements PlugIn {
 
     maxT = localisationSets.get(localisationSets.size() - 1).getTime();
 
-    // Display image
-    final ImageStack stack = new ImageStack(settings.getSize(), settings.getSize(), maxT);
-
     final double psfSd = getPsfSd();
     if (psfSd <= 0) {
       return null;
     }
-    final PsfModel psfModel = createPsfModel(localisationSets);
+    final PsfModel psfModel = createStampPsfModel(createPsfModel(localisationSets),
+        localisationSets);
     if (psfModel == null) {
       return null;
     }
 
+    // Display image. This is either held in memory or streamed to disk.
+    ImageStack stack = null;
+    TiffSeriesFrameOutput seriesOutput = null;
+    FilePeakResults groundTruth = null;
+    final FrameOutput output;
+    if (settings.getStreamImage()) {
+      final File directory = getImageSeriesDirectory();
+      if (directory == null) {
+        return null;
+      }
+      seriesOutput = new TiffSeriesFrameOutput(directory, CREATE_DATA_IMAGE_TITLE,
+          settings.getSize(), settings.getSize(), maxT, settings.getStreamFramesPerFile(),
+          Prefs.getThreads() * 4, settings.getRawImage());
+      output = seriesOutput;
+
+      // Write the drawn localisations to file as they are created. This is saved beside the
+      // series directory as the directory must only contain the image files.
+      groundTruth = createGroundTruthResults(seriesOutput, psfSd);
+      if (groundTruth == null) {
+        return null;
+      }
+    } else {
+      final ImageStack imageStack = new ImageStack(settings.getSize(), settings.getSize(), maxT);
+      stack = imageStack;
+      output = (pixels, time) -> imageStack.setPixels(pixels, time);
+    }
+
     // Create the camera noise model
     createPerPixelCameraModelData(cameraModel);
     createBackgroundPixels();
@@ -2211,7 +2250,15 @@ public class CreateData implements PlugIn {
     IJ.showStatus("Drawing image ...");
 
     // Multi-thread for speed
-    final PeakResults syncResults = SynchronizedPeakResults.create(results, threadCount);
+    final PeakResults syncResults;
+    if (groundTruth == null) {
+      syncResults = SynchronizedPeakResults.create(results, threadCount);
+    } else {
+      final PeakResultsList list = new PeakResultsList();
+      list.addOutput(results);
+      list.addOutput(groundTruth);
+      syncResults = SynchronizedPeakResults.create(list, threadCount);
+    }
     final ExecutorService threadPool = Executors.newFixedThreadPool(threadCount);
     final List<Future<?>> futures = new LinkedList<>();
 
@@ -2222,48 +2269,79 @@ public class CreateData implements PlugIn {
 
 
 
-    // Process all frames
-    int index = 0;
-    int lastT = -1;
-    for (final LocalisationModelSet l : localisationSets) {
-      if (ImageJUtils.isInterrupted()) {
-        break;
+    float[] limits = null;
+    if (stack == null) {
+      // Process all frames in time order. The frames are written in order by the series output
+      // so the tasks must be submitted in order to allow the earliest frame to be completed.
+      int index = 0;
+      final int size = localisationSets.size();
+      for (int t = 1; t <= maxT; t++) {
+        if (ImageJUtils.isInterrupted()) {
+          break;
+        }
+        while (index < size && localisationSets.get(index).getTime() < t) {
+          index++;
+        }
+        if (index < size && localisationSets.get(index).getTime() == t) {
+          futures.add(threadPool.submit(
+              new ImageGenerator(localisationSets, newLocalisations, index, t, psfModel.copy(),
+                  syncResults, output, poissonNoise, createRandomGenerator(), ticker)));
+        } else {
+          futures.add(threadPool.submit(new ImageGenerator(localisationSets, newLocalisations,
+              maxT, t, null, syncResults, output, poissonNoise, createRandomGenerator(), ticker)));
+        }
       }
-      if (l.getTime() != lastT) {
-        lastT = l.getTime();
-        futures.add(threadPool.submit(
-            new ImageGenerator(localisationSets, newLocalisations, index, lastT, psfModel.copy(),
-                syncResults, stack, poissonNoise, createRandomGenerator(), ticker)));
+      // Finish
+      ConcurrencyUtils.waitForCompletionUnchecked(futures);
+      futures.clear();
+      threadPool.shutdown();
+      groundTruth.end();
+      if (!ImageJUtils.isInterrupted()) {
+        limits = seriesOutput.finish();
       }
-      index++;
-    }
-    // Finish processing data
-    ConcurrencyUtils.waitForCompletionUnchecked(futures);
-    futures.clear();
-    if (ImageJUtils.isInterrupted()) {
-      IJ.showProgress(1);
-      return null;
-    }
-
-    // Do all the frames that had no localisations
-    float[] limits = null;
-    for (int t = 1; t <= maxT; t++) {
+    } else {
+      // Process all frames
+      int index = 0;
+      int lastT = -1;
+      for (final LocalisationModelSet l : localisationSets) {
+        if (ImageJUtils.isInterrupted()) {
+          break;
+        }
+        if (l.getTime() != lastT) {
+          lastT = l.getTime();
+          futures.add(threadPool.submit(
+              new ImageGenerator(localisationSets, newLocalisations, index, lastT, psfModel.copy(),
+                  syncResults, output, poissonNoise, createRandomGenerator(), ticker)));
+        }
+        index++;
+      }
+      // Finish processing data
+      ConcurrencyUtils.waitForCompletionUnchecked(futures);
+      futures.clear();
       if (ImageJUtils.isInterrupted()) {
-        break;
+        IJ.showProgress(1);
+        return null;
       }
-      final Object pixels = stack.getPixels(t);
-      if (pixels == null) {
-        futures.add(threadPool.submit(new ImageGenerator(localisationSets, newLocalisations, maxT,
-            t, null, syncResults, stack, poissonNoise, createRandomGenerator(), ticker)));
-      } else if (limits == null) {
-        limits = MathUtils.limits((float[]) pixels);
+
+      // Do all the frames that had no localisations
+      for (int t = 1; t <= maxT; t++) {
+        if (ImageJUtils.isInterrupted()) {
+          break;
+        }
+        final Object pixels = stack.getPixels(t);
+        if (pixels == null) {
+          futures.add(threadPool.submit(new ImageGenerator(localisationSets, newLocalisations,
+              maxT, t, null, syncResults, output, poissonNoise, createRandomGenerator(), ticker)));
+        } else if (limits == null) {
+          limits = MathUtils.limits((float[]) pixels);
+        }
       }
-    }
 
-    // Finish
-    ConcurrencyUtils.waitForCompletionUnchecked(futures);
-    futures.clear();
-    threadPool.shutdown();
+      // Finish
+      ConcurrencyUtils.waitForCompletionUnchecked(futures);
+      futures.clear();
+      threadPool.shutdown();
+    }
     IJ.showProgress(1);
     if (ImageJUtils.isInterrupted() || limits == null) {
       return null;
@@ -2301,7 +2379,16 @@ public class CreateData implements PlugIn {
 
     ImageStack newStack = stack;
 
-    if (!settings.getRawImage()) {
+    if (stack == null) {
+      // The streamed image has been written to disk with whole numbers (if not raw)
+      final SeriesImageSource source = seriesOutput.createImageSource();
+      source.setReadHint(ReadHint.NONSEQUENTIAL);
+      if (!source.open()) {
+        IJ.error(TITLE, "Cannot open the image series: " + seriesOutput.getDirectory());
+        return null;
+      }
+      newStack = new TiffSeriesVirtualStack(source);
+    } else if (!settings.getRawImage()) {
       // Get the global limits and ensure all values can be represented
       final Object[] imageArray = stack.getImageArray();
       limits = MathUtils.limits((float[]) imageArray[0]);
@@ -2370,9 +2457,14 @@ public class CreateData implements PlugIn {
     imp.setDisplayRange(limits[0], limits[1]);
     imp.updateAndDraw();
 
-    saveImage(imp);
-
-    final IJImageSource imageSource = new IJImageSource(imp);
+    final ImageSource imageSource;
+    if (stack == null) {
+      // Use an unopened source for the results
+      imageSource = seriesOutput.createImageSource();
+    } else {
+      saveImage(imp);
+      imageSource = new IJImageSource(imp);
+    }
     // Shift simulation image source to correct location
     results.setSource(imageSource);
     results.setName(CREATE_DATA_IMAGE_TITLE + " (" + TITLE + ")");
@@ -2606,6 +2698,48 @@ public class CreateData implements PlugIn {
     return m;
   }
 
+  /**
+   * Create a PSF model using a table of precomputed PSF stamps covering the z-depth of the
+   * localisations. This is used when the number of stamp phases is positive.
+   *
+   * @param psfModel the PSF model
+   * @param localisationSets the localisation sets
+   * @return the PSF model
+   */
+  private PsfModel createStampPsfModel(PsfModel psfModel,
+      List<LocalisationModelSet> localisationSets) {
+    if (psfModel == null || settings.getPsfStampPhases() <= 0) {
+      return psfModel;
+    }
+    double zmin = Double.POSITIVE_INFINITY;
+    double zmax = Double.NEGATIVE_INFINITY;
+    for (final LocalisationModelSet set : localisationSets) {
+      for (final LocalisationModel l : set.getLocalisations()) {
+        final double z = l.getZ();
+        if (zmin > z) {
+          zmin = z;
+        }
+        if (zmax < z) {
+          zmax = z;
+        }
+      }
+    }
+    if (zmin > zmax) {
+      return psfModel;
+    }
+    IJ.showStatus("Creating PSF stamp table ...");
+    try {
+      final StampPsfModel model = new StampPsfModel(psfModel, settings.getPsfStampPhases(), zmin,
+          zmax, settings.getPsfStampZStep() / settings.getPixelPitch());
+      ImageJUtils.log("PSF stamp table: %d phases, radius %d, %d z-planes", model.getPhases(),
+          model.getRadius(), model.getZPlanes());
+      return model;
+    } catch (final IllegalArgumentException ex) {
+      ImageJUtils.log("Failed to create the PSF stamp table: %s", ex.getMessage());
+      return psfModel;
+    }
+  }
+
   private PsfModel createPsfModel(double[] xyz) {
     // Create a set with a single model
     final List<LocalisationModelSet> localisationSets = new TurboList<>(1);
@@ -2702,6 +2836,160 @@ public class CreateData implements PlugIn {
     return new CcdCameraModel(bias, gain, (float) MathUtils.pow2(readNoise));
   }
 
+  /**
+   * Receive the image frames created by the image generator.
+   */
+  private interface FrameOutput {
+    /**
+     * Sets the pixels for the frame. This may be called by multiple threads.
+     *
+     * @param pixels the pixels
+     * @param time the time frame (1-based)
+     */
+    void setPixels(float[] pixels, int time);
+  }
+
+  /**
+   * Write image frames to a TIFF series in time order.
+   *
+   * <p>Frames can be added in any order from multiple threads. Frames that are ahead of the next
+   * frame to write are held in a bounded reorder buffer; a thread adding a frame beyond the
+   * capacity of the buffer waits until the earlier frames have been written. This allows an
+   * arbitrary number of frames to be created without holding the image in memory.
+   */
+  private static class TiffSeriesFrameOutput implements FrameOutput {
+    /** The time to wait for space in the reorder buffer in milliseconds. */
+    private static final long WAIT_TIME = 100;
+
+    private final File directory;
+    private final String name;
+    private final String format;
+    private final int width;
+    private final int height;
+    private final int framesPerFile;
+    private final int capacity;
+    private final boolean rawImage;
+    private final TIntObjectHashMap<float[]> buffer = new TIntObjectHashMap<>();
+    private ImageStack batch;
+    private int next = 1;
+    private int fileCount;
+    private float[] limits;
+    private boolean failed;
+
+    /**
+     * Create a new instance.
+     *
+     * @param directory the directory
+     * @param name the name of the series
+     * @param width the width
+     * @param height the height
+     * @param frames the number of frames
+     * @param framesPerFile the frames per file
+     * @param capacity the capacity of the reorder buffer
+     * @param rawImage Set to true to write the raw image, otherwise round to whole numbers
+     */
+    TiffSeriesFrameOutput(File directory, String name, int width, int height, int frames,
+        int framesPerFile, int capacity, boolean rawImage) {
+      this.directory = directory;
+      this.name = name;
+      this.width = width;
+      this.height = height;
+      this.framesPerFile = framesPerFile;
+      this.capacity = Math.max(1, capacity);
+      this.rawImage = rawImage;
+      // Zero pad the file number so the series is read in the correct order
+      final int files = (frames + framesPerFile - 1) / framesPerFile;
+      final int digits = String.valueOf(files).length();
+      format = new File(directory, name.replace(' ', '_') + "%0" + digits + "d.tif").getPath();
+    }
+
+    @Override
+    public synchronized void setPixels(float[] pixels, int time) {
+      while (time - next >= capacity && !failed) {
+        if (ImageJUtils.isInterrupted()) {
+          return;
+        }
+        try {
+          wait(WAIT_TIME);
+        } catch (final InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+      if (failed) {
+        return;
+      }
+      buffer.put(time, pixels);
+      for (float[] frame = buffer.remove(next); frame != null; frame = buffer.remove(next)) {
+        write(frame);
+        next++;
+      }
+      notifyAll();
+    }
+
+    private void write(float[] pixels) {
+      if (!rawImage) {
+        for (int k = 0; k < pixels.length; k++) {
+          pixels[k] = Math.round(pixels[k]);
+        }
+      }
+      limits = (limits == null) ? MathUtils.limits(pixels) : MathUtils.limits(limits, pixels);
+      if (batch == null) {
+        batch = new ImageStack(width, height);
+      }
+      batch.addSlice(null, pixels);
+      if (batch.getSize() == framesPerFile) {
+        flush();
+      }
+    }
+
+    private void flush() {
+      if (batch == null || failed) {
+        return;
+      }
+      final String path = String.format(format, ++fileCount);
+      final FileSaver fs = new FileSaver(new ImagePlus(name, batch));
+      final boolean ok = (batch.getSize() > 1) ? fs.saveAsTiffStack(path) : fs.saveAsTiff(path);
+      batch = null;
+      if (!ok) {
+        failed = true;
+        IJ.log("Failed to save image to file: " + path);
+      }
+    }
+
+    /**
+     * Write any remaining frames. All the frames must have been added.
+     *
+     * @return the limits of the image data (or null if the series could not be written)
+     */
+    synchronized float[] finish() {
+      if (!buffer.isEmpty()) {
+        failed = true;
+        IJ.log("Image series is missing frame " + next);
+      }
+      flush();
+      return (failed) ? null : limits;
+    }
+
+    /**
+     * Gets the directory.
+     *
+     * @return the directory
+     */
+    File getDirectory() {
+      return directory;
+    }
+
+    /**
+     * Creates an image source for the written series.
+     *
+     * @return the image source
+     */
+    SeriesImageSource createImageSource() {
+      return new SeriesImageSource(name, directory.getPath());
+    }
+  }
+
   /**
    * Use a runnable for the image generation to allow multi-threaded operation. Input parameters
    * that are manipulated should have synchronized methods.
@@ -2713,7 +3001,7 @@ public class CreateData implements PlugIn {
     final int time;
     final PsfModel psfModel;
     final PeakResults results;
-    final ImageStack stack;
+    final FrameOutput output;
     final boolean poissonNoise;
     final UniformRandomProvider rng;
     final Ticker ticker;
@@ -2722,7 +3010,7 @@ public class CreateData implements PlugIn {
 
     public ImageGenerator(final List<LocalisationModelSet> localisationSets,
         List<LocalisationModelSet> newLocalisations, int startIndex, int time, PsfModel psfModel,
-        PeakResults results, ImageStack stack, boolean poissonNoise, UniformRandomProvider rng,
+        PeakResults results, FrameOutput output, boolean poissonNoise, UniformRandomProvider rng,
         Ticker ticker) {
       this.localisations = localisationSets;
       this.newLocalisations = newLocalisations;
@@ -2730,7 +3018,7 @@ public class CreateData implements PlugIn {
       this.time = time;
       this.psfModel = psfModel;
       this.results = results;
-      this.stack = stack;
+      this.output = output;
       this.poissonNoise = poissonNoise;
       this.rng = rng;
       this.ticker = ticker;
@@ -2876,7 +3164,25 @@ public class CreateData implements PlugIn {
           // Note: The width estimate does not account for diffusion
           float sx;
           float sy;
-          if (psfModel instanceof GaussianPsfModel) {
+          if (psfModel instanceof StampPsfModel) {
+            // The stamp table does not record the last drawn PSF so use the z-depth
+            final PsfModel model = ((StampPsfModel) psfModel).getModel();
+            if (model instanceof GaussianPsfModel) {
+              final GaussianPsfModel m = (GaussianPsfModel) model;
+              sx = (float) m.getS0(z);
+              sy = (float) m.getS1(z);
+            } else if (model instanceof AiryPsfModel) {
+              final AiryPsfModel m = (AiryPsfModel) model;
+              sx = (float) (m.getW0(z) * AiryPattern.FACTOR);
+              sy = (float) (m.getW1(z) * AiryPattern.FACTOR);
+            } else if (model instanceof ImagePsfModel) {
+              final ImagePsfModel m = (ImagePsfModel) model;
+              sx = (float) (m.getHwhm0(z) / Gaussian2DFunction.SD_TO_HWHM_FACTOR);
+              sy = (float) (m.getHwhm1(z) / Gaussian2DFunction.SD_TO_HWHM_FACTOR);
+            } else {
+              throw new IllegalStateException("Unknown PSF model");
+            }
+          } else if (psfModel instanceof GaussianPsfModel) {
             final GaussianPsfModel m = (GaussianPsfModel) psfModel;
             sx = (float) m.getS0();
             sy = (float) m.getS1();
@@ -2971,7 +3277,7 @@ public class CreateData implements PlugIn {
       cameraModel.applyGainAndBias(cameraModel.getBounds(), image);
 
       // Send to output
-      stack.setPixels(image, time);
+      output.setPixels(image, time);
     }
 
     /**
@@ -3799,6 +4105,62 @@ public class CreateData implements PlugIn {
     }
   }
 
+  /**
+   * Creates the results file used to stream the drawn localisations. The file is named using the
+   * image series directory with the extension {@code .xls}.
+   *
+   * <p>Frames are drawn in parallel so the results are written in the order the frames complete.
+   * The file is sorted by frame when the results are ended.
+   *
+   * @param seriesOutput the series output
+   * @param psfSd the PSF standard deviation
+   * @return the results (or null if the file could not be opened)
+   */
+  private FilePeakResults createGroundTruthResults(TiffSeriesFrameOutput seriesOutput,
+      double psfSd) {
+    final String filename = seriesOutput.getDirectory().getPath() + ".xls";
+    final TextFilePeakResults r = new TextFilePeakResults(filename, false);
+    r.copySettings(results);
+    r.setSource(seriesOutput.createImageSource());
+    r.setName(CREATE_DATA_IMAGE_TITLE + " (" + TITLE + ")");
+    r.setBounds(new Rectangle(settings.getSize(), settings.getSize()));
+    r.setPsf(createPsf(psfSd));
+    r.setSortAfterEnd(true);
+    r.begin();
+    if (!r.isActive()) {
+      IJ.error(TITLE, "Cannot write the localisations to file: " + filename);
+      return null;
+    }
+    return r;
+  }
+
+  /**
+   * Gets the directory used to stream the image as a TIFF series. The directory is derived from the
+   * image filename and created if required.
+   *
+   * @return the directory (or null if cancelled)
+   */
+  private File getImageSeriesDirectory() {
+    final String[] path = ImageJUtils.decodePath(settings.getImageFilename());
+    final OpenDialog chooser = new OpenDialog("Image_File", path[0], path[1]);
+    if (chooser.getFileName() == null) {
+      return null;
+    }
+    settings.setImageFilename(chooser.getDirectory() + chooser.getFileName());
+    settings.setImageFilename(FileUtils.replaceExtension(settings.getImageFilename(), "tiff"));
+    final File directory = new File(FileUtils.removeExtension(settings.getImageFilename()));
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      IJ.error(TITLE, "Cannot create the image series directory: " + directory);
+      return null;
+    }
+    final String[] existing = directory.list();
+    if (existing != null && existing.length != 0) {
+      IJ.error(TITLE, "The image series directory is not empty: " + directory);
+      return null;
+    }
+    return directory;
+  }
+
   private void saveImageResults(MemoryPeakResults results) {
     if (!settings.getSaveImageResults()) {
       return;
@@ -4259,9 +4621,15 @@ public class CreateData implements PlugIn {
     gd.addNumericField("Min_Photons", settings.getPhotonsPerSecond(), 0);
     gd.addNumericField("Max_Photons", settings.getPhotonsPerSecondMaximum(), 0);
 
+    gd.addNumericField("PSF_stamp_phases", settings.getPsfStampPhases(), 0);
+    gd.addNumericField("PSF_stamp_z_step", settings.getPsfStampZStep(), 2, 6, "nm");
+
     gd.addMessage("--- Save options ---");
     gd.addCheckbox("Raw_image", settings.getRawImage());
     gd.addCheckbox("Save_image", settings.getSaveImage());
+    gd.addCheckbox("Stream_image", settings.getStreamImage());
+    gd.addNumericField("Stream_frames_per_file", settings.getStreamFramesPerFile(), 0);
+    gd.addMessage(STREAM_IMAGE_HELP);
     gd.addCheckbox("Save_image_results", settings.getSaveImageResults());
     gd.addCheckbox("Save_localisations", settings.getSaveLocalisations());
 
@@ -4313,8 +4681,13 @@ public class CreateData implements PlugIn {
     settings.setPhotonsPerSecond(Math.abs((int) gd.getNextNumber()));
     settings.setPhotonsPerSecondMaximum(Math.abs((int) gd.getNextNumber()));
 
+    settings.setPsfStampPhases(Math.max(0, (int) gd.getNextNumber()));
+    settings.setPsfStampZStep(Math.abs(gd.getNextNumber()));
+
     settings.setRawImage(gd.getNextBoolean());
     settings.setSaveImage(gd.getNextBoolean());
+    settings.setStreamImage(gd.getNextBoolean());
+    settings.setStreamFramesPerFile(Math.max(1, (int) gd.getNextNumber()));
     settings.setSaveImageResults(gd.getNextBoolean());
     settings.setSaveLocalisations(gd.getNextBoolean());
 
@@ -4805,9 +5178,15 @@ public class CreateData implements PlugIn {
     gd.addSlider("Min_SNR_t1", 0, 20, settings.getMinSnrT1());
     gd.addSlider("Min_SNR_tN", 0, 10, settings.getMinSnrTN());
 
+    gd.addNumericField("PSF_stamp_phases", settings.getPsfStampPhases(), 0);
+    gd.addNumericField("PSF_stamp_z_step", settings.getPsfStampZStep(), 2, 6, "nm");
+
     gd.addMessage("--- Save options ---");
     gd.addCheckbox("Raw_image", settings.getRawImage());
     gd.addCheckbox("Save_image", settings.getSaveImage());
+    gd.addCheckbox("Stream_image", settings.getStreamImage());
+    gd.addNumericField("Stream_frames_per_file", settings.getStreamFramesPerFile(), 0);
+    gd.addMessage(STREAM_IMAGE_HELP);
     gd.addCheckbox("Save_image_results", settings.getSaveImageResults());
     gd.addCheckbox("Save_fluorophores", settings.getSaveFluorophores());
     gd.addCheckbox("Save_localisations", settings.getSaveLocalisations());
@@ -4878,8 +5257,13 @@ public class CreateData implements PlugIn {
     minSnrT1 = settings.getMinSnrT1();
     minSnrTn = settings.getMinSnrTN();
 
+    settings.setPsfStampPhases(Math.max(0, (int) gd.getNextNumber()));
+    settings.setPsfStampZStep(Math.abs(gd.getNextNumber()));
+
     settings.setRawImage(gd.getNextBoolean());
     settings.setSaveImage(gd.getNextBoolean());
+    settings.setStreamImage(gd.getNextBoolean());
+    settings.setStreamFramesPerFile(Math.max(1, (int) gd.getNextNumber()));
     settings.setSaveImageResults(gd.getNextBoolean());
     settings.setSaveFluorophores(gd.getNextBoolean());
     settings.setSaveLocalisations(gd.getNextBoolean());
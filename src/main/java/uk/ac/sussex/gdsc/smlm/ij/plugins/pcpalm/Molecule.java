@@ -37,9 +37,6 @@ public class Molecule {
   /** The photons. */
   public final double photons;
 
-  /** Used to construct a single linked list of molecules. */
-  Molecule next;
-
   /**
    * Instantiates a new molecule.
    *
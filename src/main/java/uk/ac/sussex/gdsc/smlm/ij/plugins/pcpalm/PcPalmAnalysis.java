@@ -31,6 +31,7 @@ import uk.ac.sussex.gdsc.core.ij.process.Fht;
 import uk.ac.sussex.gdsc.core.utils.ImageWindow;
 import uk.ac.sussex.gdsc.core.utils.MathUtils;
 import uk.ac.sussex.gdsc.core.utils.Statistics;
+import uk.ac.sussex.gdsc.core.utils.concurrent.ConcurrencyUtils;
 import uk.ac.sussex.gdsc.smlm.ij.plugins.About;
 import uk.ac.sussex.gdsc.smlm.ij.plugins.ParameterUtils;
 import uk.ac.sussex.gdsc.smlm.ij.plugins.SmlmUsageTracker;
@@ -43,11 +44,13 @@ import com.thoughtworks.xstream.io.xml.DomDriver;
 
 import ij.IJ;
 import ij.ImagePlus;
+import ij.Prefs;
 import ij.WindowManager;
 import ij.gui.GenericDialog;
 import ij.gui.Plot;
 import ij.gui.Roi;
 import ij.plugin.PlugIn;
+import ij.plugin.frame.RoiManager;
 import ij.process.FloatProcessor;
 import ij.process.ImageProcessor;
 import ij.text.TextWindow;
@@ -69,7 +72,12 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -119,6 +127,11 @@ public class PcPalmAnalysis implements PlugIn {
   /** The results from PC-PALM molecules. */
   private MoleculesResults moleculesResults;
 
+  /** The FFT plans for each padded image size. These are reused for all ROIs in the run. */
+  private final FftPlanCache fftPlans = new FftPlanCache();
+  /** The executor used to compute the image and weight correlations. Created on demand. */
+  private ExecutorService executor;
+
   /**
    * Contains the settings that are the re-usable state of the plugin.
    */
@@ -140,6 +153,7 @@ public class PcPalmAnalysis implements PlugIn {
     boolean showHighResolutionImage;
     boolean showCorrelationImages;
     boolean useBorder;
+    boolean processRoiManager;
 
     Settings() {
       // Set defaults
@@ -167,6 +181,7 @@ public class PcPalmAnalysis implements PlugIn {
       showHighResolutionImage = source.showHighResolutionImage;
       showCorrelationImages = source.showCorrelationImages;
       useBorder = source.useBorder;
+      processRoiManager = source.processRoiManager;
     }
 
     Settings copy() {
@@ -190,6 +205,38 @@ public class PcPalmAnalysis implements PlugIn {
     }
   }
 
+  /**
+   * Cache the FFT plans by the image size. The number of plans is bounded; the least recently used
+   * plan is discarded when the cache is full.
+   *
+   * <p>This is not thread-safe. The plans are used by the thread running the plugin and the FFT
+   * library computes each transform using its own threads.
+   */
+  private static class FftPlanCache extends LinkedHashMap<Integer, FloatFFT_2D> {
+    private static final long serialVersionUID = 1L;
+
+    /** The maximum number of plans. */
+    private static final int MAX_SIZE = 4;
+
+    FftPlanCache() {
+      super(MAX_SIZE + 1, 0.75f, true);
+    }
+
+    /**
+     * Gets the plan for a square image of the given size.
+     *
+     * @param size the size
+     * @return the plan
+     */
+    FloatFFT_2D getPlan(int size) {
+      return computeIfAbsent(size, s -> new FloatFFT_2D(s, s));
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, FloatFFT_2D> eldest) {
+      return size() > MAX_SIZE;
+    }
+  }
 
   @Override
   public void run(String arg) {
@@ -210,7 +257,8 @@ public class PcPalmAnalysis implements PlugIn {
     final ImagePlus imp = WindowManager.getCurrentImage();
     spatialDomain = "spatial".equalsIgnoreCase(arg);
 
-    if (imp == null || (!spatialDomain && (imp.getRoi() == null || !imp.getRoi().isArea()))) {
+    if (imp == null
+        || (!spatialDomain && !isArea(imp.getRoi()) && getRoiManagerRois().length == 0)) {
       error("Require an input image with an area ROI.\n"
           + "Please create a binary molecule image using " + PcPalmMolecules.TITLE);
       return;
@@ -226,20 +274,45 @@ public class PcPalmAnalysis implements PlugIn {
       return;
     }
 
+    final Roi[] rois = getRois(imp);
+    if (rois.length == 0) {
+      error((settings.processRoiManager) ? "Require area ROIs in the ROI manager"
+          : "Require an input image with an area ROI");
+      return;
+    }
+
     PcPalmMolecules.logSpacer();
     log(TITLE);
     PcPalmMolecules.logSpacer();
 
-    final List<Molecule> molecules = cropToRoi(imp);
-    if (molecules.size() < 2) {
-      error("No results within the crop region");
-      return;
-    }
-
-    log("Using %d molecules", molecules.size());
     final long start = System.currentTimeMillis();
 
-    analyse(molecules);
+    try {
+      // Each ROI reuses the FFT plans and executor created for the run
+      for (int i = 0; i < rois.length; i++) {
+        if (rois.length > 1) {
+          log("ROI %d / %d", i + 1, rois.length);
+        }
+        final List<Molecule> molecules = cropToRoi(imp, rois[i]);
+        if (molecules.size() < 2) {
+          if (rois.length == 1) {
+            error("No results within the crop region");
+            return;
+          }
+          log("No results within the crop region");
+          continue;
+        }
+
+        log("Using %d molecules", molecules.size());
+
+        analyse(molecules);
+      }
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+        executor = null;
+      }
+    }
 
     final double seconds = (System.currentTimeMillis() - start) / 1000.0;
     final String msg = TITLE + " complete : " + seconds + "s";
@@ -247,6 +320,43 @@ public class PcPalmAnalysis implements PlugIn {
     log(msg);
   }
 
+  /**
+   * Gets the ROIs to analyse. This is the area ROIs from the ROI manager if processing the ROI
+   * manager, otherwise the image ROI. The image ROI may be null for spatial domain analysis of all
+   * the molecules.
+   *
+   * @param imp the image
+   * @return the ROIs
+   */
+  private Roi[] getRois(ImagePlus imp) {
+    if (settings.processRoiManager) {
+      return getRoiManagerRois();
+    }
+    final Roi roi = imp.getRoi();
+    if (spatialDomain || isArea(roi)) {
+      return new Roi[] {roi};
+    }
+    return new Roi[0];
+  }
+
+  /**
+   * Gets the area ROIs from the ROI manager.
+   *
+   * @return the ROIs
+   */
+  private static Roi[] getRoiManagerRois() {
+    final RoiManager rmanager = RoiManager.getInstance();
+    if (rmanager == null || rmanager.getCount() == 0) {
+      return new Roi[0];
+    }
+    return Arrays.stream(rmanager.getRoisAsArray()).filter(PcPalmAnalysis::isArea)
+        .toArray(Roi[]::new);
+  }
+
+  private static boolean isArea(Roi roi) {
+    return roi != null && roi.isArea();
+  }
+
   /**
    * Show a directory selection dialog for the results directory.
    *
@@ -378,6 +488,7 @@ public class PcPalmAnalysis implements PlugIn {
       gd.addCheckbox("Use_border", settings.useBorder);
       gd.addNumericField("Correlation_interval (nm)", settings.correlationInterval, 0);
     }
+    gd.addCheckbox("Process_ROI_manager", settings.processRoiManager);
 
     gd.showDialog();
 
@@ -398,6 +509,7 @@ public class PcPalmAnalysis implements PlugIn {
       settings.useBorder = gd.getNextBoolean();
       settings.correlationInterval = gd.getNextNumber();
     }
+    settings.processRoiManager = gd.getNextBoolean();
 
     // Check arguments
     try {
@@ -427,8 +539,24 @@ public class PcPalmAnalysis implements PlugIn {
    * @param imp the image
    * @return the array list
    */
-  @SuppressWarnings("null")
   List<Molecule> cropToRoi(ImagePlus imp) {
+    return cropToRoi(imp, (imp == null) ? null : imp.getRoi());
+  }
+
+  /**
+   * Extract all the PC-PALM molecules that are within the ROI region of the image. The coordinates
+   * bounds are converted using relative scaling to the limits of the PC-PALM molecules. If a
+   * non-rectangular ROI is used then a mask is extracted and used for the crop. If no image or ROI
+   * is provided then the full set of molecules is returned.
+   *
+   * <p>Set the area property to the region covered by the molecules.
+   *
+   * @param imp the image
+   * @param roi the roi
+   * @return the array list
+   */
+  @SuppressWarnings("null")
+  private List<Molecule> cropToRoi(ImagePlus imp, Roi roi) {
     croppedArea = moleculesResults.area;
     if (moleculesResults.molecules == null || moleculesResults.molecules.isEmpty()) {
       return moleculesResults.molecules;
@@ -437,8 +565,7 @@ public class PcPalmAnalysis implements PlugIn {
     final double pcw = moleculesResults.maxx - moleculesResults.minx;
     final double pch = moleculesResults.maxy - moleculesResults.miny;
 
-    final Roi roi = (imp == null) ? null : imp.getRoi();
-    if (roi == null || !roi.isArea()) {
+    if (imp == null || !isArea(roi)) {
       log("Roi = %s nm x %s nm = %s um^2", MathUtils.rounded(pcw, 3), MathUtils.rounded(pch, 3),
           MathUtils.rounded(croppedArea, 3));
       minx = moleculesResults.minx;
@@ -841,18 +968,20 @@ public class PcPalmAnalysis implements PlugIn {
   @Nullable
   private double[][] computeAutoCorrelationCurveFht(ImageProcessor im, ImageProcessor wp,
       int maxRadius, double nmPerPixel, double density) {
-    log("Creating Hartley transforms");
-    final Fht fht2Im = padToFht2(im);
-    final Fht fht2W = padToFht2(wp);
-    if (fht2Im == null || fht2W == null) {
+    log("Performing Hartley transform correlation");
+    // The image and weights are independent so compute concurrently. The FHT is single threaded.
+    final FloatProcessor[] corr = new FloatProcessor[2];
+    final List<Future<?>> futures = new ArrayList<>(2);
+    futures.add(getExecutor().submit(() -> corr[0] = computeAutoCorrelationFht(im)));
+    futures.add(getExecutor().submit(() -> corr[1] = computeAutoCorrelationFht(wp)));
+    ConcurrencyUtils.waitForCompletionUnchecked(futures);
+    final FloatProcessor corrIm = corr[0];
+    final FloatProcessor corrW = corr[1];
+    if (corrIm == null || corrW == null) {
       error("Unable to perform Hartley transform");
       return null;
     }
 
-    log("Performing correlation");
-    final FloatProcessor corrIm = computeAutoCorrelationFht(fht2Im);
-    final FloatProcessor corrW = computeAutoCorrelationFht(fht2W);
-
     IJ.showProgress(1);
 
     final int centre = corrIm.getHeight() / 2;
@@ -861,16 +990,23 @@ public class PcPalmAnalysis implements PlugIn {
     if (settings.showCorrelationImages) {
       displayCorrelation(corrIm, "Image correlation", crop);
       displayCorrelation(corrW, "Window correlation", crop);
+      displayCorrelation(normaliseCorrelation(corrIm, corrW, density), "Normalised correlation",
+          crop);
     }
 
-    log("Normalising correlation");
-    final FloatProcessor correlation = normaliseCorrelation(corrIm, corrW, density);
+    return computeRadialAverage(maxRadius, nmPerPixel, corrIm, corrW, density);
+  }
 
-    if (settings.showCorrelationImages) {
-      displayCorrelation(correlation, "Normalised correlation", crop);
+  /**
+   * Gets the executor. This is created on demand and shutdown at the end of the plugin run.
+   *
+   * @return the executor
+   */
+  private ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(Prefs.getThreads());
     }
-
-    return computeRadialAverage(maxRadius, nmPerPixel, correlation);
+    return executor;
   }
 
   /**
@@ -918,44 +1054,56 @@ public class PcPalmAnalysis implements PlugIn {
   private double[][] computeAutoCorrelationCurvefft(ImageProcessor im, ImageProcessor wp,
       int maxRadius, double nmPerPixel, double density) {
     log("Performing FFT correlation");
-    final FloatProcessor corrIm = computeAutoCorrelationFft(im);
-    final FloatProcessor corrW = computeAutoCorrelationFft(wp);
-    if (corrIm == null || corrW == null) {
+    final FloatProcessor[] padded = {pad(im), pad(wp)};
+    if (padded[0] == null || padded[1] == null) {
       error("Unable to perform Fourier transform");
       return null;
     }
 
+    // The FFT library is multi-threaded so compute the image and weights in turn.
+    // The plan for the padded size is shared by all ROIs in the run.
+    final FloatFFT_2D fft = fftPlans.getPlan(padded[0].getWidth());
+    final FloatProcessor corrIm = computeAutoCorrelationFft(padded[0], fft);
+    final FloatProcessor corrW = computeAutoCorrelationFft(padded[1], fft);
+
     final int centre = corrIm.getHeight() / 2;
     final Rectangle crop =
         new Rectangle(centre - maxRadius, centre - maxRadius, maxRadius * 2, maxRadius * 2);
     if (settings.showCorrelationImages) {
       displayCorrelation(corrIm, "Image correlation FFT", crop);
       displayCorrelation(corrW, "Window correlation FFT", crop);
+      displayCorrelation(normaliseCorrelation(corrIm, corrW, density),
+          "Normalised correlation FFT", crop);
     }
 
-    log("  Normalising correlation");
-    final FloatProcessor correlation = normaliseCorrelation(corrIm, corrW, density);
-
-    if (settings.showCorrelationImages) {
-      displayCorrelation(correlation, "Normalised correlation FFT", crop);
-    }
-
-    return computeRadialAverage(maxRadius, nmPerPixel, correlation);
+    return computeRadialAverage(maxRadius, nmPerPixel, corrIm, corrW, density);
   }
 
   /**
    * Compute the radial average correlation function (gr).
    *
+   * <p>The image auto-correlation is normalised by the weight auto-correlation and the squared
+   * density within the radial averaging pass. Only pixels within the maximum radius of the centre
+   * are normalised.
+   *
    * @param maxRadius the maximum radius to process (in pixels)
    * @param nmPerPixel covert pixel distances to nm
-   * @param correlation auto-correlation
+   * @param corrIm the image auto-correlation
+   * @param corrW the weight auto-correlation
+   * @param density the density
    * @return { distances[], gr[], gr_se[] }
    */
   private static double[][] computeRadialAverage(int maxRadius, double nmPerPixel,
-      FloatProcessor correlation) {
+      FloatProcessor corrIm, FloatProcessor corrW, double density) {
     // Perform averaging of the correlation function using integer distance bins
     log("  Computing distance vs correlation curve");
-    final int centre = correlation.getHeight() / 2;
+    final int centre = corrIm.getHeight() / 2;
+    final int width = corrIm.getWidth();
+    final float[] dataIm = (float[]) corrIm.getPixels();
+    final float[] dataW = (float[]) corrW.getPixels();
+
+    // Square the density for normalisation
+    final double density2 = density * density;
 
     // Count the number of pixels at each distance and sum the correlations
     final Statistics[] gr = new Statistics[maxRadius + 1];
@@ -973,16 +1121,15 @@ public class PcPalmAnalysis implements PlugIn {
       }
     }
 
-    final float[] data = (float[]) correlation.getPixels();
     for (int dy = -maxRadius; dy <= maxRadius; dy++) {
       final int absY = Math.abs(dy);
-      int index = (centre + dy) * correlation.getWidth() + centre - maxRadius;
+      int index = (centre + dy) * width + centre - maxRadius;
       for (int dx = -maxRadius; dx <= maxRadius; dx++, index++) {
         final int d = distance[absY][Math.abs(dx)];
         if (d > maxRadius || d == 0) {
           continue;
         }
-        gr[d].add(data[index]);
+        gr[d].add(normalise(dataIm[index], dataW[index], density2));
       }
     }
 
@@ -995,7 +1142,8 @@ public class PcPalmAnalysis implements PlugIn {
       y[i] = gr[i].getMean();
       sd[i] = gr[i].getStandardError();
     }
-    y[0] = correlation.getf(centre, centre);
+    final int index = centre * width + centre;
+    y[0] = normalise(dataIm[index], dataW[index], density2);
 
     return new double[][] {x, y, sd};
   }
@@ -1008,12 +1156,16 @@ public class PcPalmAnalysis implements PlugIn {
   }
 
   /**
-   * Compute auto correlation FHT.
+   * Compute auto correlation using the FHT.
    *
-   * @param fftIm in frequency domain
-   * @return the auto correlation FHT.
+   * @param ip the image
+   * @return the auto correlation FHT (or null if the image cannot be transformed)
    */
-  private static FloatProcessor computeAutoCorrelationFht(Fht fftIm) {
+  private static FloatProcessor computeAutoCorrelationFht(ImageProcessor ip) {
+    final Fht fftIm = padToFht2(ip);
+    if (fftIm == null) {
+      return null;
+    }
     final Fht fht2 = fftIm.conjugateMultiply(fftIm);
     fht2.inverseTransform();
     fht2.swapQuadrants();
@@ -1030,11 +1182,23 @@ public class PcPalmAnalysis implements PlugIn {
     density *= density;
 
     for (int i = 0; i < data.length; i++) {
-      data[i] = (float) (dataIm[i] / (density * dataW[i]));
+      data[i] = normalise(dataIm[i], dataW[i], density);
     }
     return new FloatProcessor(corrIm.getWidth(), corrIm.getHeight(), data, null);
   }
 
+  /**
+   * Normalise the image correlation using the weight correlation.
+   *
+   * @param im the image correlation
+   * @param weight the weight correlation
+   * @param density2 the squared density
+   * @return the normalised correlation
+   */
+  private static float normalise(float im, float weight, double density2) {
+    return (float) (im / (density2 * weight));
+  }
+
   /**
    * Pads the image to the next power of two and transforms into the frequency domain.
    *
@@ -1080,14 +1244,12 @@ public class PcPalmAnalysis implements PlugIn {
   /**
    * Compute the auto-correlation using the JTransforms FFT library.
    *
-   * @param ip the image
+   * @param paddedIp the image padded to a square power of two size
+   * @param fft the FFT plan for the image size
    * @return the auto correlation.
    */
-  private static FloatProcessor computeAutoCorrelationFft(ImageProcessor ip) {
-    final FloatProcessor paddedIp = pad(ip);
-    if (paddedIp == null) {
-      return null;
-    }
+  private static FloatProcessor computeAutoCorrelationFft(FloatProcessor paddedIp,
+      FloatFFT_2D fft) {
     final int size = paddedIp.getWidth();
 
     final boolean doubleFft = false;
@@ -1104,12 +1266,12 @@ public class PcPalmAnalysis implements PlugIn {
     // The absolute value of a complex number z = x + y*i is the value sqrt(x*x+y*y).
 
     if (doubleFft) {
-      final DoubleFFT_2D fft = new DoubleFFT_2D(size, size);
+      final DoubleFFT_2D dfft = new DoubleFFT_2D(size, size);
       final double[] data = new double[size * size * 2];
       for (int i = 0; i < pixels.length; i++) {
         data[i] = pixels[i];
       }
-      fft.realForwardFull(data);
+      dfft.realForwardFull(data);
 
       // Re-use data
       for (int i = 0, j = 0; i < data.length; i += 2, j++) {
@@ -1121,14 +1283,13 @@ public class PcPalmAnalysis implements PlugIn {
       }
 
       // Re-use the pre-computed object
-      fft.realInverseFull(data, true);
+      dfft.realInverseFull(data, true);
 
       // Get the real part of the data
       for (int i = 0, j = 0; i < data.length; i += 2, j++) {
         correlation[j] = (float) data[i];
       }
     } else {
-      final FloatFFT_2D fft = new FloatFFT_2D(size, size);
       final float[] data = new float[size * size * 2];
       System.arraycopy(pixels, 0, data, 0, pixels.length);
       fft.realForwardFull(data);
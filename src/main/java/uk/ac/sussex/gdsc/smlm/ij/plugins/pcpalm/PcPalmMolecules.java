@@ -45,6 +45,7 @@ import uk.ac.sussex.gdsc.core.utils.StoredDataStatistics;
 import uk.ac.sussex.gdsc.core.utils.rng.BinomialDiscreteInverseCumulativeProbabilityFunction;
 import uk.ac.sussex.gdsc.core.utils.rng.SamplerUtils;
 import uk.ac.sussex.gdsc.smlm.data.config.CalibrationHelper;
+import uk.ac.sussex.gdsc.smlm.data.config.CalibrationProtos;
 import uk.ac.sussex.gdsc.smlm.data.config.PSFProtos.PSFType;
 import uk.ac.sussex.gdsc.smlm.data.config.PsfHelper;
 import uk.ac.sussex.gdsc.smlm.data.config.UnitProtos.DistanceUnit;
@@ -110,12 +111,16 @@ import org.apache.commons.rng.simple.RandomSource;
 
 import java.awt.Color;
 import java.awt.Rectangle;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
 
 /**
  * Use the PC-PALM protocol to prepare a set of localisations into molecules. This can be used for
@@ -139,6 +144,53 @@ public class PcPalmMolecules implements PlugIn {
   /** The plugin settings. */
   private Settings settings;
 
+  /**
+   * The last tracing result. This is softly referenced so the molecules can be released if memory is
+   * required.
+   */
+  private static final AtomicReference<SoftReference<TraceResult>> lastTraceResult =
+      new AtomicReference<>(new SoftReference<>(null));
+
+  /**
+   * Store the molecules traced from a set of results.
+   *
+   * <p>The results are weakly referenced so the cache does not prevent them from being released. The
+   * results are identified using the object reference, size and calibration.
+   */
+  private static class TraceResult {
+    final WeakReference<MemoryPeakResults> results;
+    final int size;
+    final CalibrationProtos.Calibration calibration;
+    final double distance;
+    final int time;
+    final List<Molecule> molecules;
+    final List<Molecule> singles;
+
+    TraceResult(MemoryPeakResults results, double distance, int time, List<Molecule> molecules,
+        List<Molecule> singles) {
+      this.results = new WeakReference<>(results);
+      this.size = results.size();
+      this.calibration = results.getCalibration();
+      this.distance = distance;
+      this.time = time;
+      this.molecules = molecules;
+      this.singles = singles;
+    }
+
+    /**
+     * Check if the trace was created from the same results and settings.
+     *
+     * @param results the results
+     * @param distance the distance
+     * @param time the time
+     * @return true if the same
+     */
+    boolean isSameTrace(MemoryPeakResults results, double distance, int time) {
+      return this.results.get() == results && size == results.size() && this.distance == distance
+          && this.time == time && Objects.equals(calibration, results.getCalibration());
+    }
+  }
+
   /**
    * Contains the settings that are the re-usable state of the plugin.
    */
@@ -1039,6 +1091,17 @@ public class PcPalmMolecules implements PlugIn {
    */
   private static ArrayList<Molecule> traceMolecules(MemoryPeakResults results, double distance,
       int time, ArrayList<Molecule> singles) {
+    // Re-use the last tracing result if the same results are traced with the same settings.
+    // The molecules are immutable so the lists can be shared.
+    final TraceResult lastResult = lastTraceResult.get().get();
+    if (lastResult != null && lastResult.isSameTrace(results, distance, time)) {
+      singles.addAll(lastResult.singles);
+      log("  %d localisations traced to %d molecules (cached result)", results.size(),
+          lastResult.molecules.size() + lastResult.singles.size());
+      return new ArrayList<>(lastResult.molecules);
+    }
+
+    final int start = singles.size();
     final TraceManager tm = new TraceManager(results);
     final double distanceThreshold = distance / results.getNmPerPixel();
     tm.traceMolecules(distanceThreshold, time);
@@ -1062,6 +1125,8 @@ public class PcPalmMolecules implements PlugIn {
         + " t=%d frames (%s s)", results.size(), molecules.size() + singles.size(), singles.size(),
         molecules.size(), distance, time,
         MathUtils.rounded(time * results.getCalibrationReader().getExposureTime() / 1000.0));
+    lastTraceResult.set(new SoftReference<>(new TraceResult(results, distance, time,
+        new ArrayList<>(molecules), new ArrayList<>(singles.subList(start, singles.size())))));
     return molecules;
   }
 
@@ -1514,35 +1579,20 @@ public class PcPalmMolecules implements PlugIn {
             continue;
           }
 
-          // Get the distance matrix between these molecules
-          final double[][] matrix = new double[newCount][newCount];
-          for (int ii = size, x = 0; ii < settings.molecules.size(); ii++, x++) {
-            for (int jj = size + 1, y = 1; jj < settings.molecules.size(); jj++, y++) {
-              final double d2 = settings.molecules.get(ii).distance2(settings.molecules.get(jj));
-              matrix[x][y] = matrix[y][x] = d2;
-            }
-          }
-
-          // Get the maximum distance for particle linkage clustering of this molecule
-          double max = 0;
+          // Get the minimum distance needed to join each localisation to at least one other.
+          // The maximum of these is the distance for particle linkage clustering of this
+          // molecule. Compute the upper triangle of the distance matrix only once.
+          final double[] linkDistance = new double[newCount];
+          Arrays.fill(linkDistance, Double.POSITIVE_INFINITY);
           for (int x = 0; x < newCount; x++) {
-            // Compare to all-other molecules and get the minimum distance
-            // needed to join at least one
-            double linkDistance = Double.POSITIVE_INFINITY;
-            for (int y = 0; y < newCount; y++) {
-              if (x == y) {
-                continue;
-              }
-              if (matrix[x][y] < linkDistance) {
-                linkDistance = matrix[x][y];
-              }
-            }
-            // Check if this is larger
-            if (max < linkDistance) {
-              max = linkDistance;
+            final Molecule m1 = settings.molecules.get(size + x);
+            for (int y = x + 1; y < newCount; y++) {
+              final double d2 = m1.distance2(settings.molecules.get(size + y));
+              linkDistance[x] = Math.min(linkDistance[x], d2);
+              linkDistance[y] = Math.min(linkDistance[y], d2);
             }
           }
-          intraDistances.add(Math.sqrt(max));
+          intraDistances.add(Math.sqrt(MathUtils.max(linkDistance)));
         }
       }
     }
@@ -1890,69 +1940,13 @@ public class PcPalmMolecules implements PlugIn {
       }
     }
 
-    // Assign to a grid
-    final int gridSize = 500;
-    final double xBinSize = (settings.maxx - settings.minx) / gridSize;
-    final double yBinSize = (settings.maxy - settings.miny) / gridSize;
-    final int nXBins = 1 + (int) ((settings.maxx - settings.minx) / xBinSize);
-    final int nybins = 1 + (int) ((settings.maxy - settings.miny) / yBinSize);
-    final Molecule[][] grid = new Molecule[nXBins][nybins];
-    for (final Molecule m : molecules) {
-      final int xbin = (int) ((m.x - settings.minx) / xBinSize);
-      final int ybin = (int) ((m.y - settings.miny) / yBinSize);
-      // Build a single linked list
-      m.next = grid[xbin][ybin];
-      grid[xbin][ybin] = m;
-    }
-
     // Find the minimum distance between molecules.
-    double distanceMin = Double.POSITIVE_INFINITY;
-
     IJ.showStatus("Computing minimum distance ...");
-    IJ.showProgress(0);
-    final Molecule[] neighbours = new Molecule[5];
-    for (int ybin = 0, currentIndex = 0, finalIndex = nXBins * nybins; ybin < nybins; ybin++) {
-      for (int xbin = 0; xbin < nXBins; xbin++) {
-        IJ.showProgress(currentIndex, finalIndex);
-
-        for (Molecule m1 = grid[xbin][ybin]; m1 != null; m1 = m1.next) {
-          // Build a list of which cells to compare up to a maximum of 4
-          // @formatter:off
-          //      | 0,0 | 1,0
-          // ------------+-----
-          // -1,1 | 0,1 | 1,1
-          // @formatter:on
-
-          int count = 0;
-          neighbours[count++] = m1.next;
-
-          if (ybin < nybins - 1) {
-            neighbours[count++] = grid[xbin][ybin + 1];
-            if (xbin > 0) {
-              neighbours[count++] = grid[xbin - 1][ybin + 1];
-            }
-          }
-          if (xbin < nXBins - 1) {
-            neighbours[count++] = grid[xbin + 1][ybin];
-            if (ybin < nybins - 1) {
-              neighbours[count++] = grid[xbin + 1][ybin + 1];
-            }
-          }
-
-          // Compare to neighbours
-          while (count-- > 0) {
-            for (Molecule m2 = neighbours[count]; m2 != null; m2 = m2.next) {
-              if (distanceMin > m1.distance2(m2)) {
-                distanceMin = m1.distance2(m2);
-              }
-            }
-          }
-        }
-      }
-    }
+    final double distanceMin =
+        findMinimumDistance(molecules, settings.minx, settings.miny, settings.maxx, settings.maxy);
     ImageJUtils.finished();
 
-    settings.nmPerPixel = Math.sqrt(distanceMin);
+    settings.nmPerPixel = distanceMin;
     log("Minimum distance between molecules = %g nm", settings.nmPerPixel);
     if (settings.nmPerPixel == 0 && settings.nmPerPixelLimit == 0) {
       IJ.error(TITLE, "Zero minimum distance between molecules - please enter a nm/pixel limit "
@@ -2008,6 +2002,139 @@ public class PcPalmMolecules implements PlugIn {
     return true;
   }
 
+  /**
+   * Find the minimum distance between molecules.
+   *
+   * <p>The molecules are assigned to a grid and each molecule is compared to the molecules in the
+   * same and adjacent cells. The minimum is exact if it is not above the cell size. Otherwise the
+   * grid cell size is increased and the search repeated.
+   *
+   * @param molecules the molecules
+   * @param minx the min x
+   * @param miny the min y
+   * @param maxx the max x
+   * @param maxy the max y
+   * @return the minimum distance (or infinity if there are fewer than 2 molecules)
+   */
+  static double findMinimumDistance(List<Molecule> molecules, double minx, double miny,
+      double maxx, double maxy) {
+    final int size = molecules.size();
+    if (size < 2) {
+      return Double.POSITIVE_INFINITY;
+    }
+    final double rangex = maxx - minx;
+    final double rangey = maxy - miny;
+    final double range = FastMath.max(rangex, rangey);
+    if (range == 0) {
+      return 0;
+    }
+    final double[] x = new double[size];
+    final double[] y = new double[size];
+    for (int i = 0; i < size; i++) {
+      final Molecule m = molecules.get(i);
+      x[i] = m.x;
+      y[i] = m.y;
+    }
+
+    // Start with approximately 1 molecule per cell
+    double cellSize = FastMath.max(Math.sqrt(rangex * rangey / size), range / size);
+    for (;;) {
+      final double d2 = findMinimumDistance2(x, y, minx, miny, rangex, rangey, cellSize);
+      // When the grid is at most 2 cells wide all pairs are compared
+      if (d2 <= cellSize * cellSize || cellSize >= range) {
+        return Math.sqrt(d2);
+      }
+      cellSize *= 2;
+    }
+  }
+
+  /**
+   * Find the minimum squared distance between points in the same or adjacent cells of a grid.
+   *
+   * @param x the x
+   * @param y the y
+   * @param minx the min x
+   * @param miny the min y
+   * @param rangex the range of x
+   * @param rangey the range of y
+   * @param cellSize the cell size
+   * @return the minimum squared distance
+   */
+  private static double findMinimumDistance2(double[] x, double[] y, double minx, double miny,
+      double rangex, double rangey, double cellSize) {
+    final int nx = 1 + (int) (rangex / cellSize);
+    final int ny = 1 + (int) (rangey / cellSize);
+
+    // Sort the points by cell using a counting sort.
+    // The points for cell i are in indices[cellStart[i]] to indices[cellStart[i + 1]].
+    final int[] cell = new int[x.length];
+    final int[] cellStart = new int[nx * ny + 1];
+    for (int i = 0; i < x.length; i++) {
+      final int cx = FastMath.min(nx - 1, (int) ((x[i] - minx) / cellSize));
+      final int cy = FastMath.min(ny - 1, (int) ((y[i] - miny) / cellSize));
+      cell[i] = cy * nx + cx;
+      cellStart[cell[i] + 1]++;
+    }
+    for (int i = 1; i < cellStart.length; i++) {
+      cellStart[i] += cellStart[i - 1];
+    }
+    final int[] indices = new int[x.length];
+    final int[] next = Arrays.copyOf(cellStart, cellStart.length - 1);
+    for (int i = 0; i < x.length; i++) {
+      indices[next[cell[i]]++] = i;
+    }
+
+    // Process each row of cells independently
+    return IntStream.range(0, ny).parallel().mapToDouble(cy -> {
+      double min = Double.POSITIVE_INFINITY;
+      final int[] neighbours = new int[4];
+      for (int cx = 0; cx < nx; cx++) {
+        final int index = cy * nx + cx;
+        // Build a list of which cells to compare up to a maximum of 4
+        // @formatter:off
+        //      | 0,0 | 1,0
+        // ------------+-----
+        // -1,1 | 0,1 | 1,1
+        // @formatter:on
+        int count = 0;
+        if (cy < ny - 1) {
+          neighbours[count++] = index + nx;
+          if (cx > 0) {
+            neighbours[count++] = index + nx - 1;
+          }
+          if (cx < nx - 1) {
+            neighbours[count++] = index + nx + 1;
+          }
+        }
+        if (cx < nx - 1) {
+          neighbours[count++] = index + 1;
+        }
+
+        for (int i = cellStart[index]; i < cellStart[index + 1]; i++) {
+          final int m1 = indices[i];
+          // Compare to the remaining molecules in the same cell
+          for (int j = i + 1; j < cellStart[index + 1]; j++) {
+            min = FastMath.min(min, distance2(x, y, m1, indices[j]));
+          }
+          // Compare to neighbours
+          for (int k = 0; k < count; k++) {
+            final int neighbour = neighbours[k];
+            for (int j = cellStart[neighbour]; j < cellStart[neighbour + 1]; j++) {
+              min = FastMath.min(min, distance2(x, y, m1, indices[j]));
+            }
+          }
+        }
+      }
+      return min;
+    }).min().getAsDouble();
+  }
+
+  private static double distance2(double[] x, double[] y, int i, int j) {
+    final double dx = x[i] - x[j];
+    final double dy = y[i] - y[j];
+    return dx * dx + dy * dy;
+  }
+
   /**
    * Draw an image of the molecules.
    *
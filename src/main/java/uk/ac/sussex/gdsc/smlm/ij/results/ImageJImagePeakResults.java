@@ -49,6 +49,8 @@ import org.apache.commons.lang3.concurrent.ConcurrentRuntimeException;
 
 import java.awt.Rectangle;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Saves the fit results to an ImageJ image.
@@ -118,6 +120,27 @@ public class ImageJImagePeakResults extends ImageJAbstractPeakResults {
    */
   public static final int DISPLAY_Z_POSITION = 0x0400;
 
+  /** The bit shift to convert an image coordinate to a tile coordinate. */
+  private static final int TILE_SHIFT = 6;
+
+  /**
+   * The size of the square tiles used to accumulate the image data. Each tile has its own lock and
+   * dirty flag so fitting threads only contend when writing to the same part of the image and a
+   * repaint only converts the tiles that have changed.
+   */
+  private static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+  /** Mode to sum the values. */
+  private static final int MODE_SUM = 0;
+  /** Mode to replace the values. */
+  private static final int MODE_REPLACE = 1;
+  /** Mode to use the maximum of the values. */
+  private static final int MODE_MAX = 2;
+
+  /** Used to atomically update the size. */
+  private static final AtomicIntegerFieldUpdater<ImageJImagePeakResults> SIZE_UPDATER =
+      AtomicIntegerFieldUpdater.newUpdater(ImageJImagePeakResults.class, "size");
+
   /** The empty value. */
   private double empty;
 
@@ -147,9 +170,13 @@ public class ImageJImagePeakResults extends ImageJAbstractPeakResults {
   protected final float scale;
 
   /** The number of results. */
-  protected int size;
+  protected volatile int size;
 
-  /** The image data. */
+  /**
+   * The image data. This is accumulated in square tiles. Modifications must be made using
+   * {@link #addData(int, int, int[], float[])} or {@link #sumData(int, int, int[], float[])} which
+   * hold the lock for each tile and mark it for repainting.
+   */
   protected double[] data;
 
   /**
@@ -186,6 +213,20 @@ public class ImageJImagePeakResults extends ImageJAbstractPeakResults {
   private long repaintDelay = 1000;
   private int currentFrame;
 
+  // Tiles used to accumulate the data
+  private int dataWidth;
+  private int dataHeight;
+  private int tilesX;
+  private ReentrantLock[] tileLocks;
+  /** Set to true when the tile has been modified. Guarded by the tile lock. */
+  private boolean[] dirtyTiles;
+  /** Tiles copied during the current repaint. Only used by the thread holding the image lock. */
+  private boolean[] paintTiles;
+  private double[] tileMin;
+  private double[] tileMax;
+  /** Copy of the data used to paint the image. Only used by the thread holding the image lock. */
+  private double[] paintData;
+
   /**
    * The x origin. This defines the minimum of the bounding rectangle for displayed coordinates.
    *
@@ -285,6 +326,7 @@ public class ImageJImagePeakResults extends ImageJAbstractPeakResults {
     nextRepaintSize = 20; // Let some results appear before drawing
     nextPaintTime = System.currentTimeMillis() + repaintDelay;
     data = new double[width * height];
+    createTiles(width, height);
 
     // Use negative zero so that we know when positive zero has been written to the array.
     if ((displayFlags & (DISPLAY_MAPPED | DISPLAY_MAP_ZERO)) == (DISPLAY_MAPPED
@@ -442,22 +484,78 @@ public class ImageJImagePeakResults extends ImageJAbstractPeakResults {
   }
 
   /**
-   * Create the image from a clone of the current data. Should only be called by one thread which
+   * Creates the tiles used to accumulate the data.
+   *
+   * @param width the width
+   * @param height the height
+   */
+  private void createTiles(int width, int height) {
+    dataWidth = width;
+    dataHeight = height;
+    tilesX = (width + TILE_SIZE - 1) >> TILE_SHIFT;
+    final int tilesY = (height + TILE_SIZE - 1) >> TILE_SHIFT;
+    final int ntiles = tilesX * tilesY;
+    tileLocks = new ReentrantLock[ntiles];
+    for (int i = 0; i < ntiles; i++) {
+      tileLocks[i] = new ReentrantLock();
+    }
+    dirtyTiles = new boolean[ntiles];
+    paintTiles = new boolean[ntiles];
+    tileMin = new double[ntiles];
+    tileMax = new double[ntiles];
+    paintData = new double[data.length];
+  }
+
+  /**
+   * Gets the tile containing the data index.
+   *
+   * @param index the index
+   * @return the tile
+   */
+  private int getTile(int index) {
+    final int y = index / dataWidth;
+    final int x = index - y * dataWidth;
+    return (y >> TILE_SHIFT) * tilesX + (x >> TILE_SHIFT);
+  }
+
+  /**
+   * Create the image from a copy of the current data. Should only be called by one thread which
    * has the lock so can use class variables and the actual pixel buffer.
+   *
+   * <p>Only the tiles that have been modified since the last call are copied and converted.
    */
   private void createImage() {
-    double[] data;
-
-    synchronized (this.data) {
-      data = this.data.clone();
-      lastPaintSize = this.size;
-      setNextRepaintSize(lastPaintSize);
-      if (repaintDelay != 0) {
-        nextPaintTime = System.currentTimeMillis() + repaintDelay;
+    final double[] data = paintData;
+    final boolean[] changed = paintTiles;
+    int count = 0;
+    for (int tile = 0; tile < changed.length; tile++) {
+      final ReentrantLock lock = tileLocks[tile];
+      lock.lock();
+      try {
+        changed[tile] = dirtyTiles[tile];
+        if (changed[tile]) {
+          dirtyTiles[tile] = false;
+          copyTile(tile, this.data, data);
+          count++;
+        }
+      } finally {
+        lock.unlock();
       }
     }
 
+    lastPaintSize = this.size;
+    setNextRepaintSize(lastPaintSize);
+    if (repaintDelay != 0) {
+      nextPaintTime = System.currentTimeMillis() + repaintDelay;
+    }
+
+    if (count == 0) {
+      // The pixels and display range are unchanged
+      return;
+    }
+
     if ((displayFlags & DISPLAY_EQUALIZED) != 0) {
+      // The equalisation is a function of the entire histogram so all pixels are remapped
       // 16-bit image
 
       // Get the current maximum
@@ -526,61 +624,113 @@ public class ImageJImagePeakResults extends ImageJAbstractPeakResults {
 
       imp.setDisplayRange(0, K);
     } else {
-      // 32-bit image. Just copy the data but find the maximum
+      // 32-bit image. Just copy the changed tiles but find the maximum
       final float[] pixels = (float[]) this.pixels;
-      double max;
-      double min;
-
-      if ((displayFlags & DISPLAY_NEGATIVES) != 0) {
-        // We use NaN to mark the data as empty.
-        // This cannot be displayed in ImageJ so we use -Infinity in the
-        // data as a special value. This is ignored by ImageJ for most
-        // FloatProcessor functionality.
-        int index = findNonNaNIndex(data);
-        if (index == -1) {
+      final boolean negatives = (displayFlags & DISPLAY_NEGATIVES) != 0;
+      for (int tile = 0; tile < changed.length; tile++) {
+        if (changed[tile]) {
+          convertTile(tile, data, pixels, negatives);
+        }
+      }
+
+      double max = tileMax[0];
+      double min = tileMin[0];
+      for (int tile = 1; tile < changed.length; tile++) {
+        if (max < tileMax[tile]) {
+          max = tileMax[tile];
+        }
+        if (min > tileMin[tile]) {
+          min = tileMin[tile];
+        }
+      }
+
+      if (negatives) {
+        if (max < min) {
+          // No data
           max = 1;
           min = 0;
-          Arrays.fill(pixels, Float.NEGATIVE_INFINITY);
-        } else {
-          Arrays.fill(pixels, 0, index, Float.NEGATIVE_INFINITY);
-          max = min = data[index];
-          while (index < data.length) {
-            // Check for NaN
-            if (data[index] != data[index]) {
-              pixels[index] = Float.NEGATIVE_INFINITY;
-            } else {
-              if (max < data[index]) {
-                max = data[index];
-              } else if (min > data[index]) {
-                min = data[index];
-              }
-              pixels[index] = (float) data[index];
-            }
-            index++;
-          }
         }
       } else {
-        max = data[0];
         min = 0;
-        for (int i = 0; i < data.length; i++) {
-          if (max < data[i]) {
-            max = data[i];
-          }
-          pixels[i] = (float) data[i];
-        }
       }
 
       imp.setDisplayRange(min, max);
     }
   }
 
-  private static int findNonNaNIndex(double[] data) {
-    for (int i = 0; i < data.length; i++) {
-      if (!(data[i] != data[i])) {
-        return i;
+  /**
+   * Copy the tile data.
+   *
+   * @param tile the tile
+   * @param source the source
+   * @param destination the destination
+   */
+  private void copyTile(int tile, double[] source, double[] destination) {
+    final int ty = tile / tilesX;
+    final int xmin = (tile - ty * tilesX) << TILE_SHIFT;
+    final int ymin = ty << TILE_SHIFT;
+    final int length = Math.min(xmin + TILE_SIZE, dataWidth) - xmin;
+    final int ymax = Math.min(ymin + TILE_SIZE, dataHeight);
+    for (int y = ymin; y < ymax; y++) {
+      final int index = y * dataWidth + xmin;
+      System.arraycopy(source, index, destination, index, length);
+    }
+  }
+
+  /**
+   * Convert the tile data to the pixels and record the limits of the tile.
+   *
+   * <p>If supporting negatives then NaN is used to mark the data as empty. This cannot be displayed
+   * in ImageJ so we use -Infinity in the pixels as a special value. This is ignored by ImageJ for
+   * most FloatProcessor functionality. A tile with no data has a minimum above the maximum.
+   *
+   * @param tile the tile
+   * @param data the data
+   * @param pixels the pixels
+   * @param negatives Set to true to support negatives
+   */
+  private void convertTile(int tile, double[] data, float[] pixels, boolean negatives) {
+    final int ty = tile / tilesX;
+    final int xmin = (tile - ty * tilesX) << TILE_SHIFT;
+    final int ymin = ty << TILE_SHIFT;
+    final int length = Math.min(xmin + TILE_SIZE, dataWidth) - xmin;
+    final int ymax = Math.min(ymin + TILE_SIZE, dataHeight);
+    double max;
+    double min;
+    if (negatives) {
+      max = Double.NEGATIVE_INFINITY;
+      min = Double.POSITIVE_INFINITY;
+      for (int y = ymin; y < ymax; y++) {
+        for (int index = y * dataWidth + xmin, end = index + length; index < end; index++) {
+          final double value = data[index];
+          // Check for NaN
+          if (value != value) {
+            pixels[index] = Float.NEGATIVE_INFINITY;
+          } else {
+            if (max < value) {
+              max = value;
+            }
+            if (min > value) {
+              min = value;
+            }
+            pixels[index] = (float) value;
+          }
+        }
+      }
+    } else {
+      max = data[ymin * dataWidth + xmin];
+      min = 0;
+      for (int y = ymin; y < ymax; y++) {
+        for (int index = y * dataWidth + xmin, end = index + length; index < end; index++) {
+          if (max < data[index]) {
+            max = data[index];
+          }
+          pixels[index] = (float) data[index];
+        }
       }
     }
-    return -1;
+    tileMin[tile] = min;
+    tileMax[tile] = max;
   }
 
   @Override
@@ -877,27 +1027,66 @@ public class ImageJImagePeakResults extends ImageJAbstractPeakResults {
     updateImage();
   }
 
-  private void addData(int npoints, int nvalues, int[] indices, float[] values) {
-    // Add the values to the configured indices
-    synchronized (data) {
-      this.size += npoints;
+  /**
+   * Add the values to the data indices using the display flags to configure the mode (sum, replace
+   * or max).
+   *
+   * @param npoints the number of points that generated the values
+   * @param nvalues the number of values
+   * @param indices the indices
+   * @param values the values
+   */
+  protected void addData(int npoints, int nvalues, int[] indices, float[] values) {
+    final int mode;
+    if ((displayFlags & DISPLAY_REPLACE) != 0) {
+      mode = MODE_REPLACE;
+    } else if ((displayFlags & DISPLAY_MAX) != 0) {
+      mode = MODE_MAX;
+    } else {
+      mode = MODE_SUM;
+    }
+    addData(npoints, nvalues, indices, values, mode);
+  }
 
-      if ((displayFlags & DISPLAY_REPLACE) != 0) {
-        // Replace the data
-        for (int i = 0; i < nvalues; i++) {
-          data[indices[i]] = values[i];
-        }
-      } else if ((displayFlags & DISPLAY_MAX) != 0) {
-        for (int i = 0; i < nvalues; i++) {
-          data[indices[i]] = max(data[indices[i]], values[i]);
-        }
-      } else {
-        // Add the data
-        for (int i = 0; i < nvalues; i++) {
-          data[indices[i]] += values[i];
-        }
+  /**
+   * Sum the values to the data indices.
+   *
+   * @param npoints the number of points that generated the values
+   * @param nvalues the number of values
+   * @param indices the indices
+   * @param values the values
+   */
+  protected void sumData(int npoints, int nvalues, int[] indices, float[] values) {
+    addData(npoints, nvalues, indices, values, MODE_SUM);
+  }
+
+  private void addData(int npoints, int nvalues, int[] indices, float[] values, int mode) {
+    // Add the values to the configured indices.
+    // Consecutive values in the same tile are added under a single acquisition of the tile lock.
+    int i = 0;
+    while (i < nvalues) {
+      final int tile = getTile(indices[i]);
+      final ReentrantLock lock = tileLocks[tile];
+      lock.lock();
+      try {
+        dirtyTiles[tile] = true;
+        do {
+          final int index = indices[i];
+          if (mode == MODE_SUM) {
+            data[index] += values[i];
+          } else if (mode == MODE_MAX) {
+            data[index] = max(data[index], values[i]);
+          } else {
+            data[index] = values[i];
+          }
+          i++;
+        } while (i < nvalues && getTile(indices[i]) == tile);
+      } finally {
+        lock.unlock();
       }
     }
+
+    SIZE_UPDATER.addAndGet(this, npoints);
   }
 
   private static double max(final double v1, final double v2) {
@@ -990,6 +1179,31 @@ public class ImageJImagePeakResults extends ImageJAbstractPeakResults {
 
     indices[4] = 4;
 
+    getWeightedValues(value, x, y, imageWidth, imageHeight, indices, values);
+  }
+
+  /**
+   * Gets the indices and values to add to the image data to interpolate the value over the 4
+   * closest pixels using bilinear weighting. The pixels at the edge of the image receive the value
+   * that would be interpolated outside the image.
+   *
+   * <p>The location must be within the image, i.e. {@code 0 <= x < width} and
+   * {@code 0 <= y < height}.
+   *
+   * @param value the value
+   * @param x the x position
+   * @param y the y position
+   * @param width the image width
+   * @param height the image height
+   * @param indices the indices (output, length 4)
+   * @param values the values for the indices (output, length 4)
+   */
+  public static void getWeightedValues(float value, float x, float y, int width, int height,
+      int[] indices, float[] values) {
+    final int x1 = (int) x;
+    final int y1 = (int) y;
+    final int index = y1 * width + x1;
+
     // Use bilinear weighting
 
     final float dx = x - x1;
@@ -1003,44 +1217,24 @@ public class ImageJImagePeakResults extends ImageJAbstractPeakResults {
     final int xDelta;
     final int yDelta;
 
-    // Note: The image width/height could be zero making the deltas invalid. However in this case
-    // the
-    // getValue(...) method will never be called.
-
     if (dx < 0.5f) {
       // Interpolate to the lower x pixel
       wx = 0.5f + dx;
-      if (x1 == 0) {
-        xDelta = 0;
-      } else {
-        xDelta = -1;
-      }
+      xDelta = (x1 == 0) ? 0 : -1;
     } else {
       // Interpolate to the upper x pixel
       wx = 1.5f - dx;
-      if (x1 == xlimit) {
-        xDelta = 0;
-      } else {
-        xDelta = 1;
-      }
+      xDelta = (x1 == width - 1) ? 0 : 1;
     }
 
     if (dy < 0.5f) {
       // Interpolate to the lower y pixel
       wy = 0.5f + dy;
-      if (y1 == 0) {
-        yDelta = 0;
-      } else {
-        yDelta = -imageWidth;
-      }
+      yDelta = (y1 == 0) ? 0 : -width;
     } else {
       // Interpolate to the upper y pixel
       wy = 1.5f - dy;
-      if (y1 == ylimit) {
-        yDelta = 0;
-      } else {
-        yDelta = imageWidth;
-      }
+      yDelta = (y1 == height - 1) ? 0 : width;
     }
 
     indices[0] = index;
@@ -1087,8 +1281,13 @@ public class ImageJImagePeakResults extends ImageJAbstractPeakResults {
    * @param peak the peak
    */
   protected void updateToFrame(int peak) {
-    // Stop other threads adding more data
-    synchronized (data) {
+    // Stop other threads adding more data.
+    // Locks are acquired in order. This cannot deadlock with threads adding data as they only
+    // hold one tile lock.
+    for (final ReentrantLock lock : tileLocks) {
+      lock.lock();
+    }
+    try {
       int count = 0;
       final ImageStack stack = imp.getStack();
       peak -= rollingWindowSize;
@@ -1113,11 +1312,20 @@ public class ImageJImagePeakResults extends ImageJAbstractPeakResults {
 
         resetData();
       }
+    } finally {
+      for (final ReentrantLock lock : tileLocks) {
+        lock.unlock();
+      }
     }
   }
 
+  /**
+   * Reset the data to empty. The caller must hold all the tile locks or have exclusive access to
+   * the data.
+   */
   private void resetData() {
     Arrays.fill(data, empty);
+    Arrays.fill(dirtyTiles, true);
   }
 
   /**
@@ -27,6 +27,8 @@ package uk.ac.sussex.gdsc.smlm.ij.results;
 import uk.ac.sussex.gdsc.smlm.data.config.ResultsProtos.ResultsImageMode;
 import uk.ac.sussex.gdsc.smlm.data.config.ResultsProtos.ResultsImageType;
 
+import ij.Prefs;
+
 import java.awt.Rectangle;
 
 /**
@@ -71,6 +73,7 @@ public class ImagePeakResultsFactory {
             || resultsImage == ResultsImageType.DRAW_LOCALISATIONS_PRECISION) {
           image2.setCalculatedPrecision(true);
         }
+        image2.setNumberOfThreads(Prefs.getThreads());
         image = image2;
         break;
 
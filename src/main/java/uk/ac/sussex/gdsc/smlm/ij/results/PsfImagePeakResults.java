@@ -26,6 +26,7 @@ package uk.ac.sussex.gdsc.smlm.ij.results;
 
 import uk.ac.sussex.gdsc.core.data.NotImplementedException;
 import uk.ac.sussex.gdsc.core.data.utils.TypeConverter;
+import uk.ac.sussex.gdsc.core.utils.concurrent.ConcurrencyUtils;
 import uk.ac.sussex.gdsc.smlm.data.config.ConfigurationException;
 import uk.ac.sussex.gdsc.smlm.data.config.PsfHelper;
 import uk.ac.sussex.gdsc.smlm.data.config.UnitConverterUtils;
@@ -37,11 +38,22 @@ import uk.ac.sussex.gdsc.smlm.results.PeakResult;
 import org.apache.commons.math3.util.FastMath;
 
 import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Draws the fit results using the Gaussian PSF to an ImageJ image.
  */
 public class PsfImagePeakResults extends ImageJImagePeakResults {
+  /** The bit shift to convert an image coordinate to a spatial bin used for parallel rendering. */
+  private static final int BIN_SHIFT = 7;
+
+  /** The minimum number of results to use parallel rendering. */
+  private static final int MIN_PARALLEL_SIZE = 1000;
+
   private boolean fixedWidth;
   private float psfWidth;
   private boolean calculatedPrecision;
@@ -57,6 +69,9 @@ public class PsfImagePeakResults extends ImageJImagePeakResults {
   // Multiplication factors and variables for plotting the fixed Gaussian
   private double[] fixedParams;
 
+  private int numberOfThreads = 1;
+  private ExecutorService executor;
+
   /**
    * Instantiates a new PSF image peak results.
    *
@@ -173,8 +188,8 @@ public class PsfImagePeakResults extends ImageJImagePeakResults {
   }
 
   private void addPeak(int peak, float noise, float[] params) {
-    float x = mapX(params[PeakResult.X]);
-    float y = mapY(params[PeakResult.Y]);
+    final float x = mapX(params[PeakResult.X]);
+    final float y = mapY(params[PeakResult.Y]);
 
     // Check bounds
     if (x < 0 || x >= imageWidth || y < 0 || y >= imageHeight) {
@@ -183,36 +198,94 @@ public class PsfImagePeakResults extends ImageJImagePeakResults {
 
     checkAndUpdateToFrame(peak);
 
-    // Initialise for a free Gaussian function:
-    // f(x,y) = A exp(-(a(x-x0)(x-x0) + 2b(x-x0)(y-y0) + c(y-y0)(y-y0)))
-    // See: http://en.wikipedia.org/wiki/Gaussian_function#Two-dimensional_Gaussian_function
+    final int[] bounds = new int[4];
+    final float[] value = computePsf(x, y, getAmplitude(params), getPsfParameters(noise, params),
+        bounds);
 
-    final float amplitude =
-        ((displayFlags & DISPLAY_SIGNAL) != 0) ? calculator.getAmplitude(params) : 1;
+    final int[] index = new int[value.length];
+    int i1 = 0;
+    for (int y0 = bounds[2]; y0 <= bounds[3]; y0++) {
+      for (int x0 = bounds[0]; x0 <= bounds[1]; x0++) {
+        index[i1++] = y0 * imageWidth + x0;
+      }
+    }
+
+    // Now add the values to the configured indices
+    sumData(1, i1, index, value);
+  }
+
+  /**
+   * Gets the amplitude used to draw the peak.
+   *
+   * @param params the peak params
+   * @return the amplitude
+   */
+  private float getAmplitude(float[] params) {
+    return ((displayFlags & DISPLAY_SIGNAL) != 0) ? calculator.getAmplitude(params) : 1;
+  }
 
-    final double[] psfParams;
+  /**
+   * Gets the PSF parameters for the peak.
+   *
+   * @param noise the peak noise
+   * @param params the peak params
+   * @return the PSF parameters
+   * @see #getPsfParameters(double, double, double)
+   */
+  private double[] getPsfParameters(float noise, float[] params) {
     if (fixedWidth) {
-      psfParams = fixedParams;
+      return fixedParams;
+    }
+    // Precalculate multiplication factors
+    final double t;
+    final double sx;
+    final double sy;
+    if (calculatedPrecision) {
+      t = 0.0;
+      final double precision = calculator.getLsePrecision(params, noise);
+      sx = sy = dc.convert(precision);
     } else {
-      // Precalculate multiplication factors
-      final double t;
-      final double sx;
-      final double sy;
-      if (calculatedPrecision) {
-        t = 0.0;
-        final double precision = calculator.getLsePrecision(params, noise);
-        sx = sy = dc.convert(precision);
-      } else {
-        sx = params[isx];
-        sy = params[isy];
-        t = (ia != 0) ? params[ia] : 0;
-      }
-      psfParams = getPsfParameters(t, sx, sy);
+      sx = params[isx];
+      sy = params[isy];
+      t = (ia != 0) ? params[ia] : 0;
     }
+    return getPsfParameters(t, sx, sy);
+  }
 
-    final double a = psfParams[0];
-    final double b = psfParams[1];
-    final double c = psfParams[2];
+  /**
+   * Compute the Gaussian PSF pixel values for a peak at the mapped location.
+   *
+   * <p>The inclusive bounds of the drawn pixels are stored in the bounds array as
+   * {@code [xmin, xmax, ymin, ymax]}. The values are returned in row-major order within the bounds.
+   *
+   * @param x the mapped x position
+   * @param y the mapped y position
+   * @param amplitude the amplitude
+   * @param psfParams the PSF parameters
+   * @param bounds the bounds (output)
+   * @return the values
+   */
+  private float[] computePsf(float x, float y, float amplitude, double[] psfParams,
+      int[] bounds) {
+    computeBounds(x, y, psfParams, bounds);
+    final int w = bounds[1] - bounds[0] + 1;
+    final float[] value = new float[w * (bounds[3] - bounds[2] + 1)];
+    drawPsf(x, y, amplitude, psfParams, bounds, value, bounds[0], bounds[2], w);
+    return value;
+  }
+
+  /**
+   * Compute the bounds of the Gaussian PSF pixels for a peak at the mapped location.
+   *
+   * <p>The inclusive bounds of the pixels are stored in the bounds array as
+   * {@code [xmin, xmax, ymin, ymax]}.
+   *
+   * @param x the mapped x position
+   * @param y the mapped y position
+   * @param psfParams the PSF parameters
+   * @param bounds the bounds (output)
+   */
+  private void computeBounds(float x, float y, double[] psfParams, int[] bounds) {
     final double width = psfParams[3];
     final double height = psfParams[4];
 
@@ -229,26 +302,72 @@ public class PsfImagePeakResults extends ImageJImagePeakResults {
     xmax = (int) FastMath.min(xmax, xlimit);
     ymax = (int) FastMath.min(ymax, ylimit);
 
+    bounds[0] = xmin;
+    bounds[1] = xmax;
+    bounds[2] = ymin;
+    bounds[3] = ymax;
+  }
+
+  /**
+   * Add the Gaussian PSF pixel values for a peak at the mapped location to the data.
+   *
+   * <p>If there is no rotation term the Gaussian is separable and is computed as the product of
+   * two 1D Gaussians. This requires an exponential per row and column rather than per pixel.
+   *
+   * @param x the mapped x position
+   * @param y the mapped y position
+   * @param amplitude the amplitude
+   * @param psfParams the PSF parameters
+   * @param bounds the bounds of the pixels (see {@link #computeBounds(float, float, double[],
+   *        int[])})
+   * @param data the data
+   * @param originX the x origin of the data
+   * @param originY the y origin of the data
+   * @param dataWidth the width of the data
+   */
+  private void drawPsf(float x, float y, float amplitude, double[] psfParams, int[] bounds,
+      float[] data, int originX, int originY, int dataWidth) {
+    // Initialise for a free Gaussian function:
+    // f(x,y) = A exp(-(a(x-x0)(x-x0) + 2b(x-x0)(y-y0) + c(y-y0)(y-y0)))
+    // See: http://en.wikipedia.org/wiki/Gaussian_function#Two-dimensional_Gaussian_function
+    final double a = psfParams[0];
+    final double b = psfParams[1];
+    final double c = psfParams[2];
+
+    // Use 0.5 offset to centre the value in the middle of each pixel
+    x -= 0.5 / scale;
+    y -= 0.5 / scale;
+
+    final int xmin = bounds[0];
+    final int xmax = bounds[1];
+    final int ymin = bounds[2];
+    final int ymax = bounds[3];
+
     // Compute Gaussian PSF
-    final int[] index = new int[(xmax - xmin + 1) * (ymax - ymin + 1)];
-    final float[] value = new float[index.length];
-    int i1 = 0;
-    for (int y0 = ymin; y0 <= ymax; y0++) {
+    final int w = xmax - xmin + 1;
+    if (b == 0) {
+      final double[] gx = new double[w];
       for (int x0 = xmin; x0 <= xmax; x0++) {
-        final int i2 = y0 * imageWidth + x0;
-        index[i1] = i2;
         final float dx = (x0 - x) / scale;
+        gx[x0 - xmin] = amplitude * FastMath.exp(a * dx * dx);
+      }
+      for (int y0 = ymin; y0 <= ymax; y0++) {
         final float dy = (y0 - y) / scale;
-        value[i1] = (float) (amplitude * FastMath.exp(a * dx * dx + b * dx * dy + c * dy * dy));
-        i1++;
+        final double gy = FastMath.exp(c * dy * dy);
+        int index = (y0 - originY) * dataWidth + xmin - originX;
+        for (int i = 0; i < w; i++) {
+          data[index++] += (float) (gx[i] * gy);
+        }
       }
-    }
-
-    // Now add the values to the configured indices
-    synchronized (data) {
-      size++;
-      while (i1-- > 0) {
-        data[index[i1]] += value[i1];
+    } else {
+      for (int y0 = ymin; y0 <= ymax; y0++) {
+        int index = (y0 - originY) * dataWidth + xmin - originX;
+        for (int x0 = xmin; x0 <= xmax; x0++) {
+          final float dx = (x0 - x) / scale;
+          final float dy = (y0 - y) / scale;
+          data[index++] +=
+              (float) (amplitude * FastMath.exp(a * dx * dx + b * dx * dy + c * dy * dy));
+        }
       }
     }
   }
@@ -327,7 +446,13 @@ public class PsfImagePeakResults extends ImageJImagePeakResults {
       return;
     }
 
-    // TODO - Make this more efficient. It could use worker threads to increase speed.
+    if (numberOfThreads > 1 && getRollingWindowSize() <= 0
+        && results.length >= MIN_PARALLEL_SIZE) {
+      addAllParallel(results);
+      updateImage();
+      return;
+    }
+
     int counter = 0;
     for (final PeakResult result : results) {
       addPeak(result.getFrame(), result.getNoise(), result.getParameters());
@@ -341,6 +466,166 @@ public class PsfImagePeakResults extends ImageJImagePeakResults {
     updateImage();
   }
 
+  /**
+   * Draw the results using multiple threads.
+   *
+   * <p>The results are binned using the location in the output image. Each bin is drawn by a single
+   * thread into a local buffer that covers the extent of all the peaks in the bin. The buffer is
+   * then added to the image data.
+   *
+   * <p>Only the order of the results by bin is stored. The PSF of each result is computed within
+   * the bin and added directly to the buffer.
+   *
+   * <p>The image is updated as each bin completes. If the image is no longer active then the
+   * remaining bins are not drawn.
+   *
+   * @param results the results
+   */
+  private void addAllParallel(PeakResult[] results) {
+    final int binsX = (imageWidth + (1 << BIN_SHIFT) - 1) >> BIN_SHIFT;
+    final int binsY = (imageHeight + (1 << BIN_SHIFT) - 1) >> BIN_SHIFT;
+    final int[] binCount = new int[binsX * binsY + 1];
+
+    // Count the peaks in each bin of the image
+    for (final PeakResult result : results) {
+      final int b = getBin(result.getParameters(), binsX);
+      if (b >= 0) {
+        binCount[b + 1]++;
+      }
+    }
+
+    // Sort the peaks by bin
+    for (int b = 1; b < binCount.length; b++) {
+      binCount[b] += binCount[b - 1];
+    }
+    final int[] offset = binCount.clone();
+    final int[] order = new int[binCount[binCount.length - 1]];
+    for (int i = 0; i < results.length; i++) {
+      final int b = getBin(results[i].getParameters(), binsX);
+      if (b >= 0) {
+        order[offset[b]++] = i;
+      }
+    }
+
+    final List<Integer> bins = new ArrayList<>();
+    for (int b = 0; b < binCount.length - 1; b++) {
+      if (binCount[b + 1] > binCount[b]) {
+        bins.add(b);
+      }
+    }
+    if (bins.isEmpty()) {
+      return;
+    }
+
+    final ExecutorService executorService = getExecutor();
+    final List<Future<?>> futures = new ArrayList<>(bins.size());
+    for (final Integer b : bins) {
+      final int from = binCount[b];
+      final int to = binCount[b + 1];
+      futures.add(executorService.submit(() -> {
+        // Find the extent of the bin
+        final int[] bounds = new int[4];
+        int xmin = imageWidth;
+        int xmax = 0;
+        int ymin = imageHeight;
+        int ymax = 0;
+        for (int j = from; j < to; j++) {
+          final PeakResult result = results[order[j]];
+          final float[] params = result.getParameters();
+          computeBounds(mapX(params[PeakResult.X]), mapY(params[PeakResult.Y]),
+              getPsfParameters(result.getNoise(), params), bounds);
+          xmin = Math.min(xmin, bounds[0]);
+          xmax = Math.max(xmax, bounds[1]);
+          ymin = Math.min(ymin, bounds[2]);
+          ymax = Math.max(ymax, bounds[3]);
+        }
+
+        // Render to a local buffer
+        final int w = xmax - xmin + 1;
+        final float[] buffer = new float[w * (ymax - ymin + 1)];
+        for (int j = from; j < to; j++) {
+          final PeakResult result = results[order[j]];
+          final float[] params = result.getParameters();
+          final float x = mapX(params[PeakResult.X]);
+          final float y = mapY(params[PeakResult.Y]);
+          final double[] psfParams = getPsfParameters(result.getNoise(), params);
+          computeBounds(x, y, psfParams, bounds);
+          drawPsf(x, y, getAmplitude(params), psfParams, bounds, buffer, xmin, ymin, w);
+        }
+
+        // Merge with the image
+        final int[] index = new int[buffer.length];
+        for (int y0 = ymin, k = 0; y0 <= ymax; y0++) {
+          for (int x0 = xmin; x0 <= xmax; x0++) {
+            index[k++] = y0 * imageWidth + x0;
+          }
+        }
+        sumData(to - from, buffer.length, index, buffer);
+      }));
+    }
+
+    // Update the image between bins. Stop if the image is closed.
+    for (int i = 0; i < futures.size(); i++) {
+      ConcurrencyUtils.waitForCompletionUnchecked(futures.subList(i, i + 1));
+      updateImage();
+      if (!imageActive) {
+        futures.subList(i + 1, futures.size()).forEach(future -> future.cancel(false));
+        return;
+      }
+    }
+  }
+
+  /**
+   * Gets the executor used to draw the results in parallel. This is created when first used and
+   * shutdown when the results are ended.
+   *
+   * @return the executor
+   */
+  private ExecutorService getExecutor() {
+    ExecutorService executorService = executor;
+    if (executorService == null) {
+      executorService = Executors.newFixedThreadPool(numberOfThreads);
+      executor = executorService;
+    }
+    return executorService;
+  }
+
+  /**
+   * Shutdown the executor used to draw the results in parallel.
+   */
+  private void shutdownExecutor() {
+    final ExecutorService executorService = executor;
+    if (executorService != null) {
+      executor = null;
+      executorService.shutdown();
+    }
+  }
+
+  @Override
+  public void end() {
+    try {
+      super.end();
+    } finally {
+      shutdownExecutor();
+    }
+  }
+
+  /**
+   * Gets the bin of the peak in the output image.
+   *
+   * @param params the peak params
+   * @param binsX the number of bins in the x dimension
+   * @return the bin (or -1 if outside the image)
+   */
+  private int getBin(float[] params, int binsX) {
+    final float x = mapX(params[PeakResult.X]);
+    final float y = mapY(params[PeakResult.Y]);
+    if (x < 0 || x >= imageWidth || y < 0 || y >= imageHeight) {
+      return -1;
+    }
+    return ((int) y >> BIN_SHIFT) * binsX + ((int) x >> BIN_SHIFT);
+  }
+
   /**
    * Gets the width for a fixed-width Gaussian..
    *
@@ -385,4 +670,29 @@ public class PsfImagePeakResults extends ImageJImagePeakResults {
   public void setCalculatedPrecision(boolean calculatedPrecision) {
     this.calculatedPrecision = calculatedPrecision;
   }
+
+  /**
+   * Gets the number of threads used to draw the results passed to
+   * {@link #addAll(PeakResult[])}.
+   *
+   * @return the number of threads
+   */
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /**
+   * Sets the number of threads used to draw the results passed to
+   * {@link #addAll(PeakResult[])}. Multiple threads are only used when there is no rolling window.
+   *
+   * @param numberOfThreads the new number of threads
+   */
+  public void setNumberOfThreads(int numberOfThreads) {
+    final int threads = Math.max(1, numberOfThreads);
+    if (threads != this.numberOfThreads) {
+      // Recreate the executor with the new size when next used
+      shutdownExecutor();
+      this.numberOfThreads = threads;
+    }
+  }
 }
@@ -0,0 +1,469 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.ij.results;
+
+import uk.ac.sussex.gdsc.smlm.data.config.UnitProtos.DistanceUnit;
+import uk.ac.sussex.gdsc.smlm.data.config.UnitProtos.IntensityUnit;
+import uk.ac.sussex.gdsc.smlm.results.MemoryPeakResults;
+import uk.ac.sussex.gdsc.smlm.results.procedures.IxyResultProcedure;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.io.FileSaver;
+import ij.process.FloatProcessor;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bins localisations into a multi-resolution pyramid of count and intensity tiles.
+ *
+ * <p>The base level bins the localisations at a fixed scale relative to the bounds. Each higher
+ * level halves the resolution by summing 2x2 pixel blocks of the level below. Each level is stored
+ * as a sparse map of square tiles; tiles with no localisations are not created. The top level is a
+ * single tile.
+ *
+ * <p>An image of any region at any scale up to the base scale can be rendered from the closest
+ * level with an equal or higher resolution without processing the localisations again.
+ */
+public class ResultsImagePyramid {
+  /** The bit shift to convert a level pixel coordinate to a tile coordinate. */
+  private static final int TILE_SHIFT = 8;
+
+  /** The size of the square tiles. */
+  public static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+  /** The mask to convert a level pixel coordinate to a coordinate within a tile. */
+  private static final int TILE_MASK = TILE_SIZE - 1;
+
+  /** The half tile size. */
+  private static final int HALF_TILE_SIZE = TILE_SIZE / 2;
+
+  private final int ox;
+  private final int oy;
+  private final int width;
+  private final int height;
+  private final int scale;
+  private final int[] levelWidth;
+  private final int[] levelHeight;
+  private final List<TLongObjectHashMap<Tile>> levels;
+  private int size;
+  private boolean built;
+
+  /**
+   * A tile of pixel data.
+   */
+  private static class Tile {
+    final float[] count = new float[TILE_SIZE * TILE_SIZE];
+    final float[] intensity = new float[TILE_SIZE * TILE_SIZE];
+  }
+
+  /**
+   * Create a new instance.
+   *
+   * @param bounds Define the bounding rectangle of the localisation coordinates. Any localisations
+   *        outside this are ignored.
+   * @param scale The scale of the base level relative to the bounds. Must be strictly positive.
+   * @throws IllegalArgumentException If the bounds are empty or the scale is not strictly positive
+   */
+  public ResultsImagePyramid(Rectangle bounds, int scale) {
+    if (scale < 1) {
+      throw new IllegalArgumentException("Invalid scale: " + scale);
+    }
+    if (bounds.width < 1 || bounds.height < 1) {
+      throw new IllegalArgumentException("Invalid bounds: " + bounds);
+    }
+    final long baseWidth = (long) bounds.width * scale;
+    final long baseHeight = (long) bounds.height * scale;
+    if (baseWidth > Integer.MAX_VALUE / 2 || baseHeight > Integer.MAX_VALUE / 2) {
+      throw new IllegalArgumentException(
+          "Base level is too large: " + baseWidth + " x " + baseHeight);
+    }
+    ox = bounds.x;
+    oy = bounds.y;
+    width = bounds.width;
+    height = bounds.height;
+    this.scale = scale;
+
+    // Halve the resolution until the level is a single tile
+    final List<int[]> dimensions = new ArrayList<>();
+    int levelW = (int) baseWidth;
+    int levelH = (int) baseHeight;
+    dimensions.add(new int[] {levelW, levelH});
+    while (levelW > TILE_SIZE || levelH > TILE_SIZE) {
+      levelW = (levelW + 1) / 2;
+      levelH = (levelH + 1) / 2;
+      dimensions.add(new int[] {levelW, levelH});
+    }
+    levelWidth = new int[dimensions.size()];
+    levelHeight = new int[dimensions.size()];
+    levels = new ArrayList<>(dimensions.size());
+    for (int i = 0; i < levelWidth.length; i++) {
+      levelWidth[i] = dimensions.get(i)[0];
+      levelHeight[i] = dimensions.get(i)[1];
+      levels.add(new TLongObjectHashMap<>());
+    }
+  }
+
+  /**
+   * Create a pyramid from the results. The localisations are binned using the position in pixels
+   * and the intensity in photons.
+   *
+   * @param results the results
+   * @param scale The scale of the base level relative to the results bounds
+   * @return the pyramid
+   * @throws uk.ac.sussex.gdsc.core.data.utils.ConversionException if the conversion is not
+   *         possible
+   */
+  public static ResultsImagePyramid create(MemoryPeakResults results, int scale) {
+    final ResultsImagePyramid pyramid = new ResultsImagePyramid(results.getBounds(true), scale);
+    results.forEach(IntensityUnit.PHOTON, DistanceUnit.PIXEL,
+        (IxyResultProcedure) pyramid::add);
+    return pyramid;
+  }
+
+  /**
+   * Add a localisation to the base level.
+   *
+   * @param intensity the intensity
+   * @param x the x position
+   * @param y the y position
+   */
+  public void add(float intensity, float x, float y) {
+    final float dx = (x - ox) * scale;
+    final float dy = (y - oy) * scale;
+    if (dx < 0 || dy < 0) {
+      return;
+    }
+    final int px = (int) dx;
+    final int py = (int) dy;
+    if (px >= levelWidth[0] || py >= levelHeight[0]) {
+      return;
+    }
+    final Tile tile = getOrCreateTile(levels.get(0), px >> TILE_SHIFT, py >> TILE_SHIFT);
+    final int index = (py & TILE_MASK) * TILE_SIZE + (px & TILE_MASK);
+    tile.count[index]++;
+    tile.intensity[index] += intensity;
+    size++;
+    built = false;
+  }
+
+  private static long getKey(int tx, int ty) {
+    return ((long) tx << 32) | (ty & 0xffffffffL);
+  }
+
+  private static Tile getOrCreateTile(TLongObjectHashMap<Tile> map, int tx, int ty) {
+    final long key = getKey(tx, ty);
+    Tile tile = map.get(key);
+    if (tile == null) {
+      tile = new Tile();
+      map.put(key, tile);
+    }
+    return tile;
+  }
+
+  /**
+   * Build the higher levels of the pyramid from the base level. This is performed automatically
+   * when rendering or saving if localisations have been added.
+   */
+  public void build() {
+    if (built) {
+      return;
+    }
+    for (int level = 1; level < levels.size(); level++) {
+      final TLongObjectHashMap<Tile> parents = new TLongObjectHashMap<>();
+      levels.get(level - 1).forEachEntry((key, child) -> {
+        final int tx = (int) (key >>> 32);
+        final int ty = (int) key;
+        final Tile parent = getOrCreateTile(parents, tx >> 1, ty >> 1);
+        final int offsetX = (tx & 1) * HALF_TILE_SIZE;
+        final int offsetY = (ty & 1) * HALF_TILE_SIZE;
+        for (int y = 0, i = 0; y < TILE_SIZE; y++) {
+          final int rowIndex = (offsetY + (y >> 1)) * TILE_SIZE + offsetX;
+          for (int x = 0; x < TILE_SIZE; x++, i++) {
+            final int j = rowIndex + (x >> 1);
+            parent.count[j] += child.count[i];
+            parent.intensity[j] += child.intensity[i];
+          }
+        }
+        return true;
+      });
+      levels.set(level, parents);
+    }
+    built = true;
+  }
+
+  /**
+   * Render the full bounds at the given scale.
+   *
+   * @param imageScale the image scale relative to the bounds
+   * @param intensity Set to true to render the intensity; otherwise the count
+   * @return the image
+   * @see #render(Rectangle, double, boolean)
+   */
+  public FloatProcessor render(double imageScale, boolean intensity) {
+    return render(getBounds(), imageScale, intensity);
+  }
+
+  /**
+   * Render the region at the given scale.
+   *
+   * <p>The image is created from the lowest resolution level that has a scale equal to or above
+   * the image scale. Each level pixel is summed into the image pixel containing its centre.
+   *
+   * @param region the region (in the coordinates of the bounds)
+   * @param imageScale the image scale relative to the bounds. Must be strictly positive and not
+   *        above the base scale.
+   * @param intensity Set to true to render the intensity; otherwise the count
+   * @return the image
+   * @throws IllegalArgumentException If the region is empty or the image scale is invalid
+   */
+  public FloatProcessor render(Rectangle region, double imageScale, boolean intensity) {
+    if (!(imageScale > 0 && imageScale <= scale)) {
+      throw new IllegalArgumentException(
+          "Image scale must be in the range (0, " + scale + "]: " + imageScale);
+    }
+    if (region.width < 1 || region.height < 1) {
+      throw new IllegalArgumentException("Invalid region: " + region);
+    }
+    build();
+
+    final int level = getLevel(imageScale);
+    final double levelScale = getLevelScale(level);
+    final int imageWidth = (int) Math.ceil(region.width * imageScale);
+    final int imageHeight = (int) Math.ceil(region.height * imageScale);
+    final float[] pixels = new float[imageWidth * imageHeight];
+
+    // Level pixels that overlap the region
+    final int minX = Math.max(0, (int) Math.floor((region.x - ox) * levelScale));
+    final int maxX =
+        Math.min(levelWidth[level], (int) Math.ceil((region.x + region.width - ox) * levelScale));
+    final int minY = Math.max(0, (int) Math.floor((region.y - oy) * levelScale));
+    final int maxY =
+        Math.min(levelHeight[level], (int) Math.ceil((region.y + region.height - oy) * levelScale));
+    if (minX >= maxX || minY >= maxY) {
+      return new FloatProcessor(imageWidth, imageHeight, pixels);
+    }
+
+    // Map the level pixel centre to the image pixel. -1 is outside the image.
+    final int[] mapX = createMap(minX, maxX, ox - region.x, levelScale, imageScale, imageWidth);
+    final int[] mapY = createMap(minY, maxY, oy - region.y, levelScale, imageScale, imageHeight);
+
+    final TLongObjectHashMap<Tile> tiles = levels.get(level);
+    for (int ty = minY >> TILE_SHIFT, tyMax = (maxY - 1) >> TILE_SHIFT; ty <= tyMax; ty++) {
+      for (int tx = minX >> TILE_SHIFT, txMax = (maxX - 1) >> TILE_SHIFT; tx <= txMax; tx++) {
+        final Tile tile = tiles.get(getKey(tx, ty));
+        if (tile == null) {
+          continue;
+        }
+        final float[] data = (intensity) ? tile.intensity : tile.count;
+        // Intersection of the tile with the level region
+        final int x0 = Math.max(minX, tx << TILE_SHIFT);
+        final int x1 = Math.min(maxX, (tx + 1) << TILE_SHIFT);
+        final int y0 = Math.max(minY, ty << TILE_SHIFT);
+        final int y1 = Math.min(maxY, (ty + 1) << TILE_SHIFT);
+        for (int y = y0; y < y1; y++) {
+          final int iy = mapY[y - minY];
+          if (iy < 0) {
+            continue;
+          }
+          final int rowIndex = (y & TILE_MASK) * TILE_SIZE;
+          final int imageIndex = iy * imageWidth;
+          for (int x = x0; x < x1; x++) {
+            final int ix = mapX[x - minX];
+            if (ix >= 0) {
+              pixels[imageIndex + ix] += data[rowIndex + (x & TILE_MASK)];
+            }
+          }
+        }
+      }
+    }
+
+    return new FloatProcessor(imageWidth, imageHeight, pixels);
+  }
+
+  /**
+   * Create a map from level pixel to image pixel using the pixel centre.
+   *
+   * @param min the min level pixel (inclusive)
+   * @param max the max level pixel (exclusive)
+   * @param offset the offset from the bounds origin to the region origin
+   * @param levelScale the level scale
+   * @param imageScale the image scale
+   * @param size the image size
+   * @return the map
+   */
+  private static int[] createMap(int min, int max, int offset, double levelScale,
+      double imageScale, int size) {
+    final int[] map = new int[max - min];
+    for (int i = min; i < max; i++) {
+      final double position = ((i + 0.5) / levelScale + offset) * imageScale;
+      final int index = (int) Math.floor(position);
+      map[i - min] = (index >= 0 && index < size) ? index : -1;
+    }
+    return map;
+  }
+
+  /**
+   * Gets the lowest resolution level with a scale equal to or above the image scale.
+   *
+   * @param imageScale the image scale
+   * @return the level
+   */
+  public int getLevel(double imageScale) {
+    int level = 0;
+    while (level + 1 < levels.size() && getLevelScale(level + 1) >= imageScale) {
+      level++;
+    }
+    return level;
+  }
+
+  /**
+   * Save the pyramid to the directory. Each non-empty tile is saved as a TIFF stack of two slices
+   * (count and intensity) to {@code directory/<level>/<tx>_<ty>.tif}. Edge tiles are cropped to the
+   * level dimensions.
+   *
+   * @param directory the directory
+   * @return true if successful
+   */
+  public boolean save(String directory) {
+    build();
+    for (int level = 0; level < levels.size(); level++) {
+      final File dir = new File(directory, Integer.toString(level));
+      if (!dir.isDirectory() && !dir.mkdirs()) {
+        return false;
+      }
+      final int levelW = levelWidth[level];
+      final int levelH = levelHeight[level];
+      final boolean ok = levels.get(level).forEachEntry((key, tile) -> {
+        final int tx = (int) (key >>> 32);
+        final int ty = (int) key;
+        final int tileWidth = Math.min(TILE_SIZE, levelW - (tx << TILE_SHIFT));
+        final int tileHeight = Math.min(TILE_SIZE, levelH - (ty << TILE_SHIFT));
+        final ImageStack stack = new ImageStack(tileWidth, tileHeight);
+        stack.addSlice("Count", crop(tile.count, tileWidth, tileHeight));
+        stack.addSlice("Intensity", crop(tile.intensity, tileWidth, tileHeight));
+        final String path = new File(dir, tx + "_" + ty + ".tif").getPath();
+        return new FileSaver(new ImagePlus(tx + "_" + ty, stack)).saveAsTiffStack(path);
+      });
+      if (!ok) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static float[] crop(float[] data, int tileWidth, int tileHeight) {
+    if (tileWidth == TILE_SIZE && tileHeight == TILE_SIZE) {
+      return data.clone();
+    }
+    final float[] pixels = new float[tileWidth * tileHeight];
+    for (int y = 0; y < tileHeight; y++) {
+      System.arraycopy(data, y * TILE_SIZE, pixels, y * tileWidth, tileWidth);
+    }
+    return pixels;
+  }
+
+  /**
+   * Gets the bounds of the localisation coordinates.
+   *
+   * @return the bounds
+   */
+  public Rectangle getBounds() {
+    return new Rectangle(ox, oy, width, height);
+  }
+
+  /**
+   * Gets the scale of the base level relative to the bounds.
+   *
+   * @return the scale
+   */
+  public int getScale() {
+    return scale;
+  }
+
+  /**
+   * Gets the number of levels.
+   *
+   * @return the number of levels
+   */
+  public int getLevels() {
+    return levels.size();
+  }
+
+  /**
+   * Gets the scale of the level relative to the bounds.
+   *
+   * @param level the level
+   * @return the level scale
+   */
+  public double getLevelScale(int level) {
+    return (double) scale / (1L << level);
+  }
+
+  /**
+   * Gets the width of the level.
+   *
+   * @param level the level
+   * @return the level width
+   */
+  public int getLevelWidth(int level) {
+    return levelWidth[level];
+  }
+
+  /**
+   * Gets the height of the level.
+   *
+   * @param level the level
+   * @return the level height
+   */
+  public int getLevelHeight(int level) {
+    return levelHeight[level];
+  }
+
+  /**
+   * Gets the number of non-empty tiles in the level.
+   *
+   * @param level the level
+   * @return the number of tiles
+   */
+  public int getTileCount(int level) {
+    build();
+    return levels.get(level).size();
+  }
+
+  /**
+   * Gets the number of localisations added to the pyramid.
+   *
+   * @return the size
+   */
+  public int size() {
+    return size;
+  }
+}
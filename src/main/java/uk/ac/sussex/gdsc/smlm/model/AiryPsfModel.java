@@ -529,6 +529,26 @@ public class AiryPsfModel extends PsfModel {
     this.zDepth = Math.abs(zDepth);
   }
 
+  /**
+   * Gets the width in dimension 0 for the given z-depth.
+   *
+   * @param z the z
+   * @return the w0
+   */
+  public double getW0(double z) {
+    return createWidthScale(z) * zeroW0;
+  }
+
+  /**
+   * Gets the width in dimension 1 for the given z-depth.
+   *
+   * @param z the z
+   * @return the w1
+   */
+  public double getW1(double z) {
+    return createWidthScale(z) * zeroW1;
+  }
+
   /**
    * Gets width in dimension 0 for the last drawn Airy pattern.
    *
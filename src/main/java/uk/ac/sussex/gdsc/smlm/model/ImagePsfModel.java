@@ -846,6 +846,36 @@ public class ImagePsfModel extends PsfModel {
     return hwhm1[lastSlice];
   }
 
+  /**
+   * Gets the half-width at half-maximum (HWHM) in dimension 0 for the given z-depth.
+   *
+   * @param z the z
+   * @return The half-width at half-maximum (HWHM) in dimension 0
+   */
+  public double getHwhm0(double z) {
+    final int slice = (int) Math.round(z / unitsPerSlice) + zCentre;
+    if (slice < 0 || slice >= sumImage.length) {
+      return 0;
+    }
+    initialiseHwhm();
+    return hwhm0[slice];
+  }
+
+  /**
+   * Gets the half-width at half-maximum (HWHM) in dimension 1 for the given z-depth.
+   *
+   * @param z the z
+   * @return The half-width at half-maximum (HWHM) in dimension 1
+   */
+  public double getHwhm1(double z) {
+    final int slice = (int) Math.round(z / unitsPerSlice) + zCentre;
+    if (slice < 0 || slice >= sumImage.length) {
+      return 0;
+    }
+    initialiseHwhm();
+    return hwhm1[slice];
+  }
+
   /**
    * Gets the HWHM table for dimension 0 for all the slices.
    *
@@ -0,0 +1,473 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.model;
+
+import uk.ac.sussex.gdsc.core.utils.MathUtils;
+import uk.ac.sussex.gdsc.core.utils.ValidationUtils;
+
+import org.apache.commons.rng.UniformRandomProvider;
+
+import java.util.Arrays;
+
+/**
+ * Contains methods for generating models of a Point Spread Function using a table of precomputed
+ * PSF stamps.
+ *
+ * <p>The table is created from a source PSF model. Each stamp is the PSF evaluated on a square grid
+ * of pixels with the centre offset by a sub-pixel phase. The phase is sampled on a regular grid of
+ * {@code phases} intervals in each dimension for each z-plane. Rendering a PSF uses the nearest
+ * z-plane and a bilinear blend of the four stamps that enclose the sub-pixel phase of the centre.
+ * The accuracy is controlled by the number of phases and the z-step of the table.
+ *
+ * <p>The table is immutable and shared between copies of the model allowing use by multiple
+ * threads.
+ *
+ * <p>Sampling selects pixels from the blended stamp in proportion to the PSF value. The sampled
+ * positions are therefore at pixel resolution.
+ */
+public class StampPsfModel extends PsfModel {
+  /** The maximum number of values in the stamp table. */
+  private static final long MAX_TABLE_SIZE = 1L << 27;
+
+  /** The maximum radius of a stamp. */
+  private static final int MAX_RADIUS = 64;
+
+  private final PsfModel model;
+  private final StampTable table;
+
+  /** Working space for sampling. */
+  private double[] cumulative;
+
+  /**
+   * Immutable table of the PSF stamps.
+   */
+  private static final class StampTable {
+    final int phases;
+    final int radius;
+    final int size;
+    final double zmin;
+    final double zstep;
+    final int zplanes;
+    /** The stamps indexed by [z-plane][phase1][phase0]. */
+    final float[][] stamps;
+
+    StampTable(PsfModel model, int phases, int radius, double zmin, double zstep, int zplanes) {
+      this.phases = phases;
+      this.radius = radius;
+      this.size = 2 * radius + 1;
+      this.zmin = zmin;
+      this.zstep = zstep;
+      this.zplanes = zplanes;
+      final int p1 = phases + 1;
+      stamps = new float[zplanes * p1 * p1][];
+      for (int z = 0, index = 0; z < zplanes; z++) {
+        final double x2 = zmin + z * zstep;
+        for (int j = 0; j < p1; j++) {
+          final double x1 = radius + (double) j / phases;
+          for (int i = 0; i < p1; i++) {
+            final float[] stamp = new float[size * size];
+            model.create3D(stamp, size, size, 1, radius + (double) i / phases, x1, x2, null);
+            stamps[index++] = stamp;
+          }
+        }
+      }
+    }
+
+    /**
+     * Gets the index of the nearest z-plane.
+     *
+     * @param x2 the z position
+     * @return the z-plane
+     */
+    int getZPlane(double x2) {
+      if (zplanes == 1) {
+        return 0;
+      }
+      return MathUtils.clip(0, zplanes - 1, (int) Math.round((x2 - zmin) / zstep));
+    }
+
+    /**
+     * Gets the stamp.
+     *
+     * @param z the z-plane
+     * @param phase1 the phase in dimension 1
+     * @param phase0 the phase in dimension 0
+     * @return the stamp
+     */
+    float[] getStamp(int z, int phase1, int phase0) {
+      final int p1 = phases + 1;
+      return stamps[(z * p1 + phase1) * p1 + phase0];
+    }
+  }
+
+  /**
+   * Instantiates a new stamp PSF model for a single z-plane at z=0.
+   *
+   * @param model the source PSF model
+   * @param phases the number of sub-pixel phases in each dimension
+   * @throws IllegalArgumentException If the table cannot be created
+   */
+  public StampPsfModel(PsfModel model, int phases) {
+    this(model, phases, 0, 0, 0);
+  }
+
+  /**
+   * Instantiates a new stamp PSF model. The z-planes are created from the minimum to the maximum
+   * (inclusive) using the z-step.
+   *
+   * <p>The radius of the stamps is determined by evaluating the source model for each z-plane.
+   *
+   * @param model the source PSF model
+   * @param phases the number of sub-pixel phases in each dimension
+   * @param zmin the minimum z
+   * @param zmax the maximum z
+   * @param zstep the z step between planes (ignored if the minimum and maximum are equal)
+   * @throws IllegalArgumentException If the table cannot be created
+   */
+  public StampPsfModel(PsfModel model, int phases, double zmin, double zmax, double zstep) {
+    ValidationUtils.checkNotNull(model, "Model must not be null");
+    ValidationUtils.checkStrictlyPositive(phases, "Phases");
+    if (zmax < zmin) {
+      throw new IllegalArgumentException("Max z is below min z");
+    }
+    int zplanes = 1;
+    if (zmax > zmin) {
+      ValidationUtils.checkStrictlyPositive(zstep, "Z-step");
+      zplanes = (int) Math.ceil((zmax - zmin) / zstep) + 1;
+    }
+    this.model = model.copy();
+    final int radius = findRadius(this.model, zmin, zstep, zplanes);
+    final long size = 2L * radius + 1;
+    final long p1 = phases + 1L;
+    if (zplanes * p1 * p1 * size * size > MAX_TABLE_SIZE) {
+      throw new IllegalArgumentException("Stamp table is too large");
+    }
+    table = new StampTable(this.model, phases, radius, zmin, zstep, zplanes);
+  }
+
+  /**
+   * Copy constructor.
+   *
+   * @param source the source
+   */
+  protected StampPsfModel(StampPsfModel source) {
+    this.model = source.model;
+    this.table = source.table;
+  }
+
+  @Override
+  public StampPsfModel copy() {
+    return new StampPsfModel(this);
+  }
+
+  /**
+   * Find the radius required to contain the PSF for all the z-planes. The radius includes a margin
+   * of 1 pixel for the shift of the sub-pixel phase.
+   *
+   * @param model the model
+   * @param zmin the minimum z
+   * @param zstep the z step
+   * @param zplanes the number of z-planes
+   * @return the radius
+   */
+  private static int findRadius(PsfModel model, double zmin, double zstep, int zplanes) {
+    final int size = 2 * MAX_RADIUS + 1;
+    final double centre = MAX_RADIUS + 0.5;
+    int extent = -1;
+    for (int z = 0; z < zplanes; z++) {
+      if (model.create3D((double[]) null, size, size, 1, centre, centre, zmin + z * zstep,
+          null) == 0) {
+        continue;
+      }
+      extent = Math.max(extent, Math.max(MAX_RADIUS - model.getX0min(),
+          MAX_RADIUS - model.getX1min()));
+      extent = Math.max(extent, Math.max(model.getX0max() - MAX_RADIUS - 1,
+          model.getX1max() - MAX_RADIUS - 1));
+    }
+    if (extent < 0) {
+      throw new IllegalArgumentException("Model has no extent");
+    }
+    return Math.min(MAX_RADIUS, extent + 1);
+  }
+
+  /**
+   * Gets the source PSF model used to create the table.
+   *
+   * <p>Note that rendering using the table does not change the state of the source model, i.e. the
+   * properties of the last drawn PSF.
+   *
+   * @return the model
+   */
+  public PsfModel getModel() {
+    return model;
+  }
+
+  /**
+   * Gets the number of sub-pixel phases in each dimension.
+   *
+   * @return the phases
+   */
+  public int getPhases() {
+    return table.phases;
+  }
+
+  /**
+   * Gets the radius of the stamps. The stamps are square with an edge of 2 * radius + 1.
+   *
+   * @return the radius
+   */
+  public int getRadius() {
+    return table.radius;
+  }
+
+  /**
+   * Gets the number of z-planes.
+   *
+   * @return the number of z-planes
+   */
+  public int getZPlanes() {
+    return table.zplanes;
+  }
+
+  @Override
+  public double create3D(float[] data, final int width, final int height, final double sum,
+      double x0, double x1, double x2, UniformRandomProvider rng) {
+    if (sum == 0) {
+      return 0;
+    }
+    final int size = checkSize(width, height);
+    if (data == null) {
+      data = new float[size];
+    } else if (data.length < size) {
+      throw new IllegalArgumentException("Data length cannot be smaller than width * height");
+    }
+    final int[] bounds = new int[4];
+    final double[] psf = render(width, height, sum, x0, x1, x2, bounds);
+    return insert(data, bounds[0], bounds[1], bounds[2], bounds[3], width, psf, rng);
+  }
+
+  @Override
+  public double create3D(double[] data, final int width, final int height, final double sum,
+      double x0, double x1, double x2, UniformRandomProvider rng) {
+    if (sum == 0) {
+      return 0;
+    }
+    final int size = checkSize(width, height);
+    if (data == null) {
+      data = new double[size];
+    } else if (data.length < size) {
+      throw new IllegalArgumentException("Data length cannot be smaller than width * height");
+    }
+    final int[] bounds = new int[4];
+    final double[] psf = render(width, height, sum, x0, x1, x2, bounds);
+    return insert(data, bounds[0], bounds[1], bounds[2], bounds[3], width, psf, rng);
+  }
+
+  /**
+   * Render the PSF within the data bounds using a bilinear blend of the stamps.
+   *
+   * @param width The data width
+   * @param height The data height
+   * @param sum The integral
+   * @param x0 The centre in dimension 0
+   * @param x1 The centre in dimension 1
+   * @param x2 The centre in dimension 2
+   * @param bounds The output bounds of the PSF in the data: [x0min, x1min, x0max, x1max]
+   * @return the PSF (packed in yx order)
+   */
+  private double[] render(int width, int height, double sum, double x0, double x1, double x2,
+      int[] bounds) {
+    final int size = table.size;
+    final int i0 = (int) Math.floor(x0);
+    final int i1 = (int) Math.floor(x1);
+    // The stamp origin in the data
+    final int origin0 = i0 - table.radius;
+    final int origin1 = i1 - table.radius;
+    final int x0min = Math.max(0, origin0);
+    final int x1min = Math.max(0, origin1);
+    final int x0max = Math.min(width, origin0 + size);
+    final int x1max = Math.min(height, origin1 + size);
+    bounds[0] = x0min;
+    bounds[1] = x1min;
+    bounds[2] = x0max;
+    bounds[3] = x1max;
+    final int x0range = x0max - x0min;
+    final int x1range = x1max - x1min;
+    if (x0range < 1 || x1range < 1) {
+      return null;
+    }
+
+    final double[] w = new double[4];
+    final float[][] stamps = getStamps(x0 - i0, x1 - i1, x2, w);
+    final float[] s00 = stamps[0];
+    final float[] s01 = stamps[1];
+    final float[] s10 = stamps[2];
+    final float[] s11 = stamps[3];
+    final double w00 = sum * w[0];
+    final double w01 = sum * w[1];
+    final double w10 = sum * w[2];
+    final double w11 = sum * w[3];
+
+    final double[] psf = new double[x0range * x1range];
+    for (int y = 0, i = 0; y < x1range; y++) {
+      int index = (y + x1min - origin1) * size + x0min - origin0;
+      for (int x = 0; x < x0range; x++, i++, index++) {
+        psf[i] = w00 * s00[index] + w01 * s01[index] + w10 * s10[index] + w11 * s11[index];
+      }
+    }
+    return psf;
+  }
+
+  /**
+   * Gets the four stamps that enclose the sub-pixel phase and the weights for the bilinear blend.
+   * The stamps are returned in the order [phase1][phase0]: (0,0), (0,1), (1,0), (1,1).
+   *
+   * @param f0 The fractional position in dimension 0 (in the range 0-1)
+   * @param f1 The fractional position in dimension 1 (in the range 0-1)
+   * @param x2 The centre in dimension 2
+   * @param weights the weights (output)
+   * @return the stamps
+   */
+  private float[][] getStamps(double f0, double f1, double x2, double[] weights) {
+    final int phases = table.phases;
+    final double p0 = f0 * phases;
+    final double p1 = f1 * phases;
+    final int j0 = Math.min(phases - 1, (int) p0);
+    final int j1 = Math.min(phases - 1, (int) p1);
+    final double u0 = p0 - j0;
+    final double u1 = p1 - j1;
+    weights[0] = (1 - u0) * (1 - u1);
+    weights[1] = u0 * (1 - u1);
+    weights[2] = (1 - u0) * u1;
+    weights[3] = u0 * u1;
+    final int z = table.getZPlane(x2);
+    return new float[][] {table.getStamp(z, j1, j0), table.getStamp(z, j1, j0 + 1),
+        table.getStamp(z, j1 + 1, j0), table.getStamp(z, j1 + 1, j0 + 1)};
+  }
+
+  @Override
+  public int sample3D(float[] data, int width, int height, int n, double x0, double x1, double x2,
+      UniformRandomProvider rng) {
+    if (n <= 0) {
+      return insertSample(data, width, height, null, null);
+    }
+    final double[][] sample = sample(n, x0, x1, x2, rng);
+    return insertSample(data, width, height, sample[0], sample[1]);
+  }
+
+  @Override
+  public int sample3D(double[] data, int width, int height, int n, double x0, double x1, double x2,
+      UniformRandomProvider rng) {
+    if (n <= 0) {
+      return insertSample(data, width, height, null, null);
+    }
+    final double[][] sample = sample(n, x0, x1, x2, rng);
+    return insertSample(data, width, height, sample[0], sample[1]);
+  }
+
+  /**
+   * Sample from the PSF. Samples are drawn from the pixels of the blended stamp in proportion to the
+   * PSF value. Samples that fall outside the stamp are discarded.
+   *
+   * @param n The number of samples
+   * @param x0 The centre in dimension 0
+   * @param x1 The centre in dimension 1
+   * @param x2 The centre in dimension 2
+   * @param rng The random generator to use for sampling
+   * @return The sample x and y values
+   */
+  public double[][] sample(final int n, final double x0, final double x1, final double x2,
+      UniformRandomProvider rng) {
+    final int size = table.size;
+    final int i0 = (int) Math.floor(x0);
+    final int i1 = (int) Math.floor(x1);
+    final int origin0 = i0 - table.radius;
+    final int origin1 = i1 - table.radius;
+
+    final double[] w = new double[4];
+    final float[][] stamps = getStamps(x0 - i0, x1 - i1, x2, w);
+    final float[] s00 = stamps[0];
+    final float[] s01 = stamps[1];
+    final float[] s10 = stamps[2];
+    final float[] s11 = stamps[3];
+
+    // Build the cumulative distribution of the blended stamp
+    double[] sum = cumulative;
+    if (sum == null) {
+      sum = new double[s00.length];
+      cumulative = sum;
+    }
+    double total = 0;
+    for (int i = 0; i < sum.length; i++) {
+      total += w[0] * s00[i] + w[1] * s01[i] + w[2] * s10[i] + w[3] * s11[i];
+      sum[i] = total;
+    }
+
+    final double[] x = new double[n];
+    final double[] y = new double[n];
+    int count = 0;
+    for (int i = 0; i < n; i++) {
+      final double p = rng.nextDouble();
+      // Samples above the total are outside the stamp
+      if (p < total) {
+        final int index = findIndex(sum, p);
+        x[count] = origin0 + index % size;
+        y[count] = origin1 + index / size;
+        count++;
+      }
+    }
+
+    return new double[][] {Arrays.copyOf(x, count), Arrays.copyOf(y, count)};
+  }
+
+  /**
+   * Find the first index such that p < sum[index]. Assumes p is below the final value.
+   *
+   * @param sum the cumulative sum
+   * @param pvalue the p
+   * @return the index
+   */
+  private static int findIndex(double[] sum, double pvalue) {
+    int lower = 0;
+    int upper = sum.length - 1;
+    while (lower < upper) {
+      final int mid = (lower + upper) >>> 1;
+      if (pvalue < sum[mid]) {
+        upper = mid;
+      } else {
+        lower = mid + 1;
+      }
+    }
+    return lower;
+  }
+
+  @Override
+  protected boolean computeValueAndGradient(int width, int height, double x0, double x1, double x2,
+      double[] value, double[][] jacobian) {
+    // Note: The z-gradient is zero within a z-plane of the table
+    final double[] dx = new double[] {1e-4, 1e-4, 1e-4};
+    return computeValueAndGradient(width, height, x0, x1, x2, value, jacobian, dx);
+  }
+}
@@ -148,6 +148,37 @@ public interface CameraModel {
    */
   float getNormalisedVariance(int x, int y);
 
+  /**
+   * Gets the per-pixel variance into the provided buffer. This is the variance of the pixel in
+   * camera counts. The bounds are expected to fit within the camera bounds.
+   *
+   * <p>This avoids creating an intermediate {@code float[]} for callers that require the variance
+   * as a {@code double[]}, for example the observation weights of the fitting routines.
+   *
+   * @param bounds the bounds
+   * @param data the buffer (used if the correct length, otherwise a new array is allocated)
+   * @return the variance
+   */
+  default double[] getVariance(Rectangle bounds, double[] data) {
+    return CameraModelUtils.toDouble(getVariance(bounds), data);
+  }
+
+  /**
+   * Gets the per-pixel normalised variance into the provided buffer. This is the variance of the
+   * pixel in camera counts divided by the squared gain, i.e. the variance in photon units. The
+   * bounds are expected to fit within the camera bounds.
+   *
+   * <p>This avoids creating an intermediate {@code float[]} for callers that require the variance
+   * as a {@code double[]}, for example the observation weights of the fitting routines.
+   *
+   * @param bounds the bounds
+   * @param data the buffer (used if the correct length, otherwise a new array is allocated)
+   * @return the normalised variance
+   */
+  default double[] getNormalisedVariance(Rectangle bounds, double[] data) {
+    return CameraModelUtils.toDouble(getNormalisedVariance(bounds), data);
+  }
+
   /**
    * Gets the mean of the per-pixel variance. This is the variance of the pixel in camera counts.
    * The bounds are expected to fit within the camera bounds.
@@ -88,6 +88,22 @@ public final class CameraModelUtils {
     return data;
   }
 
+  /**
+   * Convert the values to double, using the buffer if it is the correct length.
+   *
+   * @param values the values
+   * @param buffer the buffer (can be null)
+   * @return the double values
+   */
+  public static double[] toDouble(float[] values, double[] buffer) {
+    final double[] data =
+        (buffer == null || buffer.length != values.length) ? new double[values.length] : buffer;
+    for (int i = 0; i < values.length; i++) {
+      data[i] = values[i];
+    }
+    return data;
+  }
+
   /**
    * Convert the variance to weights (1/variance). Any value of the variance that is not strictly
    * positive is set to the minimum variance above zero.
@@ -26,6 +26,8 @@ package uk.ac.sussex.gdsc.smlm.model.camera;
 
 import uk.ac.sussex.gdsc.core.utils.SimpleArrayUtils;
 
+import org.apache.commons.lang3.ArrayUtils;
+
 import java.awt.Rectangle;
 
 /**
@@ -44,6 +46,10 @@ public class PerPixelCameraModel implements CameraModel {
   private final float[] variance;
   // This is computed when required
   private float[] varG2;
+  // The weights are computed when required. An empty array indicates the weights cannot be
+  // precomputed as the variance is not strictly positive.
+  private float[] weights;
+  private float[] normalisedWeights;
 
   /**
    * Instantiates a new per pixel camera model.
@@ -327,6 +333,16 @@ public class PerPixelCameraModel implements CameraModel {
     return getData(x, y, getNormalisedVarianceInternal());
   }
 
+  @Override
+  public double[] getVariance(Rectangle bounds, double[] data) {
+    return getData(bounds, variance, data);
+  }
+
+  @Override
+  public double[] getNormalisedVariance(Rectangle bounds, double[] data) {
+    return getData(bounds, getNormalisedVarianceInternal(), data);
+  }
+
   @Override
   public boolean isPerPixelModel() {
     return true;
@@ -372,6 +388,12 @@ public class PerPixelCameraModel implements CameraModel {
    */
   @Override
   public float[] getWeights(Rectangle bounds) {
+    if (weights == null) {
+      createWeights();
+    }
+    if (weights.length != 0) {
+      return getData(bounds, weights);
+    }
     return CameraModelUtils.toWeights(getVariance(bounds));
   }
 
@@ -380,9 +402,48 @@ public class PerPixelCameraModel implements CameraModel {
    */
   @Override
   public float[] getNormalisedWeights(Rectangle bounds) {
+    if (normalisedWeights == null) {
+      createNormalisedWeights();
+    }
+    if (normalisedWeights.length != 0) {
+      return getData(bounds, normalisedWeights);
+    }
     return CameraModelUtils.toWeights(getNormalisedVariance(bounds));
   }
 
+  private synchronized void createWeights() {
+    if (weights == null) {
+      weights = createWeights(variance);
+    }
+  }
+
+  private synchronized void createNormalisedWeights() {
+    if (normalisedWeights == null) {
+      normalisedWeights = createWeights(getNormalisedVarianceInternal());
+    }
+  }
+
+  /**
+   * Create the weights for all the pixels as 1/variance.
+   *
+   * <p>The weights of a region are only independent of the region if all the variance values are
+   * strictly positive (see {@link CameraModelUtils#toWeights(float[])}). If this is not the case
+   * then an empty array is returned and the weights must be computed for each region.
+   *
+   * @param values the variance values
+   * @return the weights (or an empty array)
+   */
+  private static float[] createWeights(float[] values) {
+    final float[] w = new float[values.length];
+    for (int i = 0; i < w.length; i++) {
+      if (!(values[i] > 0)) {
+        return ArrayUtils.EMPTY_FLOAT_ARRAY;
+      }
+      w[i] = (float) (1.0 / values[i]);
+    }
+    return w;
+  }
+
   /**
    * Gets the data from the values using the intersection of the bounds.
    *
@@ -418,6 +479,28 @@ public class PerPixelCameraModel implements CameraModel {
     return (copy) ? pixels.clone() : pixels;
   }
 
+  /**
+   * Crop the data from the per-pixel data using the intersection of the bounds into the buffer.
+   *
+   * @param bounds the bounds
+   * @param pixels the pixels
+   * @param buffer the buffer (used if the correct length)
+   * @return the data
+   */
+  private double[] getData(Rectangle bounds, float[] pixels, double[] buffer) {
+    final Rectangle intersection = getIntersection(bounds);
+    final int size = intersection.width * intersection.height;
+    final double[] data = (buffer == null || buffer.length != size) ? new double[size] : buffer;
+    final int width = cameraBounds.width;
+    for (int ys = 0, offset1 = 0; ys < intersection.height; ys++) {
+      for (int xs = 0, offset2 = (ys + intersection.y) * width + intersection.x;
+          xs < intersection.width; xs++) {
+        data[offset1++] = pixels[offset2++];
+      }
+    }
+    return data;
+  }
+
   /**
    * Gets the data value.
    *
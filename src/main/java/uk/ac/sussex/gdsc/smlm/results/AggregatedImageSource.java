@@ -27,7 +27,7 @@ package uk.ac.sussex.gdsc.smlm.results;
 import com.thoughtworks.xstream.annotations.XStreamOmitField;
 
 import java.awt.Rectangle;
-import java.util.Arrays;
+import java.util.Objects;
 
 /**
  * Wraps an image source and allows aggregation of consecutive frames.
@@ -45,6 +45,11 @@ public class AggregatedImageSource extends ImageSource {
   private int lastEndFrame;
   @XStreamOmitField
   private float[] lastImage;
+  @XStreamOmitField
+  private Rectangle lastBounds;
+  // Used to read the frames to add to the aggregated frame
+  @XStreamOmitField
+  private float[] scratch;
 
   /**
    * Create a new aggregated image source using the given image source.
@@ -124,9 +129,12 @@ public class AggregatedImageSource extends ImageSource {
 
   /**
    * Overridden to allow the crop to be done before aggregation.
+   *
+   * <p>Consecutive frames are summed in place into the first frame. If a buffer is provided it is
+   * used to store the aggregated frame.
    */
   @Override
-  public float[] next(Rectangle bounds) {
+  public float[] next(Rectangle bounds, float[] buffer) {
     if (!checkBounds(bounds)) {
       bounds = null;
     }
@@ -142,28 +150,8 @@ public class AggregatedImageSource extends ImageSource {
       return null;
     }
 
-    // Aggregate consecutive frames
-    float[] image = imageSource.next(bounds);
-    if (image != null) {
-      // Ensure the original image is not updated by creating a copy
-      image = Arrays.copyOf(image, image.length);
-
-      final int start = imageSource.getStartFrameNumber();
-      int end = imageSource.getEndFrameNumber();
-      for (int n = 1; n < aggregate; n++) {
-        final float[] image2 = imageSource.next(bounds);
-        if (image2 == null) {
-          break;
-        }
-        end = imageSource.getEndFrameNumber();
-        for (int i = 0; i < image.length; i++) {
-          image[i] += image2[i];
-        }
-      }
-      // Ensure that the frame number is recorded
-      setFrameNumber(start, end);
-      // System.out.printf("Aggregated %d-%d\n", start, end);
-    } else {
+    final float[] image = aggregateNext(bounds, buffer);
+    if (image == null) {
       setFrameNumber(0, 0);
       sequentialReadStatus = SequentialReadStatus.CLOSED;
     }
@@ -172,9 +160,12 @@ public class AggregatedImageSource extends ImageSource {
 
   /**
    * Overridden to allow the crop to be done before aggregation.
+   *
+   * <p>If a buffer is provided it is used to store the aggregated frame and the frame is not
+   * cached.
    */
   @Override
-  public float[] get(int frame, Rectangle bounds) {
+  public float[] get(int frame, Rectangle bounds, float[] buffer) {
     if (frame < 1) {
       return null;
     }
@@ -184,106 +175,146 @@ public class AggregatedImageSource extends ImageSource {
     }
 
     // Calculate if the cache is invalid
-    if (frame != lastFrame || lastImage == null) {
+    if (frame != lastFrame || lastImage == null || !Objects.equals(bounds, lastBounds)) {
+      if (buffer != null) {
+        // Do not cache the buffer as it is owned by the caller
+        lastImage = null;
+        final float[] image = aggregateGet(frame, bounds, buffer);
+        if (image != null) {
+          setFrameNumber(lastStartFrame, lastEndFrame);
+        }
+        return image;
+      }
       // Try and get the desired frame
-      float[] image = imageSource.get(frame, bounds);
+      final float[] image = aggregateGet(frame, bounds, null);
       if (image == null) {
         return null;
       }
-      lastStartFrame = imageSource.getStartFrameNumber();
-      lastEndFrame = imageSource.getEndFrameNumber();
-
-      // Ensure the original image is not updated by creating a copy
-      image = Arrays.copyOf(image, image.length);
-
-      // Go forwards until the desired number of frames have been collated
-      int collated = 1;
-      int nextFrame = frame;
-      while (collated < aggregate && imageSource.isValid(++nextFrame)) {
-        final float[] image2 = imageSource.get(nextFrame, bounds);
-        if (image2 != null) {
-          lastEndFrame = imageSource.getEndFrameNumber();
-          for (int i = 0; i < image.length; i++) {
-            image[i] += image2[i];
-          }
-          collated++;
-        }
-      }
       // Cache the image
       lastImage = image;
       lastFrame = frame;
+      lastBounds = (bounds == null) ? null : new Rectangle(bounds);
     }
     // Ensure that the frame number is recorded
     setFrameNumber(lastStartFrame, lastEndFrame);
+    if (buffer != null) {
+      if (buffer.length < lastImage.length) {
+        return lastImage.clone();
+      }
+      System.arraycopy(lastImage, 0, buffer, 0, lastImage.length);
+      return buffer;
+    }
     return lastImage;
   }
 
   @Override
   protected Object nextRawFrame() {
-    // Aggregate frames consecutive frames
-    float[] image = imageSource.next();
-    if (image != null) {
-      // Ensure the original image is not updated by creating a copy
-      image = Arrays.copyOf(image, image.length);
+    return aggregateNext(null, null);
+  }
 
+  @Override
+  protected Object getRawFrame(int frame) {
+    if (frame < 1) {
+      return null;
+    }
+
+    // Calculate if the cache is invalid
+    if (frame != lastFrame || lastImage == null || lastBounds != null) {
+      // Try and get the desired frame
+      final float[] image = aggregateGet(frame, null, null);
+      if (image == null) {
+        return null;
+      }
+      // Cache the image
+      lastImage = image;
+      lastFrame = frame;
+      lastBounds = null;
+    }
+    // Ensure that the frame number is recorded
+    setFrameNumber(lastStartFrame, lastEndFrame);
+    return lastImage;
+  }
+
+  /**
+   * Aggregate the next consecutive frames from the image source. The first frame is read into the
+   * buffer (if provided) and subsequent frames are summed in place. The frame number is set if
+   * successful.
+   *
+   * @param bounds the bounds (can be null)
+   * @param buffer the buffer (can be null)
+   * @return the image (or null)
+   */
+  private float[] aggregateNext(Rectangle bounds, float[] buffer) {
+    final float[] image = imageSource.next(bounds, buffer);
+    if (image != null) {
+      final int size = getSize(bounds);
       final int start = imageSource.getStartFrameNumber();
       int end = imageSource.getEndFrameNumber();
       for (int n = 1; n < aggregate; n++) {
-        final float[] image2 = imageSource.next();
+        final float[] image2 = imageSource.next(bounds, scratch);
         if (image2 == null) {
           break;
         }
+        scratch = image2;
         end = imageSource.getEndFrameNumber();
-        for (int i = 0; i < image.length; i++) {
+        for (int i = 0; i < size; i++) {
           image[i] += image2[i];
         }
       }
       // Ensure that the frame number is recorded
       setFrameNumber(start, end);
-      // System.out.printf("Aggregated %d-%d\n", start, end);
     }
     return image;
   }
 
-  @Override
-  protected Object getRawFrame(int frame) {
-    if (frame < 1) {
+  /**
+   * Aggregate the consecutive frames from the image source starting at the given frame. The first
+   * frame is read into the buffer and subsequent frames are summed in place. The start and end
+   * frame of the aggregated frames are recorded.
+   *
+   * @param frame the frame
+   * @param bounds the bounds (can be null)
+   * @param buffer the buffer (can be null)
+   * @return the image (or null)
+   */
+  private float[] aggregateGet(int frame, Rectangle bounds, float[] buffer) {
+    final int size = getSize(bounds);
+    if (buffer == null) {
+      // Ensure the image from the source is not updated if it is cached
+      buffer = new float[size];
+    }
+    final float[] image = imageSource.get(frame, bounds, buffer);
+    if (image == null) {
       return null;
     }
-
-    // Calculate if the cache is invalid
-    if (frame != lastFrame || lastImage == null) {
-      // Try and get the desired frame
-      float[] image = imageSource.get(frame);
-      if (image == null) {
-        return null;
-      }
-      lastStartFrame = imageSource.getStartFrameNumber();
-      lastEndFrame = imageSource.getEndFrameNumber();
-
-      // Ensure the original image is not updated by creating a copy
-      image = Arrays.copyOf(image, image.length);
-
-      // Go forwards until the desired number of frames have been collated
-      int collated = 1;
-      int nextFrame = frame;
-      while (collated < aggregate && imageSource.isValid(++nextFrame)) {
-        final float[] image2 = imageSource.get(nextFrame);
-        if (image2 != null) {
-          lastEndFrame = imageSource.getEndFrameNumber();
-          for (int i = 0; i < image.length; i++) {
-            image[i] += image2[i];
-          }
-          collated++;
+    lastStartFrame = imageSource.getStartFrameNumber();
+    lastEndFrame = imageSource.getEndFrameNumber();
+
+    // Go forwards until the desired number of frames have been collated
+    int collated = 1;
+    int nextFrame = frame;
+    while (collated < aggregate && imageSource.isValid(++nextFrame)) {
+      final float[] image2 = imageSource.get(nextFrame, bounds, scratch);
+      if (image2 != null) {
+        scratch = image2;
+        lastEndFrame = imageSource.getEndFrameNumber();
+        for (int i = 0; i < size; i++) {
+          image[i] += image2[i];
         }
+        collated++;
       }
-      // Cache the image
-      lastImage = image;
-      lastFrame = frame;
     }
-    // Ensure that the frame number is recorded
-    setFrameNumber(lastStartFrame, lastEndFrame);
-    return lastImage;
+    return image;
+  }
+
+  /**
+   * Gets the size of the frame data within the bounds.
+   *
+   * @param bounds the bounds (can be null)
+   * @return the size
+   */
+  private int getSize(Rectangle bounds) {
+    return (bounds == null) ? getWidth() * getHeight() : bounds.width * bounds.height;
   }
 
   /**
@@ -26,6 +26,7 @@ package uk.ac.sussex.gdsc.smlm.results;
 
 import uk.ac.sussex.gdsc.core.utils.rng.JdkRandomAdaptor;
 import uk.ac.sussex.gdsc.smlm.results.procedures.PeakResultProcedure;
+import uk.ac.sussex.gdsc.smlm.utils.PermutationUtils;
 
 import org.apache.commons.rng.UniformRandomProvider;
 
@@ -215,6 +216,11 @@ public class ArrayListPeakResultStore implements PeakResultStoreList, PeakResult
     Collections.shuffle(results, new JdkRandomAdaptor(randomSource));
   }
 
+  @Override
+  public void reorder(int[] indices) {
+    PermutationUtils.reorder(indices, size(), (i, j) -> Collections.swap(results, i, j));
+  }
+
   @Override
   public int indexOf(PeakResult result) {
     return results.indexOf(result);
@@ -25,6 +25,7 @@
 package uk.ac.sussex.gdsc.smlm.results;
 
 import uk.ac.sussex.gdsc.smlm.results.procedures.PeakResultProcedure;
+import uk.ac.sussex.gdsc.smlm.utils.PermutationUtils;
 
 import org.apache.commons.rng.UniformRandomProvider;
 
@@ -423,6 +424,15 @@ public class ArrayPeakResultStore implements PeakResultStoreList, Serializable {
     }
   }
 
+  @Override
+  public void reorder(int[] indices) {
+    PermutationUtils.reorder(indices, size, (i, j) -> {
+      final PeakResult tmp = results[i];
+      results[i] = results[j];
+      results[j] = tmp;
+    });
+  }
+
   @Override
   public int indexOf(PeakResult result) {
     if (result == null) {
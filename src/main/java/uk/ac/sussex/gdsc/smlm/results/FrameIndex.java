@@ -0,0 +1,215 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.results;
+
+import uk.ac.sussex.gdsc.smlm.results.procedures.PeakResultProcedure;
+
+import java.util.Arrays;
+
+/**
+ * An index of results by frame.
+ *
+ * <p>The results are sorted by start frame. Results with the same start frame maintain their
+ * relative order. If the frames are dense then a table of the offset of each frame in the sorted
+ * results allows a frame to be found in constant time; otherwise a binary search is used.
+ *
+ * <p>Results that span multiple frames (i.e. have an end frame) are found using the maximum span of
+ * all the results.
+ */
+final class FrameIndex {
+  /** The minimum size for the offset table. */
+  private static final int MIN_OFFSET_TABLE_SIZE = 1024;
+
+  /** The results sorted by start frame. */
+  private final PeakResult[] results;
+  /** The start frame of each sorted result. */
+  private final int[] frames;
+  /** The maximum of the end frame minus the start frame. */
+  private final int maxSpan;
+  /** The minimum start frame. */
+  private final int minFrame;
+  /** The maximum start frame. */
+  private final int maxFrame;
+  /**
+   * The offset of the first result with a start frame equal to or above each frame in the range
+   * [minFrame, maxFrame]. This is null if the frames are sparse.
+   */
+  private final int[] offsets;
+
+  /**
+   * Create a new instance.
+   *
+   * @param data the results
+   */
+  FrameIndex(PeakResult[] data) {
+    final int size = data.length;
+
+    // Sort a key composed of the frame (upper 32-bits) and the current position (lower 32-bits)
+    final long[] keys = new long[size];
+    int span = 0;
+    for (int i = 0; i < size; i++) {
+      final PeakResult r = data[i];
+      keys[i] = ((long) r.getFrame() << 32) | i;
+      span = Math.max(span, r.getEndFrame() - r.getFrame());
+    }
+    Arrays.sort(keys);
+    maxSpan = span;
+
+    results = new PeakResult[size];
+    frames = new int[size];
+    for (int i = 0; i < size; i++) {
+      results[i] = data[(int) keys[i]];
+      frames[i] = (int) (keys[i] >> 32);
+    }
+
+    if (size == 0) {
+      minFrame = maxFrame = 0;
+      offsets = null;
+      return;
+    }
+
+    minFrame = frames[0];
+    maxFrame = frames[size - 1];
+    final long range = (long) maxFrame - minFrame + 1;
+    if (range <= Math.max(MIN_OFFSET_TABLE_SIZE, 2L * size)) {
+      offsets = new int[(int) range];
+      int index = 0;
+      for (int k = 0; k < offsets.length; k++) {
+        final int frame = minFrame + k;
+        while (frames[index] < frame) {
+          index++;
+        }
+        offsets[k] = index;
+      }
+    } else {
+      offsets = null;
+    }
+  }
+
+  /**
+   * Gets the number of results.
+   *
+   * @return the size
+   */
+  int size() {
+    return results.length;
+  }
+
+  /**
+   * Gets the index of the first sorted result with a start frame equal to or above the frame.
+   *
+   * @param frame the frame
+   * @return the index
+   */
+  private int lowerBound(long frame) {
+    if (frame <= minFrame) {
+      return 0;
+    }
+    if (frame > maxFrame) {
+      return results.length;
+    }
+    if (offsets != null) {
+      return offsets[(int) (frame - minFrame)];
+    }
+    // Find the first occurrence of the frame (or the insertion point)
+    int low = 0;
+    int high = frames.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (frames[mid] < frame) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * For each result with a frame span that overlaps the range execute the procedure. Results are
+   * processed in order of start frame.
+   *
+   * @param min the minimum frame (inclusive)
+   * @param max the maximum frame (inclusive)
+   * @param procedure the procedure
+   */
+  void forEach(int min, int max, PeakResultProcedure procedure) {
+    if (min > max) {
+      return;
+    }
+    final int from = lowerBound((long) min - maxSpan);
+    final int to = lowerBound((long) max + 1);
+    if (maxSpan == 0) {
+      for (int i = from; i < to; i++) {
+        procedure.execute(results[i]);
+      }
+    } else {
+      for (int i = from; i < to; i++) {
+        if (isOverlap(i, min)) {
+          procedure.execute(results[i]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Count the results with a frame span that overlaps the range.
+   *
+   * <p>If no results span multiple frames this is a constant time operation when the frames are
+   * dense.
+   *
+   * @param min the minimum frame (inclusive)
+   * @param max the maximum frame (inclusive)
+   * @return the count
+   */
+  int count(int min, int max) {
+    if (min > max) {
+      return 0;
+    }
+    final int from = lowerBound((long) min - maxSpan);
+    final int to = lowerBound((long) max + 1);
+    if (maxSpan == 0) {
+      return to - from;
+    }
+    int count = 0;
+    for (int i = from; i < to; i++) {
+      if (isOverlap(i, min)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Checks if the sorted result has a start or end frame equal to or above the minimum.
+   *
+   * @param index the index
+   * @param min the minimum frame
+   * @return true if an overlap
+   */
+  private boolean isOverlap(int index, int min) {
+    return frames[index] >= min || results[index].getEndFrame() >= min;
+  }
+}
@@ -259,11 +259,23 @@ public abstract class ImageSource {
    * @return the next frame (or null if at the end)
    */
   public @Nullable float[] next() {
-    final Object pixels = nextRaw();
-    if (pixels != null) {
-      return imageConverter.getData(pixels, getWidth(), getHeight(), null, null);
-    }
-    return null;
+    return next(null, null);
+  }
+
+  /**
+   * Get the next frame. Return null if the frame is not available and set the current frame to
+   * zero. The data is is packed in yx order: index = y * width + x;
+   *
+   * <p>Provides serial access to the data after a successful call to {@link #open()}.
+   *
+   * <p>Allows reuse of an existing buffer if provided. This will not be truncated if it is larger
+   * than the frame. If smaller then a new buffer will be created.
+   *
+   * @param buffer the buffer (can be null)
+   * @return the next frame (or null if at the end)
+   */
+  public @Nullable float[] next(float[] buffer) {
+    return next(null, buffer);
   }
 
   /**
@@ -280,12 +292,33 @@ public abstract class ImageSource {
    * @throws IllegalArgumentException if the bounds do not fit in the image
    */
   public @Nullable float[] next(Rectangle bounds) {
+    return next(bounds, null);
+  }
+
+  /**
+   * Get the next frame. Return null if the frame is not available and set the current frame to
+   * zero. The data is is packed in yx order: index = y * width + x;
+   *
+   * <p>Provides serial access to the data after a successful call to {@link #open()}
+   *
+   * <p>Allows reuse of an existing buffer if provided. This will not be truncated if it is larger
+   * than the bounds. If smaller then a new buffer will be created.
+   *
+   * <p>Note: The bounds are relative to the image source origin so that bounds.x + bounds.width
+   * must be less or equal to than {@link #getWidth()}, similarly for height.
+   *
+   * @param bounds The bounding limits of the frame to extract (can be null)
+   * @param buffer the buffer (can be null)
+   * @return the next frame (or null if at the end)
+   * @throws IllegalArgumentException if the bounds do not fit in the image
+   */
+  public @Nullable float[] next(Rectangle bounds, float[] buffer) {
     if (!checkBounds(bounds)) {
       bounds = null;
     }
     final Object pixels = nextRaw();
     if (pixels != null) {
-      return imageConverter.getData(pixels, getWidth(), getHeight(), bounds, null);
+      return imageConverter.getData(pixels, getWidth(), getHeight(), bounds, buffer);
     }
     return null;
   }
@@ -365,13 +398,36 @@ public abstract class ImageSource {
    * @throws IllegalArgumentException if the bounds do not fit in the image
    */
   public @Nullable float[] get(int frame, Rectangle bounds) {
+    return get(frame, bounds, null);
+  }
+
+  /**
+   * Get a specific frame from the results. Return null if the frame is not available and set the
+   * current frame to zero.
+   *
+   * <p>Provides random access to the data after a successful call to {@link #open()}. This
+   * operation may be significantly slower than using {@link #next()} to read all the data.
+   *
+   * <p>Allows reuse of an existing buffer if provided. This will not be truncated if it is larger
+   * than the bounds. If smaller then a new buffer will be created.
+   *
+   * <p>Note: The bounds are relative to the image source origin so that bounds.x + bounds.width
+   * must be less or equal to than {@link #getWidth()}, similarly for height.
+   *
+   * @param frame the frame
+   * @param bounds The bounding limits of the frame to extract (can be null)
+   * @param buffer the buffer (can be null)
+   * @return the frame (or null)
+   * @throws IllegalArgumentException if the bounds do not fit in the image
+   */
+  public @Nullable float[] get(int frame, Rectangle bounds, float[] buffer) {
     if (!checkBounds(bounds)) {
       bounds = null;
     }
     startFrame = endFrame = frame;
     final Object pixels = getRawFrame(frame);
     if (pixels != null) {
-      return imageConverter.getData(pixels, getWidth(), getHeight(), bounds, null);
+      return imageConverter.getData(pixels, getWidth(), getHeight(), bounds, buffer);
     }
     startFrame = endFrame = 0;
     return null;
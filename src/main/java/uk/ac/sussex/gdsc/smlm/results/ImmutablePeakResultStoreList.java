@@ -87,6 +87,11 @@ public class ImmutablePeakResultStoreList extends ImmutablePeakResultStore
     throw new UnsupportedOperationException(IMMUTABLE_MESSAGE);
   }
 
+  @Override
+  public void reorder(int[] indices) {
+    throw new UnsupportedOperationException(IMMUTABLE_MESSAGE);
+  }
+
   @Override
   public int indexOf(PeakResult result) {
     return store.indexOf(result);
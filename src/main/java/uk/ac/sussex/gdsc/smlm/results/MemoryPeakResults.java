@@ -116,6 +116,9 @@ public class MemoryPeakResults extends AbstractPeakResults {
    */
   protected PeakResultStoreList results;
 
+  /** The index of the results by frame. This is built when required and reset on modification. */
+  private FrameIndex frameIndex;
+
   /**
    * Gets the result.
    *
@@ -164,6 +167,7 @@ public class MemoryPeakResults extends AbstractPeakResults {
    */
   @Override
   public void add(PeakResult result) {
+    frameIndex = null;
     this.results.add(result);
   }
 
@@ -173,6 +177,7 @@ public class MemoryPeakResults extends AbstractPeakResults {
    * @param results the results
    */
   public void add(MemoryPeakResults results) {
+    frameIndex = null;
     this.results.addStore(results.results);
   }
 
@@ -197,6 +202,7 @@ public class MemoryPeakResults extends AbstractPeakResults {
    */
   @Override
   public void addAll(Collection<PeakResult> results) {
+    frameIndex = null;
     this.results.addCollection(results);
   }
 
@@ -207,6 +213,7 @@ public class MemoryPeakResults extends AbstractPeakResults {
    */
   @Override
   public void addAll(PeakResult[] results) {
+    frameIndex = null;
     this.results.addArray(results);
   }
 
@@ -217,6 +224,7 @@ public class MemoryPeakResults extends AbstractPeakResults {
    */
   @Override
   public void addAll(PeakResultStore results) {
+    frameIndex = null;
     this.results.addStore(results);
   }
 
@@ -224,6 +232,7 @@ public class MemoryPeakResults extends AbstractPeakResults {
    * Clear the results.
    */
   private void clear() {
+    frameIndex = null;
     this.results.clear();
   }
 
@@ -239,6 +248,7 @@ public class MemoryPeakResults extends AbstractPeakResults {
    * Sort the results.
    */
   public void sort() {
+    frameIndex = null;
     this.results.sort();
   }
 
@@ -248,9 +258,22 @@ public class MemoryPeakResults extends AbstractPeakResults {
    * @param comparator the comparator
    */
   public void sort(Comparator<PeakResult> comparator) {
+    frameIndex = null;
     this.results.sort(comparator);
   }
 
+  /**
+   * Reorder the results in place. The result at position {@code i} in the new order is the result
+   * at position {@code indices[i]} in the current order.
+   *
+   * @param indices the indices of the new order (a permutation of the current positions)
+   * @throws IllegalArgumentException if the indices are not a permutation of the current positions
+   */
+  public void reorder(int[] indices) {
+    frameIndex = null;
+    this.results.reorder(indices);
+  }
+
   /**
    * Convert to an array. This is a new allocation of storage space.
    *
@@ -264,6 +287,7 @@ public class MemoryPeakResults extends AbstractPeakResults {
    * Removes the null results from the store.
    */
   public void removeNullResults() {
+    frameIndex = null;
     this.results.removeIf(Objects::isNull);
   }
 
@@ -275,9 +299,32 @@ public class MemoryPeakResults extends AbstractPeakResults {
    * @return true, if any were removed
    */
   public boolean removeIf(Predicate<PeakResult> filter) {
+    frameIndex = null;
     return this.results.removeIf(filter);
   }
 
+  /**
+   * Invalidate the frame index. This must be called if the frames of the results are modified
+   * directly. The index is automatically invalidated when results are added, removed or sorted.
+   */
+  public void invalidateFrameIndex() {
+    frameIndex = null;
+  }
+
+  /**
+   * Gets the frame index. This is built if required.
+   *
+   * @return the frame index
+   */
+  private FrameIndex getFrameIndex() {
+    FrameIndex index = frameIndex;
+    if (index == null || index.size() != size()) {
+      index = new FrameIndex(toArray());
+      frameIndex = index;
+    }
+    return index;
+  }
+
   /////////////////////////////////////////////////////////////////
   // END OF RESULTS STORAGE METHODS
   /////////////////////////////////////////////////////////////////
@@ -1210,6 +1257,72 @@ public class MemoryPeakResults extends AbstractPeakResults {
     }
   }
 
+  /**
+   * For each result in the frame execute the procedure. A result is in the frame if the frame is
+   * within the range from the start frame to the end frame.
+   *
+   * <p>Results are processed in order of start frame. Results with the same start frame are
+   * processed in the order they are stored.
+   *
+   * <p>This uses an index of the results by frame which is built on the first call and retained
+   * until the results are modified. If the frames of the results are modified directly then
+   * {@link #invalidateFrameIndex()} must be called.
+   *
+   * <p>Warning: Results with be in their native units since no unit conversion is performed.
+   *
+   * @param frame the frame
+   * @param procedure the procedure
+   */
+  public void forEachInFrame(int frame, PeakResultProcedure procedure) {
+    getFrameIndex().forEach(frame, frame, procedure);
+  }
+
+  /**
+   * For each result in the frame range execute the procedure. A result is in the range if any
+   * frame from the start frame to the end frame is within the range.
+   *
+   * <p>Results are processed in order of start frame. Results with the same start frame are
+   * processed in the order they are stored.
+   *
+   * <p>This uses an index of the results by frame which is built on the first call and retained
+   * until the results are modified. If the frames of the results are modified directly then
+   * {@link #invalidateFrameIndex()} must be called.
+   *
+   * <p>Warning: Results with be in their native units since no unit conversion is performed.
+   *
+   * @param minFrame the minimum frame (inclusive)
+   * @param maxFrame the maximum frame (inclusive)
+   * @param procedure the procedure
+   */
+  public void forEachInFrameRange(int minFrame, int maxFrame, PeakResultProcedure procedure) {
+    getFrameIndex().forEach(minFrame, maxFrame, procedure);
+  }
+
+  /**
+   * Count the results in the frame. A result is in the frame if the frame is within the range from
+   * the start frame to the end frame.
+   *
+   * @param frame the frame
+   * @return the count
+   * @see #forEachInFrame(int, PeakResultProcedure)
+   */
+  public int countInFrame(int frame) {
+    return getFrameIndex().count(frame, frame);
+  }
+
+  /**
+   * Count the results in the frame range. A result is in the range if any frame from the start
+   * frame to the end frame is within the range.
+   *
+   * @param minFrame the minimum frame (inclusive)
+   * @param maxFrame the maximum frame (inclusive)
+   * @return the count
+   * @see #forEachInFrameRange(int, int, PeakResultProcedure)
+   */
+  public int countInFrameRange(int minFrame, int maxFrame) {
+    return getFrameIndex().count(minFrame, maxFrame);
+  }
+
   /**
    * For each result execute the fast-exit procedure.
    *
@@ -81,6 +81,15 @@ public interface PeakResultStoreList extends PeakResultStore {
    */
   void shuffle(final UniformRandomProvider randomSource);
 
+  /**
+   * Reorder the results in place. The result at position {@code i} in the new order is the result
+   * at position {@code indices[i]} in the current order.
+   *
+   * @param indices the indices of the new order (a permutation of the current positions)
+   * @throws IllegalArgumentException if the indices are not a permutation of the current positions
+   */
+  void reorder(int[] indices);
+
   /**
    * Returns the index of the first occurrence of the specified result in this store, or -1 if this
    * list does not contain the element. More formally, returns the lowest index <tt>i</tt> such that
@@ -27,6 +27,7 @@ package uk.ac.sussex.gdsc.smlm.results;
 import uk.ac.sussex.gdsc.core.utils.TurboList;
 import uk.ac.sussex.gdsc.core.utils.rng.JdkRandomAdaptor;
 import uk.ac.sussex.gdsc.smlm.results.procedures.PeakResultProcedure;
+import uk.ac.sussex.gdsc.smlm.utils.PermutationUtils;
 
 import org.apache.commons.rng.UniformRandomProvider;
 
@@ -217,6 +218,15 @@ public class TurboListPeakResultStore implements PeakResultStoreList, PeakResult
     Collections.shuffle(results, new JdkRandomAdaptor(randomSource));
   }
 
+  @Override
+  public void reorder(int[] indices) {
+    PermutationUtils.reorder(indices, size(), (i, j) -> {
+      final PeakResult tmp = results.getf(i);
+      results.setf(i, results.getf(j));
+      results.setf(j, tmp);
+    });
+  }
+
   @Override
   public int indexOf(PeakResult result) {
     return results.indexOf(result);
@@ -29,6 +29,10 @@ import uk.ac.sussex.gdsc.core.match.FractionalAssignment;
 import uk.ac.sussex.gdsc.smlm.function.gaussian.Gaussian2DFunction;
 import uk.ac.sussex.gdsc.smlm.results.Gaussian2DPeakResultHelper;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Specifies a peak fitting result for use in filtering.
  */
@@ -181,6 +185,96 @@ public class BasePreprocessedPeakResult implements AssignablePreprocessedPeakRes
     this.newResult = resultType == ResultType.NEW;
   }
 
+  /**
+   * Create a new BasePreprocessedPeakResult using the values written by {@link #write(DataOutput)}.
+   *
+   * @param in the input
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private BasePreprocessedPeakResult(DataInput in) throws IOException {
+    frame = in.readInt();
+    id = in.readInt();
+    candidateId = in.readInt();
+    signal = in.readFloat();
+    meanSignal = in.readFloat();
+    snr = in.readFloat();
+    noise = in.readFloat();
+    sd = in.readFloat();
+    background = in.readFloat();
+    amp = in.readFloat();
+    angle = in.readFloat();
+    x = in.readFloat();
+    y = in.readFloat();
+    z = in.readFloat();
+    xshift2 = in.readFloat();
+    yshift2 = in.readFloat();
+    xsd = in.readFloat();
+    ysd = in.readFloat();
+    xwf = in.readFloat();
+    ywf = in.readFloat();
+    variance = in.readDouble();
+    variance2 = in.readDouble();
+    varianceCrlb = in.readDouble();
+    final ResultType resultType = ResultType.values()[in.readByte()];
+    existingResult = resultType == ResultType.EXISTING;
+    newResult = resultType == ResultType.NEW;
+  }
+
+  /**
+   * Write the result to the output. The values can be restored using {@link #read(DataInput)}.
+   *
+   * <p>Only the values computed from the fit are written. The assignments, unique Id and filter
+   * state (validation result, ignore and not duplicate flags) are not written.
+   *
+   * @param out the output
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(frame);
+    out.writeInt(id);
+    out.writeInt(candidateId);
+    out.writeFloat(signal);
+    out.writeFloat(meanSignal);
+    out.writeFloat(snr);
+    out.writeFloat(noise);
+    out.writeFloat(sd);
+    out.writeFloat(background);
+    out.writeFloat(amp);
+    out.writeFloat(angle);
+    out.writeFloat(x);
+    out.writeFloat(y);
+    out.writeFloat(z);
+    out.writeFloat(xshift2);
+    out.writeFloat(yshift2);
+    out.writeFloat(xsd);
+    out.writeFloat(ysd);
+    out.writeFloat(xwf);
+    out.writeFloat(ywf);
+    out.writeDouble(variance);
+    out.writeDouble(variance2);
+    out.writeDouble(varianceCrlb);
+    final ResultType resultType;
+    if (existingResult) {
+      resultType = ResultType.EXISTING;
+    } else if (newResult) {
+      resultType = ResultType.NEW;
+    } else {
+      resultType = ResultType.CANDIDATE;
+    }
+    out.writeByte(resultType.ordinal());
+  }
+
+  /**
+   * Read a result written using {@link #write(DataOutput)}.
+   *
+   * @param in the input
+   * @return the result
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static BasePreprocessedPeakResult read(DataInput in) throws IOException {
+    return new BasePreprocessedPeakResult(in);
+  }
+
   private static float squared(double value) {
     return (float) (value * value);
   }
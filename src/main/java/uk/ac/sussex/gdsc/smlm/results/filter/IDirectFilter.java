@@ -110,6 +110,24 @@ public interface IDirectFilter {
    */
   int validate(final PreprocessedPeakResult peak);
 
+  /**
+   * Filter all the results in the columns. The flags are updated with the validation result for
+   * each result; results that already have a non-zero flag are ignored.
+   *
+   * <p>The default implementation calls {@link #validate(PreprocessedPeakResult)} for each result.
+   * Filters may override this to process the results using the column data.
+   *
+   * @param columns the columns
+   * @param flags the validation flags for each result in the columns
+   */
+  default void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    for (int i = 0; i < flags.length; i++) {
+      if (flags[i] == 0) {
+        flags[i] = validate(columns.get(i));
+      }
+    }
+  }
+
   /**
    * Return the type of filter. This should be a DirectFilter.
    *
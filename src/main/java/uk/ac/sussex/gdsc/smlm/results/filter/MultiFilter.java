@@ -442,6 +442,11 @@ public class MultiFilter extends DirectFilter implements IMultiFilter {
     return components.validate(peak);
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    components.validate(columns, flags);
+  }
+
   @Override
   public double getNumericalValue() {
     // This is not the first parameter so override
@@ -36,6 +36,17 @@ interface MultiFilterComponent {
    */
   boolean fail(final PreprocessedPeakResult peak);
 
+  /**
+   * Validate all the results in the columns. Any result that has not yet failed validation (i.e.
+   * the flag is zero) and that fails this component is set to the type of the component.
+   *
+   * @param columns the columns
+   * @param flags the validation flags for each result in the columns
+   * @see #fail(PreprocessedPeakResult)
+   * @see #getType()
+   */
+  void validate(final PreprocessedPeakResultColumns columns, final int[] flags);
+
   /**
    * Gets the type of the component. The return value will match the constants defined in
    * IDirectFilter.
@@ -44,6 +44,16 @@ public interface MultiFilterComponentSet {
    */
   int validate(final PreprocessedPeakResult peak);
 
+  /**
+   * Validate all the results in the columns. The flags are updated with the type of the first
+   * component that fails for each result. Results that already have a non-zero flag are ignored.
+   *
+   * @param columns the columns
+   * @param flags the validation flags for each result in the columns
+   * @see #validate(PreprocessedPeakResult)
+   */
+  void validate(final PreprocessedPeakResultColumns columns, final int[] flags);
+
   /**
    * Replace the first component.
    *
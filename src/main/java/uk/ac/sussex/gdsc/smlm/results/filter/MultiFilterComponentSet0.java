@@ -47,6 +47,11 @@ public class MultiFilterComponentSet0 implements MultiFilterComponentSet {
     return 0;
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    // Nothing to validate
+  }
+
   @Override
   public void replace0(MultiFilterComponent component) {
     // This set is empty so no replacement is possible. Don't throw an exception though!
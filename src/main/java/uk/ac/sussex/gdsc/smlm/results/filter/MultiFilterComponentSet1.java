@@ -63,6 +63,11 @@ public class MultiFilterComponentSet1 implements MultiFilterComponentSet {
     return 0;
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    component0.validate(columns, flags);
+  }
+
   @Override
   public void replace0(MultiFilterComponent component) {
     component0 = component;
@@ -69,6 +69,12 @@ public class MultiFilterComponentSet2 implements MultiFilterComponentSet {
     return 0;
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    component0.validate(columns, flags);
+    component1.validate(columns, flags);
+  }
+
   @Override
   public void replace0(MultiFilterComponent component) {
     component0 = component;
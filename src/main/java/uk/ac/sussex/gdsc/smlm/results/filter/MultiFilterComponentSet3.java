@@ -75,6 +75,13 @@ public class MultiFilterComponentSet3 implements MultiFilterComponentSet {
     return 0;
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    component0.validate(columns, flags);
+    component1.validate(columns, flags);
+    component2.validate(columns, flags);
+  }
+
   @Override
   public void replace0(MultiFilterComponent component) {
     component0 = component;
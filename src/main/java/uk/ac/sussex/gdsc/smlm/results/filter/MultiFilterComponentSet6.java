@@ -94,6 +94,16 @@ public class MultiFilterComponentSet6 implements MultiFilterComponentSet {
     return 0;
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    component0.validate(columns, flags);
+    component1.validate(columns, flags);
+    component2.validate(columns, flags);
+    component3.validate(columns, flags);
+    component4.validate(columns, flags);
+    component5.validate(columns, flags);
+  }
+
   @Override
   public void replace0(MultiFilterComponent component) {
     component0 = component;
@@ -100,6 +100,17 @@ public class MultiFilterComponentSet7 implements MultiFilterComponentSet {
     return 0;
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    component0.validate(columns, flags);
+    component1.validate(columns, flags);
+    component2.validate(columns, flags);
+    component3.validate(columns, flags);
+    component4.validate(columns, flags);
+    component5.validate(columns, flags);
+    component6.validate(columns, flags);
+  }
+
   @Override
   public void replace0(MultiFilterComponent component) {
     component0 = component;
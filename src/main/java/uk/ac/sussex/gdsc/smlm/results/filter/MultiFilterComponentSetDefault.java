@@ -58,6 +58,13 @@ public class MultiFilterComponentSetDefault implements MultiFilterComponentSet {
     return 0;
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    for (int i = 0; i < components.length; i++) {
+      components[i].validate(columns, flags);
+    }
+  }
+
   @Override
   public void replace0(MultiFilterComponent component) {
     if (components.length > 0) {
@@ -47,6 +47,18 @@ public class MultiFilterEShiftComponent implements MultiFilterComponent {
     return (peak.getXRelativeShift2() + peak.getYRelativeShift2() > eoffset);
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    final int type = getType();
+    final float[] x = columns.xrelativeShift2;
+    final float[] y = columns.yrelativeShift2;
+    for (int i = 0; i < flags.length; i++) {
+      if (flags[i] == 0 && x[i] + y[i] > eoffset) {
+        flags[i] = type;
+      }
+    }
+  }
+
   @Override
   public int getType() {
     return TYPE;
@@ -50,6 +50,18 @@ public class MultiFilterShiftComponent implements MultiFilterComponent {
     return (peak.getYRelativeShift2() > offset);
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    final int type = getType();
+    final float[] x = columns.xrelativeShift2;
+    final float[] y = columns.yrelativeShift2;
+    for (int i = 0; i < flags.length; i++) {
+      if (flags[i] == 0 && (x[i] > offset || y[i] > offset)) {
+        flags[i] = type;
+      }
+    }
+  }
+
   @Override
   public int getType() {
     return TYPE;
@@ -44,6 +44,17 @@ public class MultiFilterSignalComponent implements MultiFilterComponent {
     return peak.getSignal() < this.signal;
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    final int type = getType();
+    final float[] s = columns.signal;
+    for (int i = 0; i < flags.length; i++) {
+      if (flags[i] == 0 && s[i] < this.signal) {
+        flags[i] = type;
+      }
+    }
+  }
+
   @Override
   public int getType() {
     return FilterValidationFlag.PHOTONS;
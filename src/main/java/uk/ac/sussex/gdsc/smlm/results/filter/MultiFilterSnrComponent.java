@@ -44,6 +44,17 @@ public class MultiFilterSnrComponent implements MultiFilterComponent {
     return peak.getSnr() < this.snr;
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    final int type = getType();
+    final float[] s = columns.snr;
+    for (int i = 0; i < flags.length; i++) {
+      if (flags[i] == 0 && s[i] < this.snr) {
+        flags[i] = type;
+      }
+    }
+  }
+
   @Override
   public int getType() {
     return FilterValidationFlag.SNR;
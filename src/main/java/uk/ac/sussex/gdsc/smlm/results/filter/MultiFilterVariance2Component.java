@@ -44,6 +44,17 @@ public class MultiFilterVariance2Component implements MultiFilterComponent {
     return (peak.getLocationVariance2() > variance);
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    final int type = getType();
+    final double[] v = columns.locationVariance2;
+    for (int i = 0; i < flags.length; i++) {
+      if (flags[i] == 0 && v[i] > variance) {
+        flags[i] = type;
+      }
+    }
+  }
+
   @Override
   public int getType() {
     return FilterValidationFlag.LOCATION_VARIANCE2;
@@ -44,6 +44,17 @@ public class MultiFilterVarianceComponent implements MultiFilterComponent {
     return (peak.getLocationVariance() > variance);
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    final int type = getType();
+    final double[] v = columns.locationVariance;
+    for (int i = 0; i < flags.length; i++) {
+      if (flags[i] == 0 && v[i] > variance) {
+        flags[i] = type;
+      }
+    }
+  }
+
   @Override
   public int getType() {
     return FilterValidationFlag.LOCATION_VARIANCE;
@@ -45,6 +45,17 @@ public class MultiFilterVarianceCrlbComponent implements MultiFilterComponent {
     return (peak.getLocationVarianceCrlb() > variance);
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    final int type = getType();
+    final double[] v = columns.locationVarianceCrlb;
+    for (int i = 0; i < flags.length; i++) {
+      if (flags[i] == 0 && v[i] > variance) {
+        flags[i] = type;
+      }
+    }
+  }
+
   @Override
   public int getType() {
     return FilterValidationFlag.LOCATION_VARIANCE_CRLB;
@@ -52,6 +52,20 @@ public class MultiFilterWidthComponent implements MultiFilterComponent {
     return (xsdf > upperSigmaThreshold || xsdf < lowerSigmaThreshold);
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    final int type = getType();
+    final float[] x = columns.xsdFactor;
+    for (int i = 0; i < flags.length; i++) {
+      if (flags[i] == 0) {
+        final float xsdf = x[i];
+        if (xsdf > upperSigmaThreshold || xsdf < lowerSigmaThreshold) {
+          flags[i] = type;
+        }
+      }
+    }
+  }
+
   @Override
   public int getType() {
     return FilterValidationFlag.X_SD_FACTOR;
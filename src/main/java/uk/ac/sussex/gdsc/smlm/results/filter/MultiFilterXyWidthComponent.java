@@ -52,6 +52,21 @@ public class MultiFilterXyWidthComponent implements MultiFilterComponent {
     return (s2 > upperSigmaThreshold || s2 < lowerSigmaThreshold);
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    final int type = getType();
+    final float[] x = columns.xsdFactor;
+    final float[] y = columns.ysdFactor;
+    for (int i = 0; i < flags.length; i++) {
+      if (flags[i] == 0) {
+        final float s2 = x[i] * y[i];
+        if (s2 > upperSigmaThreshold || s2 < lowerSigmaThreshold) {
+          flags[i] = type;
+        }
+      }
+    }
+  }
+
   @Override
   public int getType() {
     return FilterValidationFlag.X_SD_FACTOR | FilterValidationFlag.Y_SD_FACTOR;
@@ -48,6 +48,20 @@ public class MultiFilterZComponent implements MultiFilterComponent {
     return (z > maxZ || z < minZ);
   }
 
+  @Override
+  public void validate(final PreprocessedPeakResultColumns columns, final int[] flags) {
+    final int type = getType();
+    final float[] zz = columns.z;
+    for (int i = 0; i < flags.length; i++) {
+      if (flags[i] == 0) {
+        final float z = zz[i];
+        if (z > maxZ || z < minZ) {
+          flags[i] = type;
+        }
+      }
+    }
+  }
+
   @Override
   public int getType() {
     return FilterValidationFlag.Z;
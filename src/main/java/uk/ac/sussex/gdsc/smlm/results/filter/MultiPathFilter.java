@@ -75,6 +75,22 @@ public class MultiPathFilter {
   @XStreamOmitField
   private boolean failNew;
 
+  /** The columns of the results used to precompute the validation results. */
+  @XStreamOmitField
+  private PreprocessedPeakResultColumns columns;
+  /**
+   * The validation results for the columns using the initial setup state of the main filter. This
+   * is computed when first required.
+   */
+  @XStreamOmitField
+  private int[] columnValidationResults;
+  /** The setup state of the main filter used to compute the column validation results. */
+  @XStreamOmitField
+  private FilterSetupState columnValidationState;
+  /** Set to true if the main filter is in the initial setup state. */
+  @XStreamOmitField
+  private boolean initialFilterState;
+
   /**
    * Stores the results that were accepted when filtering a multi-path result. Also stores the fit
    * result that was used to select the results.
@@ -301,6 +317,16 @@ public class MultiPathFilter {
     void restoreState() {
       filter.setup(setupFlags);
     }
+
+    /**
+     * Checks if the main filter is set up the same as the other state.
+     *
+     * @param other the other state
+     * @return true if the same setup
+     */
+    boolean isSameSetup(FilterSetupState other) {
+      return other.getClass() == FilterSetupState.class && setupFlags == other.setupFlags;
+    }
   }
 
   private class FilterSetupDataState extends FilterSetupState {
@@ -316,6 +342,12 @@ public class MultiPathFilter {
     void restoreState() {
       filter.setup(setupFlags, setupData);
     }
+
+    @Override
+    boolean isSameSetup(FilterSetupState other) {
+      // The setup data cannot be compared
+      return false;
+    }
   }
 
   private FilterSetupState filterSetupState;
@@ -328,6 +360,28 @@ public class MultiPathFilter {
     final FilterSetupData[] setupData = filter.getFilterSetupData();
     filterSetupState = (setupData == null) ? new FilterSetupState(setupFlags)
         : new FilterSetupDataState(setupFlags, setupData);
+    // The column validation results can be reused if the filter is setup the same
+    if (columnValidationState != null && !columnValidationState.isSameSetup(filterSetupState)) {
+      columnValidationResults = null;
+      columnValidationState = null;
+    }
+    initialFilterState = true;
+  }
+
+  /**
+   * Gets the validation results for the columns using the initial setup state of the main filter.
+   * The results are computed in a single pass when first required.
+   *
+   * @return the column validation results
+   */
+  private int[] getColumnValidationResults() {
+    int[] results = columnValidationResults;
+    if (results == null) {
+      results = columns.validate(filter);
+      columnValidationResults = results;
+      columnValidationState = filterSetupState;
+    }
+    return results;
   }
 
   /**
@@ -337,6 +391,7 @@ public class MultiPathFilter {
    */
   private void setupFilter(int flags) {
     filter.setup(flags);
+    initialFilterState = false;
   }
 
   /**
@@ -346,6 +401,26 @@ public class MultiPathFilter {
     Objects.requireNonNull(filterSetupState,
         "Unknown initial filter state. setup(...) must be called before using the filter methods.");
     filterSetupState.restoreState();
+    initialFilterState = true;
+  }
+
+  /**
+   * Validate the peak using the main filter.
+   *
+   * <p>If the filter is in the initial setup state and the peak is present in the columns then the
+   * precomputed validation result is used.
+   *
+   * @param peak the peak
+   * @return the validation result
+   */
+  private int validate(PreprocessedPeakResult peak) {
+    if (initialFilterState && columns != null) {
+      final int index = columns.indexOf(peak);
+      if (index >= 0) {
+        return getColumnValidationResults()[index];
+      }
+    }
+    return filter.validate(peak);
   }
 
   /**
@@ -431,6 +506,34 @@ public class MultiPathFilter {
     return (filter == null) ? null : filter.copy();
   }
 
+  /**
+   * Sets the columns of the results that will be filtered.
+   *
+   * <p>When a result in the columns is first validated with the filter in the initial setup state
+   * the main filter is used to validate all the results in the columns in a single pass. The
+   * precomputed validation result is then used for results in the columns until the filter is
+   * setup differently. This is efficient when the same set of results is filtered repeatedly.
+   *
+   * <p>The columns are used from the next call to one of the setup methods. The columns are not
+   * copied by {@link #copy()}.
+   *
+   * @param columns the columns (can be null)
+   */
+  public void setColumns(PreprocessedPeakResultColumns columns) {
+    this.columns = columns;
+    this.columnValidationResults = null;
+    this.columnValidationState = null;
+  }
+
+  /**
+   * Gets the columns of the results that will be filtered.
+   *
+   * @return the columns (can be null)
+   */
+  public PreprocessedPeakResultColumns getColumns() {
+    return columns;
+  }
+
   /**
    * Gets the filter.
    *
@@ -1330,7 +1433,7 @@ public class MultiPathFilter {
         validationResults[i] = results[i].getValidationResult();
         continue;
       }
-      validationResults[i] = filter.validate(results[i]);
+      validationResults[i] = validate(results[i]);
     }
   }
 
@@ -1502,13 +1605,13 @@ public class MultiPathFilter {
 
     validationResults = new int[results.length];
     for (int i = 0; i < nDoublets; i++) {
-      validationResults[i] = filter.validate(results[i]);
+      validationResults[i] = validate(results[i]);
     }
 
     restoreFilterState();
 
     for (int i = nDoublets; i < results.length; i++) {
-      validationResults[i] = filter.validate(results[i]);
+      validationResults[i] = validate(results[i]);
     }
 
     return acceptAnyInternal(candidateId, multiDoubletFitResult, validateCandidates, store);
@@ -1942,7 +2045,7 @@ public class MultiPathFilter {
 
     for (int i = 0; i < results.length; i++) {
       // Validate everything
-      final int r = filter.validate(results[i]);
+      final int r = validate(results[i]);
       results[i].setValidationResult(r);
 
       // Mark as valid in the store
@@ -1956,7 +2059,7 @@ public class MultiPathFilter {
       int lower, int upper) {
     for (int i = lower; i < upper; i++) {
       // Validate everything
-      final int r = filter.validate(results[i]);
+      final int r = validate(results[i]);
       results[i].setValidationResult(r);
 
       // Mark as valid in the store
@@ -0,0 +1,218 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.results.filter;
+
+import uk.ac.sussex.gdsc.smlm.results.filter.MultiPathFitResult.FitResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores the fields of a set of {@link PreprocessedPeakResult} used for filtering as columns of
+ * primitive arrays. This allows a filter to validate all the results in a single pass over each
+ * field.
+ *
+ * <p>Results are located using the unique Id. A result is only present in the columns if it is
+ * the same object that was used to create the columns.
+ */
+public final class PreprocessedPeakResultColumns {
+  /** The results. */
+  private final PreprocessedPeakResult[] results;
+  /** The index of each result in the columns using the unique Id. Missing results are -1. */
+  private final int[] index;
+
+  /** The signal. */
+  final float[] signal;
+  /** The signal-to-noise ratio. */
+  final float[] snr;
+  /** The X SD factor. */
+  final float[] xsdFactor;
+  /** The Y SD factor. */
+  final float[] ysdFactor;
+  /** The X relative shift squared. */
+  final float[] xrelativeShift2;
+  /** The Y relative shift squared. */
+  final float[] yrelativeShift2;
+  /** The z position. */
+  final float[] z;
+  /** The location variance. */
+  final double[] locationVariance;
+  /** The location variance using the local background. */
+  final double[] locationVariance2;
+  /** The location variance using the Cramér-Rao lower bound. */
+  final double[] locationVarianceCrlb;
+
+  /**
+   * Create a new instance.
+   *
+   * @param results the results (must have a unique Id that is not negative)
+   */
+  private PreprocessedPeakResultColumns(PreprocessedPeakResult[] results) {
+    this.results = results;
+    final int size = results.length;
+    int max = -1;
+    for (final PreprocessedPeakResult r : results) {
+      max = Math.max(max, r.getUniqueId());
+    }
+    index = new int[max + 1];
+    Arrays.fill(index, -1);
+    signal = new float[size];
+    snr = new float[size];
+    xsdFactor = new float[size];
+    ysdFactor = new float[size];
+    xrelativeShift2 = new float[size];
+    yrelativeShift2 = new float[size];
+    z = new float[size];
+    locationVariance = new double[size];
+    locationVariance2 = new double[size];
+    locationVarianceCrlb = new double[size];
+    for (int i = 0; i < size; i++) {
+      final PreprocessedPeakResult r = results[i];
+      index[r.getUniqueId()] = i;
+      signal[i] = r.getSignal();
+      snr[i] = r.getSnr();
+      xsdFactor[i] = r.getXSdFactor();
+      ysdFactor[i] = r.getYSdFactor();
+      xrelativeShift2[i] = r.getXRelativeShift2();
+      yrelativeShift2[i] = r.getYRelativeShift2();
+      z[i] = r.getZ();
+      locationVariance[i] = r.getLocationVariance();
+      locationVariance2[i] = r.getLocationVariance2();
+      locationVarianceCrlb[i] = r.getLocationVarianceCrlb();
+    }
+  }
+
+  /**
+   * Create the columns from the results.
+   *
+   * <p>Results with a negative unique Id are ignored. If multiple results share the same unique Id
+   * then only the first is stored.
+   *
+   * @param results the results
+   * @return the columns
+   */
+  public static PreprocessedPeakResultColumns create(PreprocessedPeakResult[] results) {
+    final List<PreprocessedPeakResult> list = new ArrayList<>(results.length);
+    int max = -1;
+    for (final PreprocessedPeakResult r : results) {
+      if (r != null) {
+        max = Math.max(max, r.getUniqueId());
+      }
+    }
+    final boolean[] seen = new boolean[max + 1];
+    for (final PreprocessedPeakResult r : results) {
+      add(list, seen, r);
+    }
+    return new PreprocessedPeakResultColumns(list.toArray(new PreprocessedPeakResult[0]));
+  }
+
+  /**
+   * Create the columns from all the results of all the fit paths in the multi-path results.
+   *
+   * @param results the results
+   * @return the columns
+   * @see #create(PreprocessedPeakResult[])
+   */
+  public static PreprocessedPeakResultColumns create(MultiPathFitResults[] results) {
+    final List<PreprocessedPeakResult> list = new ArrayList<>();
+    for (final MultiPathFitResults multiPathResults : results) {
+      for (final MultiPathFitResult result : multiPathResults.getMultiPathFitResults()) {
+        add(list, result.getMultiFitResult());
+        add(list, result.getMultiDoubletFitResult());
+        add(list, result.getSingleFitResult());
+        add(list, result.getDoubletFitResult());
+      }
+    }
+    return create(list.toArray(new PreprocessedPeakResult[0]));
+  }
+
+  private static void add(List<PreprocessedPeakResult> list, FitResult fitResult) {
+    if (fitResult != null && fitResult.getResults() != null) {
+      list.addAll(Arrays.asList(fitResult.getResults()));
+    }
+  }
+
+  private static void add(List<PreprocessedPeakResult> list, boolean[] seen,
+      PreprocessedPeakResult result) {
+    if (result != null) {
+      final int id = result.getUniqueId();
+      if (id >= 0 && !seen[id]) {
+        seen[id] = true;
+        list.add(result);
+      }
+    }
+  }
+
+  /**
+   * Get the number of results.
+   *
+   * @return the size
+   */
+  public int size() {
+    return results.length;
+  }
+
+  /**
+   * Gets the result.
+   *
+   * @param index the index
+   * @return the result
+   */
+  public PreprocessedPeakResult get(int index) {
+    return results[index];
+  }
+
+  /**
+   * Get the index of the result in the columns. The result must be the same object used to create
+   * the columns.
+   *
+   * @param result the result
+   * @return the index (or -1 if not present)
+   */
+  public int indexOf(PreprocessedPeakResult result) {
+    final int id = result.getUniqueId();
+    if (id >= 0 && id < index.length) {
+      final int i = index[id];
+      if (i >= 0 && results[i] == result) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Validate all the results with the filter. The filter must have been setup.
+   *
+   * @param filter the filter
+   * @return the validation result for each index (zero if the result passes)
+   * @see IDirectFilter#validate(PreprocessedPeakResult)
+   */
+  public int[] validate(IDirectFilter filter) {
+    final int[] flags = new int[size()];
+    filter.validate(this, flags);
+    return flags;
+  }
+}
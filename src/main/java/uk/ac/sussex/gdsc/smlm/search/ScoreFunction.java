@@ -38,4 +38,14 @@ public interface ScoreFunction<T extends Comparable<T>> {
    * @return the result for the optimum of the points
    */
   SearchResult<T> findOptimum(double[][] points);
+
+  /**
+   * Checks if the score function is thread safe. If true then the function can be called
+   * concurrently with different subsets of points.
+   *
+   * @return true if thread safe
+   */
+  default boolean isThreadSafe() {
+    return false;
+  }
 }
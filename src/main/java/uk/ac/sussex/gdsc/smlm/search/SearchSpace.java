@@ -27,13 +27,19 @@ package uk.ac.sussex.gdsc.smlm.search;
 import uk.ac.sussex.gdsc.core.annotation.Nullable;
 import uk.ac.sussex.gdsc.core.logging.TrackProgress;
 import uk.ac.sussex.gdsc.core.utils.ValidationUtils;
+import uk.ac.sussex.gdsc.core.utils.concurrent.ConcurrencyUtils;
 
 import org.apache.commons.math3.random.HaltonSequenceGenerator;
 import org.apache.commons.math3.random.RandomVectorGenerator;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 /**
  * Search a range of parameter space using a window divided into increments.
@@ -51,11 +57,50 @@ public class SearchSpace {
   private final HashSet<String> coveredSpace = new HashSet<>();
   private final StringBuilder sb = new StringBuilder();
 
+  /** The points scored during the current search. */
+  private final HashSet<PointKey> scoredPoints = new HashSet<>();
+  /** The results of points scored during the current search. */
+  private final HashMap<PointKey, SearchResult<?>> scoredResults = new HashMap<>();
+  private boolean memoisation;
+  private int threads = 1;
+  private ExecutorService executorService;
+  private boolean successiveHalving;
+  private int evaluations;
+
   // This introduces a dependency on another uk.ac.sussex.gdsc.smlm package
   private TrackProgress tracker;
 
   private RefinementMode searchMode = RefinementMode.SINGLE_DIMENSION;
 
+  /**
+   * Wrap a point for use as a key in a map.
+   */
+  private static final class PointKey {
+    private final double[] point;
+    private final int hash;
+
+    PointKey(double[] point) {
+      this.point = point.clone();
+      hash = Arrays.hashCode(point);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof PointKey)) {
+        return false;
+      }
+      return Arrays.equals(point, ((PointKey) obj).point);
+    }
+  }
+
   /**
    * The refinement mode for the range search.
    *
@@ -144,12 +189,16 @@ public class SearchSpace {
     scoredSearchSpace = null;
     scoredSearchSpaceHash.clear();
     coveredSpace.clear();
+    scoredPoints.clear();
 
     return current;
   }
 
   private void reset() {
     iteration = 0;
+    evaluations = 0;
+    scoredPoints.clear();
+    scoredResults.clear();
     sb.setLength(0);
     currentSearchSpace = null;
     scoredSearchSpace = null;
@@ -198,15 +247,26 @@ public class SearchSpace {
     scoredSearchSpace = currentSearchSpace;
     scoredSearchSpaceHash.clear();
 
+    if (memoisation && current != null) {
+      // The current optimum is the best of all the points scored so far so any point that has
+      // already been scored cannot improve the optimum
+      scoredSearchSpace = removeScoredPoints(currentSearchSpace);
+      if (scoredSearchSpace.length == 0) {
+        end();
+        return current;
+      }
+    }
+
     if (!coveredSpace.isEmpty()) {
       // Check we do not recompute scores
-      scoredSearchSpace = new double[currentSearchSpace.length][];
-      scoredSearchSpaceHash.ensureCapacity(currentSearchSpace.length);
+      scoredSearchSpaceHash.ensureCapacity(scoredSearchSpace.length);
       int size = 0;
-      for (int i = 0; i < currentSearchSpace.length; i++) {
-        final String hash = generateHashString(currentSearchSpace[i]);
+      final double[][] searchSpace = scoredSearchSpace;
+      scoredSearchSpace = new double[searchSpace.length][];
+      for (int i = 0; i < searchSpace.length; i++) {
+        final String hash = generateHashString(searchSpace[i]);
         if (!coveredSpace.contains(hash)) {
-          scoredSearchSpace[size++] = currentSearchSpace[i];
+          scoredSearchSpace[size++] = searchSpace[i];
           scoredSearchSpaceHash.add(hash);
         }
       }
@@ -219,7 +279,7 @@ public class SearchSpace {
       scoredSearchSpace = Arrays.copyOf(scoredSearchSpace, size);
     }
 
-    final SearchResult<T> optimum = scoreFunction.findOptimum(scoredSearchSpace);
+    final SearchResult<T> optimum = findOptimum(scoreFunction, scoredSearchSpace);
     // Replace if better
     if (optimum != null && optimum.compareTo(current) < 0) {
       current = optimum;
@@ -247,7 +307,7 @@ public class SearchSpace {
     scoredSearchSpace = currentSearchSpace;
     scoredSearchSpaceHash.clear();
 
-    final SearchResult<T> optimum = scoreFunction.findOptimum(scoredSearchSpace);
+    final SearchResult<T> optimum = findOptimum(scoreFunction, scoredSearchSpace);
 
     // Re-centre on the seed
     if (optimum != null) {
@@ -264,6 +324,167 @@ public class SearchSpace {
     return optimum;
   }
 
+  /**
+   * Remove the points that have been scored.
+   *
+   * @param points the points
+   * @return the points that have not been scored
+   */
+  private double[][] removeScoredPoints(double[][] points) {
+    final double[][] remaining = new double[points.length][];
+    int size = 0;
+    for (final double[] point : points) {
+      if (!scoredPoints.contains(new PointKey(point))) {
+        remaining[size++] = point;
+      }
+    }
+    return (size == points.length) ? points : Arrays.copyOf(remaining, size);
+  }
+
+  /**
+   * Find the optimum of the points using the score function. This is performed in parallel if the
+   * function is thread safe and multiple threads are configured.
+   *
+   * @param <T> the type of comparable score
+   * @param scoreFunction the score function
+   * @param points the points
+   * @return the optimum (or null)
+   */
+  private <T extends Comparable<T>> SearchResult<T> findOptimum(ScoreFunction<T> scoreFunction,
+      double[][] points) {
+    if (memoisation) {
+      for (final double[] point : points) {
+        scoredPoints.add(new PointKey(point));
+      }
+    }
+    evaluations += points.length;
+    final List<double[][]> chunks = createChunks(scoreFunction, points);
+    if (chunks.size() == 1) {
+      return scoreFunction.findOptimum(points);
+    }
+    final List<SearchResult<T>> results = runChunks(chunks, scoreFunction::findOptimum);
+    SearchResult<T> optimum = null;
+    for (final SearchResult<T> result : results) {
+      if (result != null && result.compareTo(optimum) < 0) {
+        optimum = result;
+      }
+    }
+    return optimum;
+  }
+
+  /**
+   * Score the points using the score function. This is performed in parallel if the function is
+   * thread safe and multiple threads are configured. If using memoisation then only points that
+   * have not been scored are passed to the score function.
+   *
+   * @param <T> the type of comparable score
+   * @param scoreFunction the score function
+   * @param points the points
+   * @return the scores (or null)
+   */
+  @SuppressWarnings("unchecked")
+  private <T extends Comparable<T>> SearchResult<T>[] score(FullScoreFunction<T> scoreFunction,
+      double[][] points) {
+    if (!memoisation) {
+      return scoreAll(scoreFunction, points);
+    }
+
+    // Score only unique points that have not been scored
+    final HashSet<PointKey> pending = new HashSet<>();
+    final double[][] toScore = new double[points.length][];
+    int size = 0;
+    for (final double[] point : points) {
+      final PointKey key = new PointKey(point);
+      if (!scoredResults.containsKey(key) && pending.add(key)) {
+        toScore[size++] = point;
+      }
+    }
+    if (size != 0) {
+      final double[][] newPoints = Arrays.copyOf(toScore, size);
+      final SearchResult<T>[] scores = scoreAll(scoreFunction, newPoints);
+      if (scores == null || scores.length != size) {
+        return scores;
+      }
+      // The function may reorder the points so use the point of each score
+      for (int i = 0; i < size; i++) {
+        scoredResults.put(new PointKey(scores[i].getPoint()), scores[i]);
+      }
+    }
+
+    final SearchResult<T>[] scores = new SearchResult[points.length];
+    for (int i = 0; i < points.length; i++) {
+      scores[i] = (SearchResult<T>) scoredResults.get(new PointKey(points[i]));
+    }
+    return scores;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T extends Comparable<T>> SearchResult<T>[] scoreAll(FullScoreFunction<T> scoreFunction,
+      double[][] points) {
+    evaluations += points.length;
+    final List<double[][]> chunks = createChunks(scoreFunction, points);
+    if (chunks.size() == 1) {
+      return scoreFunction.score(points);
+    }
+    final List<SearchResult<T>[]> results = runChunks(chunks, scoreFunction::score);
+    final ArrayList<SearchResult<T>> scores = new ArrayList<>(points.length);
+    for (final SearchResult<T>[] result : results) {
+      if (result == null) {
+        return null;
+      }
+      scores.addAll(Arrays.asList(result));
+    }
+    return scores.toArray(new SearchResult[0]);
+  }
+
+  /**
+   * Split the points into chunks to be processed by each thread. A single chunk is returned if the
+   * score function is not thread safe or there is no executor service.
+   *
+   * @param scoreFunction the score function
+   * @param points the points
+   * @return the chunks
+   */
+  private List<double[][]> createChunks(ScoreFunction<?> scoreFunction, double[][] points) {
+    final int chunks = (executorService != null && scoreFunction.isThreadSafe())
+        ? Math.min(threads, points.length)
+        : 1;
+    final ArrayList<double[][]> list = new ArrayList<>(Math.max(1, chunks));
+    if (chunks <= 1) {
+      list.add(points);
+      return list;
+    }
+    for (int i = 0; i < chunks; i++) {
+      final int from = (int) ((long) points.length * i / chunks);
+      final int to = (int) ((long) points.length * (i + 1) / chunks);
+      list.add(Arrays.copyOfRange(points, from, to));
+    }
+    return list;
+  }
+
+  /**
+   * Run the function on each chunk in parallel.
+   *
+   * @param <R> the result type
+   * @param chunks the chunks
+   * @param function the function
+   * @return the results (in the order of the chunks)
+   */
+  private <R> List<R> runChunks(List<double[][]> chunks, Function<double[][], R> function) {
+    final List<Future<?>> futures = new ArrayList<>(chunks.size());
+    final Object[] results = new Object[chunks.size()];
+    for (int i = 0; i < results.length; i++) {
+      final int index = i;
+      futures.add(executorService.submit(() -> {
+        results[index] = function.apply(chunks.get(index));
+      }));
+    }
+    ConcurrencyUtils.waitForCompletionUnchecked(futures);
+    @SuppressWarnings("unchecked")
+    final List<R> list = (List<R>) Arrays.asList(results);
+    return list;
+  }
+
   private boolean seedToSearchSpace(Dimension[] dimensions) {
     if (seed == null) {
       return false;
@@ -741,6 +962,103 @@ public class SearchSpace {
     this.tracker = tracker;
   }
 
+  /**
+   * Checks if memoisation is enabled.
+   *
+   * @return true if memoisation is enabled
+   */
+  public boolean isMemoisation() {
+    return memoisation;
+  }
+
+  /**
+   * Set to true to enable memoisation of the scored points.
+   *
+   * <p>During a search each point is only passed to the score function once. The points are
+   * identified using the exact coordinates; the search space is rounded to the minimum interval of
+   * each dimension so points are revisited when the range is re-centred or refined. This assumes
+   * the score function is deterministic.
+   *
+   * <p>For the range search a point that has been scored is not scored again as it cannot improve
+   * the current optimum. For the enrichment search the score of each point is stored.
+   *
+   * @param memoisation the new memoisation
+   */
+  public void setMemoisation(boolean memoisation) {
+    this.memoisation = memoisation;
+  }
+
+  /**
+   * Gets the number of threads to use for a thread safe score function.
+   *
+   * @return the threads
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Sets the number of threads to use for a thread safe score function. If the score function is
+   * thread safe and an executor service is set then the points are divided between threads and
+   * scored in parallel.
+   *
+   * @param threads the new threads
+   * @see ScoreFunction#isThreadSafe()
+   * @see #setExecutorService(ExecutorService)
+   */
+  public void setThreads(int threads) {
+    this.threads = Math.max(1, threads);
+  }
+
+  /**
+   * Gets the executor service used to score a thread safe score function in parallel.
+   *
+   * @return the executor service
+   */
+  public ExecutorService getExecutorService() {
+    return executorService;
+  }
+
+  /**
+   * Sets the executor service used to score a thread safe score function in parallel. The executor
+   * service is owned by the caller and is not shutdown by the search.
+   *
+   * @param executorService the new executor service (set to null to score on the calling thread)
+   * @see #setThreads(int)
+   */
+  public void setExecutorService(ExecutorService executorService) {
+    this.executorService = executorService;
+  }
+
+  /**
+   * Checks if successive halving is enabled for the enrichment search.
+   *
+   * @return true if successive halving is enabled
+   */
+  public boolean isSuccessiveHalving() {
+    return successiveHalving;
+  }
+
+  /**
+   * Set to true to use successive halving in the enrichment search. The number of samples is
+   * halved at each iteration as the search range is reduced around the optimum. The number of
+   * samples will not be lower than the size of the top fraction of the initial samples.
+   *
+   * @param successiveHalving the new successive halving
+   */
+  public void setSuccessiveHalving(boolean successiveHalving) {
+    this.successiveHalving = successiveHalving;
+  }
+
+  /**
+   * Gets the number of points passed to the score function during the most recent search.
+   *
+   * @return the evaluations
+   */
+  public int getEvaluations() {
+    return evaluations;
+  }
+
   /**
    * Get the iteration. The iteration is increased each time the population grows as part of the
    * [grow, evaluate, select] cycle.
@@ -806,7 +1124,7 @@ public class SearchSpace {
       double fraction, double padding) {
     ValidationUtils.checkArrayLength(dimensions, "Dimensions");
     ValidationUtils.checkNotNull(scoreFunction, "Score function is null");
-    ValidationUtils.checkArgument(fraction <= 0 || fraction >= 1,
+    ValidationUtils.checkArgument(fraction > 0 && fraction < 1,
         "Fraction must be between 0 and 1: %f", fraction);
     ValidationUtils.checkStrictlyPositive(samples, "Samples");
     ValidationUtils.checkPositive(padding, "Padding");
@@ -828,6 +1146,10 @@ public class SearchSpace {
     SearchResult<T> current = scores[0];
     SearchResult<T> previous = null;
 
+    // The minimum number of samples when using successive halving
+    final int minSamples = Math.max(1, Math.min(samples, scores.length));
+    int iterationSamples = samples;
+
     boolean converged = false;
     while (!converged) {
       iteration++;
@@ -838,8 +1160,12 @@ public class SearchSpace {
         break;
       }
 
+      if (successiveHalving) {
+        iterationSamples = Math.max(minSamples, iterationSamples / 2);
+      }
+
       // Find the optimum and check convergence
-      scores = score(dimensions, scoreFunction, samples, fraction, generator);
+      scores = score(dimensions, scoreFunction, iterationSamples, fraction, generator);
       if (scores == null) {
         break;
       }
@@ -856,6 +1182,9 @@ public class SearchSpace {
       tracker.status("Converged [%d]", iteration);
     }
 
+    // Free memory
+    scoredResults.clear();
+
     return current;
   }
 
@@ -888,7 +1217,10 @@ public class SearchSpace {
     }
 
     // Score
-    final SearchResult<T>[] scores = scoreFunction.score(currentSearchSpace);
+    final SearchResult<T>[] scores = score(scoreFunction, currentSearchSpace);
+    if (scores == null) {
+      return null;
+    }
 
     // Get the top fraction
     final int size = (int) Math.ceil(samples * fraction);
@@ -913,7 +1245,10 @@ public class SearchSpace {
     currentSearchSpace = sample(dimensions, samples, generator);
 
     // Score
-    final SearchResult<T>[] scores = scoreFunction.score(currentSearchSpace);
+    final SearchResult<T>[] scores = score(scoreFunction, currentSearchSpace);
+    if (scores == null) {
+      return null;
+    }
 
     // Get the top fraction
     final int size = (int) Math.ceil(scores.length * fraction);
@@ -0,0 +1,97 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.utils;
+
+/**
+ * Provides utilities for applying a permutation to indexed data in place.
+ */
+public final class PermutationUtils {
+  /**
+   * Swap the data at two positions.
+   */
+  @FunctionalInterface
+  public interface IndexSwapper {
+    /**
+     * Swap the data at the two positions.
+     *
+     * @param i the first position
+     * @param j the second position
+     */
+    void swap(int i, int j);
+  }
+
+  /** No public constructor. */
+  private PermutationUtils() {}
+
+  /**
+   * Check the indices are a permutation of the positions {@code [0, size)}.
+   *
+   * @param indices the indices
+   * @param size the size
+   * @throws IllegalArgumentException if the indices are not a permutation
+   */
+  public static void checkPermutation(int[] indices, int size) {
+    if (indices.length != size) {
+      throw new IllegalArgumentException("indices of size " + size + " expected");
+    }
+    final boolean[] seen = new boolean[size];
+    for (final int index : indices) {
+      if (index < 0 || index >= size || seen[index]) {
+        throw new IllegalArgumentException("indices are not a permutation");
+      }
+      seen[index] = true;
+    }
+  }
+
+  /**
+   * Reorder the data in place. The data at position {@code i} in the new order is the data at
+   * position {@code indices[i]} in the current order.
+   *
+   * <p>The indices are checked before any data is moved. The data is moved by following each cycle
+   * of the permutation using at most {@code size - 1} swaps.
+   *
+   * @param indices the indices of the new order (a permutation of the current positions)
+   * @param size the size of the data
+   * @param swapper the function to swap the data at two positions
+   * @throws IllegalArgumentException if the indices are not a permutation
+   */
+  public static void reorder(int[] indices, int size, IndexSwapper swapper) {
+    checkPermutation(indices, size);
+    final boolean[] done = new boolean[indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      if (done[i]) {
+        continue;
+      }
+      // Move the data of each position in the cycle into place
+      int j = i;
+      for (int k = indices[j]; k != i; k = indices[j]) {
+        swapper.swap(j, k);
+        done[j] = true;
+        j = k;
+      }
+      done[j] = true;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.filters;
+
+import uk.ac.sussex.gdsc.test.junit5.RandomSeed;
+import uk.ac.sussex.gdsc.test.junit5.SeededTest;
+import uk.ac.sussex.gdsc.test.rng.RngUtils;
+
+import org.apache.commons.rng.UniformRandomProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+@SuppressWarnings({"javadoc"})
+public class SpotCandidatesTest {
+  @Test
+  public void canCreateFromMaxima() {
+    final int width = 5;
+    final float[] data = new float[width * 4];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = i * 0.5f;
+    }
+    final int[] maxIndices = {3, 7, 12, 19};
+    final SpotCandidates candidates = SpotCandidates.create(maxIndices, data, width);
+    Assertions.assertEquals(maxIndices.length, candidates.getSize());
+    Assertions.assertArrayEquals(maxIndices, candidates.getIndices());
+    for (int i = 0; i < maxIndices.length; i++) {
+      Assertions.assertEquals(maxIndices[i] % width, candidates.getX(i));
+      Assertions.assertEquals(maxIndices[i] / width, candidates.getY(i));
+      Assertions.assertEquals(data[maxIndices[i]], candidates.getIntensity(i));
+      Assertions.assertEquals(data[maxIndices[i]], candidates.getScore(i));
+    }
+  }
+
+  @Test
+  public void canCreateEmpty() {
+    final SpotCandidates candidates = SpotCandidates.empty();
+    Assertions.assertEquals(0, candidates.getSize());
+    Assertions.assertEquals(0, candidates.rank().toSpots().length);
+  }
+
+  @SeededTest
+  public void canRankLikeSpotScoreComparator(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final int width = 100;
+    final float[] values = {-1.5f, -0.0f, 0.0f, 1, 2.5f, Float.NaN, Float.POSITIVE_INFINITY,
+        Float.NEGATIVE_INFINITY};
+    for (int loop = 0; loop < 10; loop++) {
+      final Spot[] spots = new Spot[50 + rng.nextInt(50)];
+      for (int i = 0; i < spots.length; i++) {
+        // Use a small set of scores to create ties
+        final float score = values[rng.nextInt(values.length)];
+        spots[i] = new Spot(rng.nextInt(width), rng.nextInt(width), rng.nextFloat(), score);
+      }
+      final SpotCandidates candidates = SpotCandidates.create(spots, width).rank();
+      final Spot[] expected = spots.clone();
+      Arrays.sort(expected, SpotScoreComparator.getInstance());
+      final Spot[] actual = candidates.toSpots();
+      Assertions.assertEquals(expected.length, actual.length);
+      for (int i = 0; i < expected.length; i++) {
+        Assertions.assertEquals(expected[i].x, actual[i].x);
+        Assertions.assertEquals(expected[i].y, actual[i].y);
+        Assertions.assertEquals(expected[i].intensity, actual[i].intensity);
+        Assertions.assertEquals(expected[i].getScore(), actual[i].getScore());
+        Assertions.assertEquals(expected[i].y * width + expected[i].x, candidates.getIndex(i));
+      }
+    }
+  }
+}
@@ -80,6 +80,9 @@ public class SpotFilterHelperTest {
           Assertions.assertArrayEquals(e, count);
           final int[] count2 = h.countNeighbours(spots, width, height, box);
           Assertions.assertArrayEquals(e, count2);
+          final SpotCandidates candidates = SpotCandidates.create(spots, width);
+          Assertions.assertArrayEquals(e, h.countNeighbours(candidates, box));
+          Assertions.assertArrayEquals(e, h.countNeighbours(candidates, width, height, box));
         }
       }
     }
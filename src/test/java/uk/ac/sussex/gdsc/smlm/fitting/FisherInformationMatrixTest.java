@@ -41,6 +41,7 @@ import org.ejml.data.DenseMatrix64F;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
 import org.opentest4j.AssertionFailedError;
 
 import java.util.Arrays;
@@ -72,6 +73,29 @@ public class FisherInformationMatrixTest {
     }
   }
 
+  @Test
+  public void computeCrlbAppliesInversionToleranceToLargeMatrices() {
+    // The Hilbert matrix is positive definite but very ill-conditioned
+    final int n = 10;
+    final double[] a = new double[n * n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        a[i * n + j] = 1.0 / (i + j + 1);
+      }
+    }
+    Assertions.assertNotNull(new FisherInformationMatrix(a, n, 0).crlb());
+    Assertions.assertNull(new FisherInformationMatrix(a, n, 1e-6).crlb());
+
+    // The same instance is inverted again when the tolerance changes
+    final FisherInformationMatrix m = new FisherInformationMatrix(a, n, 0);
+    final double[] crlb = m.crlb();
+    Assertions.assertNotNull(crlb);
+    m.setInversionTolerance(1e-6);
+    Assertions.assertNull(m.crlb());
+    m.setInversionTolerance(0);
+    Assertions.assertArrayEquals(crlb, m.crlb());
+  }
+
   @SeededTest
   public void canComputeCrlbWithZeros(RandomSeed seed) {
     final UniformRandomProvider rg = RngUtils.create(seed.getSeed());
@@ -0,0 +1,168 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+  */
+
+package uk.ac.sussex.gdsc.smlm.fitting.linear;
+
+import uk.ac.sussex.gdsc.core.utils.DoubleEquality;
+import uk.ac.sussex.gdsc.test.api.TestAssertions;
+import uk.ac.sussex.gdsc.test.api.TestHelper;
+import uk.ac.sussex.gdsc.test.api.function.DoubleDoubleBiPredicate;
+import uk.ac.sussex.gdsc.test.junit5.RandomSeed;
+import uk.ac.sussex.gdsc.test.junit5.SeededTest;
+import uk.ac.sussex.gdsc.test.rng.RngUtils;
+
+import org.apache.commons.rng.UniformRandomProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings({"javadoc"})
+public class CholeskyLdlTSolverTest {
+  @Test
+  public void canSolveLinearEquation() {
+    final CholeskyLdlTSolver solver = new CholeskyLdlTSolver(new DoubleEquality(5e-3, 1e-6));
+
+    // Taken from https://en.wikipedia.org/wiki/Positive-definite_matrix
+    final double[] a = new double[] {2, -1, 0, -1, 2, -1, 0, -1, 2};
+    final double[] b = new double[] {3, 3, 4};
+    final double[] a2 = a.clone();
+
+    Assertions.assertTrue(solver.solve(a, b), "Failed to solve");
+    Assertions.assertArrayEquals(new double[] {4.75, 6.5, 5.25}, b, 1e-10, "Bad solution");
+    Assertions.assertArrayEquals(a2, a, "Matrix was modified");
+
+    final double[] d = solver.invertDiagonal(a, 3);
+    Assertions.assertArrayEquals(new double[] {0.75, 1, 0.75}, d, 1e-10, "Bad inversion");
+  }
+
+  @Test
+  public void cannotSolveSingularMatrix() {
+    final CholeskyLdlTSolver solver = new CholeskyLdlTSolver();
+    final double[] a = new double[] {1, 1, 1, 1};
+    final double[] b = new double[] {1, 2};
+    Assertions.assertFalse(solver.solve(a, b));
+    Assertions.assertArrayEquals(new double[] {1, 2}, b, "Vector was modified");
+    Assertions.assertNull(solver.invertDiagonal(a, 2));
+
+    // Zero row
+    final double[] a2 = new double[] {2, 0, 0, 0, 0, 0, 0, 0, 1};
+    Assertions.assertFalse(solver.solve(a2, new double[3]));
+  }
+
+  @Test
+  public void cannotSolveUnsupportedSize() {
+    final CholeskyLdlTSolver solver = new CholeskyLdlTSolver();
+    final int n = CholeskyLdlTSolver.MAX + 1;
+    final double[] a = new double[n * n];
+    for (int i = 0; i < n; i++) {
+      a[i * n + i] = 1;
+    }
+    Assertions.assertFalse(solver.solve(a, new double[n]));
+    Assertions.assertNull(solver.invertDiagonal(a, n));
+    Assertions.assertFalse(solver.solve(new double[0], new double[0]));
+  }
+
+  @SeededTest
+  public void canSolveAsEjmlLinearSolver(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final CholeskyLdlTSolver solver = new CholeskyLdlTSolver();
+    final EjmlLinearSolver ejml = new EjmlLinearSolver();
+    final DoubleDoubleBiPredicate predicate = TestHelper.doublesAreClose(1e-8, 1e-10);
+    // Use descending sizes to test reuse of the working storage
+    for (final int n : new int[] {CholeskyLdlTSolver.MAX, 33, 11, 5, 2, 1}) {
+      final double[] a = createPositiveDefiniteMatrix(rng, n);
+      final double[] b = new double[n];
+      for (int i = 0; i < n; i++) {
+        b[i] = rng.nextDouble() * 10 - 5;
+      }
+      final double[] x = b.clone();
+      Assertions.assertTrue(solver.solve(a, x));
+      final double[] e = b.clone();
+      Assertions.assertTrue(ejml.solve(a.clone(), e));
+      TestAssertions.assertArrayTest(e, x, predicate);
+
+      final double[] d = solver.invertDiagonal(a, n);
+      final double[] ed = ejml.invertDiagonal(a.clone(), n);
+      TestAssertions.assertArrayTest(ed, d, predicate);
+    }
+  }
+
+  @SeededTest
+  public void canInvertDiagonalWithTolerance(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final CholeskyLdlTSolver solver = new CholeskyLdlTSolver();
+    final DoubleDoubleBiPredicate predicate = TestHelper.doublesAreClose(1e-8, 1e-10);
+    for (final int n : new int[] {CholeskyLdlTSolver.MAX, 11, 6}) {
+      final double[] a = createPositiveDefiniteMatrix(rng, n);
+      final double[] a2 = a.clone();
+      final double[] d = solver.invertDiagonal(a, n, 1e-2);
+      Assertions.assertArrayEquals(a2, a, "Matrix was modified");
+      TestAssertions.assertArrayTest(solver.invertDiagonal(a, n), d, predicate);
+    }
+  }
+
+  @Test
+  public void cannotInvertIllConditionedMatrixWithTolerance() {
+    final CholeskyLdlTSolver solver = new CholeskyLdlTSolver();
+    // The Hilbert matrix is positive definite but very ill-conditioned
+    final int n = 10;
+    final double[] a = createHilbertMatrix(n);
+    final double tolerance = 1e-6;
+    Assertions.assertNotNull(solver.invertDiagonal(a, n));
+    Assertions.assertNull(solver.invertDiagonal(a, n, tolerance));
+    // The same result as the EJML solver
+    final EjmlLinearSolver ejml = EjmlLinearSolver.createForInversion(tolerance);
+    Assertions.assertNull(ejml.invertDiagonal(a.clone(), n));
+  }
+
+  private static double[] createHilbertMatrix(int n) {
+    final double[] a = new double[n * n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        a[i * n + j] = 1.0 / (i + j + 1);
+      }
+    }
+    return a;
+  }
+
+  /**
+   * Creates a positive definite matrix as G G^T + I.
+   */
+  private static double[] createPositiveDefiniteMatrix(UniformRandomProvider rng, int n) {
+    final double[] g = new double[n * n];
+    for (int i = 0; i < g.length; i++) {
+      g[i] = rng.nextDouble() * 2 - 1;
+    }
+    final double[] a = new double[n * n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        double sum = (i == j) ? 1 : 0;
+        for (int k = 0; k < n; k++) {
+          sum += g[i * n + k] * g[j * n + k];
+        }
+        a[i * n + j] = sum;
+      }
+    }
+    return a;
+  }
+}
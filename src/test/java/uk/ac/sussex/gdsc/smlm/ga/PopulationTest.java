@@ -0,0 +1,226 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+  */
+
+package uk.ac.sussex.gdsc.smlm.ga;
+
+import uk.ac.sussex.gdsc.smlm.ga.Population.GenerationStatistics;
+import uk.ac.sussex.gdsc.test.junit5.RandomSeed;
+import uk.ac.sussex.gdsc.test.junit5.SeededTest;
+import uk.ac.sussex.gdsc.test.rng.RngUtils;
+
+import org.apache.commons.rng.UniformRandomProvider;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SuppressWarnings({"javadoc"})
+public class PopulationTest {
+  /** The fitness score. Smaller is better. Null is ranked last. */
+  private static class Score implements Comparable<Score> {
+    final double value;
+
+    Score(double value) {
+      this.value = value;
+    }
+
+    @Override
+    public int compareTo(Score other) {
+      if (other == null) {
+        return -1;
+      }
+      return Double.compare(value, other.value);
+    }
+  }
+
+  private static class Individual implements Chromosome<Score> {
+    final double[] sequence;
+    Score fitness;
+
+    Individual(double[] sequence) {
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int length() {
+      return sequence.length;
+    }
+
+    @Override
+    public double[] sequence() {
+      return sequence;
+    }
+
+    @Override
+    public Chromosome<Score> newChromosome(double[] sequence) {
+      return new Individual(sequence);
+    }
+
+    @Override
+    public double[] mutationStepRange() {
+      return null;
+    }
+
+    @Override
+    public double[] lowerLimit() {
+      return null;
+    }
+
+    @Override
+    public double[] upperLimit() {
+      return null;
+    }
+
+    @Override
+    public void setFitness(Score fitness) {
+      this.fitness = fitness;
+    }
+
+    @Override
+    public Score getFitness() {
+      return fitness;
+    }
+
+    @Override
+    public double distance(Chromosome<Score> other) {
+      double d = 0;
+      for (int i = 0; i < sequence.length; i++) {
+        d += Math.abs(sequence[i] - other.sequence()[i]);
+      }
+      return d;
+    }
+
+    @Override
+    public boolean equalTo(Chromosome<Score> other) {
+      return Arrays.equals(sequence, other.sequence());
+    }
+  }
+
+  /** Compute the squared distance from a target position. Records the evaluated sequences. */
+  private static class DistanceFunction implements FitnessFunction<Score> {
+    final List<double[]> evaluated = new ArrayList<>();
+    final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public void initialise(List<? extends Chromosome<Score>> individuals) {
+      for (final Chromosome<Score> c : individuals) {
+        evaluated.add(c.sequence().clone());
+      }
+    }
+
+    @Override
+    public Score fitness(Chromosome<Score> chromosome) {
+      count.incrementAndGet();
+      double sum = 0;
+      for (final double v : chromosome.sequence()) {
+        sum += (v - 3) * (v - 3);
+      }
+      return new Score(sum);
+    }
+
+    @Override
+    public void shutdown() {
+      // Do nothing
+    }
+  }
+
+  /** Mutate to a random position on a small integer grid so sequences are repeated. */
+  private static Mutator<Score> createMutator(UniformRandomProvider rng) {
+    return c -> {
+      final double[] s = c.sequence().clone();
+      s[rng.nextInt(s.length)] = rng.nextInt(6);
+      return c.newChromosome(s);
+    };
+  }
+
+  private static Chromosome<Score> evolve(long seed, FitnessFunction<Score> function,
+      ExecutorService executor, int cacheSize, List<GenerationStatistics> statistics) {
+    final UniformRandomProvider rng = RngUtils.create(seed);
+    final List<Chromosome<Score>> individuals = new ArrayList<>();
+    individuals.add(new Individual(new double[] {0, 0, 0}));
+    final Population<Score> population = new Population<>(individuals);
+    population.setPopulationSize(10);
+    population.setFailureLimit(10);
+    population.setExecutorService(executor);
+    population.setFitnessCacheSize(cacheSize);
+    final AtomicInteger iterations = new AtomicInteger();
+    final Chromosome<Score> best = population.evolve(createMutator(rng),
+        new SimpleRecombiner<>(rng, 0.5, 1), function, new SimpleSelectionStrategy<>(rng, 0.3, 3),
+        (previous, current) -> iterations.incrementAndGet() >= 15);
+    statistics.addAll(population.getGenerationStatistics());
+    return best;
+  }
+
+  @SeededTest
+  public void canEvaluateFitnessInParallel(RandomSeed seed) {
+    final List<GenerationStatistics> stats1 = new ArrayList<>();
+    final DistanceFunction f1 = new DistanceFunction();
+    final Chromosome<Score> best1 = evolve(seed.getSeed(), f1, null, 0, stats1);
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<GenerationStatistics> stats2 = new ArrayList<>();
+      final DistanceFunction f2 = new DistanceFunction();
+      final Chromosome<Score> best2 = evolve(seed.getSeed(), f2, executor, 0, stats2);
+      Assertions.assertArrayEquals(best1.sequence(), best2.sequence());
+      Assertions.assertEquals(best1.getFitness().value, best2.getFitness().value);
+      Assertions.assertEquals(f1.count.get(), f2.count.get());
+      Assertions.assertEquals(stats1.size(), stats2.size());
+      for (int i = 0; i < stats1.size(); i++) {
+        Assertions.assertEquals(stats1.get(i).getEvaluated(), stats2.get(i).getEvaluated());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @SeededTest
+  public void canCacheFitness(RandomSeed seed) {
+    final List<GenerationStatistics> stats = new ArrayList<>();
+    final DistanceFunction f = new DistanceFunction();
+    final Chromosome<Score> best = evolve(seed.getSeed(), f, null, 1000, stats);
+    Assertions.assertNotNull(best);
+
+    // Each sequence is only evaluated once
+    final Set<List<Double>> unique = new HashSet<>();
+    for (final double[] s : f.evaluated) {
+      final List<Double> key = new ArrayList<>();
+      Arrays.stream(s).forEach(key::add);
+      Assertions.assertTrue(unique.add(key), () -> "Repeat evaluation: " + key);
+    }
+
+    int evaluated = 0;
+    for (final GenerationStatistics s : stats) {
+      evaluated += s.getEvaluated();
+      Assertions.assertTrue(s.getEvaluated() + s.getCacheHits() <= s.getSize());
+    }
+    Assertions.assertEquals(f.evaluated.size(), evaluated);
+    Assertions.assertEquals(f.count.get(), evaluated);
+  }
+}
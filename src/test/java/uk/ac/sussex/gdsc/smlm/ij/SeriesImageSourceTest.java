@@ -36,16 +36,20 @@ import ij.ImageStack;
 import ij.io.FileInfo;
 import ij.io.TiffEncoder;
 import ij.measure.Calibration;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
 
 import org.apache.commons.rng.UniformRandomProvider;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.awt.Rectangle;
 import java.io.BufferedOutputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 
 @SuppressWarnings({"javadoc"})
 public class SeriesImageSourceTest {
@@ -151,17 +155,166 @@ public class SeriesImageSourceTest {
     }
   }
 
+  @Test
+  public void canReadMemoryMappedImagesLe() throws IOException {
+    canReadMemoryMappedImages(true);
+  }
+
+  @Test
+  public void canReadMemoryMappedImagesBe() throws IOException {
+    canReadMemoryMappedImages(false);
+  }
+
+  private void canReadMemoryMappedImages(boolean intelByteOrder) throws IOException {
+    final Rectangle bounds = new Rectangle(2, 1, 5, 3);
+    for (final int bitDepth : new int[] {8, 16, 32}) {
+      final int n = 2;
+      final String[] filenames = createFilenames(n);
+      createSeries(filenames, intelByteOrder, bitDepth);
+
+      // Sequential
+      final SeriesImageSource source = createSource(filenames, true, ReadHint.SEQUENTIAL);
+      final SeriesImageSource expected = createSource(filenames, false, ReadHint.SEQUENTIAL);
+      float[] buffer = null;
+      for (int i = 0; i < depth * n; i++) {
+        final float[] e = expected.next(bounds);
+        buffer = source.next(bounds, buffer);
+        Assertions.assertArrayEquals(e, Arrays.copyOf(buffer, e.length));
+      }
+      Assertions.assertNull(source.next());
+      source.close();
+      expected.close();
+
+      // Non-sequential
+      final SeriesImageSource source2 = createSource(filenames, true, ReadHint.NONSEQUENTIAL);
+      final SeriesImageSource expected2 = createSource(filenames, false, ReadHint.NONSEQUENTIAL);
+      for (int frame = depth * n; frame > 0; frame--) {
+        Assertions.assertArrayEquals(expected2.get(frame), source2.get(frame));
+        Assertions.assertArrayEquals(expected2.get(frame, bounds), source2.get(frame, bounds));
+        final Object e = expected2.getRaw(frame);
+        final Object o = source2.getRaw(frame);
+        Assertions.assertEquals(e.getClass(), o.getClass());
+        if (e instanceof short[]) {
+          Assertions.assertArrayEquals((short[]) e, (short[]) o);
+        } else if (e instanceof byte[]) {
+          Assertions.assertArrayEquals((byte[]) e, (byte[]) o);
+        } else {
+          Assertions.assertArrayEquals((float[]) e, (float[]) o);
+        }
+      }
+      source2.close();
+      expected2.close();
+    }
+  }
+
+  @Test
+  public void canReadUsingFrameIndex() throws IOException {
+    final int n = 2;
+    final String[] filenames = createFilenames(n);
+    final ImageStack[] stacks = createSeries(filenames, true, 16);
+
+    // Create the index
+    SeriesImageSource source = createSource(filenames, true, ReadHint.NONSEQUENTIAL);
+    source.setUseFrameIndex(true);
+    source.close();
+    Assertions.assertTrue(source.open());
+    for (int frame = 1; frame <= depth * n; frame++) {
+      Assertions.assertNotNull(source.get(frame));
+    }
+    source.close();
+    for (final String filename : filenames) {
+      Assertions.assertTrue(new File(filename + ".frameindex").isFile());
+    }
+
+    // Use the index
+    for (final ReadHint readHint : new ReadHint[] {ReadHint.NONSEQUENTIAL, ReadHint.SEQUENTIAL}) {
+      source = new SeriesImageSource("Test", filenames);
+      source.setBufferLimit(0);
+      source.setUseFrameIndex(true);
+      source.setReadHint(readHint);
+      Assertions.assertTrue(source.open());
+      Assertions.assertEquals(depth * n, source.getFrames());
+      for (int i = 0, frame = 1; i < stacks.length; i++) {
+        for (int j = 0; j < depth; j++, frame++) {
+          final short[] e = (short[]) stacks[i].getPixels(j + 1);
+          final Object o =
+              (readHint == ReadHint.SEQUENTIAL) ? source.nextRaw() : source.getRaw(frame);
+          Assertions.assertArrayEquals(e, (short[]) o);
+        }
+      }
+      source.close();
+    }
+  }
+
+  @Test
+  public void frameIndexIsNotUsedByDefault() {
+    final SeriesImageSource source = new SeriesImageSource("Test", new String[] {"a.tif"});
+    for (final ReadHint readHint : ReadHint.values()) {
+      source.setReadHint(readHint);
+      Assertions.assertFalse(source.isUseFrameIndex());
+    }
+    source.setUseFrameIndex(true);
+    Assertions.assertTrue(source.isUseFrameIndex());
+    source.setUseFrameIndex(false);
+    Assertions.assertFalse(source.isUseFrameIndex());
+  }
+
+  @Test
+  public void canReadFramesUsingCacheAndPrefetch() throws IOException {
+    final int n = 2;
+    final String[] filenames = createFilenames(n);
+    final ImageStack[] stacks = createSeries(filenames, false);
+    final SeriesImageSource source = createSource(filenames, false, ReadHint.NONSEQUENTIAL);
+    source.setPrefetchSize(3);
+    final float[][] pixels = new float[n * depth][];
+    for (int i = 0, k = 0; i < stacks.length; i++) {
+      for (int j = 0; j < depth; j++) {
+        pixels[k++] = (float[]) stacks[i].getPixels(j + 1);
+      }
+    }
+    // Forward then backward
+    for (int repeat = 0; repeat < 2; repeat++) {
+      for (int frame = 1; frame <= pixels.length; frame++) {
+        Assertions.assertArrayEquals(pixels[frame - 1], source.get(frame));
+      }
+      for (int frame = pixels.length; frame > 0; frame--) {
+        // Modifying the raw pixels must not change the cached frame
+        final float[] o = (float[]) source.getRaw(frame);
+        Assertions.assertArrayEquals(pixels[frame - 1], o);
+        Arrays.fill(o, -1);
+      }
+    }
+    source.close();
+  }
+
+  private static SeriesImageSource createSource(String[] filenames, boolean memoryMapped,
+      ReadHint readHint) {
+    final SeriesImageSource source = new SeriesImageSource("Test", filenames);
+    source.setBufferLimit(0); // To force reading from the file
+    source.setMemoryMapped(memoryMapped);
+    source.setReadHint(readHint);
+    Assertions.assertTrue(source.open());
+    return source;
+  }
+
   private String[] createFilenames(int n) throws IOException {
     final String[] filenames = new String[n];
     for (int i = 0; i < n; i++) {
       final File path = File.createTempFile(this.getClass().getSimpleName(), ".tif");
       path.deleteOnExit();
       filenames[i] = path.getCanonicalPath();
+      // Random access creates a frame index by default
+      new File(filenames[i] + ".frameindex").deleteOnExit();
     }
     return filenames;
   }
 
   private ImageStack[] createSeries(String[] filenames, boolean intelByteOrder) throws IOException {
+    return createSeries(filenames, intelByteOrder, 32);
+  }
+
+  private ImageStack[] createSeries(String[] filenames, boolean intelByteOrder, int bitDepth)
+      throws IOException {
     final int n = filenames.length;
     final ImageStack[] stacks = new ImageStack[n];
     int index = 0;
@@ -169,7 +322,14 @@ public class SeriesImageSourceTest {
     for (int i = 0; i < n; i++) {
       final ImageStack stack = new ImageStack(width, height);
       for (int j = 0; j < depth; j++) {
-        stack.addSlice(null, SimpleArrayUtils.newArray(length, index, 1f));
+        final float[] pixels = SimpleArrayUtils.newArray(length, index, 1f);
+        if (bitDepth == 32) {
+          stack.addSlice(null, pixels);
+        } else {
+          // Values are truncated to the range of the bit depth
+          final ImageProcessor ip = new FloatProcessor(width, height, pixels);
+          stack.addSlice(null, (bitDepth == 8) ? ip.convertToByte(false) : ip.convertToShort(false));
+        }
         index += length;
       }
       final ImagePlus imp = new ImagePlus(null, stack);
@@ -24,10 +24,13 @@
 
 package uk.ac.sussex.gdsc.smlm.ij.frc;
 
+import uk.ac.sussex.gdsc.core.math.RadialStatisticsUtils;
 import uk.ac.sussex.gdsc.core.utils.DoubleEquality;
 import uk.ac.sussex.gdsc.core.utils.FloatEquality;
 import uk.ac.sussex.gdsc.core.utils.SimpleArrayUtils;
 import uk.ac.sussex.gdsc.core.utils.rng.SamplerUtils;
+import uk.ac.sussex.gdsc.smlm.ij.frc.Frc.FourierMethod;
+import uk.ac.sussex.gdsc.smlm.ij.frc.Frc.FrcCurve;
 import uk.ac.sussex.gdsc.smlm.ij.results.ImageJImagePeakResults;
 import uk.ac.sussex.gdsc.test.junit5.RandomSeed;
 import uk.ac.sussex.gdsc.test.junit5.SeededTest;
@@ -46,6 +49,7 @@ import org.apache.commons.math3.util.FastMath;
 import org.apache.commons.rng.UniformRandomProvider;
 import org.apache.commons.rng.sampling.PermutationSampler;
 import org.apache.commons.rng.sampling.distribution.SharedStateContinuousSampler;
+import org.jtransforms.fft.FloatFFT_2D;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Assumptions;
@@ -160,6 +164,91 @@ public class FrcTest {
     }
   }
 
+  @SeededTest
+  public void canComputeRadialSum(RandomSeed seed) {
+    final int size = 256;
+    final UniformRandomProvider r = RngUtils.create(seed.getSeed());
+    final float[] image1 = new float[size * size];
+    final float[] image2 = new float[size * size];
+    for (int i = 0; i < image1.length; i++) {
+      image1[i] = r.nextFloat();
+      image2[i] = r.nextFloat();
+    }
+
+    // Reference using the centred FFT and a radial sum of the full image
+    final Frc frc = new Frc();
+    final FloatProcessor[] fft1 = frc.getComplexFft(new FloatProcessor(size, size, image1));
+    final FloatProcessor[] fft2 = frc.getComplexFft(new FloatProcessor(size, size, image2));
+    final float[] re1 = (float[]) fft1[0].getPixels();
+    final float[] im1 = (float[]) fft1[1].getPixels();
+    final float[] re2 = (float[]) fft2[0].getPixels();
+    final float[] im2 = (float[]) fft2[1].getPixels();
+    final float[] conjMult = new float[re1.length];
+    final float[] absFft1 = new float[re1.length];
+    final float[] absFft2 = new float[re1.length];
+    Frc.compute(conjMult, absFft1, absFft2, re1, im1, re2, im2);
+    final double[][] expected =
+        RadialStatisticsUtils.radialSumAndCount(size, conjMult, absFft1, absFft2);
+
+    final double[][] centred = Frc.computeRadialSumCentred(size, re1, im1, re2, im2);
+    assertRadialSum(expected, centred);
+
+    // Un-shifted interleaved data from JTransforms
+    final FloatFFT_2D fft = new FloatFFT_2D(size, size);
+    final float[] data1 = new float[2 * size * size];
+    final float[] data2 = new float[2 * size * size];
+    System.arraycopy(frc.getSquareTaperedImage(new FloatProcessor(size, size, image1)).getPixels(),
+        0, data1, 0, image1.length);
+    System.arraycopy(frc.getSquareTaperedImage(new FloatProcessor(size, size, image2)).getPixels(),
+        0, data2, 0, image2.length);
+    fft.realForwardFull(data1);
+    fft.realForwardFull(data2);
+    final double[][] interleaved = Frc.computeRadialSumInterleaved(size, data1, data2);
+    assertRadialSum(expected, interleaved);
+  }
+
+  private static void assertRadialSum(double[][] expected, double[][] actual) {
+    final int max = actual[0].length;
+    for (int ring = 0; ring < max; ring++) {
+      Assertions.assertEquals(expected[3][ring], actual[3][ring], "count");
+      Assertions.assertEquals(expected[1][ring], actual[1][ring], expected[1][ring] * 1e-4,
+          "sum1");
+      Assertions.assertEquals(expected[2][ring], actual[2][ring], expected[2][ring] * 1e-4,
+          "sum2");
+      // The numerator can be close to zero so use the denominator for the tolerance
+      final double denominator = Math.sqrt(expected[1][ring] * expected[2][ring]);
+      Assertions.assertEquals(expected[0][ring], actual[0][ring], denominator * 1e-4,
+          "numerator");
+    }
+  }
+
+  @SeededTest
+  public void canReuseWorkspace(RandomSeed seed) {
+    final int size = 100;
+    final UniformRandomProvider r = RngUtils.create(seed.getSeed());
+    final Frc frc = new Frc();
+    for (final FourierMethod method : FourierMethod.values()) {
+      frc.setFourierMethod(method);
+      for (int repeat = 0; repeat < 3; repeat++) {
+        final float[] image1 = new float[size * size];
+        final float[] image2 = new float[size * size];
+        for (int i = 0; i < image1.length; i++) {
+          image1[i] = r.nextFloat();
+          image2[i] = r.nextFloat();
+        }
+        final FloatProcessor ip1 = new FloatProcessor(size, size, image1);
+        final FloatProcessor ip2 = new FloatProcessor(size, size, image2);
+        // Use a new instance for the expected to check the reused workspace
+        final Frc frc2 = new Frc();
+        frc2.setFourierMethod(method);
+        final FrcCurve expected = frc2.calculateFrcCurve(ip1, ip2, 1);
+        final FrcCurve actual = frc.calculateFrcCurve(ip1, ip2, 1);
+        Assertions.assertArrayEquals(expected.getCorrelationValues(),
+            actual.getCorrelationValues(), 1e-10);
+      }
+    }
+  }
+
   private static ImageJImagePeakResults createImage(Rectangle bounds) {
     final ImageJImagePeakResults i1 = new ImageJImagePeakResults("1", bounds, 1);
     i1.setDisplayImage(false);
@@ -0,0 +1,170 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.ij.ij3d;
+
+import uk.ac.sussex.gdsc.test.junit5.RandomSeed;
+import uk.ac.sussex.gdsc.test.junit5.SeededTest;
+import uk.ac.sussex.gdsc.test.rng.RngUtils;
+
+import org.apache.commons.rng.UniformRandomProvider;
+import org.junit.jupiter.api.Assertions;
+import org.scijava.vecmath.Point3d;
+import org.scijava.vecmath.Point3f;
+import org.scijava.vecmath.Vector3d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@SuppressWarnings({"javadoc"})
+public class PointOctreeTest {
+  private static List<Point3f> createPoints(UniformRandomProvider rng, int size) {
+    final List<Point3f> points = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      points.add(new Point3f(rng.nextFloat() * 100, rng.nextFloat() * 100, rng.nextFloat() * 10));
+    }
+    return points;
+  }
+
+  @SeededTest
+  public void canSortOrthographic(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final List<Point3f> points = createPoints(rng, 2000);
+    final PointOctree tree = new PointOctree(points, 16);
+    Assertions.assertEquals(points.size(), tree.size());
+    // Sort along the z axis so the cells do not overlap in the view direction
+    final Vector3d direction = new Vector3d(0, 0, -1);
+    final int[] indices = tree.sortOrthographic(direction);
+    assertPermutation(indices);
+    // The order is approximate. Cells are ordered using the cell centre so points in cells at the
+    // same depth can interleave. The error is limited to half the depth of the points.
+    final double[] exact = new double[indices.length];
+    for (int i = 0; i < exact.length; i++) {
+      exact[i] = -points.get(i).z;
+    }
+    Arrays.sort(exact);
+    for (int i = 0; i < indices.length; i++) {
+      Assertions.assertEquals(exact[indices.length - 1 - i], -points.get(indices[i]).z, 5);
+    }
+  }
+
+  @SeededTest
+  public void canSortPerspectiveIncrementally(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final List<Point3f> points = createPoints(rng, 1000);
+    final PointOctree tree = new PointOctree(points, 1000);
+    // A single leaf is sorted exactly
+    final Point3d eye = new Point3d(50, 50, -100);
+    final Vector3d direction = new Vector3d(0, 0, 1);
+    final int[] indices1 = tree.sortPerspective(eye, direction);
+    assertPermutation(indices1);
+    assertDescending(points, eye, indices1);
+    eye.x += 5;
+    final int[] indices2 = tree.sortPerspective(eye, direction);
+    assertPermutation(indices2);
+    assertDescending(points, eye, indices2);
+  }
+
+  @SeededTest
+  public void canRemap(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final List<Point3f> points = createPoints(rng, 500);
+    final PointOctree tree = new PointOctree(points, 8);
+    final Vector3d direction = new Vector3d(1, 0.5, -1);
+    final int[] indices = tree.sortOrthographic(direction);
+    final Point3f[] sorted = new Point3f[indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      sorted[i] = points.get(indices[i]);
+    }
+    // Reorder the points and update the index
+    final List<Point3f> original = new ArrayList<>(points);
+    for (int i = 0; i < indices.length; i++) {
+      points.set(i, original.get(indices[i]));
+    }
+    tree.remap(indices);
+    // The same sort must produce the same points
+    final int[] indices2 = tree.sortOrthographic(direction);
+    for (int i = 0; i < indices2.length; i++) {
+      Assertions.assertSame(sorted[i], points.get(indices2[i]));
+    }
+  }
+
+  @SeededTest
+  public void canVisitLevelOfDetail(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final List<Point3f> points = createPoints(rng, 3000);
+    final PointOctree tree = new PointOctree(points, 16);
+    final Point3d eye = new Point3d(0, 0, 0);
+    final int[] count = new int[3];
+    final boolean[] seen = new boolean[points.size()];
+    final PointOctree.LevelOfDetailProcedure procedure =
+        new PointOctree.LevelOfDetailProcedure() {
+          @Override
+          public void point(int index) {
+            Assertions.assertFalse(seen[index]);
+            seen[index] = true;
+            count[0]++;
+          }
+
+          @Override
+          public void cell(Point3f centroid, float size, int[] indices) {
+            for (final int index : indices) {
+              Assertions.assertFalse(seen[index]);
+              seen[index] = true;
+            }
+            count[1]++;
+            count[2] += indices.length;
+          }
+        };
+    // All points in full detail
+    tree.visitLevelOfDetail(eye, 0, procedure);
+    Assertions.assertEquals(points.size(), count[0]);
+    Assertions.assertEquals(0, count[1]);
+    // Aggregate distant cells
+    Arrays.fill(seen, false);
+    Arrays.fill(count, 0);
+    tree.visitLevelOfDetail(eye, 0.2, procedure);
+    Assertions.assertEquals(points.size(), count[0] + count[2]);
+    Assertions.assertTrue(count[1] > 0);
+    Assertions.assertTrue(count[0] + count[1] < points.size());
+  }
+
+  private static void assertPermutation(int[] indices) {
+    final int[] copy = indices.clone();
+    Arrays.sort(copy);
+    for (int i = 0; i < copy.length; i++) {
+      Assertions.assertEquals(i, copy[i]);
+    }
+  }
+
+  private static void assertDescending(List<Point3f> points, Point3d eye, int[] indices) {
+    double last = Double.POSITIVE_INFINITY;
+    for (final int index : indices) {
+      final double d = eye.distance(new Point3d(points.get(index)));
+      Assertions.assertTrue(d <= last);
+      last = d;
+    }
+  }
+}
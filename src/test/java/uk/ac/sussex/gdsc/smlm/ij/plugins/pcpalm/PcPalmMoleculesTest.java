@@ -0,0 +1,108 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.ij.plugins.pcpalm;
+
+import uk.ac.sussex.gdsc.test.junit5.RandomSeed;
+import uk.ac.sussex.gdsc.test.junit5.SeededTest;
+import uk.ac.sussex.gdsc.test.rng.RngUtils;
+
+import org.apache.commons.rng.UniformRandomProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@SuppressWarnings({"javadoc"})
+public class PcPalmMoleculesTest {
+  @Test
+  public void canFindMinimumDistanceWithTooFewMolecules() {
+    Assertions.assertEquals(Double.POSITIVE_INFINITY, findMinimumDistance(new ArrayList<>()));
+    Assertions.assertEquals(Double.POSITIVE_INFINITY,
+        findMinimumDistance(Arrays.asList(new Molecule(1, 2, 0, 0))));
+  }
+
+  @Test
+  public void canFindMinimumDistanceWithDuplicates() {
+    Assertions.assertEquals(0, findMinimumDistance(
+        Arrays.asList(new Molecule(1, 2, 0, 0), new Molecule(1, 2, 0, 0))));
+    Assertions.assertEquals(0, findMinimumDistance(Arrays.asList(new Molecule(1, 2, 0, 0),
+        new Molecule(5, 6, 0, 0), new Molecule(1, 2, 0, 0))));
+  }
+
+  @SeededTest
+  public void canFindMinimumDistance(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    // Uniform, clustered, a degenerate line and a sparse pair with a distant outlier
+    assertMinimumDistance(createMolecules(rng, 500, 1000, 1000, false));
+    assertMinimumDistance(createMolecules(rng, 500, 100, 100, true));
+    assertMinimumDistance(createMolecules(rng, 300, 500, 0, false));
+    final List<Molecule> molecules = createMolecules(rng, 3, 1, 1, false);
+    molecules.add(new Molecule(1e6, 1e6, 0, 0));
+    assertMinimumDistance(molecules);
+  }
+
+  private static List<Molecule> createMolecules(UniformRandomProvider rng, int size, double width,
+      double height, boolean clustered) {
+    final List<Molecule> molecules = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      double x = rng.nextDouble() * width;
+      double y = rng.nextDouble() * height;
+      if (clustered && i % 2 == 1) {
+        // Place close to the previous molecule
+        final Molecule m = molecules.get(i - 1);
+        x = m.x + rng.nextDouble() * 1e-3;
+        y = m.y + rng.nextDouble() * 1e-3;
+      }
+      molecules.add(new Molecule(x, y, 0, 0));
+    }
+    return molecules;
+  }
+
+  private static void assertMinimumDistance(List<Molecule> molecules) {
+    double expected = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < molecules.size(); i++) {
+      for (int j = i + 1; j < molecules.size(); j++) {
+        expected = Math.min(expected, molecules.get(i).distance(molecules.get(j)));
+      }
+    }
+    Assertions.assertEquals(expected, findMinimumDistance(molecules));
+  }
+
+  private static double findMinimumDistance(List<Molecule> molecules) {
+    double minx = Double.POSITIVE_INFINITY;
+    double miny = Double.POSITIVE_INFINITY;
+    double maxx = Double.NEGATIVE_INFINITY;
+    double maxy = Double.NEGATIVE_INFINITY;
+    for (final Molecule m : molecules) {
+      minx = Math.min(minx, m.x);
+      miny = Math.min(miny, m.y);
+      maxx = Math.max(maxx, m.x);
+      maxy = Math.max(maxy, m.y);
+    }
+    return PcPalmMolecules.findMinimumDistance(molecules, minx, miny, maxx, maxy);
+  }
+}
@@ -503,6 +503,65 @@ public class ImageJImagePeakResultsTest {
     Assertions.assertArrayEquals(expecteds, image[0], 1e-5f, "Single != Multi");
   }
 
+  @SeededTest
+  public void canAddConcurrentlyAcrossTiles(RandomSeed seed) throws InterruptedException {
+    checkCanAddConcurrentlyAcrossTiles(seed, ImageJImagePeakResults.DISPLAY_WEIGHTED);
+  }
+
+  @SeededTest
+  public void canAddConcurrentlyAcrossTilesMaxWithNegatives(RandomSeed seed)
+      throws InterruptedException {
+    checkCanAddConcurrentlyAcrossTiles(seed,
+        ImageJImagePeakResults.DISPLAY_MAX | ImageJImagePeakResults.DISPLAY_NEGATIVES);
+  }
+
+  private static void checkCanAddConcurrentlyAcrossTiles(RandomSeed seed, int displayFlags)
+      throws InterruptedException {
+    final UniformRandomProvider rand = RngUtils.create(seed.getSeed());
+    // Span multiple tiles with partial tiles at the edge
+    final Rectangle bounds = new Rectangle(0, 0, 150, 70);
+    final ImageJImagePeakResults r1 = new ImageJImagePeakResults(title + 1, bounds, 1);
+    final ImageJImagePeakResults r2 = new ImageJImagePeakResults(title + 2, bounds, 1);
+    r1.setDisplayFlags(displayFlags);
+    r2.setDisplayFlags(displayFlags);
+    begin(r1);
+    begin(r2);
+
+    final int threads = 4;
+    final int size = 500;
+    final float[][] x = new float[threads][size];
+    final float[][] y = new float[threads][size];
+    final float[][] v = new float[threads][size];
+    for (int t = 0; t < threads; t++) {
+      for (int i = 0; i < size; i++) {
+        x[t][i] = rand.nextFloat() * bounds.width;
+        y[t][i] = rand.nextFloat() * bounds.height;
+        v[t][i] = rand.nextFloat();
+      }
+      addValues(r1, x[t], y[t], v[t]);
+    }
+
+    final Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      final int thread = t;
+      workers[t] = new Thread(() -> {
+        for (int i = 0; i < size; i++) {
+          addValue(r2, x[thread][i], y[thread][i], v[thread][i]);
+        }
+      });
+      workers[t].start();
+    }
+    for (final Thread worker : workers) {
+      worker.join();
+    }
+
+    r1.end();
+    r2.end();
+    Assertions.assertEquals(r1.size(), r2.size());
+    // Differences occur due to floating point summation order
+    Assertions.assertArrayEquals(getImage(r1), getImage(r2), 1e-4f);
+  }
+
   private static void begin(ImageJImagePeakResults results) {
     results.setPsf(psf);
     results.setDisplayImage(false);
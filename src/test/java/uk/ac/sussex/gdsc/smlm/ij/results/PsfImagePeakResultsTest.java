@@ -0,0 +1,136 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.ij.results;
+
+import uk.ac.sussex.gdsc.smlm.data.config.CalibrationProtos.Calibration;
+import uk.ac.sussex.gdsc.smlm.data.config.CalibrationWriter;
+import uk.ac.sussex.gdsc.smlm.data.config.PSFProtos.PSF;
+import uk.ac.sussex.gdsc.smlm.data.config.PSFProtos.PSFType;
+import uk.ac.sussex.gdsc.smlm.data.config.PsfHelper;
+import uk.ac.sussex.gdsc.smlm.data.config.UnitProtos.DistanceUnit;
+import uk.ac.sussex.gdsc.smlm.data.config.UnitProtos.IntensityUnit;
+import uk.ac.sussex.gdsc.smlm.results.Gaussian2DPeakResultHelper;
+import uk.ac.sussex.gdsc.smlm.results.PeakResult;
+import uk.ac.sussex.gdsc.test.junit5.RandomSeed;
+import uk.ac.sussex.gdsc.test.junit5.SeededTest;
+import uk.ac.sussex.gdsc.test.rng.RngUtils;
+
+import org.apache.commons.rng.UniformRandomProvider;
+import org.junit.jupiter.api.Assertions;
+
+import java.awt.Rectangle;
+
+@SuppressWarnings({"javadoc"})
+public class PsfImagePeakResultsTest {
+  private static final String title = "Test";
+  private static final Rectangle bounds = new Rectangle(0, 0, 100, 60);
+
+  @SeededTest
+  public void canAddAllUsingThreadsWithFixedWidth(RandomSeed seed) {
+    checkCanAddAllUsingThreads(seed, PSFType.ONE_AXIS_GAUSSIAN_2D, 1.5f);
+  }
+
+  @SeededTest
+  public void canAddAllUsingThreadsWithFittedWidth(RandomSeed seed) {
+    checkCanAddAllUsingThreads(seed, PSFType.TWO_AXIS_GAUSSIAN_2D, 0);
+  }
+
+  @SeededTest
+  public void canAddAllUsingThreadsWithFittedRotatedWidth(RandomSeed seed) {
+    checkCanAddAllUsingThreads(seed, PSFType.TWO_AXIS_AND_THETA_GAUSSIAN_2D, 0);
+  }
+
+  @SeededTest
+  public void canAddAllUsingThreadsWithCalculatedPrecision(RandomSeed seed) {
+    checkCanAddAllUsingThreads(seed, PSFType.ONE_AXIS_GAUSSIAN_2D, 0, true);
+  }
+
+  private static void checkCanAddAllUsingThreads(RandomSeed seed, PSFType psfType, float width) {
+    checkCanAddAllUsingThreads(seed, psfType, width, false);
+  }
+
+  private static void checkCanAddAllUsingThreads(RandomSeed seed, PSFType psfType, float width,
+      boolean calculatedPrecision) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final PSF psf = PsfHelper.create(psfType);
+    final int size = 3000;
+    final PeakResult[] results = new PeakResult[size];
+    for (int i = 0; i < size; i++) {
+      final float x = rng.nextFloat() * bounds.width;
+      final float y = rng.nextFloat() * bounds.height;
+      final float[] params;
+      if (psfType == PSFType.ONE_AXIS_GAUSSIAN_2D) {
+        params = Gaussian2DPeakResultHelper.createOneAxisParams(0, 100 * rng.nextFloat(), x, y, 0,
+            1 + rng.nextFloat());
+      } else if (psfType == PSFType.TWO_AXIS_GAUSSIAN_2D) {
+        params = Gaussian2DPeakResultHelper.createTwoAxisParams(0, 100 * rng.nextFloat(), x, y, 0,
+            1 + rng.nextFloat(), 1 + rng.nextFloat());
+      } else {
+        params = Gaussian2DPeakResultHelper.createTwoAxisAndAngleParams(0, 100 * rng.nextFloat(),
+            x, y, 0, 1 + rng.nextFloat(), 1 + rng.nextFloat(), rng.nextFloat() * 3 - 1.5f);
+      }
+      final float noise = 1 + rng.nextFloat();
+      results[i] = new PeakResult(i, 0, 0, 0, 0, noise, 0, params, null);
+    }
+
+    final PsfImagePeakResults r1 = createResults(psf, width, calculatedPrecision, 1);
+    final PsfImagePeakResults r2 = createResults(psf, width, calculatedPrecision, 4);
+    r1.addAll(results);
+    r2.addAll(results);
+    r1.end();
+    r2.end();
+
+    final float[] e = (float[]) r1.getImagePlus().getProcessor().getPixels();
+    final float[] o = (float[]) r2.getImagePlus().getProcessor().getPixels();
+    Assertions.assertEquals(e.length, o.length);
+    for (int i = 0; i < e.length; i++) {
+      // Differences occur due to floating point summation order
+      Assertions.assertEquals(e[i], o[i], Math.abs(e[i]) * 1e-5 + 1e-5);
+    }
+  }
+
+  private static PsfImagePeakResults createResults(PSF psf, float width,
+      boolean calculatedPrecision, int threads) {
+    final PsfImagePeakResults results = new PsfImagePeakResults(title, bounds, 4);
+    results.setDisplayFlags(ImageJImagePeakResults.DISPLAY_SIGNAL);
+    results.setWidth(width);
+    results.setCalculatedPrecision(calculatedPrecision);
+    results.setNumberOfThreads(threads);
+    results.setPsf(psf);
+    results.setDisplayImage(false);
+    final CalibrationWriter cw = new CalibrationWriter();
+    cw.setDistanceUnit(DistanceUnit.PIXEL);
+    cw.setIntensityUnit(IntensityUnit.COUNT);
+    if (calculatedPrecision) {
+      // Required to convert the precision to pixels
+      cw.setNmPerPixel(100);
+      cw.setCountPerPhoton(1);
+    }
+    final Calibration calibration = cw.getCalibration();
+    results.setCalibration(calibration);
+    results.begin();
+    return results;
+  }
+}
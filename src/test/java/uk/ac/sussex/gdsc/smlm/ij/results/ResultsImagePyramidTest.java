@@ -0,0 +1,138 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.ij.results;
+
+import uk.ac.sussex.gdsc.test.junit5.RandomSeed;
+import uk.ac.sussex.gdsc.test.junit5.SeededTest;
+import uk.ac.sussex.gdsc.test.rng.RngUtils;
+
+import ij.process.FloatProcessor;
+
+import org.apache.commons.rng.UniformRandomProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+
+@SuppressWarnings({"javadoc"})
+public class ResultsImagePyramidTest {
+  private static final Rectangle bounds = new Rectangle(3, 5, 70, 45);
+  private static final int scale = 8;
+
+  @Test
+  public void canCreateLevels() {
+    final ResultsImagePyramid pyramid = new ResultsImagePyramid(bounds, scale);
+    // 560 x 360 => 280 x 180 => 140 x 90
+    Assertions.assertEquals(3, pyramid.getLevels());
+    Assertions.assertEquals(560, pyramid.getLevelWidth(0));
+    Assertions.assertEquals(360, pyramid.getLevelHeight(0));
+    Assertions.assertEquals(140, pyramid.getLevelWidth(2));
+    Assertions.assertEquals(90, pyramid.getLevelHeight(2));
+    Assertions.assertEquals(0, pyramid.getLevel(8));
+    Assertions.assertEquals(0, pyramid.getLevel(5));
+    Assertions.assertEquals(1, pyramid.getLevel(4));
+    Assertions.assertEquals(2, pyramid.getLevel(0.5));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> pyramid.render(scale + 1, false));
+  }
+
+  @SeededTest
+  public void canRenderAtLevelScale(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final ResultsImagePyramid pyramid = createPyramid(rng, 2000);
+
+    for (int level = 0; level < pyramid.getLevels(); level++) {
+      final double levelScale = pyramid.getLevelScale(level);
+      final FloatProcessor count = pyramid.render(levelScale, false);
+      final FloatProcessor intensity = pyramid.render(levelScale, true);
+      final FloatProcessor expectedCount = new FloatProcessor(count.getWidth(), count.getHeight());
+      final FloatProcessor expectedIntensity =
+          new FloatProcessor(count.getWidth(), count.getHeight());
+      final UniformRandomProvider rng2 = RngUtils.create(seed.getSeed());
+      for (int i = 0; i < 2000; i++) {
+        final float x = bounds.x + rng2.nextFloat() * bounds.width;
+        final float y = bounds.y + rng2.nextFloat() * bounds.height;
+        final float v = rng2.nextFloat();
+        final int px = (int) ((int) ((x - bounds.x) * scale) / (scale / levelScale));
+        final int py = (int) ((int) ((y - bounds.y) * scale) / (scale / levelScale));
+        expectedCount.putPixelValue(px, py, expectedCount.getPixelValue(px, py) + 1);
+        expectedIntensity.putPixelValue(px, py, expectedIntensity.getPixelValue(px, py) + v);
+      }
+      Assertions.assertArrayEquals((float[]) expectedCount.getPixels(),
+          (float[]) count.getPixels());
+      Assertions.assertArrayEquals((float[]) expectedIntensity.getPixels(),
+          (float[]) intensity.getPixels(), 1e-3f);
+    }
+  }
+
+  @SeededTest
+  public void canRenderAtAnyScale(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final ResultsImagePyramid pyramid = createPyramid(rng, 2000);
+    for (final double imageScale : new double[] {7.5, 3, 1.3, 0.7, 0.25}) {
+      final FloatProcessor count = pyramid.render(imageScale, false);
+      Assertions.assertEquals((int) Math.ceil(bounds.width * imageScale), count.getWidth());
+      Assertions.assertEquals((int) Math.ceil(bounds.height * imageScale), count.getHeight());
+      Assertions.assertEquals(2000, sum((float[]) count.getPixels()), 1e-3);
+    }
+  }
+
+  @SeededTest
+  public void canRenderRegion(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final ResultsImagePyramid pyramid = createPyramid(rng, 2000);
+    final Rectangle region = new Rectangle(bounds.x + 20, bounds.y + 10, 35, 30);
+    for (final double imageScale : new double[] {8, 4, 2}) {
+      final FloatProcessor full = pyramid.render(imageScale, true);
+      final FloatProcessor image = pyramid.render(region, imageScale, true);
+      full.setRoi((int) ((region.x - bounds.x) * imageScale),
+          (int) ((region.y - bounds.y) * imageScale), image.getWidth(), image.getHeight());
+      Assertions.assertArrayEquals((float[]) full.crop().getPixels(),
+          (float[]) image.getPixels());
+    }
+  }
+
+  private static ResultsImagePyramid createPyramid(UniformRandomProvider rng, int size) {
+    final ResultsImagePyramid pyramid = new ResultsImagePyramid(bounds, scale);
+    for (int i = 0; i < size; i++) {
+      final float x = bounds.x + rng.nextFloat() * bounds.width;
+      final float y = bounds.y + rng.nextFloat() * bounds.height;
+      pyramid.add(rng.nextFloat(), x, y);
+    }
+    // Outside the bounds
+    pyramid.add(1, bounds.x - 0.5f, bounds.y);
+    pyramid.add(1, bounds.x, bounds.y + bounds.height);
+    Assertions.assertEquals(size, pyramid.size());
+    return pyramid;
+  }
+
+  private static double sum(float[] data) {
+    double sum = 0;
+    for (final float value : data) {
+      sum += value;
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,124 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.model;
+
+import uk.ac.sussex.gdsc.core.utils.MathUtils;
+import uk.ac.sussex.gdsc.smlm.function.gaussian.AstigmatismZModel;
+import uk.ac.sussex.gdsc.smlm.function.gaussian.HoltzerAstigmatismZModel;
+import uk.ac.sussex.gdsc.test.junit5.RandomSeed;
+import uk.ac.sussex.gdsc.test.junit5.SeededTest;
+import uk.ac.sussex.gdsc.test.rng.RngUtils;
+
+import org.apache.commons.rng.UniformRandomProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+@SuppressWarnings({"javadoc"})
+public class StampPsfModelTest {
+  @SeededTest
+  public void canCreate3DUsingStamps(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final AstigmatismZModel zModel =
+        HoltzerAstigmatismZModel.create(1.2, 1.1, 0.3, 0.9, 0, 0, 0, 0);
+    final GaussianPsfModel psf = new GaussianPsfModel(zModel);
+    final StampPsfModel stamp = new StampPsfModel(psf, 16, -1, 1, 0.01);
+
+    final int size = 25;
+    final double[] e = new double[size * size];
+    final double[] o = new double[size * size];
+    for (int i = 0; i < 10; i++) {
+      final double x0 = 8 + rng.nextDouble() * 9;
+      final double x1 = 8 + rng.nextDouble() * 9;
+      final double x2 = rng.nextDouble() * 2 - 1;
+      Arrays.fill(e, 0);
+      Arrays.fill(o, 0);
+      final double sum1 = psf.create3D(e, size, size, 100, x0, x1, x2, null);
+      final double sum2 = stamp.create3D(o, size, size, 100, x0, x1, x2, null);
+      Assertions.assertEquals(sum1, sum2, 0.1);
+      for (int j = 0; j < e.length; j++) {
+        Assertions.assertEquals(e[j], o[j], 0.05);
+      }
+    }
+  }
+
+  @Test
+  public void canCreate3DAtDataEdge() {
+    final GaussianPsfModel psf = new GaussianPsfModel(1, 1);
+    final StampPsfModel stamp = new StampPsfModel(psf, 8);
+    final int size = 10;
+    final float[] data = new float[size * size];
+    final double sum = stamp.create3D(data, size, size, 100, 0.5, 0.5, 0, null);
+    // Part of the PSF is outside the data
+    Assertions.assertEquals(psf.create3D((float[]) null, size, size, 100, 0.5, 0.5, 0, null), sum,
+        1e-3);
+    Assertions.assertEquals(sum, MathUtils.sum(data), 1e-3);
+    Assertions.assertEquals(0, stamp.getX0min());
+    Assertions.assertEquals(0, stamp.getX1min());
+    stamp.erase(data, size, size);
+    Assertions.assertEquals(0, MathUtils.sum(data), 1e-3);
+    // Outside the data
+    Assertions.assertEquals(0, stamp.create3D(data, size, size, 100, -20, 5, 0, null));
+  }
+
+  @SeededTest
+  public void canSample3DUsingStamps(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final StampPsfModel stamp = new StampPsfModel(new GaussianPsfModel(1.5, 1.5), 8);
+    final int size = 30;
+    final double[] data = new double[size * size];
+    final int n = 10000;
+    final int count = stamp.sample3D(data, size, size, n, 15.3, 14.6, 0, rng);
+    Assertions.assertEquals(count, (int) MathUtils.sum(data));
+    Assertions.assertEquals(count, stamp.getSamplePositions().length);
+    // Very few samples should be outside the stamp
+    Assertions.assertTrue(count > n * 0.99);
+    // Check the centre of mass
+    double cx = 0;
+    double cy = 0;
+    for (int i = 0; i < data.length; i++) {
+      cx += data[i] * (i % size + 0.5);
+      cy += data[i] * (i / size + 0.5);
+    }
+    Assertions.assertEquals(15.3, cx / count, 0.05);
+    Assertions.assertEquals(14.6, cy / count, 0.05);
+  }
+
+  @Test
+  public void copyCanRenderTheSamePsf() {
+    final StampPsfModel stamp = new StampPsfModel(new AiryPsfModel(1, 1), 4);
+    final StampPsfModel copy = stamp.copy();
+    Assertions.assertEquals(stamp.getRadius(), copy.getRadius());
+    Assertions.assertEquals(4, copy.getPhases());
+    Assertions.assertEquals(1, copy.getZPlanes());
+    final int size = 30;
+    final double[] e = new double[size * size];
+    final double[] o = new double[size * size];
+    stamp.create3D(e, size, size, 100, 15.1, 15.8, 0, null);
+    copy.create3D(o, size, size, 100, 15.1, 15.8, 0, null);
+    Assertions.assertArrayEquals(e, o);
+  }
+}
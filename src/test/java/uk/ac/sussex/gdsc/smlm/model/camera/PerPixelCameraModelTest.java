@@ -287,6 +287,68 @@ public class PerPixelCameraModelTest {
     Assertions.assertArrayEquals(e, w);
   }
 
+  @SeededTest
+  public void canGetCropWeightsWithPositiveVariance(RandomSeed seed) {
+    final PerPixelCameraModelTestData data = (PerPixelCameraModelTestData) dataCache
+        .computeIfAbsent(seed, PerPixelCameraModelTest::createData);
+    final float[] var = data.variance.clone();
+    for (int i = 0; i < var.length; i++) {
+      if (var[i] == 0) {
+        var[i] = 1;
+      }
+    }
+    final PerPixelCameraModel model = new PerPixelCameraModel(w, h, data.bias, data.gain, var);
+    final UniformRandomProvider rand = RngUtils.create(seed.getSeed());
+    final ImageExtractor ie = ImageExtractor.wrap(data.bias, w, h);
+    for (int i = 0; i < 10; i++) {
+      final Rectangle bounds = getBounds(rand, ie);
+      Assertions.assertArrayEquals(CameraModelUtils.toWeights(model.getVariance(bounds)),
+          model.getWeights(bounds));
+      Assertions.assertArrayEquals(
+          CameraModelUtils.toWeights(model.getNormalisedVariance(bounds)),
+          model.getNormalisedWeights(bounds));
+    }
+  }
+
+  @SeededTest
+  public void canGetCropWeightsWithZeroVariance(RandomSeed seed) {
+    final PerPixelCameraModelTestData data = (PerPixelCameraModelTestData) dataCache
+        .computeIfAbsent(seed, PerPixelCameraModelTest::createData);
+    final float[] var = data.variance.clone();
+    final UniformRandomProvider rand = RngUtils.create(seed.getSeed());
+    for (int i = 0; i < 100; i++) {
+      var[rand.nextInt(var.length)] = 0;
+    }
+    final PerPixelCameraModel model = new PerPixelCameraModel(w, h, data.bias, data.gain, var);
+    final ImageExtractor ie = ImageExtractor.wrap(data.bias, w, h);
+    for (int i = 0; i < 10; i++) {
+      final Rectangle bounds = getBounds(rand, ie);
+      // The weights of a region depend on the minimum variance in the region
+      Assertions.assertArrayEquals(CameraModelUtils.toWeights(model.getVariance(bounds)),
+          model.getWeights(bounds));
+    }
+  }
+
+  @SeededTest
+  public void canGetCropDataAsDouble(RandomSeed seed) {
+    final PerPixelCameraModelTestData data = (PerPixelCameraModelTestData) dataCache
+        .computeIfAbsent(seed, PerPixelCameraModelTest::createData);
+    final PerPixelCameraModel model = createModel(data, false);
+    final UniformRandomProvider rand = RngUtils.create(seed.getSeed());
+    final ImageExtractor ie = ImageExtractor.wrap(data.bias, w, h);
+    double[] buffer = null;
+    for (int i = 0; i < 10; i++) {
+      final Rectangle bounds = getBounds(rand, ie);
+      final double[] v = model.getVariance(bounds, buffer);
+      Assertions.assertArrayEquals(SimpleArrayUtils.toDouble(model.getVariance(bounds)), v);
+      buffer = model.getNormalisedVariance(bounds, v);
+      Assertions.assertArrayEquals(
+          SimpleArrayUtils.toDouble(model.getNormalisedVariance(bounds)), buffer);
+      // The buffer is reused if the size is the same
+      Assertions.assertSame(v, buffer);
+    }
+  }
+
   @SeededTest
   public void canGetMeanVariance(RandomSeed seed) {
     canGetMeanVarianceData(seed, true, false);
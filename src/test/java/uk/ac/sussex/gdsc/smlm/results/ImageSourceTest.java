@@ -579,6 +579,73 @@ public class ImageSourceTest {
     Assertions.assertFalse(source.isValid(data.length + 1));
   }
 
+  @Test
+  public void aggregatedImageSourceCanReturnCroppedDataWithNextUsingBuffer() {
+    final int width = 5;
+    final int height = 3;
+    final int aggregate = 3;
+    final float[][] data = createData(width, height, 15);
+    final float[][] original = copy(data);
+    final Rectangle bounds = new Rectangle(2, 1, 3, 1);
+    final ImageSource source =
+        new AggregatedImageSource(new MemoryImageSource(width, height, data), aggregate);
+
+    Assertions.assertTrue(source.open());
+
+    int index = 1;
+    int ii = 0;
+    final float[] buffer = new float[bounds.width * bounds.height + 2];
+    float[] next = null;
+    while ((next = source.next(bounds, buffer)) != null) {
+      ii++;
+      Assertions.assertSame(buffer, next);
+      Assertions.assertEquals(index, source.getStartFrameNumber());
+      Assertions.assertEquals(index + 2, source.getEndFrameNumber());
+      final float[] all = combine(crop(data[index - 1], width, bounds),
+          crop(data[index], width, bounds), crop(data[index + 1], width, bounds));
+      Assertions.assertArrayEquals(all, Arrays.copyOf(next, all.length));
+      index += 3;
+    }
+    Assertions.assertEquals(ii, source.getFrames());
+    Assertions.assertArrayEquals(original, data);
+  }
+
+  @SeededTest
+  public void aggregatedImageSourceCanReturnCroppedDataWithGetUsingBuffer(RandomSeed seed) {
+    final int width = 5;
+    final int height = 3;
+    final int aggregate = 3;
+    final float[][] data = createData(width, height, 15);
+    final float[][] original = copy(data);
+    final Rectangle bounds = new Rectangle(2, 1, 3, 1);
+    final ImageSource source =
+        new AggregatedImageSource(new MemoryImageSource(width, height, data), aggregate);
+
+    final int[] frames = new int[data.length / 3];
+    for (int i = 0, frame = 1; i < frames.length; i++, frame += 3) {
+      frames[i] = frame;
+    }
+    final UniformRandomProvider rg = RngUtils.create(seed.getSeed());
+    RandomUtils.shuffle(frames, rg);
+
+    Assertions.assertTrue(source.open());
+    final float[] buffer = new float[bounds.width * bounds.height];
+    for (int i = 0; i < frames.length; i++) {
+      final int frame = frames[i];
+      final float[] all = combine(crop(data[frame - 1], width, bounds),
+          crop(data[frame], width, bounds), crop(data[frame + 1], width, bounds));
+      // Repeat to use the cached frame
+      for (int j = 0; j < 2; j++) {
+        final float[] d = source.get(frame, bounds, buffer);
+        Assertions.assertSame(buffer, d);
+        Assertions.assertEquals(frame, source.getStartFrameNumber());
+        Assertions.assertEquals(frame + 2, source.getEndFrameNumber());
+        Assertions.assertArrayEquals(all, d, () -> "Invalid frame data " + frame);
+      }
+    }
+    Assertions.assertArrayEquals(original, data);
+  }
+
   @Test
   public void canConstructAggregatedInterlacedImageSource() {
     final int width = 5;
@@ -830,6 +897,20 @@ public class ImageSourceTest {
     return newData;
   }
 
+  /**
+   * Create a deep copy of the data.
+   *
+   * @param data the data
+   * @return the copy
+   */
+  private static float[][] copy(float[][] data) {
+    final float[][] copy = new float[data.length][];
+    for (int i = 0; i < data.length; i++) {
+      copy[i] = data[i].clone();
+    }
+    return copy;
+  }
+
   /**
    * Sum all the input arrays.
    *
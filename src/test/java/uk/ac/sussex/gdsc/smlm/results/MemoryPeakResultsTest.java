@@ -26,10 +26,17 @@ package uk.ac.sussex.gdsc.smlm.results;
 
 import uk.ac.sussex.gdsc.core.utils.DoubleEquality;
 import uk.ac.sussex.gdsc.core.utils.MemoryUtils;
+import uk.ac.sussex.gdsc.test.junit5.RandomSeed;
+import uk.ac.sussex.gdsc.test.junit5.SeededTest;
+import uk.ac.sussex.gdsc.test.rng.RngUtils;
 import uk.ac.sussex.gdsc.test.utils.TestLogUtils;
 
+import org.apache.commons.rng.UniformRandomProvider;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Supplier;
 import java.util.logging.Logger;
 
@@ -53,6 +60,84 @@ public class MemoryPeakResultsTest {
             new float[PeakResult.STANDARD_PARAMETERS]));
   }
 
+  @SeededTest
+  public void canIterateInFrame(RandomSeed seed) {
+    checkCanIterateInFrame(seed, 50, false);
+  }
+
+  @SeededTest
+  public void canIterateInFrameWithEndFrames(RandomSeed seed) {
+    checkCanIterateInFrame(seed, 50, true);
+  }
+
+  @SeededTest
+  public void canIterateInSparseFrame(RandomSeed seed) {
+    checkCanIterateInFrame(seed, 100000, false);
+  }
+
+  @SeededTest
+  public void canIterateInSparseFrameWithEndFrames(RandomSeed seed) {
+    checkCanIterateInFrame(seed, 100000, true);
+  }
+
+  private static void checkCanIterateInFrame(RandomSeed seed, int maxFrame, boolean endFrames) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final MemoryPeakResults results = new MemoryPeakResults();
+    for (int i = 0; i < 500; i++) {
+      final int frame = 1 + rng.nextInt(maxFrame);
+      if (endFrames && rng.nextBoolean()) {
+        results.add(new ExtendedPeakResult(frame, 0, 0, 0, 0, 0, 0,
+            new float[PeakResult.STANDARD_PARAMETERS], null, frame + rng.nextInt(5), 0));
+      } else {
+        results.add(new PeakResult(frame, i, 0, 0));
+      }
+    }
+
+    final int[] frames = new int[50];
+    for (int i = 0; i < frames.length; i++) {
+      frames[i] = results.get(rng.nextInt(results.size())).getFrame() + rng.nextInt(3) - 1;
+    }
+    frames[0] = 0;
+    frames[1] = maxFrame + 10;
+    for (final int frame : frames) {
+      assertFrameRange(results, frame, frame);
+      assertFrameRange(results, frame, frame + rng.nextInt(10));
+      assertFrameRange(results, frame, frame - 1);
+    }
+
+    // Check the index is updated when the results change
+    results.add(new PeakResult(frames[2], 0, 0, 0));
+    assertFrameRange(results, frames[2], frames[2]);
+    results.removeIf(r -> r.getFrame() == frames[3]);
+    assertFrameRange(results, frames[3], frames[3]);
+    results.get(0).setFrame(frames[4]);
+    results.invalidateFrameIndex();
+    assertFrameRange(results, frames[4], frames[4]);
+  }
+
+  private static void assertFrameRange(MemoryPeakResults results, int minFrame, int maxFrame) {
+    final List<PeakResult> expected = new ArrayList<>();
+    // Results are expected in order of start frame, then storage order
+    for (int frame = minFrame - 5; frame <= maxFrame && minFrame <= maxFrame; frame++) {
+      for (int i = 0; i < results.size(); i++) {
+        final PeakResult r = results.get(i);
+        if (r.getFrame() == frame && r.getEndFrame() >= minFrame) {
+          expected.add(r);
+        }
+      }
+    }
+    final List<PeakResult> actual = new ArrayList<>();
+    results.forEachInFrameRange(minFrame, maxFrame, actual::add);
+    Assertions.assertEquals(expected, actual);
+    Assertions.assertEquals(expected.size(), results.countInFrameRange(minFrame, maxFrame));
+    if (minFrame == maxFrame) {
+      actual.clear();
+      results.forEachInFrame(minFrame, actual::add);
+      Assertions.assertEquals(expected, actual);
+      Assertions.assertEquals(expected.size(), results.countInFrame(minFrame));
+    }
+  }
+
   /**
    * Check the size of the object.
    *
@@ -105,6 +105,41 @@ public class PeakResultStoreTest {
         Assertions.assertTrue(list[i] == storeList.get(i),
             "List entry not same reference after sort");
       }
+
+      // Can reorder
+      final int[] indices = new int[size];
+      for (int i = 0; i < size; i++) {
+        indices[i] = i;
+      }
+      for (int i = size; i-- > 1;) {
+        final int j = r.nextInt(i + 1);
+        final int tmp = indices[i];
+        indices[i] = indices[j];
+        indices[j] = tmp;
+      }
+      final PeakResult[] reordered = new PeakResult[size];
+      for (int i = 0; i < size; i++) {
+        reordered[i] = list[indices[i]];
+      }
+      System.arraycopy(reordered, 0, list, 0, size);
+      storeList.reorder(indices);
+
+      for (int i = 0; i < size; i++) {
+        Assertions.assertTrue(list[i] == storeList.get(i),
+            "List entry not same reference after reorder");
+      }
+      final int[] badIndices = new int[size + 1];
+      Assertions.assertThrows(IllegalArgumentException.class,
+          () -> storeList.reorder(badIndices));
+      // The indices are checked before any change
+      final int[] duplicateIndices = indices.clone();
+      duplicateIndices[size - 1] = duplicateIndices[0];
+      Assertions.assertThrows(IllegalArgumentException.class,
+          () -> storeList.reorder(duplicateIndices));
+      for (int i = 0; i < size; i++) {
+        Assertions.assertTrue(list[i] == storeList.get(i),
+            "List entry not same reference after invalid reorder");
+      }
     }
 
     // Can trim to size
@@ -0,0 +1,98 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.results.filter;
+
+import uk.ac.sussex.gdsc.smlm.results.filter.BasePreprocessedPeakResult.ResultType;
+import uk.ac.sussex.gdsc.test.junit5.RandomSeed;
+import uk.ac.sussex.gdsc.test.junit5.SeededTest;
+import uk.ac.sussex.gdsc.test.rng.RngUtils;
+
+import org.apache.commons.rng.UniformRandomProvider;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+@SuppressWarnings({"javadoc"})
+public class BasePreprocessedPeakResultTest {
+  @SeededTest
+  public void canWriteAndRead(RandomSeed seed) throws IOException {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final ResultType[] types = ResultType.values();
+    final BasePreprocessedPeakResult[] results = new BasePreprocessedPeakResult[10];
+    for (int i = 0; i < results.length; i++) {
+      final double x0 = 10;
+      final double y0 = 10;
+      results[i] = new BasePreprocessedPeakResult(1 + i, i, i + 3, 50 + rng.nextDouble() * 200,
+          40 + rng.nextDouble() * 100, 5 + rng.nextDouble() * 15, 1 + rng.nextDouble(),
+          rng.nextDouble(), x0 + rng.nextDouble() - 0.5, y0 + rng.nextDouble() - 0.5,
+          rng.nextDouble() * 2 - 1, x0, y0, 0.5 + rng.nextDouble() * 1.5,
+          0.5 + rng.nextDouble() * 1.5, 1, 1.1, rng.nextDouble(), rng.nextDouble(),
+          rng.nextDouble(), types[i % types.length]);
+    }
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      for (final BasePreprocessedPeakResult result : results) {
+        result.write(out);
+      }
+    }
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      for (final BasePreprocessedPeakResult e : results) {
+        final BasePreprocessedPeakResult o = BasePreprocessedPeakResult.read(in);
+        Assertions.assertEquals(e.getFrame(), o.getFrame());
+        Assertions.assertEquals(e.getId(), o.getId());
+        Assertions.assertEquals(e.getCandidateId(), o.getCandidateId());
+        Assertions.assertEquals(e.getSignal(), o.getSignal());
+        Assertions.assertEquals(e.getMeanSignal(), o.getMeanSignal());
+        Assertions.assertEquals(e.getSnr(), o.getSnr());
+        Assertions.assertEquals(e.getNoise(), o.getNoise());
+        Assertions.assertEquals(e.getSd(), o.getSd());
+        Assertions.assertEquals(e.getBackground(), o.getBackground());
+        Assertions.assertEquals(e.getAmplitude(), o.getAmplitude());
+        Assertions.assertEquals(e.getAngle(), o.getAngle());
+        Assertions.assertEquals(e.getX(), o.getX());
+        Assertions.assertEquals(e.getY(), o.getY());
+        Assertions.assertEquals(e.getZ(), o.getZ());
+        Assertions.assertEquals(e.getXRelativeShift2(), o.getXRelativeShift2());
+        Assertions.assertEquals(e.getYRelativeShift2(), o.getYRelativeShift2());
+        Assertions.assertEquals(e.getXSd(), o.getXSd());
+        Assertions.assertEquals(e.getYSd(), o.getYSd());
+        Assertions.assertEquals(e.getXSdFactor(), o.getXSdFactor());
+        Assertions.assertEquals(e.getYSdFactor(), o.getYSdFactor());
+        Assertions.assertEquals(e.getLocationVariance(), o.getLocationVariance());
+        Assertions.assertEquals(e.getLocationVariance2(), o.getLocationVariance2());
+        Assertions.assertEquals(e.getLocationVarianceCrlb(), o.getLocationVarianceCrlb());
+        Assertions.assertEquals(e.isExistingResult(), o.isExistingResult());
+        Assertions.assertEquals(e.isNewResult(), o.isNewResult());
+        Assertions.assertFalse(o.hasAssignments());
+      }
+      Assertions.assertEquals(-1, in.read());
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+  */
+
+package uk.ac.sussex.gdsc.smlm.results.filter;
+
+import uk.ac.sussex.gdsc.smlm.results.filter.BasePreprocessedPeakResult.ResultType;
+import uk.ac.sussex.gdsc.test.junit5.RandomSeed;
+import uk.ac.sussex.gdsc.test.junit5.SeededTest;
+import uk.ac.sussex.gdsc.test.rng.RngUtils;
+
+import org.apache.commons.rng.UniformRandomProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings({"javadoc"})
+public class PreprocessedPeakResultColumnsTest {
+  @Test
+  public void canLocateResults() {
+    final UniformRandomProvider rng = RngUtils.create(123);
+    final PreprocessedPeakResult[] results = createResults(rng, 10);
+    // Duplicate Ids are ignored
+    final PreprocessedPeakResult[] results2 = new PreprocessedPeakResult[results.length + 2];
+    System.arraycopy(results, 0, results2, 0, results.length);
+    results2[results.length] = results[3];
+    results2[results.length + 1] = createResult(rng, 3);
+    final PreprocessedPeakResultColumns columns = PreprocessedPeakResultColumns.create(results2);
+    Assertions.assertEquals(results.length, columns.size());
+    for (int i = 0; i < results.length; i++) {
+      Assertions.assertSame(results[i], columns.get(i));
+      Assertions.assertEquals(i, columns.indexOf(results[i]));
+    }
+    // Not the same object
+    Assertions.assertEquals(-1, columns.indexOf(results2[results.length + 1]));
+    // Not present
+    Assertions.assertEquals(-1, columns.indexOf(createResult(rng, results.length)));
+  }
+
+  @SeededTest
+  public void canValidateMultiFilter(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    final PreprocessedPeakResult[] results = createResults(rng, 200);
+    final PreprocessedPeakResultColumns columns = PreprocessedPeakResultColumns.create(results);
+    final int[] setupFlags = {0, FilterValidationOption.NO_SHIFT, FilterValidationOption.NO_WIDTH,
+        FilterValidationOption.XY_WIDTH, FilterValidationOption.NO_Z};
+    for (int i = 0; i < 20; i++) {
+      final double signal = rng.nextDouble() * 200;
+      final float snr = (float) (rng.nextDouble() * 20);
+      final double minWidth = rng.nextDouble();
+      final double maxWidth = 1 + rng.nextDouble();
+      final double shift = rng.nextDouble();
+      final double eshift = rng.nextDouble();
+      final double precision = 0.05 + rng.nextDouble() * 0.25;
+      final float minZ = (float) -rng.nextDouble();
+      final float maxZ = (float) rng.nextDouble();
+      for (final DirectFilter filter : new DirectFilter[] {
+          new MultiFilter(signal, snr, minWidth, maxWidth, shift, eshift, precision, minZ, maxZ),
+          new MultiFilter2(signal, snr, minWidth, maxWidth, shift, eshift, precision, minZ, maxZ),
+          new MultiFilterCrlb(signal, snr, minWidth, maxWidth, shift, eshift, precision, minZ,
+              maxZ),
+          new SnrFilter(snr)}) {
+        for (final int flags : setupFlags) {
+          filter.setup(flags);
+          assertValidate(filter, results, columns);
+        }
+        filter.setup(0, new ShiftFilterSetupData(shift * 0.5));
+        assertValidate(filter, results, columns);
+      }
+    }
+  }
+
+  private static void assertValidate(IDirectFilter filter, PreprocessedPeakResult[] results,
+      PreprocessedPeakResultColumns columns) {
+    final int[] flags = columns.validate(filter);
+    for (int i = 0; i < results.length; i++) {
+      Assertions.assertEquals(filter.validate(results[i]), flags[i]);
+    }
+  }
+
+  private static PreprocessedPeakResult[] createResults(UniformRandomProvider rng, int size) {
+    final PreprocessedPeakResult[] results = new PreprocessedPeakResult[size];
+    for (int i = 0; i < size; i++) {
+      results[i] = createResult(rng, i);
+    }
+    return results;
+  }
+
+  private static PreprocessedPeakResult createResult(UniformRandomProvider rng, int id) {
+    final double signal = 50 + rng.nextDouble() * 200;
+    final double noise = 5 + rng.nextDouble() * 15;
+    final double x0 = 10;
+    final double y0 = 10;
+    final double x = x0 + rng.nextDouble() - 0.5;
+    final double y = y0 + rng.nextDouble() - 0.5;
+    final double z = rng.nextDouble() * 2 - 1;
+    final double xsd = 0.5 + rng.nextDouble() * 1.5;
+    final double ysd = 0.5 + rng.nextDouble() * 1.5;
+    final double variance = 0.0025 + rng.nextDouble() * 0.09;
+    return new BasePreprocessedPeakResult(1, id, id, signal, signal, noise, 1, 0, x, y, z, x0, y0,
+        xsd, ysd, 1, 1, variance, variance * 1.1, variance * 0.9, ResultType.NEW);
+  }
+}
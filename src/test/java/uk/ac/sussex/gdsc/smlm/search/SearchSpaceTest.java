@@ -27,6 +27,15 @@ package uk.ac.sussex.gdsc.smlm.search;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @SuppressWarnings({"javadoc"})
 public class SearchSpaceTest {
   @Test
@@ -127,6 +136,182 @@ public class SearchSpaceTest {
     Assertions.assertTrue(v1.length == v3.length);
   }
 
+  /**
+   * Score the squared distance to a target point. Records all the points that were scored.
+   */
+  private static class DistanceScoreFunction implements FullScoreFunction<Double> {
+    final double[] target;
+    final boolean threadSafe;
+    final List<double[]> points = Collections.synchronizedList(new ArrayList<>());
+    boolean reverse;
+
+    DistanceScoreFunction(boolean threadSafe, double... target) {
+      this.threadSafe = threadSafe;
+      this.target = target;
+    }
+
+    @Override
+    public SearchResult<Double> findOptimum(double[][] points) {
+      SearchResult<Double> optimum = null;
+      for (final SearchResult<Double> result : score(points)) {
+        if (result.compareTo(optimum) < 0) {
+          optimum = result;
+        }
+      }
+      return optimum;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public SearchResult<Double>[] score(double[][] points) {
+      final SearchResult<Double>[] scores = new SearchResult[points.length];
+      for (int i = 0; i < points.length; i++) {
+        this.points.add(points[i].clone());
+        double sum = 0;
+        for (int j = 0; j < target.length; j++) {
+          final double d = points[i][j] - target[j];
+          sum += d * d;
+        }
+        scores[i] = new SearchResult<>(points[i], sum);
+      }
+      if (reverse) {
+        Collections.reverse(Arrays.asList(scores));
+      }
+      return scores;
+    }
+
+    @Override
+    public SearchResult<Double>[] cut(SearchResult<Double>[] scores, int size) {
+      return ScoreFunctionHelper.cut(scores, size);
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+      return threadSafe;
+    }
+
+    int countUnique() {
+      final Set<List<Double>> set = new HashSet<>();
+      for (final double[] p : points) {
+        final List<Double> key = new ArrayList<>();
+        Arrays.stream(p).forEach(key::add);
+        set.add(key);
+      }
+      return set.size();
+    }
+  }
+
+  private static ConvergenceChecker<Double> createChecker() {
+    return (previous, current) -> Arrays.equals(previous.getPoint(), current.getPoint());
+  }
+
+  private static SearchResult<Double> search(DistanceScoreFunction function, boolean memoisation,
+      int threads, SearchSpace.RefinementMode mode) {
+    final SearchDimension d1 = new SearchDimension(0, 10, 0.01, 10);
+    final SearchDimension d2 = new SearchDimension(0, 20, 0.01, 10);
+    final SearchSpace ss = new SearchSpace();
+    ss.setMemoisation(memoisation);
+    ss.setThreads(threads);
+    final ExecutorService executor = (threads > 1) ? Executors.newFixedThreadPool(threads) : null;
+    ss.setExecutorService(executor);
+    try {
+      final SearchResult<Double> result =
+          ss.search(createDimensions(d1, d2), function, createChecker(), mode);
+      Assertions.assertEquals(function.points.size(), ss.getEvaluations());
+      return result;
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void canSearchWithMemoisation() {
+    for (final SearchSpace.RefinementMode mode : SearchSpace.RefinementMode.values()) {
+      final DistanceScoreFunction f1 = new DistanceScoreFunction(false, 3.33, 12.71);
+      final SearchResult<Double> r1 = search(f1, false, 1, mode);
+      final DistanceScoreFunction f2 = new DistanceScoreFunction(false, 3.33, 12.71);
+      final SearchResult<Double> r2 = search(f2, true, 1, mode);
+      Assertions.assertArrayEquals(r1.getPoint(), r2.getPoint());
+      Assertions.assertEquals(r1.getScore(), r2.getScore());
+      // Points are only scored once
+      Assertions.assertEquals(f2.points.size(), f2.countUnique());
+      Assertions.assertTrue(f2.points.size() <= f1.points.size());
+    }
+  }
+
+  @Test
+  public void canSearchInParallel() {
+    for (final SearchSpace.RefinementMode mode : SearchSpace.RefinementMode.values()) {
+      final DistanceScoreFunction f1 = new DistanceScoreFunction(true, 3.33, 12.71);
+      final SearchResult<Double> r1 = search(f1, true, 1, mode);
+      final DistanceScoreFunction f2 = new DistanceScoreFunction(true, 3.33, 12.71);
+      final SearchResult<Double> r2 = search(f2, true, 4, mode);
+      Assertions.assertArrayEquals(r1.getPoint(), r2.getPoint());
+      Assertions.assertEquals(r1.getScore(), r2.getScore());
+      Assertions.assertEquals(f1.points.size(), f2.points.size());
+    }
+  }
+
+  private static SearchResult<Double> enrichmentSearch(DistanceScoreFunction function,
+      boolean memoisation, int threads, boolean successiveHalving) {
+    final SearchDimension d1 = new SearchDimension(0, 10, 0.5, 10);
+    final SearchDimension d2 = new SearchDimension(0, 20, 0.5, 10);
+    final SearchSpace ss = new SearchSpace();
+    ss.setMemoisation(memoisation);
+    ss.setThreads(threads);
+    ss.setSuccessiveHalving(successiveHalving);
+    final ExecutorService executor = (threads > 1) ? Executors.newFixedThreadPool(threads) : null;
+    ss.setExecutorService(executor);
+    try {
+      final int[] count = {0};
+      final SearchResult<Double> result = ss.enrichmentSearch(createDimensions(d1, d2), function,
+          (previous, current) -> ++count[0] == 10, 200, 0.1, 0.1);
+      Assertions.assertEquals(function.points.size(), ss.getEvaluations());
+      return result;
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void canEnrichmentSearchWithMemoisationInParallel() {
+    final DistanceScoreFunction f1 = new DistanceScoreFunction(true, 3.3, 12.7);
+    final SearchResult<Double> r1 = enrichmentSearch(f1, false, 1, false);
+    final DistanceScoreFunction f2 = new DistanceScoreFunction(true, 3.3, 12.7);
+    final SearchResult<Double> r2 = enrichmentSearch(f2, true, 4, false);
+    Assertions.assertArrayEquals(r1.getPoint(), r2.getPoint());
+    Assertions.assertEquals(r1.getScore(), r2.getScore());
+    // The sample is rounded to the min interval so points are repeated
+    Assertions.assertEquals(f2.points.size(), f2.countUnique());
+    Assertions.assertTrue(f2.points.size() < f1.points.size());
+  }
+
+  @Test
+  public void canEnrichmentSearchWithMemoisationWhenScoresAreReordered() {
+    final DistanceScoreFunction f1 = new DistanceScoreFunction(false, 3.3, 12.7);
+    final SearchResult<Double> r1 = enrichmentSearch(f1, true, 1, false);
+    final DistanceScoreFunction f2 = new DistanceScoreFunction(false, 3.3, 12.7);
+    f2.reverse = true;
+    final SearchResult<Double> r2 = enrichmentSearch(f2, true, 1, false);
+    Assertions.assertArrayEquals(r1.getPoint(), r2.getPoint());
+    Assertions.assertEquals(r1.getScore(), r2.getScore());
+    Assertions.assertEquals(f1.points.size(), f2.points.size());
+  }
+
+  @Test
+  public void canEnrichmentSearchWithSuccessiveHalving() {
+    final DistanceScoreFunction f1 = new DistanceScoreFunction(false, 3.3, 12.7);
+    enrichmentSearch(f1, false, 1, false);
+    final DistanceScoreFunction f2 = new DistanceScoreFunction(false, 3.3, 12.7);
+    final SearchResult<Double> r2 = enrichmentSearch(f2, false, 1, true);
+    Assertions.assertTrue(f2.points.size() < f1.points.size());
+    Assertions.assertNotNull(r2);
+  }
+
   private static SearchDimension[] createDimensions(SearchDimension... dimensions) {
     return dimensions;
   }
@@ -0,0 +1,85 @@
+/*-
+ * #%L
+ * Genome Damage and Stability Centre SMLM ImageJ Plugins
+ *
+ * Software for single molecule localisation microscopy (SMLM)
+ * %%
+ * Copyright (C) 2011 - 2019 Alex Herbert
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package uk.ac.sussex.gdsc.smlm.utils;
+
+import uk.ac.sussex.gdsc.test.junit5.RandomSeed;
+import uk.ac.sussex.gdsc.test.junit5.SeededTest;
+import uk.ac.sussex.gdsc.test.rng.RngUtils;
+
+import org.apache.commons.rng.UniformRandomProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings({"javadoc"})
+public class PermutationUtilsTest {
+  @SeededTest
+  public void canReorder(RandomSeed seed) {
+    final UniformRandomProvider rng = RngUtils.create(seed.getSeed());
+    for (final int size : new int[] {0, 1, 2, 3, 10, 100}) {
+      final int[] indices = createPermutation(rng, size);
+      final int[] data = new int[size];
+      for (int i = 0; i < size; i++) {
+        data[i] = rng.nextInt();
+      }
+      final int[] expected = new int[size];
+      for (int i = 0; i < size; i++) {
+        expected[i] = data[indices[i]];
+      }
+      PermutationUtils.reorder(indices, size, (i, j) -> {
+        final int tmp = data[i];
+        data[i] = data[j];
+        data[j] = tmp;
+      });
+      Assertions.assertArrayEquals(expected, data);
+    }
+  }
+
+  @Test
+  public void reorderChecksIndicesBeforeSwapping() {
+    final PermutationUtils.IndexSwapper swapper = (i, j) -> Assertions.fail("Data was swapped");
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> PermutationUtils.reorder(new int[] {1, 0}, 3, swapper));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> PermutationUtils.reorder(new int[] {1, 2, 1}, 3, swapper));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> PermutationUtils.reorder(new int[] {1, 2, 3}, 3, swapper));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> PermutationUtils.reorder(new int[] {1, -1, 0}, 3, swapper));
+  }
+
+  private static int[] createPermutation(UniformRandomProvider rng, int size) {
+    final int[] indices = new int[size];
+    for (int i = 0; i < size; i++) {
+      indices[i] = i;
+    }
+    for (int i = size; i-- > 1;) {
+      final int j = rng.nextInt(i + 1);
+      final int tmp = indices[i];
+      indices[i] = indices[j];
+      indices[j] = tmp;
+    }
+    return indices;
+  }
+}